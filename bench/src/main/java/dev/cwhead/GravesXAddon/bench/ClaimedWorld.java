@@ -0,0 +1,145 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.snapshot.RegionSnapshot;
+import dev.cwhead.GravesXAddon.snapshot.WorldRegionSnapshot;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The {@code ClaimedWorld} class generates the regions of a survival world the way players claim land: settlements
+ * of many small claims packed around a few centers, with plots inside some claims that let others loot graves,
+ * and wilderness everywhere else. Claims deny every grave action to players that are not their owner or a
+ * member. Everything is generated from a seed, so every fork measures the same world.
+ */
+public final class ClaimedWorld {
+    /**
+     * The number of settlements claims are packed around.
+     */
+    public static final int SETTLEMENTS = 12;
+
+    private static final int SPREAD = 20000;
+    private static final double SETTLEMENT_RADIUS = 400.0D;
+    private static final double PLOT_CHANCE = 0.15D;
+
+    private final World world;
+    private final UUID[] residents;
+    private final Location[] settlements = new Location[SETTLEMENTS];
+    private final WorldRegionSnapshot snapshot;
+
+    /**
+     * Generates a world.
+     *
+     * @param world The world the regions are in.
+     * @param claims The number of claims.
+     * @param residents The number of players owning or sharing claims.
+     * @param seed The seed of the world.
+     */
+    public ClaimedWorld(World world, int claims, int residents, long seed) {
+        Random random = new Random(seed);
+        List<RegionSnapshot> regions = new ArrayList<>();
+
+        this.world = world;
+        this.residents = new UUID[residents];
+
+        for (int i = 0; i < residents; i++) {
+            this.residents[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        for (int i = 0; i < SETTLEMENTS; i++) {
+            settlements[i] = new Location(world, random.nextInt(2 * SPREAD) - SPREAD, 64,
+                    random.nextInt(2 * SPREAD) - SPREAD);
+        }
+
+        for (int i = 0; i < claims; i++) {
+            Location center = settlements[random.nextInt(SETTLEMENTS)];
+            int width = claimSize(random);
+            int length = claimSize(random);
+            int minX = center.getBlockX() + (int) (random.nextGaussian() * SETTLEMENT_RADIUS) - width / 2;
+            int minZ = center.getBlockZ() + (int) (random.nextGaussian() * SETTLEMENT_RADIUS) - length / 2;
+            Set<UUID> members = new HashSet<>();
+            int count = 1 + random.nextInt(4);
+
+            for (int j = 0; j < count; j++) {
+                members.add(this.residents[random.nextInt(residents)]);
+            }
+
+            String id = "claim-" + i;
+
+            regions.add(new RegionSnapshot(id, null, 0, minX, -64, minZ, minX + width - 1, 319,
+                    minZ + length - 1, null, null, flags(RegionSnapshot.DENY), members, false));
+
+            if (random.nextDouble() < PLOT_CHANCE && width >= 16 && length >= 16) {
+                int plotX = minX + random.nextInt(width - 8);
+                int plotZ = minZ + random.nextInt(length - 8);
+                byte[] plotFlags = new byte[GraveAction.values().length];
+
+                plotFlags[GraveAction.OPEN.ordinal()] = RegionSnapshot.ALLOW;
+                plotFlags[GraveAction.AUTO_LOOT.ordinal()] = RegionSnapshot.ALLOW;
+                regions.add(new RegionSnapshot(id + "-plot", id, 1, plotX, -64, plotZ, plotX + 7, 319,
+                        plotZ + 7, null, null, plotFlags, members, false));
+            }
+        }
+
+        this.snapshot = new WorldRegionSnapshot(world.getName(), null, regions);
+    }
+
+    /**
+     * Gets the world the regions are in.
+     *
+     * @return The World instance.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Gets the players owning or sharing claims.
+     *
+     * @return The UUIDs of the residents.
+     */
+    public UUID[] getResidents() {
+        return residents.clone();
+    }
+
+    /**
+     * Gets the center of a settlement.
+     *
+     * @param settlement The index of the settlement, below {@link #SETTLEMENTS}.
+     * @return The center of the settlement.
+     */
+    public Location getSettlement(int settlement) {
+        return settlements[settlement].clone();
+    }
+
+    /**
+     * Gets the regions of the world.
+     *
+     * @return The WorldRegionSnapshot instance.
+     */
+    public WorldRegionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Picks the side length of a claim, mostly a chunk or two with the occasional estate.
+     */
+    private static int claimSize(Random random) {
+        return 8 + (int) Math.min(248.0D, Math.abs(random.nextGaussian()) * 24.0D);
+    }
+
+    private static byte[] flags(byte state) {
+        byte[] flags = new byte[GraveAction.values().length];
+
+        Arrays.fill(flags, state);
+        return flags;
+    }
+}
@@ -0,0 +1,297 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import com.ranull.graves.event.GraveAutoLootEvent;
+import com.ranull.graves.event.GraveBlockPlaceEvent;
+import com.ranull.graves.event.GraveCreateEvent;
+import com.ranull.graves.event.GraveOpenEvent;
+import com.ranull.graves.event.GraveProjectileHitEvent;
+import com.ranull.graves.event.GraveTeleportEvent;
+import com.ranull.graves.event.GraveWalkOverEvent;
+import com.ranull.graves.type.Grave;
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.listener.LandProtectionGraveCreateListener;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The {@code DeathStormBenchmark} class measures a death storm, many players dying at once around the same spot
+ * such as during a boss fight, followed by their graves being opened, auto-looted, walked over and shot at.
+ * Every event goes through the public event handlers of {@link LandProtectionGraveCreateListener}, the way
+ * Bukkit calls them, against a stand-in plugin and a stand-in provider answering from a generated
+ * {@link ClaimedWorld}, see {@link StandIns}.
+ * <p>
+ * In the first tick every player dies and their grave is created. In every later tick each player fires one event
+ * picked from the event mix, on their own grave or the grave of another player, and an event picked as
+ * {@code create} makes the player die again elsewhere. The events are generated once, and every storm starts
+ * with empty caches and sessions, so the score is the time per event of a storm nobody checked before.
+ * <p>
+ * The events, graves and players are stubs, so every event also pays a few stub calls that a server does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class DeathStormBenchmark {
+    /**
+     * The number of players dying in the storm.
+     */
+    public static final int PLAYERS = 200;
+
+    /**
+     * The number of ticks of the storm, including the tick everyone dies in.
+     */
+    public static final int TICKS = 20;
+
+    /**
+     * The number of events fired in a storm.
+     */
+    public static final int EVENTS = PLAYERS * TICKS;
+
+    /**
+     * The radius in blocks around the center the players die in.
+     */
+    public static final int RADIUS = 48;
+
+    /**
+     * The weights of the events fired after the first tick, indexed by {@link GraveAction#ordinal()}. Most events
+     * are players walking over graves while looking for their own.
+     */
+    private static final int[] MIX = {5, 0, 15, 10, 60, 10};
+
+    private static final long SEED = 0x6772617665735FL;
+
+    /**
+     * Where the storm happens, in the middle of a settlement or out in the wilderness.
+     */
+    @Param({"settlement", "wilderness"})
+    public String site;
+
+    private SnapshotProvider provider;
+    private Player[] players;
+    private GraveAction[] actions;
+    private Object[] events;
+    private GraveBlockPlaceEvent[] placeEvents;
+    private LandProtectionGraveCreateListener listener;
+
+    /**
+     * Generates the world, the players and the events of the storm.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        ClaimedWorld world = new ClaimedWorld(StandIns.world("world"), 20000, 5000, SEED);
+        Location center = site.equals("settlement") ? world.getSettlement(0)
+                : new Location(world.getWorld(), 30000, 64, 30000);
+        Random random = new Random(SEED);
+        UUID[] residents = world.getResidents();
+        Grave[] graves = new Grave[PLAYERS];
+
+        provider = new SnapshotProvider("claims", world.getSnapshot());
+        players = new Player[PLAYERS];
+        actions = new GraveAction[EVENTS];
+        events = new Object[EVENTS];
+        placeEvents = new GraveBlockPlaceEvent[EVENTS];
+
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = StandIns.player(residents[random.nextInt(residents.length)], center);
+        }
+
+        for (int tick = 0, event = 0; tick < TICKS; tick++) {
+            for (int i = 0; i < PLAYERS; i++, event++) {
+                GraveAction action = tick == 0 ? GraveAction.CREATE : pick(random);
+
+                actions[event] = action;
+
+                if (action == GraveAction.CREATE) {
+                    Location death = center.clone().add(random.nextInt(RADIUS * 2 + 1) - RADIUS, 0,
+                            random.nextInt(RADIUS * 2 + 1) - RADIUS);
+
+                    graves[i] = grave(new UUID(random.nextLong(), random.nextLong()), players[i], death);
+                    events[event] = createEvent(players[i], graves[i]);
+                    placeEvents[event] = placeEvent(graves[i], death);
+                } else {
+                    Grave target = graves[random.nextBoolean() ? i : random.nextInt(PLAYERS)];
+
+                    events[event] = event(action, players[i], target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the plugin with a fresh one, so every storm starts with empty caches.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+        LandProtection plugin = StandIns.plugin(provider);
+
+        for (Player player : players) {
+            plugin.getSessions().open(player);
+        }
+
+        for (Object event : events) {
+            if (event instanceof GraveCreateEvent) {
+                ((GraveCreateEvent) event).setCancelled(false);
+            }
+        }
+
+        listener = new LandProtectionGraveCreateListener(plugin);
+    }
+
+    /**
+     * Fires every event of the storm.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void storm() {
+        for (int i = 0; i < EVENTS; i++) {
+            Object event = events[i];
+
+            switch (actions[i]) {
+                case CREATE:
+                    listener.onGraveCreate((GraveCreateEvent) event);
+
+                    if (!((GraveCreateEvent) event).isCancelled()) {
+                        listener.onGraveBlockPlace(placeEvents[i]);
+                    }
+
+                    break;
+                case TELEPORT:
+                    listener.onGraveTeleport((GraveTeleportEvent) event);
+                    break;
+                case OPEN:
+                    listener.onGraveOpen((GraveOpenEvent) event);
+                    break;
+                case AUTO_LOOT:
+                    listener.onGraveAutoLooted((GraveAutoLootEvent) event);
+                    break;
+                case WALK_OVER:
+                    listener.onGraveWalkedOver((GraveWalkOverEvent) event);
+                    break;
+                case PROJECTILE:
+                    listener.onGraveProjectile((GraveProjectileHitEvent) event);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown grave action " + actions[i]);
+            }
+        }
+    }
+
+    private static GraveAction pick(Random random) {
+        int total = 0;
+
+        for (int weight : MIX) {
+            total += weight;
+        }
+
+        int roll = random.nextInt(total);
+
+        for (GraveAction action : GraveAction.values()) {
+            roll -= MIX[action.ordinal()];
+
+            if (roll < 0) {
+                return action;
+            }
+        }
+
+        return GraveAction.WALK_OVER;
+    }
+
+    private static Grave grave(UUID uuid, Player owner, Location location) {
+        Grave grave = mock(Grave.class, withSettings().stubOnly());
+        UUID ownerUUID = owner.getUniqueId();
+
+        when(grave.getUUID()).thenReturn(uuid);
+        when(grave.getOwnerUUID()).thenReturn(ownerUUID);
+        when(grave.getLocationDeath()).thenReturn(location);
+        return grave;
+    }
+
+    /**
+     * Creates the event placing the block of a grave, fired once the creation of the grave was not cancelled.
+     */
+    private static GraveBlockPlaceEvent placeEvent(Grave grave, Location location) {
+        GraveBlockPlaceEvent event = mock(GraveBlockPlaceEvent.class, withSettings().stubOnly());
+
+        when(event.getGrave()).thenReturn(grave);
+        when(event.getLocation()).thenReturn(location);
+        return event;
+    }
+
+    /**
+     * Creates a grave create event that remembers whether it was cancelled, as the grave block is only placed for
+     * events that were not.
+     */
+    private static GraveCreateEvent createEvent(Player player, Grave grave) {
+        GraveCreateEvent event = mock(GraveCreateEvent.class, withSettings().stubOnly());
+        boolean[] cancelled = new boolean[1];
+
+        when(event.getEntity()).thenReturn(player);
+        when(event.getGrave()).thenReturn(grave);
+        when(event.isCancelled()).thenAnswer(invocation -> cancelled[0]);
+        doAnswer(invocation -> cancelled[0] = invocation.getArgument(0)).when(event).setCancelled(anyBoolean());
+        return event;
+    }
+
+    private static Object event(GraveAction action, Player player, Grave grave) {
+        switch (action) {
+            case TELEPORT:
+                GraveTeleportEvent teleport = mock(GraveTeleportEvent.class, withSettings().stubOnly());
+
+                when(teleport.getPlayer()).thenReturn(player);
+                when(teleport.getGrave()).thenReturn(grave);
+                return teleport;
+            case OPEN:
+                GraveOpenEvent open = mock(GraveOpenEvent.class, withSettings().stubOnly());
+
+                when(open.getPlayer()).thenReturn(player);
+                when(open.getGrave()).thenReturn(grave);
+                return open;
+            case AUTO_LOOT:
+                GraveAutoLootEvent autoLoot = mock(GraveAutoLootEvent.class, withSettings().stubOnly());
+
+                when(autoLoot.getPlayer()).thenReturn(player);
+                when(autoLoot.getGrave()).thenReturn(grave);
+                return autoLoot;
+            case WALK_OVER:
+                GraveWalkOverEvent walkOver = mock(GraveWalkOverEvent.class, withSettings().stubOnly());
+
+                when(walkOver.getPlayer()).thenReturn(player);
+                when(walkOver.getGrave()).thenReturn(grave);
+                return walkOver;
+            case PROJECTILE:
+                GraveProjectileHitEvent projectile = mock(GraveProjectileHitEvent.class, withSettings().stubOnly());
+
+                when(projectile.getPlayer()).thenReturn(player);
+                when(projectile.getGrave()).thenReturn(grave);
+                return projectile;
+            default:
+                throw new IllegalArgumentException("No event for grave action " + action);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code DecisionCacheBenchmark} class measures the {@link DecisionCache} of a busy server: 500 online players,
+ * each with a full table of decisions made around the few spots they died at. Lookups cycle through prepared keys,
+ * so every operation reads a different player and position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class DecisionCacheBenchmark {
+    /**
+     * The number of online players with cached decisions.
+     */
+    public static final int PLAYERS = 500;
+
+    private static final int SAMPLES = 1 << 13;
+    private static final int DEATH_SPOTS = 4;
+    private static final int RADIUS = 48;
+    private static final long SEED = 0x6361636865L;
+
+    /**
+     * The number of decisions cached per player.
+     */
+    @Param({"256"})
+    public int entriesPerPlayer;
+
+    private DecisionCache decisionCache;
+    private final Sample[] cached = new Sample[SAMPLES];
+    private final Sample[] uncached = new Sample[SAMPLES];
+    private int next;
+
+    /**
+     * Fills the cache and prepares the keys of the lookups.
+     */
+    @Setup(Level.Trial)
+    public void fill() {
+        Random random = new Random(SEED);
+        GraveAction[] actions = GraveAction.values();
+        Sample[][] filled = new Sample[PLAYERS][entriesPerPlayer];
+
+        decisionCache = new DecisionCache(entriesPerPlayer);
+
+        for (int player = 0; player < PLAYERS; player++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            int[][] spots = new int[DEATH_SPOTS][];
+
+            for (int spot = 0; spot < DEATH_SPOTS; spot++) {
+                spots[spot] = new int[] {random.nextInt(40000) - 20000, random.nextInt(40000) - 20000};
+            }
+
+            for (int entry = 0; entry < entriesPerPlayer; entry++) {
+                int[] spot = spots[random.nextInt(DEATH_SPOTS)];
+                Sample sample = new Sample(uuid, spot[0] + random.nextInt(2 * RADIUS) - RADIUS,
+                        40 + random.nextInt(40), spot[1] + random.nextInt(2 * RADIUS) - RADIUS,
+                        actions[random.nextInt(actions.length)]);
+
+                decisionCache.put(sample.player, "world", sample.x, sample.y, sample.z, sample.action,
+                        random.nextBoolean(), decisionCache.getGeneration(sample.player));
+                filled[player][entry] = sample;
+            }
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            Sample sample = filled[random.nextInt(PLAYERS)][random.nextInt(entriesPerPlayer)];
+
+            cached[i] = sample;
+            uncached[i] = new Sample(sample.player, sample.x + 100000, sample.y, sample.z, sample.action);
+        }
+    }
+
+    /**
+     * Looks up decisions that were cached, most of which are still in the table of their player.
+     *
+     * @return The cached decision.
+     */
+    @Benchmark
+    public Boolean getCached() {
+        Sample sample = cached[next++ & SAMPLES - 1];
+
+        return decisionCache.get(sample.player, "world", sample.x, sample.y, sample.z, sample.action);
+    }
+
+    /**
+     * Looks up decisions at positions nobody was checked at.
+     *
+     * @return The cached decision, {@code null}.
+     */
+    @Benchmark
+    public Boolean getUncached() {
+        Sample sample = uncached[next++ & SAMPLES - 1];
+
+        return decisionCache.get(sample.player, "world", sample.x, sample.y, sample.z, sample.action);
+    }
+
+    /**
+     * Caches decisions the way the grave listener does, reading the generation of the player first.
+     */
+    @Benchmark
+    public void put() {
+        Sample sample = cached[next++ & SAMPLES - 1];
+
+        decisionCache.put(sample.player, "world", sample.x, sample.y, sample.z, sample.action, true,
+                decisionCache.getGeneration(sample.player));
+    }
+
+    /**
+     * A decision of a player at a position.
+     */
+    private static final class Sample {
+        private final UUID player;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final GraveAction action;
+
+        private Sample(UUID player, int x, int y, int z, GraveAction action) {
+            this.player = player;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import com.ranull.graves.event.GraveCreateEvent;
+import com.ranull.graves.event.GraveOpenEvent;
+import com.ranull.graves.event.GraveWalkOverEvent;
+import com.ranull.graves.type.Grave;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.integration.TownyImpl;
+import dev.cwhead.GravesXAddon.integration.WorldGuardImpl;
+import dev.cwhead.GravesXAddon.listener.LandProtectionGraveCreateListener;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The {@code GraveListenerBenchmark} class measures the grave event handlers of
+ * {@link LandProtectionGraveCreateListener} the way Bukkit calls them, against a stand-in plugin with the real
+ * {@link WorldGuardImpl} and {@link TownyImpl} providers, see {@link StandIns}. WorldGuard answers from in-memory
+ * region managers generated by {@link WorldGuardWorld} and Towny from the towns of a {@link TownyWorld} in every
+ * world.
+ * <p>
+ * Every invocation fires the same events on graves all over the worlds, starting with empty decision caches, so
+ * the score is the time per event of events nobody checked before, as on a server whose caches were just
+ * invalidated. Half of the players own or share regions and are residents of a town.
+ * <p>
+ * The events, graves and players are stubs, so every event also pays a few stub calls that a server does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class GraveListenerBenchmark {
+    /**
+     * The number of events fired by every invocation.
+     */
+    public static final int EVENTS = 4096;
+
+    private static final int PLAYERS = 200;
+    private static final int RESIDENTS = 5000;
+    private static final int TOWN_BLOCKS = 20_000;
+    private static final int TOWNS = 200;
+    private static final long SEED = 0x6C697374656EL;
+
+    /**
+     * The number of regions in every world.
+     */
+    @Param({"1000", "20000"})
+    public int regionCount;
+
+    /**
+     * The number of regions covering the innermost region of a stack.
+     */
+    @Param({"1", "4"})
+    public int overlapDepth;
+
+    /**
+     * The number of worlds with regions and towns.
+     */
+    @Param({"1", "4"})
+    public int worldCount;
+
+    private final Player[] players = new Player[PLAYERS];
+    private final GraveCreateEvent[] createEvents = new GraveCreateEvent[EVENTS];
+    private final GraveOpenEvent[] openEvents = new GraveOpenEvent[EVENTS];
+    private final GraveWalkOverEvent[] walkOverEvents = new GraveWalkOverEvent[EVENTS];
+    private LandProtection plugin;
+    private LandProtectionGraveCreateListener listener;
+
+    /**
+     * Generates the worlds, their regions and towns, the players and the events.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        Map<String, RegionManager> regionManagers = new ConcurrentHashMap<>();
+        Random random = new Random(SEED);
+        UUID[] residents = new UUID[RESIDENTS];
+        WorldGuardWorld[] worlds = new WorldGuardWorld[worldCount];
+        GraveAction[] values = GraveAction.values();
+
+        plugin = StandIns.plugin();
+
+        WorldGuardImpl worldGuard = StandIns.worldGuard(plugin, regionManagers);
+        TownyImpl towny = StandIns.towny(plugin);
+        StateFlag[] flags = new StateFlag[values.length];
+
+        for (GraveAction action : values) {
+            flags[action.ordinal()] = worldGuard.getFlag(action);
+        }
+
+        for (int i = 0; i < RESIDENTS; i++) {
+            residents[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        for (int i = 0; i < worldCount; i++) {
+            TownyWorld townyWorld = new TownyWorld(TOWN_BLOCKS, TOWNS, SEED + i);
+
+            worlds[i] = new WorldGuardWorld(StandIns.world("world-" + i), regionCount, overlapDepth, residents, flags,
+                    SEED + i);
+            regionManagers.put(worlds[i].getWorld().getName(), worlds[i].getRegionManager());
+            townyWorld.claim(towny.getChunkIndex(), worlds[i].getWorld().getName());
+
+            for (UUID town : townyWorld.getTowns()) {
+                int townResidents = 1 + random.nextInt(8);
+
+                for (int j = 0; j < townResidents; j++) {
+                    towny.getResidentIndex().addResident(town, residents[random.nextInt(RESIDENTS)]);
+                }
+            }
+        }
+
+        towny.getChunkIndex().publish((worldName, minX, minZ, maxX, maxZ) -> { });
+        plugin.getProtectionEngine().register(worldGuard);
+        plugin.getProtectionEngine().register(towny);
+
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = i % 2 == 0 ? residents[random.nextInt(RESIDENTS)] : new UUID(random.nextLong(), random.nextLong());
+
+            players[i] = StandIns.player(uuid, worlds[0].pick(random, true));
+        }
+
+        for (int i = 0; i < EVENTS; i++) {
+            Player player = players[random.nextInt(PLAYERS)];
+            WorldGuardWorld world = worlds[random.nextInt(worldCount)];
+
+            createEvents[i] = createEvent(player, grave(random, world));
+            openEvents[i] = openEvent(player, grave(random, world));
+            walkOverEvents[i] = walkOverEvent(player, grave(random, world));
+        }
+
+        listener = new LandProtectionGraveCreateListener(plugin);
+    }
+
+    /**
+     * Drops every cached decision and reopens the sessions of the players, so every invocation checks its events
+     * again.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+        plugin.getDecisionCache().invalidateAll();
+
+        for (Player player : players) {
+            plugin.getSessions().open(player);
+        }
+    }
+
+    /**
+     * Fires grave create events.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void create() {
+        for (GraveCreateEvent event : createEvents) {
+            listener.onGraveCreate(event);
+        }
+    }
+
+    /**
+     * Fires grave open events.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void open() {
+        for (GraveOpenEvent event : openEvents) {
+            listener.onGraveOpen(event);
+        }
+    }
+
+    /**
+     * Fires grave walk over events.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void walkOver() {
+        for (GraveWalkOverEvent event : walkOverEvents) {
+            listener.onGraveWalkedOver(event);
+        }
+    }
+
+    private static Grave grave(Random random, WorldGuardWorld world) {
+        Grave grave = mock(Grave.class, withSettings().stubOnly());
+        Location location = world.pick(random, random.nextBoolean());
+
+        when(grave.getUUID()).thenReturn(new UUID(random.nextLong(), random.nextLong()));
+        when(grave.getLocationDeath()).thenReturn(location);
+        return grave;
+    }
+
+    private static GraveCreateEvent createEvent(Player player, Grave grave) {
+        GraveCreateEvent event = mock(GraveCreateEvent.class, withSettings().stubOnly());
+
+        when(event.getEntity()).thenReturn(player);
+        when(event.getGrave()).thenReturn(grave);
+        return event;
+    }
+
+    private static GraveOpenEvent openEvent(Player player, Grave grave) {
+        GraveOpenEvent event = mock(GraveOpenEvent.class, withSettings().stubOnly());
+
+        when(event.getPlayer()).thenReturn(player);
+        when(event.getGrave()).thenReturn(grave);
+        return event;
+    }
+
+    private static GraveWalkOverEvent walkOverEvent(Player player, Grave grave) {
+        GraveWalkOverEvent event = mock(GraveWalkOverEvent.class, withSettings().stubOnly());
+
+        when(event.getPlayer()).thenReturn(player);
+        when(event.getGrave()).thenReturn(grave);
+        return event;
+    }
+}
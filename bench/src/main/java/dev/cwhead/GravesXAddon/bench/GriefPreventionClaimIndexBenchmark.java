@@ -0,0 +1,143 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.cache.ClaimChangeListener;
+import dev.cwhead.GravesXAddon.cache.GriefPreventionClaimIndex;
+import dev.cwhead.GravesXAddon.snapshot.RegionSnapshot;
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.DataStore;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The {@code GriefPreventionClaimIndexBenchmark} class measures the {@link GriefPreventionClaimIndex} of a server
+ * with 20,000 GriefPrevention claims laid out like the claims of a {@link ClaimedWorld}, with subdivisions inside
+ * some of them. The claims are real GriefPrevention claims, only the world and data store are stand-ins. A quarter
+ * of the lookups are inside a subdivision, a quarter inside a claim and the rest anywhere around the settlements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class GriefPreventionClaimIndexBenchmark {
+    /**
+     * The number of top-level claims.
+     */
+    public static final int CLAIMS = 20_000;
+
+    private static final int SAMPLES = 1 << 13;
+    private static final long SEED = 0x67726965664CL;
+    private static final ClaimChangeListener NO_LISTENER = (worldName, minX, minZ, maxX, maxZ) -> { };
+
+    private final Location[] locations = new Location[SAMPLES];
+    private final List<Claim> topLevel = new ArrayList<>();
+    private DataStore dataStore;
+    private GriefPreventionClaimIndex index;
+    private int next;
+
+    /**
+     * Creates the claims, indexes them and prepares the lookups.
+     */
+    @Setup(Level.Trial)
+    public void index() {
+        ClaimedWorld claimedWorld = new ClaimedWorld(StandIns.world("world"), CLAIMS, 5000, SEED);
+        World world = claimedWorld.getWorld();
+        Random random = new Random(SEED);
+        Map<String, Claim> byId = new HashMap<>();
+        Map<Long, Claim> byNumber = new HashMap<>();
+        List<Claim> subdivisions = new ArrayList<>();
+        long id = 0L;
+
+        for (RegionSnapshot region : claimedWorld.getSnapshot().getRegions()) {
+            Claim claim = new Claim(new Location(world, region.getMinX(), region.getMinY(), region.getMinZ()),
+                    new Location(world, region.getMaxX(), region.getMaxY(), region.getMaxZ()),
+                    region.getMembers().iterator().next(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                    new ArrayList<>(), false, ++id);
+
+            claim.inDataStore = true;
+            byId.put(region.getId(), claim);
+            byNumber.put(id, claim);
+
+            if (region.getParentId() == null) {
+                topLevel.add(claim);
+            } else {
+                Claim parent = byId.get(region.getParentId());
+
+                claim.parent = parent;
+                parent.children.add(claim);
+                subdivisions.add(claim);
+            }
+        }
+
+        dataStore = mock(DataStore.class, withSettings().stubOnly());
+        when(dataStore.getClaims()).thenReturn(Collections.unmodifiableList(topLevel));
+        when(dataStore.getClaim(anyLong())).thenAnswer(invocation -> byNumber.get(invocation.<Long>getArgument(0)));
+
+        index = new GriefPreventionClaimIndex();
+        index.rebuild(dataStore);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            int kind = random.nextInt(4);
+            Claim claim = kind == 0 ? subdivisions.get(random.nextInt(subdivisions.size()))
+                    : topLevel.get(random.nextInt(topLevel.size()));
+
+            if (kind < 2) {
+                Location lesser = claim.getLesserBoundaryCorner();
+                Location greater = claim.getGreaterBoundaryCorner();
+
+                locations[i] = new Location(world,
+                        lesser.getBlockX() + random.nextInt(greater.getBlockX() - lesser.getBlockX() + 1), 64,
+                        lesser.getBlockZ() + random.nextInt(greater.getBlockZ() - lesser.getBlockZ() + 1));
+            } else {
+                Location settlement = claimedWorld.getSettlement(random.nextInt(ClaimedWorld.SETTLEMENTS));
+
+                locations[i] = settlement.add(random.nextGaussian() * 600.0D, 0.0D, random.nextGaussian() * 600.0D);
+            }
+        }
+    }
+
+    /**
+     * Finds the most specific claim at a location.
+     *
+     * @return The claim, or {@code null} if the location is not claimed.
+     */
+    @Benchmark
+    public Claim getClaimAt() {
+        return index.getClaimAt(locations[next++ & SAMPLES - 1]);
+    }
+
+    /**
+     * Re-indexes a claim that changed and publishes it, as a tick in which one claim was resized or its trust
+     * changed does. Every publish copies the chunks of the world once.
+     */
+    @Benchmark
+    public void markChangedAndPublish() {
+        index.markChanged(topLevel.get(Math.floorMod(next++, topLevel.size())));
+        index.publish(dataStore, NO_LISTENER);
+    }
+}
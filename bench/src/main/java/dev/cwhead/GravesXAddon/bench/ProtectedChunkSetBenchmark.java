@@ -0,0 +1,110 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.cache.ProtectedChunkSet;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ProtectedChunkSetBenchmark} class measures a {@link ProtectedChunkSet} holding the 100,000 town blocks
+ * of a {@link TownyWorld}, one chunk each. Half of the lookups are protected chunks and half are anywhere around
+ * them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ProtectedChunkSetBenchmark {
+    private static final int SAMPLES = 1 << 13;
+    private static final long SEED = 0x6368756E6BL;
+
+    private final int[] xs = new int[SAMPLES];
+    private final int[] zs = new int[SAMPLES];
+    private ProtectedChunkSet chunks;
+    private int next;
+
+    /**
+     * Adds every town block of the world and prepares the lookups.
+     */
+    @Setup(Level.Trial)
+    public void fill() {
+        Random random = new Random(SEED);
+        long[] townBlocks = new TownyWorld(TownyChunkIndexBenchmark.TOWN_BLOCKS, TownyChunkIndexBenchmark.TOWNS,
+                SEED).getTownBlocks();
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+
+        chunks = new ProtectedChunkSet();
+
+        for (long key : townBlocks) {
+            chunks.add(ChunkKey.x(key), ChunkKey.z(key));
+            minX = Math.min(minX, ChunkKey.x(key));
+            minZ = Math.min(minZ, ChunkKey.z(key));
+            maxX = Math.max(maxX, ChunkKey.x(key));
+            maxZ = Math.max(maxZ, ChunkKey.z(key));
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            if (random.nextBoolean()) {
+                long key = townBlocks[random.nextInt(townBlocks.length)];
+
+                xs[i] = ChunkKey.x(key);
+                zs[i] = ChunkKey.z(key);
+            } else {
+                xs[i] = minX + random.nextInt(maxX - minX + 1);
+                zs[i] = minZ + random.nextInt(maxZ - minZ + 1);
+            }
+        }
+    }
+
+    /**
+     * Checks if a chunk is protected.
+     *
+     * @return {@code true} if the chunk is in the set.
+     */
+    @Benchmark
+    public boolean contains() {
+        int sample = next++ & SAMPLES - 1;
+
+        return chunks.contains(xs[sample], zs[sample]);
+    }
+
+    /**
+     * Copies the set, which the first change to a published set in every tick does.
+     *
+     * @return The copy.
+     */
+    @Benchmark
+    public ProtectedChunkSet copy() {
+        return chunks.copy();
+    }
+
+    /**
+     * Adds a region of 32 by 32 chunks to a copy of the set, the way a large region or claim is indexed.
+     *
+     * @return The copy with the region added.
+     */
+    @Benchmark
+    public ProtectedChunkSet copyAndAddRange() {
+        ProtectedChunkSet copy = chunks.copy();
+
+        copy.addRange(10_000, 10_000, 10_031, 10_031);
+        return copy;
+    }
+}
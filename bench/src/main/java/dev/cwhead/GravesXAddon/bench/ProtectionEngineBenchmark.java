@@ -0,0 +1,102 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.provider.ProtectionEngine;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ProtectionEngineBenchmark} class measures the {@link ProtectionEngine} asking two stand-in providers,
+ * each answering from its own {@link ClaimedWorld} of 20,000 claims, without the decision cache in front of it.
+ * Half of the players are residents of the claims and half are strangers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ProtectionEngineBenchmark {
+    private static final int PLAYERS = 64;
+    private static final int SAMPLES = 1 << 13;
+    private static final int RADIUS = 48;
+    private static final long SEED = 0x656E67696E65L;
+
+    /**
+     * Where the actions happen, around the settlements of the first provider or out in the wilderness.
+     */
+    @Param({"settlement", "wilderness"})
+    public String site;
+
+    private final ProtectionSession[] sessions = new ProtectionSession[SAMPLES];
+    private final Location[] locations = new Location[SAMPLES];
+    private final GraveAction[] actions = new GraveAction[SAMPLES];
+    private ProtectionEngine engine;
+    private int next;
+
+    /**
+     * Generates the worlds of both providers, the players and the actions.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        World world = StandIns.world("world");
+        ClaimedWorld regions = new ClaimedWorld(world, 20000, 5000, SEED);
+        ClaimedWorld claims = new ClaimedWorld(world, 20000, 5000, SEED + 1);
+        LandProtection plugin = StandIns.plugin(new SnapshotProvider("regions", regions.getSnapshot()),
+                new SnapshotProvider("claims", claims.getSnapshot()));
+        Random random = new Random(SEED);
+        UUID[] residents = regions.getResidents();
+        ProtectionSession[] players = new ProtectionSession[PLAYERS];
+        GraveAction[] values = GraveAction.values();
+
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = i % 2 == 0 ? residents[random.nextInt(residents.length)]
+                    : new UUID(random.nextLong(), random.nextLong());
+
+            players[i] = plugin.getSessions().open(StandIns.player(uuid, regions.getSettlement(0)));
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            Location center = site.equals("settlement")
+                    ? regions.getSettlement(random.nextInt(ClaimedWorld.SETTLEMENTS))
+                    : new Location(world, 30000, 64, 30000);
+
+            sessions[i] = players[random.nextInt(PLAYERS)];
+            locations[i] = center.add(random.nextInt(RADIUS * 2 + 1) - RADIUS, 0,
+                    random.nextInt(RADIUS * 2 + 1) - RADIUS);
+            actions[i] = values[random.nextInt(values.length)];
+        }
+
+        engine = plugin.getProtectionEngine();
+    }
+
+    /**
+     * Evaluates a grave action.
+     *
+     * @return {@code true} if every provider allows the action.
+     */
+    @Benchmark
+    public boolean evaluate() {
+        int sample = next++ & SAMPLES - 1;
+
+        return engine.evaluate(sessions[sample], locations[sample], actions[sample]);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.snapshot.RegionSnapshot;
+import dev.cwhead.GravesXAddon.snapshot.WorldRegionSnapshot;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code SnapshotProvider} class stands in for a land protection plugin. It answers from the regions of a
+ * {@link WorldRegionSnapshot}, which costs about what a real provider answering from its own spatial index does,
+ * without a server or the plugin behind it.
+ */
+public final class SnapshotProvider implements ProtectionProvider {
+    private final String name;
+    private final WorldRegionSnapshot snapshot;
+
+    /**
+     * Constructs a {@code SnapshotProvider} object.
+     *
+     * @param name The name of the provider, used in metrics.
+     * @param snapshot The regions the provider answers from.
+     */
+    public SnapshotProvider(String name, WorldRegionSnapshot snapshot) {
+        this.name = name;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isAllowed(Player player, Location location, GraveAction action) {
+        return snapshot.evaluate(location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                player.getUniqueId(), action);
+    }
+
+    @Override
+    public boolean isAllowed(ProtectionSession session, Location location, GraveAction action) {
+        return snapshot.evaluate(location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                session.getUniqueId(), action);
+    }
+
+    @Override
+    public boolean mayDeny(Location location, GraveAction action) {
+        return snapshot.getChunkRegions(location.getBlockX() >> 4, location.getBlockZ() >> 4).length > 0
+                || snapshot.getLargeRegions().length > 0;
+    }
+
+    @Override
+    public List<String> getRegionKeys(Location location) {
+        List<String> keys = new ArrayList<>();
+
+        for (RegionSnapshot region : snapshot.getChunkRegions(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+            if (region.contains(location.getBlockX(), location.getBlockY(), location.getBlockZ())) {
+                keys.add(name + "|" + snapshot.getWorldName() + "|" + region.getId());
+            }
+        }
+
+        return keys;
+    }
+}
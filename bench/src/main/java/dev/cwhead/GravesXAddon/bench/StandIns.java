@@ -0,0 +1,189 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import com.sk89q.worldedit.bukkit.WorldEditPlugin;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+import com.sk89q.worldguard.internal.platform.WorldGuardPlatform;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.cache.GraveDecisionStore;
+import dev.cwhead.GravesXAddon.cache.TownRelationGraph;
+import dev.cwhead.GravesXAddon.cache.TownResidentIndex;
+import dev.cwhead.GravesXAddon.cache.TownyChunkIndex;
+import dev.cwhead.GravesXAddon.config.AddonSettings;
+import dev.cwhead.GravesXAddon.integration.TownyImpl;
+import dev.cwhead.GravesXAddon.integration.WorldGuardImpl;
+import dev.cwhead.GravesXAddon.message.DenyMessages;
+import dev.cwhead.GravesXAddon.metrics.ProtectionMetrics;
+import dev.cwhead.GravesXAddon.provider.ProtectionEngine;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.session.SessionManager;
+import dev.cwhead.GravesXAddon.trace.DecisionTracer;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.objenesis.ObjenesisStd;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The {@code StandIns} class builds the server objects the benchmarks run against, so they never touch a live
+ * server, its players or the metrics and caches of the running addon.
+ * <p>
+ * Players and worlds are Mockito stubs that don't record their invocations. The plugin is a real
+ * {@link LandProtection} instance created without running its constructor, with its own decision cache, grave
+ * decision store, sessions, metrics, deny messages, tracer and protection engine, so the listener and the engine
+ * read them through the real getters instead of through a mock. Its settings are the defaults of an empty config.
+ * <p>
+ * WorldGuard runs on a stand-in platform whose region container hands out real, in-memory region managers, so
+ * {@link WorldGuardImpl} queries the same region indexes it queries on a server. Towny has no such seam, so
+ * {@link TownyImpl} is created without running its constructor and with empty indexes the benchmarks fill.
+ */
+public final class StandIns {
+
+    private StandIns() {
+    }
+
+    /**
+     * Creates a stand-in world.
+     *
+     * @param name The name of the world.
+     * @return The World stand-in.
+     */
+    public static World world(String name) {
+        World world = mock(World.class, withSettings().stubOnly());
+
+        when(world.getName()).thenReturn(name);
+        return world;
+    }
+
+    /**
+     * Creates a stand-in player without any permission, standing at a location.
+     *
+     * @param uuid The UUID of the player.
+     * @param location The location of the player.
+     * @return The Player stand-in.
+     */
+    public static Player player(UUID uuid, Location location) {
+        Player player = mock(Player.class, withSettings().stubOnly());
+
+        when(player.getUniqueId()).thenReturn(uuid);
+        when(player.getName()).thenReturn("bench-" + uuid.toString().substring(0, 8));
+        when(player.getLocation()).thenReturn(location);
+        when(player.getWorld()).thenReturn(location.getWorld());
+        when(player.hasPermission(anyString())).thenReturn(false);
+        return player;
+    }
+
+    /**
+     * Creates a stand-in plugin with empty caches, the default cache sizes, an adaptive provider order and
+     * tracing off.
+     *
+     * @param providers The providers to register with the protection engine.
+     * @return The LandProtection stand-in.
+     */
+    public static LandProtection plugin(ProtectionProvider... providers) {
+        LandProtection plugin = new ObjenesisStd().newInstance(LandProtection.class);
+        DecisionCache decisionCache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        GraveDecisionStore graveDecisionStore = new GraveDecisionStore(decisionCache, GraveDecisionStore.DEFAULT_MAX_GRAVES);
+
+        decisionCache.addListener(graveDecisionStore);
+        set(plugin, "decisionCache", decisionCache);
+        set(plugin, "graveDecisionStore", graveDecisionStore);
+        set(plugin, "sessions", new SessionManager());
+        set(plugin, "metrics", new ProtectionMetrics());
+        set(plugin, "denyMessages", new DenyMessages());
+        set(plugin, "tracer", new DecisionTracer(DecisionTracer.LEVEL_OFF, 2, 0));
+        set(plugin, "settings", new AtomicReference<>(AddonSettings.load(new YamlConfiguration(), List.of())));
+        set(JavaPlugin.class, plugin, "logger", Logger.getLogger("LandProtection"));
+
+        ProtectionEngine protectionEngine = new ProtectionEngine(plugin);
+
+        for (ProtectionProvider provider : providers) {
+            protectionEngine.register(provider);
+        }
+
+        set(plugin, "protectionEngine", protectionEngine);
+        return plugin;
+    }
+
+    /**
+     * Creates a WorldGuard provider for a stand-in plugin, running on a stand-in platform. The region container
+     * of the platform hands out the region manager of a world by the name of the world, from a map that may be
+     * filled after the provider is created, as the flags of the provider are only registered by its constructor.
+     *
+     * @param plugin The plugin the provider belongs to.
+     * @param regionManagers The region managers by world name, read on every lookup.
+     * @return The WorldGuardImpl instance.
+     */
+    public static WorldGuardImpl worldGuard(LandProtection plugin, Map<String, RegionManager> regionManagers) {
+        WorldGuardPlatform platform = mock(WorldGuardPlatform.class, withSettings().stubOnly());
+        RegionContainer regionContainer = mock(RegionContainer.class, withSettings().stubOnly());
+        WorldGuardPlugin worldGuardPlugin = mock(WorldGuardPlugin.class, withSettings().stubOnly());
+
+        when(platform.getRegionContainer()).thenReturn(regionContainer);
+        when(regionContainer.get(any())).thenAnswer(invocation -> regionManagers
+                .get(invocation.<com.sk89q.worldedit.world.World>getArgument(0).getName()));
+        when(regionContainer.getLoaded()).thenAnswer(invocation -> new ArrayList<>(regionManagers.values()));
+        when(worldGuardPlugin.wrapPlayer(any(Player.class))).thenCallRealMethod();
+        set(WorldGuardPlugin.class, null, "inst", worldGuardPlugin);
+        set(WorldEditPlugin.class, null, "INSTANCE", mock(WorldEditPlugin.class, withSettings().stubOnly()));
+        WorldGuard.getInstance().setPlatform(platform);
+        return new WorldGuardImpl(plugin);
+    }
+
+    /**
+     * Creates a Towny provider for a stand-in plugin with empty indexes. Town blocks are claimed through its
+     * {@link TownyImpl#getChunkIndex()} and residents added through its {@link TownyImpl#getResidentIndex()}.
+     *
+     * @param plugin The plugin the provider belongs to.
+     * @return The TownyImpl instance.
+     */
+    public static TownyImpl towny(LandProtection plugin) {
+        TownyImpl towny = new ObjenesisStd().newInstance(TownyImpl.class);
+        TownResidentIndex residentIndex = new TownResidentIndex();
+
+        set(TownyImpl.class, towny, "plugin", plugin);
+        set(TownyImpl.class, towny, "chunkIndex", new TownyChunkIndex());
+        set(TownyImpl.class, towny, "residentIndex", residentIndex);
+        set(TownyImpl.class, towny, "relationGraph", new TownRelationGraph(residentIndex));
+        return towny;
+    }
+
+    /**
+     * Sets a private field of the plugin, failing loudly if the field was renamed.
+     */
+    private static void set(LandProtection plugin, String name, Object value) {
+        set(LandProtection.class, plugin, name, value);
+    }
+
+    /**
+     * Sets a private field declared by a class, failing loudly if the field was renamed.
+     */
+    private static void set(Class<?> owner, Object target, String name, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException(owner.getSimpleName() + " has no field " + name, exception);
+        }
+    }
+}
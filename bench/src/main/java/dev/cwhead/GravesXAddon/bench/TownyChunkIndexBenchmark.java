@@ -0,0 +1,150 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.cache.ClaimChangeListener;
+import dev.cwhead.GravesXAddon.cache.TownyChunkIndex;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code TownyChunkIndexBenchmark} class measures the {@link TownyChunkIndex} of a large Towny server with
+ * 100,000 town blocks shared by 1,000 towns, see {@link TownyWorld}. Half of the lookups are inside a town block
+ * and half are anywhere around the towns, which is mostly wilderness.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TownyChunkIndexBenchmark {
+    /**
+     * The number of town blocks claimed.
+     */
+    public static final int TOWN_BLOCKS = 100_000;
+
+    /**
+     * The number of towns.
+     */
+    public static final int TOWNS = 1_000;
+
+    /**
+     * The side length in town blocks of the area claimed and unclaimed by {@link #claimAreaAndPublish()}.
+     */
+    public static final int AREA = 8;
+
+    private static final int SAMPLES = 1 << 13;
+    private static final long SEED = 0x746F776E79L;
+    private static final ClaimChangeListener NO_LISTENER = (worldName, minX, minZ, maxX, maxZ) -> { };
+
+    private final int[] xs = new int[SAMPLES];
+    private final int[] zs = new int[SAMPLES];
+    private final UUID newTown = UUID.randomUUID();
+    private TownyChunkIndex index;
+    private int next;
+
+    /**
+     * Claims every town block of the world and prepares the lookups.
+     */
+    @Setup(Level.Trial)
+    public void claim() {
+        TownyWorld world = new TownyWorld(TOWN_BLOCKS, TOWNS, SEED);
+        Random random = new Random(SEED);
+        long[] townBlocks = world.getTownBlocks();
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+
+        index = new TownyChunkIndex();
+
+        for (long key : townBlocks) {
+            int x = ChunkKey.x(key);
+            int z = ChunkKey.z(key);
+            UUID town = world.getTown(x, z);
+
+            index.claim("world", x, z, town, town.toString());
+            minX = Math.min(minX, x);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        index.publish(NO_LISTENER);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            if (random.nextBoolean()) {
+                long key = townBlocks[random.nextInt(townBlocks.length)];
+
+                xs[i] = (ChunkKey.x(key) << 4) + random.nextInt(16);
+                zs[i] = (ChunkKey.z(key) << 4) + random.nextInt(16);
+            } else {
+                xs[i] = (minX << 4) + random.nextInt((maxX - minX + 1) << 4);
+                zs[i] = (minZ << 4) + random.nextInt((maxZ - minZ + 1) << 4);
+            }
+        }
+    }
+
+    /**
+     * Finds the town at a block position.
+     *
+     * @return The UUID of the town, or {@code null} in the wilderness.
+     */
+    @Benchmark
+    public UUID getTownAt() {
+        int sample = next++ & SAMPLES - 1;
+
+        return index.getTownAt("world", xs[sample], zs[sample]);
+    }
+
+    /**
+     * Checks if the chunk of a block position overlaps a town block, which is what wilderness checks ask.
+     *
+     * @return {@code true} if the chunk is claimed.
+     */
+    @Benchmark
+    public boolean isClaimedChunk() {
+        int sample = next++ & SAMPLES - 1;
+
+        return index.isClaimedChunk("world", xs[sample] >> 4, zs[sample] >> 4);
+    }
+
+    /**
+     * Claims an area of town blocks for a town in one tick and publishes it, then unclaims it in the next tick and
+     * publishes that, the way the index is changed by Towny events and published once per tick. Every publish
+     * copies the town blocks of the world once.
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void claimAreaAndPublish() {
+        for (int x = 0; x < AREA; x++) {
+            for (int z = 0; z < AREA; z++) {
+                index.claim("world", 1_000_000 + x, 1_000_000 + z, newTown, "new");
+            }
+        }
+
+        index.publish(NO_LISTENER);
+
+        for (int x = 0; x < AREA; x++) {
+            for (int z = 0; z < AREA; z++) {
+                index.unclaim("world", 1_000_000 + x, 1_000_000 + z);
+            }
+        }
+
+        index.publish(NO_LISTENER);
+    }
+}
@@ -0,0 +1,172 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.integration.TownyImpl;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code TownyImplBenchmark} class measures the checks of {@link TownyImpl} among the towns of one or more
+ * generated {@link TownyWorld}s, without the decision cache in front of them. Every town has a few residents, half
+ * of the players are residents and half are strangers, and half of the locations are in a town block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TownyImplBenchmark {
+    private static final int TOWN_BLOCKS = 100_000;
+    private static final int TOWNS = 1_000;
+    private static final int PLAYERS = 64;
+    private static final int SAMPLES = 1 << 13;
+    private static final long SEED = 0x746F776E79496DL;
+
+    /**
+     * The number of worlds with towns.
+     */
+    @Param({"1", "4"})
+    public int worldCount;
+
+    private final Player[] players = new Player[SAMPLES];
+    private final Location[] locations = new Location[SAMPLES];
+    private final GraveAction[] actions = new GraveAction[SAMPLES];
+    private final UUID[] towns = new UUID[SAMPLES];
+    private TownyImpl towny;
+    private int next;
+
+    /**
+     * Claims the town blocks of every world, adds the residents of every town and prepares the checks.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(SEED);
+        TownyWorld[] worlds = new TownyWorld[worldCount];
+        World[] bukkitWorlds = new World[worldCount];
+        long[][] townBlocks = new long[worldCount][];
+        Player[] online = new Player[PLAYERS];
+        GraveAction[] values = GraveAction.values();
+
+        towny = StandIns.towny(StandIns.plugin());
+
+        for (int i = 0; i < worldCount; i++) {
+            worlds[i] = new TownyWorld(TOWN_BLOCKS, TOWNS, SEED + i);
+            bukkitWorlds[i] = StandIns.world("world-" + i);
+            townBlocks[i] = worlds[i].getTownBlocks();
+            worlds[i].claim(towny.getChunkIndex(), bukkitWorlds[i].getName());
+        }
+
+        towny.getChunkIndex().publish((worldName, minX, minZ, maxX, maxZ) -> { });
+
+        UUID[] firstTowns = worlds[0].getTowns();
+
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+
+            if (i % 2 == 0) {
+                towny.getResidentIndex().addResident(firstTowns[random.nextInt(firstTowns.length)], uuid);
+            }
+
+            long home = townBlocks[0][random.nextInt(townBlocks[0].length)];
+
+            online[i] = StandIns.player(uuid, new Location(bukkitWorlds[0], ChunkKey.x(home) << 4, 64,
+                    ChunkKey.z(home) << 4));
+        }
+
+        for (TownyWorld world : worlds) {
+            for (UUID town : world.getTowns()) {
+                int residents = 1 + random.nextInt(8);
+
+                for (int i = 0; i < residents; i++) {
+                    towny.getResidentIndex().addResident(town, new UUID(random.nextLong(), random.nextLong()));
+                }
+            }
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            int world = random.nextInt(worldCount);
+            long key = townBlocks[world][random.nextInt(townBlocks[world].length)];
+            int x = (ChunkKey.x(key) << 4) + random.nextInt(16);
+            int z = (ChunkKey.z(key) << 4) + random.nextInt(16);
+
+            if (random.nextBoolean()) {
+                x += random.nextInt(257) - 128;
+                z += random.nextInt(257) - 128;
+            }
+
+            players[i] = online[random.nextInt(PLAYERS)];
+            locations[i] = new Location(bukkitWorlds[world], x, 64, z);
+            actions[i] = values[random.nextInt(values.length)];
+            towns[i] = worlds[world].getTown(ChunkKey.x(key), ChunkKey.z(key));
+        }
+    }
+
+    /**
+     * Checks if a player may perform a grave action at a location.
+     *
+     * @return {@code true} if the action is allowed.
+     */
+    @Benchmark
+    public boolean isAllowed() {
+        int sample = next++ & SAMPLES - 1;
+
+        return towny.isAllowed(players[sample], locations[sample], actions[sample]);
+    }
+
+    /**
+     * Checks if Towny may deny a grave action anywhere in the chunk of a location, which is what wilderness checks
+     * ask.
+     *
+     * @return {@code true} if the chunk is claimed.
+     */
+    @Benchmark
+    public boolean mayDeny() {
+        int sample = next++ & SAMPLES - 1;
+
+        return towny.mayDeny(locations[sample], actions[sample]);
+    }
+
+    /**
+     * Lists the key of the town at a location.
+     *
+     * @return The town keys.
+     */
+    @Benchmark
+    public List<String> getTownKeyList() {
+        int sample = next++ & SAMPLES - 1;
+
+        return towny.getTownKeyList(locations[sample]);
+    }
+
+    /**
+     * Checks if a player is a resident of a town.
+     *
+     * @return {@code true} if the player is a resident.
+     */
+    @Benchmark
+    public boolean isMember() {
+        int sample = next++ & SAMPLES - 1;
+
+        return towny.isMember(towns[sample], players[sample]);
+    }
+}
@@ -0,0 +1,149 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import dev.cwhead.GravesXAddon.cache.TownyChunkIndex;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The {@code TownyWorld} class generates the town blocks of a Towny world the way towns grow: every town is one
+ * connected blob of town blocks grown outwards from its home block, towns are founded around a few regional
+ * centers, most towns are small and a few are large. Everything is generated from a seed, so every fork measures
+ * the same world.
+ */
+public final class TownyWorld {
+    private static final int CENTERS = 12;
+    private static final int SPREAD = 1250;
+    private static final double CENTER_RADIUS = 180.0D;
+
+    private final UUID[] towns;
+    private final LongObjectHashMap<UUID> cells = new LongObjectHashMap<>();
+    private final long[] keys;
+
+    /**
+     * Generates a world.
+     *
+     * @param townBlocks The number of town blocks to claim, a few less if towns box each other in.
+     * @param towns The number of towns sharing them.
+     * @param seed The seed of the world.
+     */
+    public TownyWorld(int townBlocks, int towns, long seed) {
+        Random random = new Random(seed);
+        int[][] centers = new int[CENTERS][2];
+        List<Long> claimed = new ArrayList<>(townBlocks);
+
+        this.towns = new UUID[towns];
+
+        for (int[] center : centers) {
+            center[0] = random.nextInt(2 * SPREAD) - SPREAD;
+            center[1] = random.nextInt(2 * SPREAD) - SPREAD;
+        }
+
+        double[] weights = new double[towns];
+        double total = 0.0D;
+
+        for (int i = 0; i < towns; i++) {
+            this.towns[i] = new UUID(random.nextLong(), random.nextLong());
+            weights[i] = Math.exp(random.nextGaussian());
+            total += weights[i];
+        }
+
+        for (int i = 0; i < towns && claimed.size() < townBlocks; i++) {
+            int[] center = centers[random.nextInt(CENTERS)];
+            int size = Math.max(1, (int) Math.round(townBlocks * weights[i] / total));
+            int homeX = center[0] + (int) (random.nextGaussian() * CENTER_RADIUS);
+            int homeZ = center[1] + (int) (random.nextGaussian() * CENTER_RADIUS);
+
+            grow(random, this.towns[i], homeX, homeZ, Math.min(size, townBlocks - claimed.size()), claimed);
+        }
+
+        this.keys = new long[claimed.size()];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = claimed.get(i);
+        }
+    }
+
+    /**
+     * Gets the towns of the world.
+     *
+     * @return The UUIDs of the towns.
+     */
+    public UUID[] getTowns() {
+        return towns.clone();
+    }
+
+    /**
+     * Gets the packed coordinates of every claimed town block, in the order they were claimed.
+     *
+     * @return The packed town block coordinates, see {@link ChunkKey}.
+     */
+    public long[] getTownBlocks() {
+        return keys.clone();
+    }
+
+    /**
+     * Gets the town owning a town block.
+     *
+     * @param cellX The x coordinate of the town block.
+     * @param cellZ The z coordinate of the town block.
+     * @return The UUID of the town, or {@code null} if the town block is not claimed.
+     */
+    public UUID getTown(int cellX, int cellZ) {
+        return cells.get(ChunkKey.pack(cellX, cellZ));
+    }
+
+    /**
+     * Claims every town block of the world in a chunk index, naming every town after its UUID. The claims are not
+     * published.
+     *
+     * @param index The index to claim the town blocks in.
+     * @param worldName The name of the world.
+     */
+    public void claim(TownyChunkIndex index, String worldName) {
+        for (long key : keys) {
+            UUID town = cells.get(key);
+
+            index.claim(worldName, ChunkKey.x(key), ChunkKey.z(key), town, town.toString());
+        }
+    }
+
+    /**
+     * Grows a town outwards from its home block, claiming a random free neighbor of the town blocks claimed so
+     * far until the town has its size or is boxed in by other towns.
+     */
+    private void grow(Random random, UUID town, int homeX, int homeZ, int size, List<Long> claimed) {
+        List<Long> frontier = new ArrayList<>();
+        int claimedByTown = 0;
+
+        frontier.add(ChunkKey.pack(homeX, homeZ));
+
+        while (claimedByTown < size && !frontier.isEmpty()) {
+            int pick = random.nextInt(frontier.size());
+            long key = frontier.get(pick);
+
+            frontier.set(pick, frontier.get(frontier.size() - 1));
+            frontier.remove(frontier.size() - 1);
+
+            if (cells.containsKey(key)) {
+                continue;
+            }
+
+            cells.put(key, town);
+            claimed.add(key);
+            claimedByTown++;
+
+            int x = ChunkKey.x(key);
+            int z = ChunkKey.z(key);
+
+            frontier.add(ChunkKey.pack(x + 1, z));
+            frontier.add(ChunkKey.pack(x - 1, z));
+            frontier.add(ChunkKey.pack(x, z + 1));
+            frontier.add(ChunkKey.pack(x, z - 1));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.integration.WorldGuardImpl;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code WorldGuardImplBenchmark} class measures the checks of {@link WorldGuardImpl} against real, in-memory
+ * WorldGuard region managers generated by {@link WorldGuardWorld}, without the decision cache in front of them.
+ * Half of the players own or share regions and half are strangers, and half of the locations are inside a stack
+ * of regions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class WorldGuardImplBenchmark {
+    private static final int PLAYERS = 64;
+    private static final int RESIDENTS = 5000;
+    private static final int SAMPLES = 1 << 13;
+    private static final long SEED = 0x7767756172644CL;
+
+    /**
+     * The number of regions in every world.
+     */
+    @Param({"1000", "20000"})
+    public int regionCount;
+
+    /**
+     * The number of regions covering the innermost region of a stack.
+     */
+    @Param({"1", "4"})
+    public int overlapDepth;
+
+    /**
+     * The number of worlds with regions.
+     */
+    @Param({"1", "4"})
+    public int worldCount;
+
+    private final Player[] players = new Player[SAMPLES];
+    private final ProtectionSession[] sessions = new ProtectionSession[SAMPLES];
+    private final Location[] locations = new Location[SAMPLES];
+    private final GraveAction[] actions = new GraveAction[SAMPLES];
+    private final String[] regionIds = new String[SAMPLES];
+    private WorldGuardImpl worldGuard;
+    private int next;
+
+    /**
+     * Generates the worlds, the players and the checks.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        LandProtection plugin = StandIns.plugin();
+        Map<String, RegionManager> regionManagers = new ConcurrentHashMap<>();
+        Random random = new Random(SEED);
+        UUID[] residents = new UUID[RESIDENTS];
+        WorldGuardWorld[] worlds = new WorldGuardWorld[worldCount];
+        String[][] worldRegionIds = new String[worldCount][];
+        Player[] online = new Player[PLAYERS];
+        ProtectionSession[] opened = new ProtectionSession[PLAYERS];
+        GraveAction[] values = GraveAction.values();
+
+        worldGuard = StandIns.worldGuard(plugin, regionManagers);
+
+        for (int i = 0; i < RESIDENTS; i++) {
+            residents[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        StateFlag[] flags = new StateFlag[values.length];
+
+        for (GraveAction action : values) {
+            flags[action.ordinal()] = worldGuard.getFlag(action);
+        }
+
+        for (int i = 0; i < worldCount; i++) {
+            worlds[i] = new WorldGuardWorld(StandIns.world("world-" + i), regionCount, overlapDepth, residents, flags,
+                    SEED + i);
+            worldRegionIds[i] = worlds[i].getRegionIds();
+            regionManagers.put(worlds[i].getWorld().getName(), worlds[i].getRegionManager());
+        }
+
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = i % 2 == 0 ? residents[random.nextInt(RESIDENTS)] : new UUID(random.nextLong(), random.nextLong());
+
+            online[i] = StandIns.player(uuid, worlds[0].pick(random, true));
+            opened[i] = plugin.getSessions().open(online[i]);
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            int player = random.nextInt(PLAYERS);
+            int world = random.nextInt(worldCount);
+            String[] ids = worldRegionIds[world];
+
+            players[i] = online[player];
+            sessions[i] = opened[player];
+            locations[i] = worlds[world].pick(random, random.nextBoolean());
+            actions[i] = values[random.nextInt(values.length)];
+            regionIds[i] = ids[random.nextInt(ids.length)];
+        }
+    }
+
+    /**
+     * Evaluates a grave action through the compiled section flags, falling back to the regions at the location.
+     *
+     * @return {@code true} if the action is allowed.
+     */
+    @Benchmark
+    public boolean evaluate() {
+        int sample = next++ & SAMPLES - 1;
+
+        return worldGuard.evaluate(sessions[sample], locations[sample], actions[sample]);
+    }
+
+    /**
+     * Checks if WorldGuard may deny a grave action anywhere in the chunk of a location, which is what wilderness
+     * checks ask.
+     *
+     * @return {@code true} if a region in the chunk may deny the action.
+     */
+    @Benchmark
+    public boolean mayDeny() {
+        int sample = next++ & SAMPLES - 1;
+
+        return worldGuard.mayDeny(locations[sample], actions[sample]);
+    }
+
+    /**
+     * Lists the keys of the regions at a location.
+     *
+     * @return The region keys.
+     */
+    @Benchmark
+    public List<String> getRegionKeyList() {
+        int sample = next++ & SAMPLES - 1;
+
+        return worldGuard.getRegionKeyList(locations[sample]);
+    }
+
+    /**
+     * Checks if a player is an owner or member of a region.
+     *
+     * @return {@code true} if the player is a member.
+     */
+    @Benchmark
+    public boolean isMember() {
+        int sample = next++ & SAMPLES - 1;
+
+        return worldGuard.isMember(locations[sample].getWorld(), regionIds[sample], players[sample]);
+    }
+}
@@ -0,0 +1,169 @@
+package dev.cwhead.GravesXAddon.bench;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.index.PriorityRTreeIndex;
+import com.sk89q.worldguard.protection.managers.storage.MemoryRegionDatabase;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The {@code WorldGuardWorld} class generates the WorldGuard regions of a world into a real, in-memory region
+ * manager. Regions come in stacks of nested cuboids laid out on a grid, so every block inside the innermost
+ * region of a stack is covered by as many regions as the stack is deep, the way plots sit inside districts inside
+ * a spawn region. The outermost region of a stack denies every grave action to players that are not its owner or
+ * a member, and the innermost region of a deeper stack lets everyone open and auto-loot graves again. Every world
+ * also has a {@code __global__} region. Everything is generated from a seed, so every fork measures the same
+ * world.
+ */
+public final class WorldGuardWorld {
+    /**
+     * The side length in blocks of the outermost region of a stack.
+     */
+    public static final int STACK_SIZE = 48;
+
+    /**
+     * The number of blocks between the corners of neighboring stacks.
+     */
+    public static final int STACK_SPACING = 64;
+
+    private static final int INSET = 2;
+
+    private final World world;
+    private final UUID[] residents;
+    private final String[] regionIds;
+    private final int stacks;
+    private final int side;
+    private final RegionManager regionManager;
+
+    /**
+     * Generates a world.
+     *
+     * @param world The world the regions are in.
+     * @param regions The number of regions, rounded down to whole stacks.
+     * @param depth The number of regions in a stack, at most {@code STACK_SIZE / (2 * INSET)}.
+     * @param residents The players owning or sharing regions.
+     * @param flags The flags of every grave action, indexed by {@link GraveAction#ordinal()}.
+     * @param seed The seed of the world.
+     */
+    public WorldGuardWorld(World world, int regions, int depth, UUID[] residents, StateFlag[] flags, long seed) {
+        Random random = new Random(seed);
+        Map<String, ProtectedRegion> protectedRegions = new HashMap<>();
+
+        this.world = world;
+        this.residents = residents.clone();
+        this.stacks = Math.max(1, regions / depth);
+        this.side = (int) Math.ceil(Math.sqrt(stacks));
+        this.regionIds = new String[stacks * depth];
+
+        for (int stack = 0; stack < stacks; stack++) {
+            int minX = (stack % side) * STACK_SPACING + random.nextInt(STACK_SPACING - STACK_SIZE + 1);
+            int minZ = (stack / side) * STACK_SPACING + random.nextInt(STACK_SPACING - STACK_SIZE + 1);
+
+            for (int level = 0; level < depth; level++) {
+                int inset = level * INSET;
+                String id = "stack-" + stack + "-" + level;
+                ProtectedRegion region = new ProtectedCuboidRegion(id,
+                        BlockVector3.at(minX + inset, -64, minZ + inset),
+                        BlockVector3.at(minX + STACK_SIZE - 1 - inset, 319, minZ + STACK_SIZE - 1 - inset));
+                int members = random.nextInt(4);
+
+                region.setPriority(level);
+                region.getOwners().addPlayer(residents[random.nextInt(residents.length)]);
+
+                for (int i = 0; i < members; i++) {
+                    region.getMembers().addPlayer(residents[random.nextInt(residents.length)]);
+                }
+
+                if (level == 0) {
+                    for (StateFlag flag : flags) {
+                        region.setFlag(flag, StateFlag.State.DENY);
+                    }
+                } else if (level == depth - 1) {
+                    region.setFlag(flags[GraveAction.OPEN.ordinal()], StateFlag.State.ALLOW);
+                    region.setFlag(flags[GraveAction.AUTO_LOOT.ordinal()], StateFlag.State.ALLOW);
+                }
+
+                protectedRegions.put(id, region);
+                regionIds[stack * depth + level] = id;
+            }
+        }
+
+        protectedRegions.put("__global__", new GlobalProtectedRegion("__global__"));
+        this.regionManager = new RegionManager(new MemoryRegionDatabase() {
+            @Override
+            public String getName() {
+                return world.getName();
+            }
+        }, new PriorityRTreeIndex.Factory(), WorldGuard.getInstance().getFlagRegistry());
+        this.regionManager.setRegions(protectedRegions);
+    }
+
+    /**
+     * Gets the world the regions are in.
+     *
+     * @return The World instance.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Gets the players owning or sharing regions.
+     *
+     * @return The UUIDs of the residents.
+     */
+    public UUID[] getResidents() {
+        return residents.clone();
+    }
+
+    /**
+     * Gets the ids of every region except {@code __global__}, stack by stack from the outermost region inwards.
+     *
+     * @return The region ids.
+     */
+    public String[] getRegionIds() {
+        return regionIds.clone();
+    }
+
+    /**
+     * Gets the region manager holding the regions.
+     *
+     * @return The RegionManager instance.
+     */
+    public RegionManager getRegionManager() {
+        return regionManager;
+    }
+
+    /**
+     * Picks a random location, inside a stack or anywhere on the grid of stacks, at a random height.
+     *
+     * @param random The random to pick with.
+     * @param inStack {@code true} to pick a location inside the outermost region of a stack.
+     * @return The location.
+     */
+    public Location pick(Random random, boolean inStack) {
+        int y = random.nextInt(128);
+
+        if (!inStack) {
+            return new Location(world, random.nextInt(side * STACK_SPACING), y, random.nextInt(side * STACK_SPACING));
+        }
+
+        ProtectedRegion outer = regionManager.getRegion(regionIds[random.nextInt(stacks) * (regionIds.length / stacks)]);
+        BlockVector3 min = outer.getMinimumPoint();
+
+        return new Location(world, min.getBlockX() + random.nextInt(STACK_SIZE), y,
+                min.getBlockZ() + random.nextInt(STACK_SIZE));
+    }
+}
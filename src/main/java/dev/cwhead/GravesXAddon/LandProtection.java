@@ -2,50 +2,147 @@ package dev.cwhead.GravesXAddon;
 
 import com.ranull.graves.Graves;
 import dev.cwhead.GravesX.GravesXAPI;
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.cache.GraveDecisionStore;
+import dev.cwhead.GravesXAddon.command.LandProtectionCommand;
+import dev.cwhead.GravesXAddon.config.AddonSettings;
+import dev.cwhead.GravesXAddon.metrics.OpenMetricsExporter;
+import dev.cwhead.GravesXAddon.metrics.ProtectionMetrics;
+import dev.cwhead.GravesXAddon.integration.GriefPreventionImpl;
 import dev.cwhead.GravesXAddon.integration.TownyImpl;
 import dev.cwhead.GravesXAddon.integration.WorldGuardImpl;
 import dev.cwhead.GravesXAddon.listener.LandProtectionGraveCreateListener;
+import dev.cwhead.GravesXAddon.listener.LuckPermsListener;
+import dev.cwhead.GravesXAddon.listener.PlayerListener;
+import dev.cwhead.GravesXAddon.message.DenyMessages;
+import dev.cwhead.GravesXAddon.provider.ProtectionEngine;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.provider.ProtectionProviderFactory;
+import dev.cwhead.GravesXAddon.provider.ProviderActivation;
+import dev.cwhead.GravesXAddon.session.SessionManager;
+import dev.cwhead.GravesXAddon.snapshot.SnapshotManager;
+import dev.cwhead.GravesXAddon.trace.DecisionTracer;
+import dev.cwhead.GravesXAddon.util.TaskScheduler;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
 /**
- * Main class for the Land Protection addon for GravesX. This plugin integrates with WorldGuard
- * to handle region-based permissions for grave creation, teleportation, opening, and looting.
- * It also ensures compatibility with GravesX and provides event handling for interactions
- * related to graveyards and WorldGuard regions.
+ * Main class for the Land Protection addon for GravesX. This plugin integrates with WorldGuard, Towny and
+ * GriefPrevention to handle region-based permissions for grave creation, teleportation, opening, and looting.
+ * The integrations are discovered as {@link ProtectionProviderFactory} services and only loaded when their
+ * plugin is installed and they are active in at least one world.
  */
 public final class LandProtection extends JavaPlugin {
 
+    /**
+     * Interval between writes of the OpenMetrics file.
+     */
+    private static final long METRICS_EXPORT_INTERVAL_TICKS = 1200L;
+
+    /**
+     * Interval between publishing new protection snapshots for changed worlds and towns.
+     */
+    private static final long SNAPSHOT_FLUSH_INTERVAL_TICKS = 20L;
+
+    /**
+     * Interval between resolving the bypass permissions of every online player again when LuckPerms is not
+     * installed. Bukkit has no event for changed permissions, so changes made by other permission plugins are
+     * picked up within this interval.
+     */
+    private static final long BYPASS_REFRESH_INTERVAL_TICKS = 100L;
+
     private GravesXAPI gravesXAPI;
 
-    private static LandProtection instance;
+    private TaskScheduler taskScheduler;
+
+    private static volatile LandProtection instance;
 
-    private WorldGuardImpl worldGuard;
+    private final List<ProtectionProviderFactory> providerFactories = new ArrayList<>();
 
-    private TownyImpl towny;
+    private final Map<String, ProtectionProvider> providers = new LinkedHashMap<>();
 
-    private boolean worldGuardEnabled;
+    private final List<String> knownProviders = new ArrayList<>();
 
-    private boolean townyEnabled;
+    private final AtomicReference<AddonSettings> settings = new AtomicReference<>();
+
+    private DecisionCache decisionCache;
+
+    private SessionManager sessions;
+
+    private GraveDecisionStore graveDecisionStore;
+
+    private DenyMessages denyMessages;
+
+    private ProtectionMetrics metrics;
+
+    private OpenMetricsExporter metricsExporter;
+
+    private SnapshotManager snapshotManager;
+
+    private volatile DecisionTracer tracer;
+
+    private ProtectionEngine protectionEngine;
 
     /**
-     * Called when the plugin is loading. Tries to initialize the WorldGuard integration.
-     * If WorldGuard is not available, it silently ignores the failure.
+     * Called when the plugin is loading. Discovers the provider factories and loads those whose plugin is
+     * installed and that are active in at least one world. Providers that fail to load are ignored.
      */
     @Override
     public void onLoad() {
-        try {
-           worldGuard = new WorldGuardImpl(this);
-           worldGuardEnabled = true;
-           getLogger().info("Registered WorldGuard Flags Successfully.");
-        } catch (Exception ignored) {
-            getLogger().warning("Failed to register WorldGuard Flags. Flags will be ignored.");
-            worldGuardEnabled = false;
+        List<ProtectionProviderFactory> factories = new ArrayList<>();
+
+        for (ProtectionProviderFactory factory : ServiceLoader.load(ProtectionProviderFactory.class, getClassLoader())) {
+            factories.add(factory);
+            knownProviders.add(factory.getName());
+        }
+
+        AddonSettings loaded = AddonSettings.load(getConfig(), knownProviders);
+
+        for (String problem : loaded.getProblems()) {
+            getLogger().warning("Invalid config: " + problem);
+        }
+
+        settings.set(loaded);
+
+        for (ProtectionProviderFactory factory : factories) {
+            if (!loaded.getProviderActivation().isActive(factory.getName())) {
+                getLogger().info("Provider " + factory.getName() + " is not active in any world and will not be loaded.");
+                continue;
+            }
+
+            if (getServer().getPluginManager().getPlugin(factory.getPluginName()) == null) {
+                continue;
+            }
+
+            try {
+                factory.load(this);
+                providerFactories.add(factory);
+            } catch (Exception | LinkageError e) {
+                getLogger().warning("Failed to load " + factory.getPluginName() + " provider. " + factory.getPluginName() + " will be ignored.");
+            }
         }
     }
 
     /**
-     * Called when the plugin is enabled. This method hooks into GravesX and WorldGuard (if available),
+     * Called when the plugin is enabled. This method hooks into GravesX and the loaded providers (if enabled),
      * registers event listeners, and logs relevant information to the console.
      *
      * @throws IllegalStateException If the GravesX plugin is not found or enabled, the plugin will disable itself.
@@ -56,42 +153,189 @@ public final class LandProtection extends JavaPlugin {
         if (gravesX != null && gravesX.isEnabled()) {
             gravesXAPI = new GravesXAPI((Graves) gravesX);
 
+            taskScheduler = new TaskScheduler(this);
             instance = this;
 
-            Plugin worldGuard = getServer().getPluginManager().getPlugin("WorldGuard");
-
-            if (worldGuardEnabled && (worldGuard != null && worldGuard.isEnabled())) {
-                try {
-                    getServer().getPluginManager().registerEvents(new LandProtectionGraveCreateListener(this), this);
-                    getLogger().info("Hooked into " + worldGuard.getDescription().getName() + " v." + worldGuard.getDescription().getVersion() + ". WorldGuard Region handling will be handled by GravesX Addon: Land Protection");
-                    worldGuardEnabled = true;
-                } catch (Exception e) {
-                    getLogger().warning("Failed to hook into " + worldGuard.getDescription().getName() + " v." + worldGuard.getDescription().getVersion() + ". WorldGuard regions will be ignored.");
-                    getGravesXAPI().getGravesX().logStackTrace(e);
-                    worldGuardEnabled = false;
-                }
+            saveDefaultConfig();
+            AddonSettings current = settings.get();
+            denyMessages = new DenyMessages();
+            denyMessages.apply(current.getMessages());
+            tracer = new DecisionTracer(current.getTraceLevel(), current.getTraceBufferSize(),
+                    gravesX.getConfig().getInt("settings.debug.level", 0));
+            decisionCache = new DecisionCache(current.getCacheEntriesPerPlayer());
+            sessions = new SessionManager();
+            graveDecisionStore = new GraveDecisionStore(decisionCache, current.getCacheMaxGraves());
+            decisionCache.addListener(graveDecisionStore);
+            metrics = new ProtectionMetrics();
+            protectionEngine = new ProtectionEngine(this);
+            protectionEngine.configure(current.getProviderOrder(), current.getProviderActivation());
+            metricsExporter = new OpenMetricsExporter(metrics, decisionCache, denyMessages);
+            snapshotManager = new SnapshotManager(this);
+            getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+
+            getServer().getPluginManager().registerEvents(new LandProtectionGraveCreateListener(this), this);
+
+            for (ProtectionProviderFactory factory : providerFactories) {
+                enableProvider(factory);
             }
 
-            Plugin townyPlugin = getServer().getPluginManager().getPlugin("Towny");
-
-            if (townyPlugin != null && townyPlugin.isEnabled()) {
-                try {
-                    getLogger().info("Hooked into " + townyPlugin.getDescription().getName() + " v." + townyPlugin.getDescription().getVersion() + ". Town handling will be handled by GravesX Addon: Land Protection");
-                    towny = new TownyImpl(this);
-                    townyEnabled = true;
-                } catch (Exception e) {
-                    getLogger().warning("Failed to hook into " + townyPlugin.getDescription().getName() + " v." + townyPlugin.getDescription().getVersion() + ". Town handling will be ignored.");
-                    getGravesXAPI().getGravesX().logStackTrace(e);
-                    townyEnabled = false;
-                }
+            for (Player player : getServer().getOnlinePlayers()) {
+                sessions.open(player);
             }
 
+            LandProtectionCommand landProtectionCommand = new LandProtectionCommand(this);
+            getCommand("landprotection").setExecutor(landProtectionCommand);
+            getCommand("landprotection").setTabCompleter(landProtectionCommand);
+
+            snapshotManager.markAllDirty();
+            snapshotManager.flush();
+            taskScheduler.runGlobalTimer(snapshotManager::flush,
+                    SNAPSHOT_FLUSH_INTERVAL_TICKS, SNAPSHOT_FLUSH_INTERVAL_TICKS);
+            if (!hookLuckPerms()) {
+                taskScheduler.runGlobalTimer(() -> sessions.refreshBypass(taskScheduler),
+                        BYPASS_REFRESH_INTERVAL_TICKS, BYPASS_REFRESH_INTERVAL_TICKS);
+            }
+
+            taskScheduler.runAsyncTimer(this::exportMetrics,
+                    METRICS_EXPORT_INTERVAL_TICKS, METRICS_EXPORT_INTERVAL_TICKS);
+
             getLogger().info("Loaded GravesX Addon: Land Protection");
         } else {
             getLogger().severe("Plugin GravesX is either missing or not enabled. Disabling Plugin.");
         }
     }
 
+    /**
+     * Reloads the config without restarting. The config file is read and validated off the main thread, then the
+     * new settings are swapped in on the main thread, or the global region thread on Folia, as a whole. If the config has problems nothing is changed.
+     * Providers that were not loaded at startup can not be enabled by a reload.
+     *
+     * @param callback Called on the main or global region thread with the problems found, empty if the reload succeeded.
+     */
+    public void reload(Consumer<List<String>> callback) {
+        taskScheduler.runAsync(() -> {
+            AddonSettings loaded;
+
+            try {
+                YamlConfiguration config = new YamlConfiguration();
+                InputStream defaults = getResource("config.yml");
+
+                if (defaults != null) {
+                    config.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+                }
+
+                config.load(new File(getDataFolder(), "config.yml"));
+                loaded = AddonSettings.load(config, knownProviders);
+            } catch (IOException | InvalidConfigurationException e) {
+                List<String> problems = List.of("Could not read config.yml: " + e.getMessage());
+                taskScheduler.runGlobal(() -> callback.accept(problems));
+                return;
+            }
+
+            AddonSettings next = loaded;
+
+            taskScheduler.runGlobal(() -> {
+                if (next.getProblems().isEmpty()) {
+                    apply(next);
+                }
+
+                callback.accept(next.getProblems());
+            });
+        });
+    }
+
+    /**
+     * Swaps in new settings. Every component publishes its part in a single write, caches are resized lazily
+     * and decisions are only dropped if the worlds the providers are active in changed. Must be called on the
+     * main thread, or the global region thread on Folia.
+     *
+     * @param next The new settings.
+     */
+    private void apply(AddonSettings next) {
+        AddonSettings previous = settings.getAndSet(next);
+        int gravesXDebugLevel = gravesXAPI.getGravesX().getConfig().getInt("settings.debug.level", 0);
+
+        denyMessages.apply(next.getMessages());
+        protectionEngine.configure(next.getProviderOrder(), next.getProviderActivation());
+        decisionCache.resize(next.getCacheEntriesPerPlayer());
+        graveDecisionStore.setMaxGraves(next.getCacheMaxGraves());
+
+        if (next.getTraceLevel() != tracer.getLevel() || next.getTraceBufferSize() != previous.getTraceBufferSize()
+                || tracer.isDebugLogged() != gravesXDebugLevel >= 2) {
+            DecisionTracer nextTracer = new DecisionTracer(next.getTraceLevel(), next.getTraceBufferSize(), gravesXDebugLevel);
+
+            nextTracer.copyFrom(tracer);
+            tracer = nextTracer;
+        }
+
+        if (!next.getTownyRules().equals(previous.getTownyRules())) {
+            decisionCache.invalidateAll();
+            snapshotManager.markTownyDirty();
+        }
+
+        if (!next.getProviderActivation().equals(previous.getProviderActivation())) {
+            decisionCache.invalidateAll();
+            snapshotManager.markAllDirty();
+
+            for (String name : knownProviders) {
+                if (next.getProviderActivation().isActive(name) && !providers.containsKey(name)) {
+                    getLogger().info("Provider " + name + " is now active but was not loaded at startup, restart the server to enable it.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Enables the provider of a factory if its plugin is enabled, and registers it with the protection engine.
+     * Providers that fail to enable are ignored.
+     *
+     * @param factory The factory of the provider.
+     */
+    private void enableProvider(ProtectionProviderFactory factory) {
+        Plugin providerPlugin = getServer().getPluginManager().getPlugin(factory.getPluginName());
+
+        if (providerPlugin == null || !providerPlugin.isEnabled()) {
+            return;
+        }
+
+        try {
+            ProtectionProvider provider = factory.enable(this);
+
+            providers.put(provider.getName(), provider);
+            protectionEngine.register(provider);
+            getLogger().info("Hooked into " + providerPlugin.getDescription().getName() + " v." + providerPlugin.getDescription().getVersion() + ". " + providerPlugin.getDescription().getName() + " protection will be handled by GravesX Addon: Land Protection");
+        } catch (Exception | LinkageError e) {
+            getLogger().warning("Failed to hook into " + providerPlugin.getDescription().getName() + " v." + providerPlugin.getDescription().getVersion() + ". " + providerPlugin.getDescription().getName() + " protection will be ignored.");
+            getGravesXAPI().getGravesX().logStackTrace(e);
+        }
+    }
+
+    /**
+     * Subscribes to LuckPerms permission changes if LuckPerms is enabled, so bypass permissions are resolved again
+     * as soon as they change instead of periodically.
+     *
+     * @return {@code true} if LuckPerms is hooked, {@code false} if bypass permissions have to be polled.
+     */
+    private boolean hookLuckPerms() {
+        Plugin luckPerms = getServer().getPluginManager().getPlugin("LuckPerms");
+
+        if (luckPerms == null || !luckPerms.isEnabled()) {
+            return false;
+        }
+
+        try {
+            if (new LuckPermsListener(this).register()) {
+                getLogger().info("Hooked into LuckPerms v." + luckPerms.getDescription().getVersion() + ". Bypass permissions will be refreshed when they change.");
+                return true;
+            }
+        } catch (Exception | LinkageError e) {
+            getGravesXAPI().getGravesX().logStackTrace(e);
+        }
+
+        getLogger().warning("Failed to hook into LuckPerms v." + luckPerms.getDescription().getVersion() + ". Bypass permissions will be refreshed every " + BYPASS_REFRESH_INTERVAL_TICKS / 20L + " seconds.");
+        return false;
+    }
+
     /**
      * Called when the plugin is disabled. Logs a message indicating that the Land Protection addon is disabled.
      */
@@ -109,6 +353,15 @@ public final class LandProtection extends JavaPlugin {
         return gravesXAPI;
     }
 
+    /**
+     * Gets the scheduler running the tasks of the addon on Bukkit or Folia.
+     *
+     * @return The TaskScheduler instance.
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
     /**
      * Gets the singleton instance of the LandProtection plugin.
      *
@@ -124,18 +377,154 @@ public final class LandProtection extends JavaPlugin {
      * @return The WorldGuardImpl instance.
      */
     public WorldGuardImpl getWorldGuard() {
-        return worldGuard;
+        return isWorldGuardEnabled() ? (WorldGuardImpl) providers.get("worldguard") : null;
     }
 
     public TownyImpl getTowny() {
-        return towny;
+        return isTownyEnabled() ? (TownyImpl) providers.get("towny") : null;
+    }
+
+    /**
+     * Gets the GriefPreventionImpl instance, which handles GriefPrevention integration for this plugin.
+     *
+     * @return The GriefPreventionImpl instance, or {@code null} if GriefPrevention is not hooked.
+     */
+    public GriefPreventionImpl getGriefPrevention() {
+        return isGriefPreventionEnabled() ? (GriefPreventionImpl) providers.get("griefprevention") : null;
+    }
+
+    /**
+     * Gets the cache of land protection decisions made for players.
+     *
+     * @return The DecisionCache instance.
+     */
+    public DecisionCache getDecisionCache() {
+        return decisionCache;
+    }
+
+    /**
+     * Gets the manager of the immutable protection snapshots, which can be evaluated from any thread.
+     *
+     * @return The SnapshotManager instance.
+     */
+    public SnapshotManager getSnapshotManager() {
+        return snapshotManager;
+    }
+
+    /**
+     * Gets the latency and outcome metrics of every grave action and provider.
+     *
+     * @return The ProtectionMetrics instance.
+     */
+    public ProtectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the file the OpenMetrics export is written to.
+     *
+     * @return The path of the metrics file.
+     */
+    public Path getMetricsFile() {
+        return getDataFolder().toPath().resolve("metrics.prom");
+    }
+
+    /**
+     * Writes the current metrics to the OpenMetrics file. Failures are logged and otherwise ignored.
+     *
+     * @return {@code true} if the metrics were written, {@code false} otherwise.
+     */
+    public boolean exportMetrics() {
+        try {
+            metricsExporter.export(getMetricsFile());
+            return true;
+        } catch (IOException e) {
+            getLogger().warning("Failed to write metrics to " + getMetricsFile() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Gets the store of decisions remembered per grave.
+     *
+     * @return The GraveDecisionStore instance.
+     */
+    public GraveDecisionStore getGraveDecisionStore() {
+        return graveDecisionStore;
+    }
+
+    /**
+     * Gets the sessions of the online players.
+     *
+     * @return The SessionManager instance.
+     */
+    public SessionManager getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Gets the precompiled and rate limited deny messages.
+     *
+     * @return The DenyMessages instance.
+     */
+    public DenyMessages getDenyMessages() {
+        return denyMessages;
     }
 
     public boolean isWorldGuardEnabled() {
-        return worldGuardEnabled;
+        return providers.containsKey("worldguard");
     }
 
     public boolean isTownyEnabled() {
-        return townyEnabled;
+        return providers.containsKey("towny");
+    }
+
+    public boolean isGriefPreventionEnabled() {
+        return providers.containsKey("griefprevention");
+    }
+
+    /**
+     * Gets the enabled providers by name.
+     *
+     * @return An unmodifiable map of provider names to providers.
+     */
+    public Map<String, ProtectionProvider> getProviders() {
+        return Collections.unmodifiableMap(providers);
+    }
+
+    /**
+     * Gets the worlds each provider is active in.
+     *
+     * @return The ProviderActivation instance.
+     */
+    public ProviderActivation getProviderActivation() {
+        return settings.get().getProviderActivation();
+    }
+
+    /**
+     * Gets the settings currently in use. Settings never change, a reload replaces them.
+     *
+     * @return The AddonSettings instance.
+     */
+    public AddonSettings getSettings() {
+        return settings.get();
+    }
+
+    /**
+     * Gets the engine evaluating grave actions against every hooked land protection plugin.
+     *
+     * @return The ProtectionEngine instance.
+     */
+    public ProtectionEngine getProtectionEngine() {
+        return protectionEngine;
+    }
+
+    /**
+     * Gets the tracer keeping the most recent land protection decisions.
+     *
+     * @return The DecisionTracer instance.
+     */
+    public DecisionTracer getTracer() {
+        return tracer;
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package dev.cwhead.GravesXAddon.cache;
+
+/**
+ * A listener that is told about the areas whose claims changed once an index published the change, so decisions
+ * and snapshots made from the index before the change can be dropped after readers see it.
+ */
+public interface ClaimChangeListener {
+    /**
+     * Called when the claims inside a block area of a world changed and the change is visible to readers.
+     *
+     * @param worldName the name of the world
+     * @param minX the minimum block x coordinate, inclusive
+     * @param minZ the minimum block z coordinate, inclusive
+     * @param maxX the maximum block x coordinate, inclusive
+     * @param maxZ the maximum block z coordinate, inclusive
+     */
+    void claimsChanged(String worldName, int minX, int minZ, int maxX, int maxZ);
+}
@@ -0,0 +1,422 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code DecisionCache} class remembers the result of land protection checks per player, world,
+ * block position and grave action, so repeated checks at the same spot (repeat opens, auto-loots during
+ * mass deaths) are answered with a hash lookup instead of querying WorldGuard and Towny again.
+ * <p>
+ * Every player gets a fixed-size, direct-mapped table, so the cache is bounded and lookups do not allocate.
+ * Each slot holds an immutable decision, so the cache can be read and written from several region threads on
+ * Folia at once.
+ * Entries are dropped when the region, claim or residency data behind them changes, and when the player quits.
+ */
+public class DecisionCache {
+    /**
+     * The default number of cached decisions per player.
+     */
+    public static final int DEFAULT_ENTRIES_PER_PLAYER = 256;
+
+    /**
+     * The maximum number of players with a generation of their own, see {@link #invalidatePlayer(UUID)}.
+     */
+    public static final int MAX_PLAYER_GENERATIONS = 1024;
+
+    private volatile int entriesPerPlayer;
+    private final Map<UUID, Table> tables = new ConcurrentHashMap<>();
+    private final Map<String, Integer> worldIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextWorldId = new AtomicInteger(1);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<UUID, Long> playerGenerations = new ConcurrentHashMap<>();
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a {@code DecisionCache} object.
+     *
+     * @param entriesPerPlayer the number of decisions to cache per player, rounded up to a power of two
+     */
+    public DecisionCache(int entriesPerPlayer) {
+        this.entriesPerPlayer = round(entriesPerPlayer);
+    }
+
+    /**
+     * Changes the number of decisions cached per player. The tables of all players are dropped at once and
+     * recreated with the new size the next time a decision of the player is cached, so nothing is copied and
+     * lookups never wait. The decisions themselves stay valid, so listeners are not told.
+     *
+     * @param entriesPerPlayer the number of decisions to cache per player, rounded up to a power of two
+     */
+    public void resize(int entriesPerPlayer) {
+        int rounded = round(entriesPerPlayer);
+
+        if (rounded != this.entriesPerPlayer) {
+            this.entriesPerPlayer = rounded;
+            advance();
+            tables.clear();
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every invalidation, so stores that remember decisions on their
+     * own can drop them for the same region, claim or residency changes.
+     *
+     * @param listener the listener to register
+     */
+    public void addListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets a cached decision.
+     *
+     * @param player the UUID of the player
+     * @param worldName the name of the world
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param action the grave action
+     * @return {@code Boolean.TRUE} or {@code Boolean.FALSE} if a decision is cached, {@code null} otherwise
+     */
+    public Boolean get(UUID player, String worldName, int x, int y, int z, GraveAction action) {
+        Table table = tables.get(player);
+
+        if (table != null) {
+            long position = pack(x, y, z);
+            int meta = meta(worldId(worldName), action);
+            Slot slot = table.slots.get(table.slot(position, meta));
+
+            if (slot != null && slot.meta == meta && slot.position == position) {
+                hits.increment();
+                return slot.allowed;
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches a decision, replacing any decision that shares its slot. The decision is only cached if the decisions
+     * of the player were not invalidated since the specified generation was read, so a decision evaluated on one
+     * region thread while another thread invalidates the data behind it is dropped instead of outliving the
+     * invalidation. Invalidations change the generation before they scan the slots, and the decision is stored
+     * before the generation is checked again. Both are volatile accesses, so either the check sees the new
+     * generation and takes the decision back, or the scan sees the decision and drops it.
+     *
+     * @param player the UUID of the player
+     * @param worldName the name of the world
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param action the grave action
+     * @param allowed the decision to cache
+     * @param generation the generation of the player read before the decision was evaluated
+     */
+    public void put(UUID player, String worldName, int x, int y, int z, GraveAction action, boolean allowed,
+                    long generation) {
+        if (getGeneration(player) != generation) {
+            return;
+        }
+
+        Table table = tables.computeIfAbsent(player, uuid -> new Table(entriesPerPlayer));
+        long position = pack(x, y, z);
+        int meta = meta(worldId(worldName), action);
+        int index = table.slot(position, meta);
+        Slot slot = new Slot(position, meta, allowed);
+
+        table.slots.set(index, slot);
+
+        if (getGeneration(player) != generation) {
+            table.slots.compareAndSet(index, slot, null);
+        }
+    }
+
+    /**
+     * Drops every decision of the specified player. Only the generation of that player changes, so the decisions
+     * other players remember on their own stay valid. The generations of single players are kept until the next
+     * invalidation that changes the generation of everyone, and once {@link #MAX_PLAYER_GENERATIONS} players have
+     * one, the generation of everyone is changed instead of keeping another.
+     *
+     * @param player the UUID of the player
+     */
+    public void invalidatePlayer(UUID player) {
+        if (playerGenerations.size() < MAX_PLAYER_GENERATIONS) {
+            playerGenerations.merge(player, clock.incrementAndGet(), Math::max);
+        } else {
+            advance();
+        }
+
+        tables.remove(player);
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidatePlayer(player);
+        }
+    }
+
+    /**
+     * Forgets a player that quit, dropping their decisions and their table. The generation of everyone changes
+     * instead of the generation of the player alone, so decisions of the player still being evaluated are dropped
+     * without keeping a generation around for a player that is gone.
+     *
+     * @param player the UUID of the player
+     */
+    public void removePlayer(UUID player) {
+        advance();
+        tables.remove(player);
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidatePlayer(player);
+        }
+    }
+
+    /**
+     * Drops every decision made in the specified world.
+     *
+     * @param worldName the name of the world
+     */
+    public void invalidateWorld(String worldName) {
+        advance();
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidateWorld(worldName);
+        }
+
+        Integer worldId = worldIds.get(worldName);
+
+        if (worldId == null) {
+            return;
+        }
+
+        for (Table table : tables.values()) {
+            for (int i = 0; i < table.slots.length(); i++) {
+                Slot slot = table.slots.get(i);
+
+                if (slot != null && slot.meta >>> 3 == worldId) {
+                    table.slots.compareAndSet(i, slot, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every decision made inside the specified block area of a world, at any height.
+     *
+     * @param worldName the name of the world
+     * @param minX the minimum block x coordinate, inclusive
+     * @param minZ the minimum block z coordinate, inclusive
+     * @param maxX the maximum block x coordinate, inclusive
+     * @param maxZ the maximum block z coordinate, inclusive
+     */
+    public void invalidateArea(String worldName, int minX, int minZ, int maxX, int maxZ) {
+        advance();
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidateArea(worldName, minX, minZ, maxX, maxZ);
+        }
+
+        Integer worldId = worldIds.get(worldName);
+
+        if (worldId == null) {
+            return;
+        }
+
+        for (Table table : tables.values()) {
+            for (int i = 0; i < table.slots.length(); i++) {
+                Slot slot = table.slots.get(i);
+
+                if (slot != null && slot.meta >>> 3 == worldId) {
+                    int x = unpackX(slot.position);
+                    int z = unpackZ(slot.position);
+
+                    if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) {
+                        table.slots.compareAndSet(i, slot, null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every cached decision.
+     */
+    public void invalidateAll() {
+        advance();
+        tables.clear();
+
+        for (InvalidationListener listener : listeners) {
+            listener.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the generation of the decisions of a player, which changes every time cached decisions of the player
+     * are invalidated, either for the player alone or for a world, an area or everyone. Callers that remember
+     * decisions on their own can compare generations to know when to recheck.
+     *
+     * @param player the UUID of the player
+     * @return the current generation of the player
+     */
+    public long getGeneration(UUID player) {
+        Long own = playerGenerations.get(player);
+        long shared = generation.get();
+
+        return own != null ? Math.max(own, shared) : shared;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that were not cached.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of players with cached decisions.
+     *
+     * @return the number of players
+     */
+    public int getPlayerCount() {
+        return tables.size();
+    }
+
+    /**
+     * Gets the number of decisions cached per player.
+     *
+     * @return the number of entries per player
+     */
+    public int getEntriesPerPlayer() {
+        return entriesPerPlayer;
+    }
+
+    /**
+     * Moves the generation shared by all players past every generation handed out so far. Player generations
+     * below it no longer matter and are dropped, which also forgets the generations of players that quit.
+     */
+    private void advance() {
+        long next = clock.incrementAndGet();
+
+        generation.accumulateAndGet(next, Math::max);
+        playerGenerations.values().removeIf(own -> own < next);
+    }
+
+    private static int round(int entriesPerPlayer) {
+        return Integer.highestOneBit(Math.max(16, entriesPerPlayer) - 1) << 1;
+    }
+
+    private int worldId(String worldName) {
+        Integer worldId = worldIds.get(worldName);
+
+        return worldId != null ? worldId : worldIds.computeIfAbsent(worldName, name -> nextWorldId.getAndIncrement());
+    }
+
+    private static int meta(int worldId, GraveAction action) {
+        return worldId << 3 | action.ordinal();
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | (long) y & 0xFFFL;
+    }
+
+    private static int unpackX(long position) {
+        return (int) (position >> 38);
+    }
+
+    private static int unpackZ(long position) {
+        return (int) (position << 26 >> 38);
+    }
+
+    /**
+     * A store of decisions that is told whenever the {@code DecisionCache} drops decisions.
+     */
+    public interface InvalidationListener {
+        /**
+         * Called when every decision of a player is dropped.
+         *
+         * @param player the UUID of the player
+         */
+        void invalidatePlayer(UUID player);
+
+        /**
+         * Called when every decision made in a world is dropped.
+         *
+         * @param worldName the name of the world
+         */
+        void invalidateWorld(String worldName);
+
+        /**
+         * Called when every decision made inside a block area of a world is dropped.
+         *
+         * @param worldName the name of the world
+         * @param minX the minimum block x coordinate, inclusive
+         * @param minZ the minimum block z coordinate, inclusive
+         * @param maxX the maximum block x coordinate, inclusive
+         * @param maxZ the maximum block z coordinate, inclusive
+         */
+        void invalidateArea(String worldName, int minX, int minZ, int maxX, int maxZ);
+
+        /**
+         * Called when every decision is dropped.
+         */
+        void invalidateAll();
+    }
+
+    /**
+     * A direct-mapped table of decisions for a single player. A {@code null} slot is empty.
+     */
+    private static final class Table {
+        private final AtomicReferenceArray<Slot> slots;
+        private final int mask;
+
+        private Table(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        private int slot(long position, int meta) {
+            long hash = (position ^ (long) meta * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+
+            return (int) (hash ^ hash >>> 32) & mask;
+        }
+    }
+
+    /**
+     * A single cached decision. Slots are immutable and replaced as a whole, so a thread reading a slot while
+     * another thread replaces it sees either the old or the new decision, never a mix of both.
+     */
+    private static final class Slot {
+        private final long position;
+        private final int meta;
+        private final boolean allowed;
+
+        private Slot(long position, int meta, boolean allowed) {
+            this.position = position;
+            this.meta = meta;
+            this.allowed = allowed;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code GraveDecisionStore} class remembers the land protection decisions of every grave, keyed by the
+ * grave UUID and evaluated at the block the grave was placed at instead of wherever the player stands. Graves are
+ * only tracked once their block is placed, so graves whose creation was denied or cancelled are never tracked.
+ * The decisions of the grave owner are computed when the grave block is placed, the decisions of other players
+ * the first time they interact with the grave, so later events for the grave are a single map lookup.
+ * <p>
+ * Decisions of a grave are dropped when the {@link DecisionCache} drops decisions for the world, area or player
+ * covering the grave, and the grave is forgotten when it is broken or times out. The store keeps at most a fixed
+ * number of graves and forgets the least recently used one first. The graves are split into lock stripes by
+ * UUID, so region threads on Folia rarely wait for each other, and the least recently used order is kept per
+ * stripe.
+ */
+public class GraveDecisionStore implements DecisionCache.InvalidationListener {
+    /**
+     * The default number of graves to keep decisions for.
+     */
+    public static final int DEFAULT_MAX_GRAVES = 10000;
+
+    private static final int STRIPES = 16;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte ALLOW = 1;
+    private static final byte DENY = 2;
+
+    private final DecisionCache decisionCache;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private volatile int maxGravesPerStripe;
+
+    /**
+     * Constructs a {@code GraveDecisionStore} object.
+     *
+     * @param decisionCache the decision cache whose generation decisions are checked against
+     * @param maxGraves the number of graves to keep decisions for
+     */
+    public GraveDecisionStore(DecisionCache decisionCache, int maxGraves) {
+        this.decisionCache = decisionCache;
+        this.maxGravesPerStripe = perStripe(maxGraves);
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Changes the number of graves to keep decisions for, forgetting the least recently used graves right away
+     * if there are more.
+     *
+     * @param maxGraves the number of graves to keep decisions for
+     */
+    public void setMaxGraves(int maxGraves) {
+        maxGravesPerStripe = perStripe(maxGraves);
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<UUID> iterator = stripe.graves.keySet().iterator();
+
+                while (stripe.graves.size() > maxGravesPerStripe && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts tracking a grave placed at a block. Graves that are already tracked keep their block and decisions.
+     *
+     * @param grave the UUID of the grave
+     * @param location the location of the grave block
+     */
+    public void track(UUID grave, Location location) {
+        Location block = new Location(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        Stripe stripe = stripe(grave);
+
+        synchronized (stripe) {
+            stripe.graves.computeIfAbsent(grave, uuid -> new Entry(block));
+        }
+    }
+
+    /**
+     * Gets the block a tracked grave was placed at.
+     *
+     * @param grave the UUID of the grave
+     * @return the location of the grave block, or {@code null} if the grave is not tracked
+     */
+    public Location getLocation(UUID grave) {
+        Stripe stripe = stripe(grave);
+        Entry entry;
+
+        synchronized (stripe) {
+            entry = stripe.graves.get(grave);
+        }
+
+        return entry != null ? entry.location.clone() : null;
+    }
+
+    /**
+     * Gets the remembered decision of a player for an action on a grave.
+     *
+     * @param grave the UUID of the grave
+     * @param player the UUID of the player
+     * @param action the grave action
+     * @return {@code Boolean.TRUE} or {@code Boolean.FALSE} if a decision is remembered, {@code null} otherwise
+     */
+    public Boolean get(UUID grave, UUID player, GraveAction action) {
+        Stripe stripe = stripe(grave);
+        Entry entry;
+
+        synchronized (stripe) {
+            entry = stripe.graves.get(grave);
+        }
+
+        byte[] decisions = entry != null ? entry.decisions.get(player) : null;
+
+        if (decisions == null || decisions[action.ordinal()] == UNKNOWN) {
+            return null;
+        }
+
+        return decisions[action.ordinal()] == ALLOW;
+    }
+
+    /**
+     * Remembers the decision of a player for an action on a tracked grave. Decisions for graves that are not
+     * tracked are ignored, and so are decisions evaluated before the {@link DecisionCache} was last invalidated,
+     * the same way {@link DecisionCache#put} drops them.
+     *
+     * @param grave the UUID of the grave
+     * @param player the UUID of the player
+     * @param action the grave action
+     * @param allowed the decision
+     * @param generation the {@link DecisionCache} generation of the player read before the decision was evaluated
+     */
+    public void put(UUID grave, UUID player, GraveAction action, boolean allowed, long generation) {
+        if (decisionCache.getGeneration(player) != generation) {
+            return;
+        }
+
+        Stripe stripe = stripe(grave);
+        Entry entry;
+
+        synchronized (stripe) {
+            entry = stripe.graves.get(grave);
+        }
+
+        if (entry != null) {
+            byte[] decisions = entry.decisions.computeIfAbsent(player, uuid -> new byte[GraveAction.values().length]);
+
+            decisions[action.ordinal()] = allowed ? ALLOW : DENY;
+
+            if (decisionCache.getGeneration(player) != generation) {
+                decisions[action.ordinal()] = UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Forgets a grave that was broken or timed out.
+     *
+     * @param grave the UUID of the grave
+     */
+    public void remove(UUID grave) {
+        Stripe stripe = stripe(grave);
+
+        synchronized (stripe) {
+            stripe.graves.remove(grave);
+        }
+    }
+
+    /**
+     * Gets the number of tracked graves.
+     *
+     * @return the number of graves
+     */
+    public int size() {
+        int size = 0;
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.graves.size();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public void invalidatePlayer(UUID player) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Entry entry : stripe.graves.values()) {
+                    entry.decisions.remove(player);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidateWorld(String worldName) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Entry entry : stripe.graves.values()) {
+                    if (entry.worldName.equals(worldName)) {
+                        entry.decisions.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidateArea(String worldName, int minX, int minZ, int maxX, int maxZ) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Entry entry : stripe.graves.values()) {
+                    if (entry.worldName.equals(worldName) && entry.x >= minX && entry.x <= maxX && entry.z >= minZ && entry.z <= maxZ) {
+                        entry.decisions.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Entry entry : stripe.graves.values()) {
+                    entry.decisions.clear();
+                }
+            }
+        }
+    }
+
+    private Stripe stripe(UUID grave) {
+        return stripes[(int) (grave.getLeastSignificantBits() ^ grave.getMostSignificantBits()) & (STRIPES - 1)];
+    }
+
+    private static int perStripe(int maxGraves) {
+        return Math.max(1, (maxGraves + STRIPES - 1) / STRIPES);
+    }
+
+    /**
+     * The graves of one stripe in least recently used order, guarded by the stripe itself.
+     */
+    private final class Stripe {
+        private final Map<UUID, Entry> graves = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxGravesPerStripe;
+            }
+        };
+    }
+
+    /**
+     * The block of a single grave and the decisions of the players that interacted with it.
+     */
+    private static final class Entry {
+        private final Location location;
+        private final String worldName;
+        private final int x;
+        private final int z;
+        private final Map<UUID, byte[]> decisions = new ConcurrentHashMap<>(4);
+
+        private Entry(Location location) {
+            this.location = location;
+            this.worldName = location.getWorld() != null ? location.getWorld().getName() : "";
+            this.x = location.getBlockX();
+            this.z = location.getBlockZ();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.DataStore;
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code GriefPreventionClaimIndex} class buckets every top-level GriefPrevention claim by the chunks it
+ * overlaps, so finding the claim at a location only tests the few claims of one chunk instead of going through
+ * {@code DataStore.getClaimAt} on every check. Subdivisions are resolved through the children of the claim found.
+ * <p>
+ * The index is built once from GriefPrevention's claims and kept in sync through claim create, resize, delete and
+ * trust events, which mark single claims as changed. Region threads on Folia read published chunks without locks,
+ * so changes are never made to them: {@link #publish(DataStore, ClaimChangeListener)} re-indexes every claim
+ * marked since the last publish into one copy of the chunks of each affected world and swaps the copies in, so
+ * many claims changing in the same tick cost one copy instead of one per claim.
+ */
+public class GriefPreventionClaimIndex {
+    private static final Claim[] NO_CLAIMS = new Claim[0];
+
+    private final Map<String, LongObjectHashMap<Claim[]>> worlds = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> claims = new ConcurrentHashMap<>();
+    private final Map<String, LongObjectHashMap<Claim[]>> pending = new HashMap<>();
+    private final Set<Claim> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Rebuilds the index from every claim known to GriefPrevention.
+     *
+     * @param dataStore the GriefPrevention {@code DataStore}
+     */
+    public synchronized void rebuild(DataStore dataStore) {
+        Map<String, LongObjectHashMap<Claim[]>> rebuilt = new HashMap<>();
+
+        claims.clear();
+        pending.clear();
+
+        for (Claim claim : dataStore.getClaims()) {
+            if (claim.parent == null) {
+                Entry entry = entry(claim);
+
+                if (entry != null) {
+                    claims.put(claim.getID(), entry);
+                    add(rebuilt.computeIfAbsent(entry.worldName, name -> new LongObjectHashMap<>()), entry);
+                }
+            }
+        }
+
+        worlds.keySet().retainAll(rebuilt.keySet());
+        worlds.putAll(rebuilt);
+    }
+
+    /**
+     * Gets the most specific claim at a location, which is a subdivision if one contains the location.
+     *
+     * @param location the location
+     * @return the claim, or {@code null} if the location is not claimed
+     */
+    public Claim getClaimAt(Location location) {
+        if (location.getWorld() == null) {
+            return null;
+        }
+
+        LongObjectHashMap<Claim[]> chunks = worlds.get(location.getWorld().getName());
+
+        if (chunks == null) {
+            return null;
+        }
+
+        Claim[] bucket = chunks.get(ChunkKey.pack(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+
+        if (bucket == null) {
+            return null;
+        }
+
+        for (Claim claim : bucket) {
+            // Subdivisions must not be excluded here, or locations inside them would miss their top-level claim.
+            // Height counts, as claims end at their lower corner and 3D subdivisions at both corners.
+            if (claim.contains(location, false, false)) {
+                for (Claim child : claim.children) {
+                    if (child.contains(location, false, false)) {
+                        return child;
+                    }
+                }
+
+                return claim;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if a chunk overlaps any claim. Claims are already bucketed by chunk, so this is a single lookup.
+     *
+     * @param worldName the name of the world
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return {@code true} if a claim overlaps the chunk, {@code false} if the whole chunk is unclaimed
+     */
+    public boolean isClaimedChunk(String worldName, int chunkX, int chunkZ) {
+        LongObjectHashMap<Claim[]> chunks = worlds.get(worldName);
+
+        return chunks != null && chunks.containsKey(ChunkKey.pack(chunkX, chunkZ));
+    }
+
+    /**
+     * Marks a claim as changed after it was created, resized, deleted or its trust changed. Claim events fire
+     * before GriefPrevention applies the change, so the claim is only re-indexed by the next publish.
+     *
+     * @param claim the claim that changed
+     */
+    public synchronized void markChanged(Claim claim) {
+        changed.add(claim);
+    }
+
+    /**
+     * Re-indexes every claim marked as changed since the last publish, publishes the chunks of the worlds they are
+     * in and tells the listener about the chunks every changed claim was and is indexed in. This is meant to run
+     * once per tick on the main thread.
+     *
+     * @param dataStore the GriefPrevention {@code DataStore}
+     * @param listener the listener to tell about the changed areas
+     */
+    public void publish(DataStore dataStore, ClaimChangeListener listener) {
+        List<Entry> touched = new ArrayList<>();
+
+        synchronized (this) {
+            if (changed.isEmpty()) {
+                return;
+            }
+
+            for (Claim claim : changed) {
+                refresh(dataStore, claim, touched);
+            }
+
+            changed.clear();
+            worlds.putAll(pending);
+            pending.clear();
+        }
+
+        for (Entry entry : touched) {
+            listener.claimsChanged(entry.worldName, entry.minChunkX << 4, entry.minChunkZ << 4,
+                    (entry.maxChunkX << 4) + 15, (entry.maxChunkZ << 4) + 15);
+        }
+    }
+
+    /**
+     * Re-indexes a claim by dropping the indexed copy and indexing the claim GriefPrevention currently has under
+     * the same id, if any. Subdivisions refresh their top-level claim. The id of a new claim is only assigned once
+     * GriefPrevention stored it, so it is read here and not when the claim event fired. Claims that still have no
+     * id are ignored.
+     */
+    private void refresh(DataStore dataStore, Claim changed, List<Entry> touched) {
+        Claim topLevel = changed.parent != null ? changed.parent : changed;
+        Long claimId = topLevel.getID();
+
+        if (claimId == null) {
+            return;
+        }
+
+        remove(claimId, touched);
+
+        Claim claim = dataStore.getClaim(claimId);
+
+        if (claim != null && claim.parent != null) {
+            remove(claim.parent.getID(), touched);
+            claim = claim.parent;
+        }
+
+        Entry entry = claim != null && claim.inDataStore ? entry(claim) : null;
+
+        if (entry != null) {
+            claims.put(claim.getID(), entry);
+            add(pending(entry.worldName), entry);
+            touched.add(entry);
+        }
+    }
+
+    /**
+     * Gets the number of indexed top-level claims.
+     *
+     * @return the number of claims
+     */
+    public int size() {
+        return claims.size();
+    }
+
+    private static Entry entry(Claim claim) {
+        Location lesser = claim.getLesserBoundaryCorner();
+        Location greater = claim.getGreaterBoundaryCorner();
+
+        if (lesser.getWorld() == null) {
+            return null;
+        }
+
+        return new Entry(claim, lesser.getWorld().getName(), lesser.getBlockX() >> 4, lesser.getBlockZ() >> 4,
+                greater.getBlockX() >> 4, greater.getBlockZ() >> 4);
+    }
+
+    private static void add(LongObjectHashMap<Claim[]> chunks, Entry entry) {
+        for (int chunkX = entry.minChunkX; chunkX <= entry.maxChunkX; chunkX++) {
+            for (int chunkZ = entry.minChunkZ; chunkZ <= entry.maxChunkZ; chunkZ++) {
+                long key = ChunkKey.pack(chunkX, chunkZ);
+                Claim[] bucket = chunks.get(key);
+
+                if (bucket == null) {
+                    bucket = NO_CLAIMS;
+                }
+
+                Claim[] grown = Arrays.copyOf(bucket, bucket.length + 1);
+
+                grown[bucket.length] = entry.claim;
+                chunks.put(key, grown);
+            }
+        }
+    }
+
+    /**
+     * Gets the unpublished chunks of a world, copying the published chunks on the first change since the last
+     * publish.
+     */
+    private LongObjectHashMap<Claim[]> pending(String worldName) {
+        return pending.computeIfAbsent(worldName, name -> {
+            LongObjectHashMap<Claim[]> chunks = worlds.get(name);
+
+            return chunks != null ? chunks.copy() : new LongObjectHashMap<>();
+        });
+    }
+
+    /**
+     * Removes a claim from the unpublished chunks it was indexed in. The bounds it was indexed with are used, as
+     * the claim may have been resized in place since.
+     */
+    private void remove(long claimId, List<Entry> touched) {
+        Entry entry = claims.remove(claimId);
+
+        if (entry == null) {
+            return;
+        }
+
+        LongObjectHashMap<Claim[]> chunks = pending(entry.worldName);
+
+        touched.add(entry);
+
+        for (int chunkX = entry.minChunkX; chunkX <= entry.maxChunkX; chunkX++) {
+            for (int chunkZ = entry.minChunkZ; chunkZ <= entry.maxChunkZ; chunkZ++) {
+                long key = ChunkKey.pack(chunkX, chunkZ);
+                Claim[] bucket = chunks.get(key);
+                int index = bucket != null ? indexOf(bucket, entry.claim) : -1;
+
+                if (index < 0) {
+                    continue;
+                }
+
+                if (bucket.length == 1) {
+                    chunks.remove(key);
+                } else {
+                    Claim[] shrunk = new Claim[bucket.length - 1];
+
+                    System.arraycopy(bucket, 0, shrunk, 0, index);
+                    System.arraycopy(bucket, index + 1, shrunk, index, shrunk.length - index);
+                    chunks.put(key, shrunk);
+                }
+            }
+        }
+    }
+
+    private static int indexOf(Claim[] bucket, Claim claim) {
+        for (int i = 0; i < bucket.length; i++) {
+            if (bucket[i] == claim) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * A top-level claim and the chunk range it was indexed in.
+     */
+    private static final class Entry {
+        private final Claim claim;
+        private final String worldName;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int maxChunkX;
+        private final int maxChunkZ;
+
+        private Entry(Claim claim, String worldName, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+            this.claim = claim;
+            this.worldName = worldName;
+            this.minChunkX = minChunkX;
+            this.minChunkZ = minChunkZ;
+            this.maxChunkX = maxChunkX;
+            this.maxChunkZ = maxChunkZ;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+
+/**
+ * The {@code ProtectedChunkSet} class is a compact set of the chunks of one world that a land protection plugin
+ * protects. Chunks are grouped into pages of 64 by 64 chunks, and every page that holds a protected chunk is a
+ * bitmap of 64 {@code long} rows, so testing a chunk is one primitive map lookup and a bit test, and large regions
+ * are added a row at a time.
+ * <p>
+ * Sets are modified while they are built and published afterwards. Holders that change a published set copy it
+ * first, so a published set is never modified and can be read from any thread.
+ */
+public class ProtectedChunkSet {
+    private static final int PAGE_BITS = 6;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final LongObjectHashMap<long[]> pages;
+
+    /**
+     * Constructs an empty {@code ProtectedChunkSet} object.
+     */
+    public ProtectedChunkSet() {
+        this(new LongObjectHashMap<>());
+    }
+
+    private ProtectedChunkSet(LongObjectHashMap<long[]> pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * Checks if a chunk is protected.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return {@code true} if the chunk is in the set, {@code false} otherwise
+     */
+    public boolean contains(int chunkX, int chunkZ) {
+        long[] page = pages.get(ChunkKey.pack(chunkX >> PAGE_BITS, chunkZ >> PAGE_BITS));
+
+        return page != null && (page[chunkZ & PAGE_MASK] & 1L << (chunkX & PAGE_MASK)) != 0;
+    }
+
+    /**
+     * Adds a chunk.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     */
+    public void add(int chunkX, int chunkZ) {
+        addRange(chunkX, chunkZ, chunkX, chunkZ);
+    }
+
+    /**
+     * Adds every chunk of a rectangle.
+     *
+     * @param minChunkX the minimum chunk x coordinate, inclusive
+     * @param minChunkZ the minimum chunk z coordinate, inclusive
+     * @param maxChunkX the maximum chunk x coordinate, inclusive
+     * @param maxChunkZ the maximum chunk z coordinate, inclusive
+     */
+    public void addRange(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        for (int pageX = minChunkX >> PAGE_BITS; pageX <= maxChunkX >> PAGE_BITS; pageX++) {
+            int fromX = Math.max(minChunkX, pageX << PAGE_BITS) & PAGE_MASK;
+            int toX = Math.min(maxChunkX, (pageX << PAGE_BITS) + PAGE_MASK) & PAGE_MASK;
+            long row = -1L >>> (PAGE_MASK - toX + fromX) << fromX;
+
+            for (int pageZ = minChunkZ >> PAGE_BITS; pageZ <= maxChunkZ >> PAGE_BITS; pageZ++) {
+                long key = ChunkKey.pack(pageX, pageZ);
+                long[] page = pages.get(key);
+
+                if (page == null) {
+                    page = new long[PAGE_SIZE];
+                    pages.put(key, page);
+                }
+
+                int fromZ = Math.max(minChunkZ, pageZ << PAGE_BITS) & PAGE_MASK;
+                int toZ = Math.min(maxChunkZ, (pageZ << PAGE_BITS) + PAGE_MASK) & PAGE_MASK;
+
+                for (int z = fromZ; z <= toZ; z++) {
+                    page[z] |= row;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a chunk.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     */
+    public void remove(int chunkX, int chunkZ) {
+        long key = ChunkKey.pack(chunkX >> PAGE_BITS, chunkZ >> PAGE_BITS);
+        long[] page = pages.get(key);
+
+        if (page == null) {
+            return;
+        }
+
+        page[chunkZ & PAGE_MASK] &= ~(1L << (chunkX & PAGE_MASK));
+
+        for (long row : page) {
+            if (row != 0) {
+                return;
+            }
+        }
+
+        pages.remove(key);
+    }
+
+    /**
+     * Gets the number of protected chunks.
+     *
+     * @return the number of chunks in the set
+     */
+    public long size() {
+        long[] size = new long[1];
+
+        pages.forEachValue(page -> {
+            for (long row : page) {
+                size[0] += Long.bitCount(row);
+            }
+        });
+
+        return size[0];
+    }
+
+    /**
+     * Copies the set, so the copy can be modified while this set is still being read.
+     *
+     * @return a new set with the same chunks
+     */
+    public ProtectedChunkSet copy() {
+        LongObjectHashMap<long[]> copy = new LongObjectHashMap<>(pages.size());
+
+        pages.forEachKey(key -> copy.put(key, pages.get(key).clone()));
+        return new ProtectedChunkSet(copy);
+    }
+}
@@ -0,0 +1,167 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code RegionChunkIndex} class keeps the chunks covered by the bounding box of any WorldGuard region of a
+ * world, so checks in the wilderness between regions are answered with a single bit test instead of a region
+ * query. Outside of every region only the {@code __global__} region applies, so the wilderness of a world is only
+ * unprotected for the grave actions whose flag the global region neither denies nor restricts to a region group.
+ * <p>
+ * WorldGuard only reports region changes per world, so the chunks of a world are compiled lazily on first use and
+ * dropped with the world whenever its region data changes. A compile that raced with a change is not published.
+ * Regions defined or removed through the API or by other plugins are only reported once the region tracker
+ * notices them, so until then a world whose region count no longer matches its compile answers chunks outside
+ * the compiled ones with a live region query instead of calling them wilderness.
+ */
+public class RegionChunkIndex {
+    private final WorldGuard worldGuard;
+    private final StateFlag[] flags;
+    private final Map<String, Area> worlds = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Constructs a {@code RegionChunkIndex} object.
+     *
+     * @param worldGuard the {@code WorldGuard} instance to read regions from
+     * @param flags the registered flag of every grave action, indexed by ordinal, {@code null} if not registered
+     */
+    public RegionChunkIndex(WorldGuard worldGuard, StateFlag[] flags) {
+        this.worldGuard = worldGuard;
+        this.flags = flags;
+    }
+
+    /**
+     * Checks if WorldGuard may deny a grave action anywhere in a chunk, compiling the world if needed. Only
+     * compiling looks up the region manager of the world, so checks in compiled worlds resolve nothing. Chunks
+     * outside the compiled ones are queried live while the region count of the world differs from its compile.
+     *
+     * @param world the world
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @param action the grave action
+     * @return {@code true} if a region or the global region may deny the action, {@code false} otherwise
+     */
+    public boolean mayDeny(World world, int chunkX, int chunkZ, GraveAction action) {
+        Area area = worlds.get(world.getName());
+
+        if (area == null) {
+            long compiledVersion = version.get();
+            RegionManager regionManager = worldGuard.getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+
+            if (regionManager == null) {
+                return false;
+            }
+
+            area = compile(regionManager);
+
+            if (version.get() == compiledVersion) {
+                worlds.putIfAbsent(world.getName(), area);
+            }
+        }
+
+        if (area.globalMayDeny[action.ordinal()] || area.chunks.contains(chunkX, chunkZ)) {
+            return true;
+        }
+
+        return area.regionManager.size() != area.regionCount
+                && hasRegion(area.regionManager, world, chunkX, chunkZ);
+    }
+
+    /**
+     * Drops the compiled chunks of a world after its region data changed.
+     *
+     * @param worldName the name of the world
+     */
+    public void invalidate(String worldName) {
+        version.incrementAndGet();
+        worlds.remove(worldName);
+    }
+
+    /**
+     * Gets the number of protected chunks of every compiled world.
+     *
+     * @return the number of chunks
+     */
+    public long size() {
+        long size = 0;
+
+        for (Area area : worlds.values()) {
+            size += area.chunks.size();
+        }
+
+        return size;
+    }
+
+    private Area compile(RegionManager regionManager) {
+        ProtectedChunkSet chunks = new ProtectedChunkSet();
+        boolean[] globalMayDeny = new boolean[flags.length];
+
+        for (ProtectedRegion region : regionManager.getRegions().values()) {
+            if (region instanceof GlobalProtectedRegion) {
+                for (int i = 0; i < flags.length; i++) {
+                    globalMayDeny[i] = flags[i] != null && (region.getFlag(flags[i]) == StateFlag.State.DENY
+                            || region.getFlag(flags[i].getRegionGroupFlag()) != null);
+                }
+
+                continue;
+            }
+
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+
+            chunks.addRange(min.getBlockX() >> 4, min.getBlockZ() >> 4, max.getBlockX() >> 4, max.getBlockZ() >> 4);
+        }
+
+        return new Area(regionManager, regionManager.size(), chunks, globalMayDeny);
+    }
+
+    /**
+     * Checks if any region other than the global region intersects a chunk, asking the region manager directly.
+     */
+    private static boolean hasRegion(RegionManager regionManager, World world, int chunkX, int chunkZ) {
+        BlockVector3 min = BlockVector3.at(chunkX << 4, world.getMinHeight(), chunkZ << 4);
+        BlockVector3 max = BlockVector3.at((chunkX << 4) + 15, world.getMaxHeight() - 1, (chunkZ << 4) + 15);
+
+        for (ProtectedRegion region : regionManager.getApplicableRegions(
+                new ProtectedCuboidRegion("__gravesx_chunk__", true, min, max))) {
+            if (!(region instanceof GlobalProtectedRegion)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The compiled chunks of a world, the number of regions they were compiled from and the actions its global
+     * region may deny.
+     */
+    private static final class Area {
+        private final RegionManager regionManager;
+        private final int regionCount;
+        private final ProtectedChunkSet chunks;
+        private final boolean[] globalMayDeny;
+
+        private Area(RegionManager regionManager, int regionCount, ProtectedChunkSet chunks,
+                     boolean[] globalMayDeny) {
+            this.regionManager = regionManager;
+            this.regionCount = regionCount;
+            this.chunks = chunks;
+            this.globalMayDeny = globalMayDeny;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionType;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code RegionFlagSectionIndex} class compiles the gravesx flags of every 16x16x16 chunk section into a
+ * small player independent map, so checks in sections that lie entirely inside the same regions are answered
+ * without a region query and without resolving region priorities again.
+ * <p>
+ * A section is uniform if every region it touches covers it completely. For a uniform section each flag is
+ * compiled to allow, which needs no further check, or to members, which only allows owners and members of the
+ * regions of the section. Sections on region borders, and flags restricted to a region group, are marked for a
+ * full query. Sections are compiled lazily on first use and dropped with their world whenever WorldGuard region
+ * data of the world changes. The sections of a world are split into lock stripes, so region threads on Folia
+ * rarely wait for each other.
+ */
+public class RegionFlagSectionIndex {
+    /**
+     * The flag allows the action for everyone in the section.
+     */
+    public static final byte ALLOW = 1;
+
+    /**
+     * The flag denies the action in the section, except for owners and members of its regions.
+     */
+    public static final byte MEMBERS = 2;
+
+    /**
+     * The flag has to be queried at the exact location.
+     */
+    public static final byte QUERY = 3;
+
+    /**
+     * The number of sections compiled per world before the sections of the world are dropped.
+     */
+    private static final int MAX_SECTIONS_PER_WORLD = 1 << 16;
+
+    private static final int STRIPES = 16;
+
+    private static final Section BORDER = new Section(filled(QUERY), new String[0]);
+
+    private final StateFlag[] flags;
+    private final Map<String, Stripe[]> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@code RegionFlagSectionIndex} object.
+     *
+     * @param flags the registered flag of every grave action, indexed by ordinal, {@code null} if not registered
+     */
+    public RegionFlagSectionIndex(StateFlag[] flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * Gets the compiled section containing a block, compiling it if needed.
+     *
+     * @param worldName the name of the world
+     * @param regionManager the region manager of the world
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return the compiled {@code Section}
+     */
+    public Section getSection(String worldName, RegionManager regionManager, int x, int y, int z) {
+        long key = pack(x >> 4, y >> 4, z >> 4);
+        Stripe stripe = worlds.computeIfAbsent(worldName, name -> newStripes())[stripe(key)];
+        Section section;
+
+        synchronized (stripe) {
+            section = stripe.sections.get(key);
+        }
+
+        if (section == null) {
+            section = compile(regionManager, x >> 4, y >> 4, z >> 4);
+
+            synchronized (stripe) {
+                if (stripe.sections.size() >= MAX_SECTIONS_PER_WORLD / STRIPES) {
+                    stripe.sections.clear();
+                }
+
+                stripe.sections.put(key, section);
+            }
+        }
+
+        return section;
+    }
+
+    /**
+     * Drops the compiled sections of a world after its region data changed.
+     *
+     * @param worldName the name of the world
+     */
+    public void invalidate(String worldName) {
+        worlds.remove(worldName);
+    }
+
+    /**
+     * Gets the number of compiled sections over all worlds.
+     *
+     * @return the number of sections
+     */
+    public int size() {
+        int size = 0;
+
+        for (Stripe[] stripes : worlds.values()) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.sections.size();
+                }
+            }
+        }
+
+        return size;
+    }
+
+    private Section compile(RegionManager regionManager, int sectionX, int sectionY, int sectionZ) {
+        BlockVector3 min = BlockVector3.at(sectionX << 4, sectionY << 4, sectionZ << 4);
+        BlockVector3 max = min.add(15, 15, 15);
+        ApplicableRegionSet touching = regionManager.getApplicableRegions(
+                new ProtectedCuboidRegion("__gravesx_section__", true, min, max));
+
+        for (ProtectedRegion region : touching) {
+            if (!covers(region, min, max)) {
+                return BORDER;
+            }
+        }
+
+        ApplicableRegionSet regions = regionManager.getApplicableRegions(min);
+        ProtectedRegion globalRegion = regionManager.getRegion(GlobalProtectedRegion.GLOBAL_REGION);
+        byte[] states = new byte[flags.length];
+
+        for (int i = 0; i < flags.length; i++) {
+            StateFlag flag = flags[i];
+
+            if (flag == null) {
+                states[i] = ALLOW;
+            } else if (hasRegionGroup(regions, globalRegion, flag)) {
+                states[i] = QUERY;
+            } else {
+                states[i] = regions.testState(null, flag) ? ALLOW : MEMBERS;
+            }
+        }
+
+        return new Section(states, regions.getRegions().stream().map(ProtectedRegion::getId).toArray(String[]::new));
+    }
+
+    /**
+     * Checks if a flag is restricted to a region group in any region of the section or their parents, in which
+     * case its value depends on the player and can't be compiled.
+     */
+    private static boolean hasRegionGroup(ApplicableRegionSet regions, ProtectedRegion globalRegion, StateFlag flag) {
+        if (globalRegion != null && globalRegion.getFlag(flag.getRegionGroupFlag()) != null) {
+            return true;
+        }
+
+        for (ProtectedRegion region : regions) {
+            for (ProtectedRegion current = region; current != null; current = current.getParent()) {
+                if (current.getFlag(flag.getRegionGroupFlag()) != null) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if a region contains every block of a section. Polygonal regions cover the section if they contain
+     * its corners and none of their points lie within it, other region types never do.
+     */
+    private static boolean covers(ProtectedRegion region, BlockVector3 min, BlockVector3 max) {
+        if (region.getType() == RegionType.GLOBAL) {
+            return true;
+        }
+
+        if (!region.contains(min) || !region.contains(max)) {
+            return false;
+        }
+
+        if (region.getType() == RegionType.CUBOID) {
+            return true;
+        }
+
+        if (!(region instanceof ProtectedPolygonalRegion)
+                || !region.contains(min.getBlockX(), min.getBlockY(), max.getBlockZ())
+                || !region.contains(max.getBlockX(), min.getBlockY(), min.getBlockZ())) {
+            return false;
+        }
+
+        for (BlockVector2 point : region.getPoints()) {
+            if (point.getBlockX() >= min.getBlockX() && point.getBlockX() <= max.getBlockX()
+                    && point.getBlockZ() >= min.getBlockZ() && point.getBlockZ() <= max.getBlockZ()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] stripes = new Stripe[STRIPES];
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        return stripes;
+    }
+
+    private static int stripe(long key) {
+        return (int) (key ^ key >>> 12 ^ key >>> 38) & (STRIPES - 1);
+    }
+
+    private static long pack(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFFFL) << 38 | ((long) sectionZ & 0x3FFFFFFL) << 12 | (sectionY & 0xFFFL);
+    }
+
+    private static byte[] filled(byte state) {
+        byte[] states = new byte[GraveAction.values().length];
+
+        Arrays.fill(states, state);
+
+        return states;
+    }
+
+    /**
+     * The sections of one stripe of a world, guarded by the stripe itself.
+     */
+    private static final class Stripe {
+        private final LongObjectHashMap<Section> sections = new LongObjectHashMap<>();
+    }
+
+    /**
+     * The compiled flags of a single chunk section.
+     */
+    public static final class Section {
+        private final byte[] states;
+        private final String[] regionIds;
+
+        private Section(byte[] states, String[] regionIds) {
+            this.states = states;
+            this.regionIds = regionIds;
+        }
+
+        /**
+         * Gets the compiled state of the flag of an action in the section.
+         *
+         * @param action the grave action
+         * @return {@link #ALLOW}, {@link #MEMBERS} or {@link #QUERY}
+         */
+        public byte getState(GraveAction action) {
+            return states[action.ordinal()];
+        }
+
+        /**
+         * Gets the ids of the regions covering the section, whose owners and members are allowed when the
+         * state is {@link #MEMBERS}.
+         *
+         * @return the region ids
+         */
+        public String[] getRegionIds() {
+            return regionIds;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
+import com.sk89q.worldguard.domains.DefaultDomain;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code RegionMembershipIndex} class keeps a per-world index of WorldGuard region memberships,
+ * keyed by world name and region id. Each entry holds the flattened set of owner and member UUIDs of a
+ * region, including those inherited from its parent regions, so membership can be answered with a single
+ * lookup against the world the grave is in instead of scanning every loaded region manager.
+ * <p>
+ * Worlds are indexed lazily on first use and dropped again whenever WorldGuard region data changes.
+ */
+public class RegionMembershipIndex {
+    private final WorldGuard worldGuard;
+    private final Map<String, Map<String, Entry>> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@code RegionMembershipIndex} object.
+     *
+     * @param worldGuard the {@code WorldGuard} instance to read regions from
+     */
+    public RegionMembershipIndex(WorldGuard worldGuard) {
+        this.worldGuard = worldGuard;
+    }
+
+    /**
+     * Checks if the specified player is an owner or member of the given region in the given world.
+     * Owners and members of parent regions are treated as members of their child regions.
+     *
+     * @param world the world the region belongs to
+     * @param regionId the id of the region
+     * @param player the player to check
+     * @return {@code true} if the player is a member of the region, {@code false} otherwise
+     */
+    public boolean isMember(World world, String regionId, Player player) {
+        Entry entry = getEntry(world, regionId);
+
+        if (entry == null) {
+            return false;
+        }
+
+        if (entry.members.contains(player.getUniqueId())) {
+            return true;
+        }
+
+        // Name and group based domains can't be flattened to UUIDs, so defer to WorldGuard for those regions.
+        return entry.requiresLiveCheck && entry.region.isMember(WorldGuardPlugin.inst().wrapPlayer(player));
+    }
+
+    /**
+     * Checks if the specified player, already wrapped by WorldGuard, is an owner or member of the given region in
+     * the given world, the same way as {@link #isMember(World, String, Player)}.
+     *
+     * @param world the world the region belongs to
+     * @param regionId the id of the region
+     * @param localPlayer the wrapped player to check
+     * @return {@code true} if the player is a member of the region, {@code false} otherwise
+     */
+    public boolean isMember(World world, String regionId, LocalPlayer localPlayer) {
+        Entry entry = getEntry(world, regionId);
+
+        if (entry == null) {
+            return false;
+        }
+
+        return entry.members.contains(localPlayer.getUniqueId())
+                || entry.requiresLiveCheck && entry.region.isMember(localPlayer);
+    }
+
+    private Entry getEntry(World world, String regionId) {
+        if (world == null) {
+            return null;
+        }
+
+        return worlds.computeIfAbsent(world.getName(), worldName -> build(world)).get(regionId);
+    }
+
+    /**
+     * Drops the indexed regions of the specified world. The world is rebuilt on its next lookup.
+     *
+     * @param worldName the name of the world to invalidate
+     */
+    public void invalidate(String worldName) {
+        worlds.remove(worldName);
+    }
+
+    /**
+     * Drops the indexed regions of every world.
+     */
+    public void invalidateAll() {
+        worlds.clear();
+    }
+
+    /**
+     * Builds the membership entries for every region in the specified world.
+     *
+     * @param world the world to index
+     * @return a map of region ids to membership entries
+     */
+    private Map<String, Entry> build(World world) {
+        RegionManager regionManager = worldGuard.getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+
+        if (regionManager == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Entry> regions = new HashMap<>();
+
+        for (ProtectedRegion protectedRegion : regionManager.getRegions().values()) {
+            Set<UUID> members = new HashSet<>();
+            boolean requiresLiveCheck = false;
+
+            for (ProtectedRegion current = protectedRegion; current != null; current = current.getParent()) {
+                requiresLiveCheck |= addDomain(current.getOwners(), members);
+                requiresLiveCheck |= addDomain(current.getMembers(), members);
+            }
+
+            regions.put(protectedRegion.getId(), new Entry(protectedRegion, members, requiresLiveCheck));
+        }
+
+        return regions;
+    }
+
+    /**
+     * Adds the UUIDs of a domain to the specified set.
+     *
+     * @param domain the domain to read
+     * @param members the set to add the UUIDs to
+     * @return {@code true} if the domain also contains player names or groups, {@code false} otherwise
+     */
+    private static boolean addDomain(DefaultDomain domain, Set<UUID> members) {
+        members.addAll(domain.getUniqueIds());
+
+        return !domain.getPlayers().isEmpty() || !domain.getGroups().isEmpty();
+    }
+
+    /**
+     * A single indexed region.
+     */
+    private static final class Entry {
+        private final ProtectedRegion region;
+        private final Set<UUID> members;
+        private final boolean requiresLiveCheck;
+
+        private Entry(ProtectedRegion region, Set<UUID> members, boolean requiresLiveCheck) {
+            this.region = region;
+            this.members = members;
+            this.requiresLiveCheck = requiresLiveCheck;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.object.Nation;
+import com.palmergames.bukkit.towny.object.Resident;
+import com.palmergames.bukkit.towny.object.Town;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code TownRelationGraph} class precomputes, for every Towny town, the players that are related to it other
+ * than by living in it: residents the town trusts, residents of the other towns of its nation and residents of the
+ * towns of the nations its nation lists as allies. Each town maps to the relation bits of every such player, so
+ * checking a player inside a town is a single map lookup instead of walking Towny's nation and ally objects.
+ * Alliances are directional, as Towny keeps the allies of every nation separately.
+ * <p>
+ * The town, nation, ally and trust structure is kept next to the graph and updated through Towny events, and only
+ * the towns a change affects are computed again. The relations of a town are published as an immutable map, so
+ * region threads on Folia read the graph without locks. Rebuilds compute every town into a new map and replace the
+ * old one at once, so readers never see a graph that is only partly rebuilt. The towns whose relations changed since
+ * the last snapshot are remembered, see {@link #takeChanges()}.
+ */
+public class TownRelationGraph {
+    /**
+     * The relation bit of residents the town trusts.
+     */
+    public static final int TRUSTED = 1;
+
+    /**
+     * The relation bit of residents of the other towns of the nation of the town.
+     */
+    public static final int NATION = 1 << 1;
+
+    /**
+     * The relation bit of residents of the towns of nations allied with the nation of the town.
+     */
+    public static final int ALLY = 1 << 2;
+
+    private final TownResidentIndex residentIndex;
+    private volatile Map<UUID, Map<UUID, Integer>> relations = new ConcurrentHashMap<>();
+    private Map<UUID, UUID> townNations = new HashMap<>();
+    private Map<UUID, Set<UUID>> nationTowns = new HashMap<>();
+    private Map<UUID, Set<UUID>> nationAllies = new HashMap<>();
+    private Map<UUID, Set<UUID>> townTrusted = new HashMap<>();
+    private final Set<UUID> changedTowns = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilt = new AtomicBoolean();
+
+    /**
+     * Constructs a {@code TownRelationGraph} object.
+     *
+     * @param residentIndex the index of the residents of every town
+     */
+    public TownRelationGraph(TownResidentIndex residentIndex) {
+        this.residentIndex = residentIndex;
+    }
+
+    /**
+     * Rebuilds the graph from every town and nation known to Towny. The resident index must be rebuilt first.
+     *
+     * @param townyAPI the {@code TownyAPI} instance
+     */
+    public synchronized void rebuild(TownyAPI townyAPI) {
+        townNations = new HashMap<>();
+        nationTowns = new HashMap<>();
+        nationAllies = new HashMap<>();
+        townTrusted = new HashMap<>();
+
+        for (Town town : townyAPI.getTowns()) {
+            Set<UUID> trusted = new HashSet<>();
+
+            for (Resident resident : town.getTrustedResidents()) {
+                trusted.add(resident.getUUID());
+            }
+
+            townTrusted.put(town.getUUID(), trusted);
+
+            Nation nation = town.getNationOrNull();
+
+            if (nation != null) {
+                townNations.put(town.getUUID(), nation.getUUID());
+                nationTowns.computeIfAbsent(nation.getUUID(), uuid -> new HashSet<>()).add(town.getUUID());
+            }
+        }
+
+        for (Nation nation : townyAPI.getNations()) {
+            Set<UUID> allies = new HashSet<>();
+
+            for (Nation ally : nation.getAllies()) {
+                allies.add(ally.getUUID());
+            }
+
+            nationAllies.put(nation.getUUID(), allies);
+        }
+
+        Map<UUID, Map<UUID, Integer>> computed = new ConcurrentHashMap<>();
+
+        for (UUID town : townTrusted.keySet()) {
+            Map<UUID, Integer> townRelations = compute(town);
+
+            if (!townRelations.isEmpty()) {
+                computed.put(town, townRelations);
+            }
+        }
+
+        relations = computed;
+        rebuilt.set(true);
+    }
+
+    /**
+     * Gets the relations of a player to a town. Residents of the town itself have no relation bits, their
+     * membership is checked through the {@link TownResidentIndex}.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the UUID of the player
+     * @return the relation bits of the player, {@code 0} if the player is not related to the town
+     */
+    public int getRelations(UUID townUUID, UUID player) {
+        Map<UUID, Integer> townRelations = relations.get(townUUID);
+        Integer bits = townRelations != null ? townRelations.get(player) : null;
+
+        return bits != null ? bits : 0;
+    }
+
+    /**
+     * Copies the relations of every town, for use in an immutable snapshot.
+     *
+     * @return a new map of town UUIDs to unmodifiable maps of player UUIDs to relation bits
+     */
+    public Map<UUID, Map<UUID, Integer>> copyRelations() {
+        return new HashMap<>(relations);
+    }
+
+    /**
+     * Takes the relations of the towns that changed since the last call, for use in a snapshot that shares the
+     * unchanged towns with the previous one.
+     *
+     * @return a map of the changed town UUIDs to their unmodifiable maps of player UUIDs to relation bits,
+     *         {@code null} for towns without relations, or {@code null} if the graph was rebuilt and every town must
+     *         be copied
+     */
+    public Map<UUID, Map<UUID, Integer>> takeChanges() {
+        if (rebuilt.getAndSet(false)) {
+            changedTowns.clear();
+            return null;
+        }
+
+        Map<UUID, Map<UUID, Integer>> changes = new HashMap<>();
+
+        for (UUID townUUID : changedTowns) {
+            changedTowns.remove(townUUID);
+            changes.put(townUUID, relations.get(townUUID));
+        }
+
+        return changes;
+    }
+
+    /**
+     * Records a town joining, leaving or being kicked from a nation.
+     *
+     * @param townUUID the UUID of the town
+     * @param nationUUID the UUID of the new nation of the town, or {@code null} if it left its nation
+     */
+    public synchronized void setNation(UUID townUUID, UUID nationUUID) {
+        Set<UUID> affected = new HashSet<>();
+        UUID previous = nationUUID != null ? townNations.put(townUUID, nationUUID) : townNations.remove(townUUID);
+
+        affected.add(townUUID);
+        collectRelatedTowns(previous, affected);
+
+        if (previous != null) {
+            Set<UUID> towns = nationTowns.get(previous);
+
+            if (towns != null) {
+                towns.remove(townUUID);
+            }
+        }
+
+        if (nationUUID != null) {
+            nationTowns.computeIfAbsent(nationUUID, uuid -> new HashSet<>()).add(townUUID);
+        }
+
+        collectRelatedTowns(nationUUID, affected);
+        recompute(affected);
+    }
+
+    /**
+     * Records a nation adding or removing another nation as its ally. Alliances are directional like
+     * {@code Nation.getAllies()}, a nation allying another only relates the residents of the other nation to the
+     * towns of the nation, not the other way around.
+     *
+     * @param nationUUID the UUID of the nation whose allies changed
+     * @param allyUUID the UUID of the added or removed ally
+     * @param allied {@code true} if the nation now lists the ally, {@code false} if it no longer does
+     */
+    public synchronized void setAllied(UUID nationUUID, UUID allyUUID, boolean allied) {
+        if (allied) {
+            nationAllies.computeIfAbsent(nationUUID, uuid -> new HashSet<>()).add(allyUUID);
+        } else {
+            nationAllies.getOrDefault(nationUUID, Collections.emptySet()).remove(allyUUID);
+        }
+
+        recompute(nationTowns.getOrDefault(nationUUID, Collections.emptySet()));
+    }
+
+    /**
+     * Replaces the allies of a nation with the allies Towny currently lists for it.
+     *
+     * @param nationUUID the UUID of the nation
+     * @param allies the UUIDs of the nations in {@code Nation.getAllies()} of the nation
+     */
+    public synchronized void setAllies(UUID nationUUID, Set<UUID> allies) {
+        if (allies.equals(nationAllies.getOrDefault(nationUUID, Collections.emptySet()))) {
+            return;
+        }
+
+        nationAllies.put(nationUUID, new HashSet<>(allies));
+        recompute(nationTowns.getOrDefault(nationUUID, Collections.emptySet()));
+    }
+
+    /**
+     * Records a town starting or stopping to trust a resident.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the UUID of the resident
+     * @param trusted {@code true} if the town now trusts the resident, {@code false} otherwise
+     */
+    public synchronized void setTrusted(UUID townUUID, UUID player, boolean trusted) {
+        if (trusted) {
+            townTrusted.computeIfAbsent(townUUID, uuid -> new HashSet<>()).add(player);
+        } else {
+            townTrusted.getOrDefault(townUUID, Collections.emptySet()).remove(player);
+        }
+
+        recompute(Set.of(townUUID));
+    }
+
+    /**
+     * Recomputes the towns whose relations include the residents of a town, after a resident joined or left it.
+     *
+     * @param townUUID the UUID of the town
+     */
+    public synchronized void residentsChanged(UUID townUUID) {
+        Set<UUID> affected = new HashSet<>();
+
+        collectRelatedTowns(townNations.get(townUUID), affected);
+        affected.remove(townUUID);
+        recompute(affected);
+    }
+
+    /**
+     * Removes a deleted town from the graph.
+     *
+     * @param townUUID the UUID of the town
+     */
+    public synchronized void removeTown(UUID townUUID) {
+        setNation(townUUID, null);
+        townTrusted.remove(townUUID);
+        relations.remove(townUUID);
+        changedTowns.add(townUUID);
+    }
+
+    /**
+     * Collects the towns of a nation and of every nation allied with it, whose relations include the residents
+     * of the towns of the nation.
+     */
+    private void collectRelatedTowns(UUID nationUUID, Set<UUID> towns) {
+        if (nationUUID == null) {
+            return;
+        }
+
+        towns.addAll(nationTowns.getOrDefault(nationUUID, Collections.emptySet()));
+
+        for (Map.Entry<UUID, Set<UUID>> entry : nationAllies.entrySet()) {
+            if (entry.getValue().contains(nationUUID)) {
+                towns.addAll(nationTowns.getOrDefault(entry.getKey(), Collections.emptySet()));
+            }
+        }
+    }
+
+    private void recompute(Set<UUID> towns) {
+        for (UUID town : towns) {
+            Map<UUID, Integer> townRelations = compute(town);
+
+            if (townRelations.isEmpty()) {
+                relations.remove(town);
+            } else {
+                relations.put(town, townRelations);
+            }
+
+            changedTowns.add(town);
+        }
+    }
+
+    private Map<UUID, Integer> compute(UUID townUUID) {
+        Map<UUID, Integer> bits = new HashMap<>();
+
+        for (UUID player : townTrusted.getOrDefault(townUUID, Collections.emptySet())) {
+            bits.merge(player, TRUSTED, (a, b) -> a | b);
+        }
+
+        UUID nationUUID = townNations.get(townUUID);
+
+        if (nationUUID != null) {
+            for (UUID town : nationTowns.getOrDefault(nationUUID, Collections.emptySet())) {
+                if (!town.equals(townUUID)) {
+                    addResidents(bits, town, NATION);
+                }
+            }
+
+            for (UUID ally : nationAllies.getOrDefault(nationUUID, Collections.emptySet())) {
+                for (UUID town : nationTowns.getOrDefault(ally, Collections.emptySet())) {
+                    addResidents(bits, town, ALLY);
+                }
+            }
+        }
+
+        return Map.copyOf(bits);
+    }
+
+    private void addResidents(Map<UUID, Integer> bits, UUID townUUID, int relation) {
+        for (UUID player : residentIndex.getResidents(townUUID)) {
+            bits.merge(player, relation, (a, b) -> a | b);
+        }
+    }
+}
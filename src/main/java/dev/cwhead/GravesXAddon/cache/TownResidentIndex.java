@@ -0,0 +1,192 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.object.Resident;
+import com.palmergames.bukkit.towny.object.Town;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code TownResidentIndex} class keeps the UUIDs of the residents of every Towny town, so town
+ * membership is a single set lookup instead of resolving the {@code Resident} and {@code Town} objects.
+ * Towns can be looked up by UUID or, through a name index, by name.
+ * <p>
+ * The index is built once from Towny's towns and kept in sync through resident join, leave and kick events.
+ * Rebuilds fill new maps and replace the old ones at once, so region threads reading the index during a rebuild
+ * still see every resident. The residents of a town are kept in an immutable set that is replaced when they change,
+ * so snapshots share the sets of the towns that did not change, and the towns that changed since the last snapshot
+ * are remembered, see {@link #takeChanges()}.
+ */
+public class TownResidentIndex {
+    private volatile Map<UUID, Set<UUID>> residents = new ConcurrentHashMap<>();
+    private volatile Map<String, UUID> townsByName = new ConcurrentHashMap<>();
+    private final Set<UUID> changedTowns = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilt = new AtomicBoolean();
+
+    /**
+     * Rebuilds the index from every town known to Towny.
+     *
+     * @param townyAPI the {@code TownyAPI} instance
+     */
+    public void rebuild(TownyAPI townyAPI) {
+        Map<UUID, Set<UUID>> rebuiltResidents = new ConcurrentHashMap<>();
+        Map<String, UUID> rebuiltTownsByName = new ConcurrentHashMap<>();
+
+        for (Town town : townyAPI.getTowns()) {
+            addTown(town, rebuiltResidents, rebuiltTownsByName);
+        }
+
+        residents = rebuiltResidents;
+        townsByName = rebuiltTownsByName;
+        rebuilt.set(true);
+    }
+
+    /**
+     * Checks if a player is a resident of a town.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the UUID of the player
+     * @return {@code true} if the player is a resident of the town, {@code false} otherwise
+     */
+    public boolean isResident(UUID townUUID, UUID player) {
+        Set<UUID> townResidents = residents.get(townUUID);
+
+        return townResidents != null && townResidents.contains(player);
+    }
+
+    /**
+     * Gets the residents of a town.
+     *
+     * @param townUUID the UUID of the town
+     * @return an unmodifiable set of the resident UUIDs, empty if the town is not indexed
+     */
+    public Set<UUID> getResidents(UUID townUUID) {
+        return residents.getOrDefault(townUUID, Collections.emptySet());
+    }
+
+    /**
+     * Copies the residents of every town, for use in an immutable snapshot. The resident sets are immutable and
+     * shared, only the map is copied.
+     *
+     * @return a new map of town UUIDs to unmodifiable sets of resident UUIDs
+     */
+    public Map<UUID, Set<UUID>> copyResidents() {
+        return new HashMap<>(residents);
+    }
+
+    /**
+     * Takes the residents of the towns that changed since the last call, for use in a snapshot that shares the
+     * unchanged towns with the previous one.
+     *
+     * @return a map of the changed town UUIDs to their unmodifiable sets of resident UUIDs, {@code null} for deleted
+     *         towns, or {@code null} if the index was rebuilt and every town must be copied
+     */
+    public Map<UUID, Set<UUID>> takeChanges() {
+        if (rebuilt.getAndSet(false)) {
+            changedTowns.clear();
+            return null;
+        }
+
+        Map<UUID, Set<UUID>> changes = new HashMap<>();
+
+        for (UUID townUUID : changedTowns) {
+            changedTowns.remove(townUUID);
+            changes.put(townUUID, residents.get(townUUID));
+        }
+
+        return changes;
+    }
+
+    /**
+     * Gets the UUID of a town by its name.
+     *
+     * @param townName the name of the town, case insensitive
+     * @return the UUID of the town, or {@code null} if there is no town with that name
+     */
+    public UUID getTownUUID(String townName) {
+        return townsByName.get(townName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Indexes a town and all of its current residents.
+     *
+     * @param town the town to index
+     */
+    public void addTown(Town town) {
+        addTown(town, residents, townsByName);
+        changedTowns.add(town.getUUID());
+    }
+
+    /**
+     * Removes a deleted town from the index.
+     *
+     * @param townUUID the UUID of the town
+     */
+    public void removeTown(UUID townUUID) {
+        residents.remove(townUUID);
+        townsByName.values().remove(townUUID);
+        changedTowns.add(townUUID);
+    }
+
+    /**
+     * Records the new name of a renamed town.
+     *
+     * @param oldName the previous name of the town
+     * @param town the renamed town
+     */
+    public void renameTown(String oldName, Town town) {
+        townsByName.remove(oldName.toLowerCase(Locale.ROOT));
+        townsByName.put(town.getName().toLowerCase(Locale.ROOT), town.getUUID());
+    }
+
+    /**
+     * Records a player joining a town.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the UUID of the player
+     */
+    public void addResident(UUID townUUID, UUID player) {
+        residents.compute(townUUID, (uuid, townResidents) -> {
+            Set<UUID> updated = townResidents != null ? new HashSet<>(townResidents) : new HashSet<>();
+
+            updated.add(player);
+            return Set.copyOf(updated);
+        });
+        changedTowns.add(townUUID);
+    }
+
+    /**
+     * Records a player leaving or being kicked from a town.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the UUID of the player
+     */
+    public void removeResident(UUID townUUID, UUID player) {
+        residents.computeIfPresent(townUUID, (uuid, townResidents) -> {
+            Set<UUID> updated = new HashSet<>(townResidents);
+
+            updated.remove(player);
+            return Set.copyOf(updated);
+        });
+        changedTowns.add(townUUID);
+    }
+
+    private static void addTown(Town town, Map<UUID, Set<UUID>> residents, Map<String, UUID> townsByName) {
+        Set<UUID> townResidents = new HashSet<>();
+
+        for (Resident resident : town.getResidents()) {
+            townResidents.add(resident.getUUID());
+        }
+
+        residents.put(town.getUUID(), Set.copyOf(townResidents));
+        townsByName.put(town.getName().toLowerCase(Locale.ROOT), town.getUUID());
+    }
+}
@@ -0,0 +1,345 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.TownySettings;
+import com.palmergames.bukkit.towny.object.Town;
+import com.palmergames.bukkit.towny.object.TownBlock;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code TownyChunkIndex} class maps every claimed Towny town block to the UUID of the town owning it.
+ * Towny ownership is cell granular, so each world keeps a primitive map from the packed cell coordinates to
+ * the town UUID, which answers wilderness and town lookups without going through Towny's object graph.
+ * <p>
+ * The index also keeps a {@link ProtectedChunkSet} of the chunks overlapping a claimed town block in every world,
+ * so checks in the wilderness are a single bit test whatever the town block size is.
+ * <p>
+ * The index is built once from Towny's town blocks and kept in sync through claim, unclaim, town delete
+ * and town rename events. Region threads on Folia read published cells and chunks without locks, so changes are
+ * never made to them. The first change of a world after a publish copies its cells and chunks once, every later
+ * change until the next {@link #publish(ClaimChangeListener)} updates those copies in place, and the publish swaps
+ * them in, so claiming a large area costs one copy per tick instead of one per town block. Chunks are published
+ * before cells, so a newly claimed town block is never skipped as wilderness.
+ */
+public class TownyChunkIndex {
+    private final Map<String, LongObjectHashMap<UUID>> worlds = new ConcurrentHashMap<>();
+    private final Map<String, ProtectedChunkSet> chunks = new ConcurrentHashMap<>();
+    private final Map<UUID, String> townNames = new ConcurrentHashMap<>();
+    private final Map<String, LongObjectHashMap<UUID>> pendingWorlds = new HashMap<>();
+    private final Map<String, ProtectedChunkSet> pendingChunks = new HashMap<>();
+    private final Map<String, int[]> pendingBounds = new HashMap<>();
+    private volatile int townBlockSize = 16;
+
+    /**
+     * Rebuilds the index from every town block known to Towny. Changes that were not published yet are dropped,
+     * as Towny already has them.
+     *
+     * @param townyAPI the {@code TownyAPI} instance
+     */
+    public synchronized void rebuild(TownyAPI townyAPI) {
+        Map<String, LongObjectHashMap<UUID>> rebuilt = new HashMap<>();
+        Map<UUID, String> names = new HashMap<>();
+
+        for (TownBlock townBlock : townyAPI.getTownBlocks()) {
+            Town town = townBlock.getTownOrNull();
+
+            if (town != null) {
+                rebuilt.computeIfAbsent(townBlock.getWorldCoord().getWorldName(), name -> new LongObjectHashMap<>())
+                        .put(ChunkKey.pack(townBlock.getX(), townBlock.getZ()), town.getUUID());
+                names.put(town.getUUID(), town.getName());
+            }
+        }
+
+        townBlockSize = TownySettings.getTownBlockSize();
+
+        Map<String, ProtectedChunkSet> rebuiltChunks = new HashMap<>();
+
+        rebuilt.forEach((worldName, cells) -> rebuiltChunks.put(worldName, chunksOf(cells)));
+        pendingWorlds.clear();
+        pendingChunks.clear();
+        pendingBounds.clear();
+        chunks.putAll(rebuiltChunks);
+        worlds.keySet().retainAll(rebuilt.keySet());
+        worlds.putAll(rebuilt);
+        chunks.keySet().retainAll(rebuilt.keySet());
+        townNames.keySet().retainAll(names.keySet());
+        townNames.putAll(names);
+    }
+
+    /**
+     * Gets the UUID of the town owning the town block at a block position.
+     *
+     * @param worldName the name of the world
+     * @param blockX the block x coordinate
+     * @param blockZ the block z coordinate
+     * @return the UUID of the town, or {@code null} if the position is in the wilderness
+     */
+    public UUID getTownAt(String worldName, int blockX, int blockZ) {
+        LongObjectHashMap<UUID> cells = worlds.get(worldName);
+
+        if (cells == null) {
+            return null;
+        }
+
+        return cells.get(ChunkKey.pack(Math.floorDiv(blockX, townBlockSize), Math.floorDiv(blockZ, townBlockSize)));
+    }
+
+    /**
+     * Checks if a chunk overlaps a claimed town block.
+     *
+     * @param worldName the name of the world
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return {@code true} if part of the chunk is claimed, {@code false} if the whole chunk is wilderness
+     */
+    public boolean isClaimedChunk(String worldName, int chunkX, int chunkZ) {
+        ProtectedChunkSet worldChunks = chunks.get(worldName);
+
+        return worldChunks != null && worldChunks.contains(chunkX, chunkZ);
+    }
+
+    /**
+     * Gets the name of an indexed town.
+     *
+     * @param townUUID the UUID of the town
+     * @return the name of the town, or {@code null} if the town owns no town blocks
+     */
+    public String getTownName(UUID townUUID) {
+        return townNames.get(townUUID);
+    }
+
+    /**
+     * Gets the size in blocks of a Towny cell.
+     *
+     * @return the town block size
+     */
+    public int getTownBlockSize() {
+        return townBlockSize;
+    }
+
+    /**
+     * Gets the published town block owners of every world, for use in an immutable snapshot. Published town block
+     * maps are never changed, changes go to copies that replace them on the next publish, so the maps are shared
+     * with the snapshot instead of copied and the worlds without changes are shared between snapshots.
+     *
+     * @return an unmodifiable map of world names to their published town block maps
+     */
+    public Map<String, LongObjectHashMap<UUID>> getPublishedCells() {
+        return Map.copyOf(worlds);
+    }
+
+    /**
+     * Records a town block as claimed by a town. The claim is visible to readers after the next publish.
+     *
+     * @param worldName the name of the world
+     * @param cellX the x coordinate of the town block
+     * @param cellZ the z coordinate of the town block
+     * @param townUUID the UUID of the town
+     * @param townName the name of the town
+     */
+    public synchronized void claim(String worldName, int cellX, int cellZ, UUID townUUID, String townName) {
+        int size = townBlockSize;
+
+        townNames.put(townUUID, townName);
+        pendingChunks(worldName).addRange(Math.floorDiv(cellX * size, 16), Math.floorDiv(cellZ * size, 16),
+                Math.floorDiv(cellX * size + size - 1, 16), Math.floorDiv(cellZ * size + size - 1, 16));
+        pendingCells(worldName).put(ChunkKey.pack(cellX, cellZ), townUUID);
+        extendBounds(worldName, cellX, cellZ);
+    }
+
+    /**
+     * Records a town block as unclaimed. The unclaim is visible to readers after the next publish.
+     *
+     * @param worldName the name of the world
+     * @param cellX the x coordinate of the town block
+     * @param cellZ the z coordinate of the town block
+     */
+    public synchronized void unclaim(String worldName, int cellX, int cellZ) {
+        if (!pendingWorlds.containsKey(worldName) && !worlds.containsKey(worldName)) {
+            return;
+        }
+
+        removeCell(worldName, pendingCells(worldName), cellX, cellZ);
+    }
+
+    /**
+     * Removes every town block of a deleted town. The removal is visible to readers after the next publish.
+     *
+     * @param townUUID the UUID of the town
+     */
+    public synchronized void removeTown(UUID townUUID) {
+        townNames.remove(townUUID);
+
+        Set<String> worldNames = new HashSet<>(worlds.keySet());
+
+        worldNames.addAll(pendingWorlds.keySet());
+
+        for (String worldName : worldNames) {
+            LongObjectHashMap<UUID> cells = pendingWorlds.get(worldName);
+            LongObjectHashMap<UUID> current = cells != null ? cells : worlds.get(worldName);
+            List<Long> keys = new ArrayList<>();
+
+            current.forEachKey(key -> {
+                if (townUUID.equals(current.get(key))) {
+                    keys.add(key);
+                }
+            });
+
+            if (keys.isEmpty()) {
+                continue;
+            }
+
+            LongObjectHashMap<UUID> updated = pendingCells(worldName);
+
+            for (long key : keys) {
+                removeCell(worldName, updated, ChunkKey.x(key), ChunkKey.z(key));
+            }
+        }
+    }
+
+    /**
+     * Publishes the changes made since the last publish, chunks before cells, and tells the listener about the
+     * area of every world that changed. This is meant to run once per tick on the main thread, or the global
+     * region thread on Folia.
+     *
+     * @param listener the listener to tell about the changed areas
+     */
+    public void publish(ClaimChangeListener listener) {
+        Map<String, int[]> changed;
+        int size;
+
+        synchronized (this) {
+            if (pendingBounds.isEmpty()) {
+                return;
+            }
+
+            chunks.putAll(pendingChunks);
+            worlds.putAll(pendingWorlds);
+            changed = new HashMap<>(pendingBounds);
+            size = townBlockSize;
+            pendingChunks.clear();
+            pendingWorlds.clear();
+            pendingBounds.clear();
+        }
+
+        changed.forEach((worldName, bounds) -> listener.claimsChanged(worldName, bounds[0] * size, bounds[1] * size,
+                bounds[2] * size + size - 1, bounds[3] * size + size - 1));
+    }
+
+    /**
+     * Gets the unpublished cells of a world, copying the published cells on the first change since the last
+     * publish.
+     */
+    private LongObjectHashMap<UUID> pendingCells(String worldName) {
+        return pendingWorlds.computeIfAbsent(worldName, name -> {
+            LongObjectHashMap<UUID> cells = worlds.get(name);
+
+            return cells != null ? cells.copy() : new LongObjectHashMap<>();
+        });
+    }
+
+    /**
+     * Gets the unpublished chunks of a world, copying the published chunks on the first change since the last
+     * publish.
+     */
+    private ProtectedChunkSet pendingChunks(String worldName) {
+        return pendingChunks.computeIfAbsent(worldName, name -> {
+            ProtectedChunkSet worldChunks = chunks.get(name);
+
+            return worldChunks != null ? worldChunks.copy() : new ProtectedChunkSet();
+        });
+    }
+
+    /**
+     * Removes a cell from the unpublished cells of a world, along with the chunks no other claimed cell overlaps.
+     */
+    private void removeCell(String worldName, LongObjectHashMap<UUID> cells, int cellX, int cellZ) {
+        if (cells.remove(ChunkKey.pack(cellX, cellZ)) == null) {
+            return;
+        }
+
+        ProtectedChunkSet worldChunks = pendingChunks(worldName);
+        int size = townBlockSize;
+
+        for (int chunkX = Math.floorDiv(cellX * size, 16); chunkX <= Math.floorDiv(cellX * size + size - 1, 16); chunkX++) {
+            for (int chunkZ = Math.floorDiv(cellZ * size, 16); chunkZ <= Math.floorDiv(cellZ * size + size - 1, 16); chunkZ++) {
+                if (!isClaimed(cells, chunkX, chunkZ)) {
+                    worldChunks.remove(chunkX, chunkZ);
+                }
+            }
+        }
+
+        extendBounds(worldName, cellX, cellZ);
+    }
+
+    /**
+     * Grows the changed area of a world to include a cell.
+     */
+    private void extendBounds(String worldName, int cellX, int cellZ) {
+        int[] bounds = pendingBounds.get(worldName);
+
+        if (bounds == null) {
+            pendingBounds.put(worldName, new int[] {cellX, cellZ, cellX, cellZ});
+        } else {
+            bounds[0] = Math.min(bounds[0], cellX);
+            bounds[1] = Math.min(bounds[1], cellZ);
+            bounds[2] = Math.max(bounds[2], cellX);
+            bounds[3] = Math.max(bounds[3], cellZ);
+        }
+    }
+
+    /**
+     * Collects the chunks overlapping any of the claimed cells of a world.
+     */
+    private ProtectedChunkSet chunksOf(LongObjectHashMap<UUID> cells) {
+        ProtectedChunkSet worldChunks = new ProtectedChunkSet();
+        int size = townBlockSize;
+
+        cells.forEachKey(key -> {
+            int cellX = ChunkKey.x(key);
+            int cellZ = ChunkKey.z(key);
+
+            worldChunks.addRange(Math.floorDiv(cellX * size, 16), Math.floorDiv(cellZ * size, 16),
+                    Math.floorDiv(cellX * size + size - 1, 16), Math.floorDiv(cellZ * size + size - 1, 16));
+        });
+
+        return worldChunks;
+    }
+
+    /**
+     * Checks if any cell overlapping a chunk is claimed.
+     */
+    private boolean isClaimed(LongObjectHashMap<UUID> cells, int chunkX, int chunkZ) {
+        int size = townBlockSize;
+
+        for (int cellX = Math.floorDiv(chunkX * 16, size); cellX <= Math.floorDiv(chunkX * 16 + 15, size); cellX++) {
+            for (int cellZ = Math.floorDiv(chunkZ * 16, size); cellZ <= Math.floorDiv(chunkZ * 16 + 15, size); cellZ++) {
+                if (cells.containsKey(ChunkKey.pack(cellX, cellZ))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Records the new name of a renamed town.
+     *
+     * @param townUUID the UUID of the town
+     * @param townName the new name of the town
+     */
+    public void renameTown(UUID townUUID, String townName) {
+        townNames.replace(townUUID, townName);
+    }
+}
@@ -0,0 +1,266 @@
+package dev.cwhead.GravesXAddon.command;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.message.DenyMessages;
+import dev.cwhead.GravesXAddon.metrics.ActionMetrics;
+import dev.cwhead.GravesXAddon.metrics.LatencyHistogram;
+import dev.cwhead.GravesXAddon.trace.DecisionRecord;
+import dev.cwhead.GravesXAddon.trace.DecisionTracer;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Handles the {@code /landprotection} admin command and its subcommands.
+ */
+public class LandProtectionCommand implements CommandExecutor, TabCompleter {
+
+    private static final List<String> SUBCOMMANDS = List.of("metrics", "reload", "stats", "trace");
+
+    private final LandProtection plugin;
+
+    /**
+     * Constructor for the command. Initializes the plugin instance.
+     *
+     * @param plugin The LandProtection plugin instance.
+     */
+    public LandProtectionCommand(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sendUsage(sender, label);
+            return true;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "stats":
+                sendStats(sender);
+                break;
+            case "metrics":
+                exportMetrics(sender);
+                break;
+            case "trace":
+                sendTrace(sender, args);
+                break;
+            case "reload":
+                reload(sender);
+                break;
+            default:
+                sendUsage(sender, label);
+                break;
+        }
+
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length != 1) {
+            return Collections.emptyList();
+        }
+
+        List<String> completions = new ArrayList<>();
+
+        for (String subcommand : SUBCOMMANDS) {
+            if (subcommand.startsWith(args[0].toLowerCase(Locale.ROOT))) {
+                completions.add(subcommand);
+            }
+        }
+
+        return completions;
+    }
+
+    /**
+     * Sends the latency percentiles and outcome counters of every provider and grave action that was checked,
+     * followed by the decision cache hit rate, the number of sent and suppressed deny messages and, for players,
+     * the provider order in their world.
+     *
+     * @param sender The sender of the command.
+     */
+    private void sendStats(CommandSender sender) {
+        for (Map.Entry<String, ActionMetrics[]> provider : new TreeMap<>(plugin.getMetrics().getProviders()).entrySet()) {
+            sender.sendMessage(ChatColor.GOLD + provider.getKey());
+
+            for (GraveAction action : GraveAction.values()) {
+                ActionMetrics metrics = provider.getValue()[action.ordinal()];
+                LatencyHistogram latency = metrics.getLatency();
+
+                if (latency.getCount() == 0) {
+                    continue;
+                }
+
+                sender.sendMessage(ChatColor.GRAY + "  " + action.name().toLowerCase(Locale.ROOT) + ": "
+                        + ChatColor.GREEN + metrics.getAllowed() + " allow " + ChatColor.RED + metrics.getDenied() + " deny "
+                        + ChatColor.YELLOW + metrics.getErrors() + " error" + ChatColor.GRAY + ", p50 " + micros(latency.getPercentile(0.5D))
+                        + " p99 " + micros(latency.getPercentile(0.99D)) + " max " + micros(latency.getMax()));
+            }
+        }
+
+        DecisionCache decisionCache = plugin.getDecisionCache();
+        long lookups = decisionCache.getHits() + decisionCache.getMisses();
+
+        sender.sendMessage(ChatColor.GOLD + "decision cache" + ChatColor.GRAY + ": " + decisionCache.getHits() + " hits, "
+                + decisionCache.getMisses() + " misses (" + (lookups == 0 ? 0 : decisionCache.getHits() * 100 / lookups) + "% hit rate), "
+                + decisionCache.getPlayerCount() + " players x " + decisionCache.getEntriesPerPlayer() + " entries");
+
+        if (plugin.isWorldGuardEnabled()) {
+            sender.sendMessage(ChatColor.GOLD + "compiled sections" + ChatColor.GRAY + ": "
+                    + plugin.getWorldGuard().getSectionIndex().size() + ", region chunks: "
+                    + plugin.getWorldGuard().getChunkIndex().size());
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "wilderness" + ChatColor.GRAY + ": "
+                + plugin.getProtectionEngine().getWildernessHits() + " checks allowed without querying a provider");
+        sender.sendMessage(ChatColor.GOLD + "sessions" + ChatColor.GRAY + ": " + plugin.getSessions().size() + " open");
+
+        DenyMessages denyMessages = plugin.getDenyMessages();
+        long sent = 0;
+        long suppressed = 0;
+
+        for (GraveAction action : GraveAction.values()) {
+            sent += denyMessages.getSent(action);
+            suppressed += denyMessages.getSuppressed(action);
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "deny messages" + ChatColor.GRAY + ": " + sent + " sent, " + suppressed + " suppressed");
+
+        if (sender instanceof Player) {
+            String worldName = ((Player) sender).getWorld().getName();
+
+            sender.sendMessage(ChatColor.GOLD + "provider order in " + worldName);
+
+            for (GraveAction action : GraveAction.values()) {
+                sender.sendMessage(ChatColor.GRAY + "  " + action.name().toLowerCase(Locale.ROOT) + ": "
+                        + String.join(" > ", plugin.getProtectionEngine().getOrder(worldName, action)));
+            }
+        }
+    }
+
+    /**
+     * Writes the OpenMetrics file right away.
+     *
+     * @param sender The sender of the command.
+     */
+    private void exportMetrics(CommandSender sender) {
+        plugin.getTaskScheduler().runAsync(() -> {
+            if (plugin.exportMetrics()) {
+                sender.sendMessage(ChatColor.GRAY + "Metrics written to " + ChatColor.WHITE + plugin.getMetricsFile());
+            } else {
+                sender.sendMessage(ChatColor.RED + "Failed to write metrics, see the console for details.");
+            }
+        });
+    }
+
+    /**
+     * Reloads the config. The new config is validated before anything is changed, and every problem found is
+     * sent to the sender instead.
+     *
+     * @param sender The sender of the command.
+     */
+    private void reload(CommandSender sender) {
+        sender.sendMessage(ChatColor.GRAY + "Reloading config...");
+        plugin.reload(problems -> {
+            if (problems.isEmpty()) {
+                sender.sendMessage(ChatColor.GREEN + "Config reloaded.");
+                return;
+            }
+
+            sender.sendMessage(ChatColor.RED + "Config not reloaded, fix the following problems first:");
+
+            for (String problem : problems) {
+                sender.sendMessage(ChatColor.GRAY + "- " + ChatColor.WHITE + problem);
+            }
+        });
+    }
+
+    /**
+     * Sends the most recent traced decisions, or writes every traced decision to a file when run with
+     * {@code dump}.
+     *
+     * @param sender The sender of the command.
+     * @param args The command arguments, optionally followed by the number of decisions or {@code dump}.
+     */
+    private void sendTrace(CommandSender sender, String[] args) {
+        DecisionTracer tracer = plugin.getTracer();
+
+        if (args.length > 1 && args[1].equalsIgnoreCase("dump")) {
+            List<DecisionRecord> records = tracer.getRecent(tracer.getBufferSize());
+            Path file = plugin.getDataFolder().toPath().resolve("trace-" + System.currentTimeMillis() + ".log");
+
+            plugin.getTaskScheduler().runAsync(() -> {
+                List<String> lines = new ArrayList<>(records.size());
+
+                for (DecisionRecord record : records) {
+                    lines.add(record.toString());
+                }
+
+                try {
+                    Files.createDirectories(file.getParent());
+                    Files.write(file, lines, StandardCharsets.UTF_8);
+                    sender.sendMessage(ChatColor.GRAY + "Wrote " + lines.size() + " decisions to " + ChatColor.WHITE + file);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Failed to write trace to " + file + ": " + e.getMessage());
+                    sender.sendMessage(ChatColor.RED + "Failed to write trace, see the console for details.");
+                }
+            });
+            return;
+        }
+
+        int limit = 10;
+
+        if (args.length > 1) {
+            try {
+                limit = Math.max(1, Integer.parseInt(args[1]));
+            } catch (NumberFormatException exception) {
+                sender.sendMessage(ChatColor.RED + "Invalid number of decisions: " + args[1]);
+                return;
+            }
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "trace" + ChatColor.GRAY + ": level " + tracer.getLevel() + ", "
+                + tracer.getRecorded() + " recorded, keeping " + tracer.getBufferSize());
+
+        for (DecisionRecord record : tracer.getRecent(limit)) {
+            sender.sendMessage((record.isAllowed() ? ChatColor.GREEN : ChatColor.RED) + "- " + ChatColor.WHITE + record);
+        }
+    }
+
+    /**
+     * Formats nanoseconds as microseconds.
+     *
+     * @param nanos The nanoseconds.
+     * @return The formatted microseconds.
+     */
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1fµs", nanos / 1000D);
+    }
+
+    /**
+     * Sends the usage of the command.
+     *
+     * @param sender The sender of the command.
+     * @param label The label the command was run with.
+     */
+    private void sendUsage(CommandSender sender, String label) {
+        sender.sendMessage(ChatColor.GRAY + "Usage: " + ChatColor.WHITE + "/" + label + " <stats|metrics|trace [count|dump]|reload>");
+    }
+}
@@ -0,0 +1,225 @@
+package dev.cwhead.GravesXAddon.config;
+
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.cache.GraveDecisionStore;
+import dev.cwhead.GravesXAddon.message.DenyMessages;
+import dev.cwhead.GravesXAddon.provider.ProviderActivation;
+import dev.cwhead.GravesXAddon.provider.ProviderOrder;
+import dev.cwhead.GravesXAddon.trace.DecisionTracer;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@code AddonSettings} class holds everything the addon reads from its config, parsed and precompiled once.
+ * Settings never change after they are loaded, a reload loads new settings off the main thread and swaps them
+ * in as a whole, so a check never sees a config that is only partly applied.
+ * <p>
+ * Problems found while loading, such as unknown provider names or values out of range, are collected instead
+ * of thrown. Values out of range are replaced by their default.
+ */
+public final class AddonSettings {
+    private static final int MIN_CACHE_ENTRIES = 16;
+    private static final int MAX_CACHE_ENTRIES = 65536;
+    private static final int MAX_TRACE_BUFFER_SIZE = 1 << 20;
+
+    private final DenyMessages.Templates messages;
+    private final ProviderOrder providerOrder;
+    private final ProviderActivation providerActivation;
+    private final TownyRelationRules townyRules;
+    private final int traceLevel;
+    private final int traceBufferSize;
+    private final int cacheEntriesPerPlayer;
+    private final int cacheMaxGraves;
+    private final List<String> problems;
+
+    private AddonSettings(DenyMessages.Templates messages, ProviderOrder providerOrder,
+                          ProviderActivation providerActivation, TownyRelationRules townyRules, int traceLevel,
+                          int traceBufferSize, int cacheEntriesPerPlayer, int cacheMaxGraves, List<String> problems) {
+        this.messages = messages;
+        this.providerOrder = providerOrder;
+        this.providerActivation = providerActivation;
+        this.townyRules = townyRules;
+        this.traceLevel = traceLevel;
+        this.traceBufferSize = traceBufferSize;
+        this.cacheEntriesPerPlayer = cacheEntriesPerPlayer;
+        this.cacheMaxGraves = cacheMaxGraves;
+        this.problems = problems;
+    }
+
+    /**
+     * Loads and validates the settings from the root of the config. Does not touch Bukkit and can be called
+     * from any thread.
+     *
+     * @param config the root section of the config
+     * @param knownProviders the names of every provider the addon knows about, loaded or not
+     * @return the settings
+     */
+    public static AddonSettings load(ConfigurationSection config, Collection<String> knownProviders) {
+        List<String> problems = new ArrayList<>();
+        ConfigurationSection providers = config.getConfigurationSection("providers");
+        ProviderOrder providerOrder = ProviderOrder.load(providers);
+        ProviderActivation providerActivation = ProviderActivation.load(providers);
+
+        if (providers != null && providers.isString("order")
+                && !"adaptive".equalsIgnoreCase(providers.getString("order"))) {
+            problems.add("providers.order must be adaptive or a list of providers, found " + providers.getString("order") + ".");
+        }
+
+        for (String name : providerOrder.getNames()) {
+            checkProvider(problems, "providers.order", name, knownProviders);
+        }
+
+        for (String name : providerActivation.getNames()) {
+            checkProvider(problems, "providers.active", name, knownProviders);
+        }
+
+        ConfigurationSection messagesSection = config.getConfigurationSection("messages");
+
+        if (messagesSection != null) {
+            for (GraveAction action : GraveAction.values()) {
+                checkMin(problems, messagesSection, "cooldown." + action.getConfigKey(), 0);
+            }
+
+            checkMin(problems, messagesSection, "dedupe-window", 0);
+        }
+
+        ConfigurationSection townyAllowSection = config.getConfigurationSection("towny.allow");
+
+        if (townyAllowSection != null) {
+            for (GraveAction action : GraveAction.values()) {
+                for (String relation : townyAllowSection.getStringList(action.getConfigKey())) {
+                    if (!TownyRelationRules.RELATIONS.contains(relation.toLowerCase(Locale.ROOT))) {
+                        problems.add("towny.allow." + action.getConfigKey() + " lists unknown relation " + relation
+                                + ", known relations are " + TownyRelationRules.RELATIONS + ".");
+                    }
+                }
+            }
+        }
+
+        int traceLevel = config.getInt("trace.level", DecisionTracer.LEVEL_DENY);
+
+        if (traceLevel < DecisionTracer.LEVEL_OFF || traceLevel > DecisionTracer.LEVEL_ALL) {
+            problems.add("trace.level must be between " + DecisionTracer.LEVEL_OFF + " and " + DecisionTracer.LEVEL_ALL + ", found " + traceLevel + ".");
+            traceLevel = DecisionTracer.LEVEL_DENY;
+        }
+
+        int traceBufferSize = range(problems, config, "trace.buffer-size", 512, 1, MAX_TRACE_BUFFER_SIZE);
+        int cacheEntriesPerPlayer = range(problems, config, "cache.entries-per-player",
+                DecisionCache.DEFAULT_ENTRIES_PER_PLAYER, MIN_CACHE_ENTRIES, MAX_CACHE_ENTRIES);
+        int cacheMaxGraves = range(problems, config, "cache.max-graves",
+                GraveDecisionStore.DEFAULT_MAX_GRAVES, 0, Integer.MAX_VALUE);
+
+        return new AddonSettings(DenyMessages.Templates.load(messagesSection), providerOrder, providerActivation,
+                TownyRelationRules.load(config.getConfigurationSection("towny")), traceLevel, traceBufferSize, cacheEntriesPerPlayer, cacheMaxGraves, Collections.unmodifiableList(problems));
+    }
+
+    private static void checkProvider(List<String> problems, String path, String name, Collection<String> knownProviders) {
+        if (!knownProviders.contains(name.toLowerCase(Locale.ROOT))) {
+            problems.add(path + " lists unknown provider " + name + ", known providers are " + knownProviders + ".");
+        }
+    }
+
+    private static void checkMin(List<String> problems, ConfigurationSection section, String path, long min) {
+        if (section.getLong(path, min) < min) {
+            problems.add(section.getCurrentPath() + "." + path + " must be at least " + min + ".");
+        }
+    }
+
+    private static int range(List<String> problems, ConfigurationSection config, String path, int def, int min, int max) {
+        int value = config.getInt(path, def);
+
+        if (value < min || value > max) {
+            problems.add(path + " must be between " + min + " and " + max + ", found " + value + ".");
+            return def;
+        }
+
+        return value;
+    }
+
+    /**
+     * Gets the problems found while loading the settings.
+     *
+     * @return the problems, empty if the config is valid
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Gets the precompiled deny message templates.
+     *
+     * @return the templates
+     */
+    public DenyMessages.Templates getMessages() {
+        return messages;
+    }
+
+    /**
+     * Gets the order the providers are evaluated in.
+     *
+     * @return the provider order
+     */
+    public ProviderOrder getProviderOrder() {
+        return providerOrder;
+    }
+
+    /**
+     * Gets the worlds each provider is active in.
+     *
+     * @return the provider activation
+     */
+    public ProviderActivation getProviderActivation() {
+        return providerActivation;
+    }
+
+    /**
+     * Gets which relations to a Towny town allow each grave action inside it.
+     *
+     * @return the Towny relation rules
+     */
+    public TownyRelationRules getTownyRules() {
+        return townyRules;
+    }
+
+    /**
+     * Gets which decisions are traced.
+     *
+     * @return the trace level
+     */
+    public int getTraceLevel() {
+        return traceLevel;
+    }
+
+    /**
+     * Gets the number of traced decisions kept in memory.
+     *
+     * @return the trace buffer size
+     */
+    public int getTraceBufferSize() {
+        return traceBufferSize;
+    }
+
+    /**
+     * Gets the number of decisions cached per player.
+     *
+     * @return the number of entries per player
+     */
+    public int getCacheEntriesPerPlayer() {
+        return cacheEntriesPerPlayer;
+    }
+
+    /**
+     * Gets the number of graves decisions are remembered for.
+     *
+     * @return the number of graves
+     */
+    public int getCacheMaxGraves() {
+        return cacheMaxGraves;
+    }
+}
@@ -0,0 +1,105 @@
+package dev.cwhead.GravesXAddon.config;
+
+import dev.cwhead.GravesXAddon.cache.TownRelationGraph;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@code TownyRelationRules} class holds which players besides its residents may perform each grave action
+ * inside a Towny town, as configured under {@code towny.allow}. Every action lists the relations to the town that
+ * are enough: {@code trusted} for residents the town trusts, {@code nation} for residents of the other towns of its
+ * nation and {@code ally} for residents of the nations its nation is allied with. Actions that are not listed only
+ * allow residents.
+ */
+public final class TownyRelationRules {
+    /**
+     * The names of the relations, in the order of their {@link TownRelationGraph} bits.
+     */
+    public static final List<String> RELATIONS = List.of("trusted", "nation", "ally");
+
+    /**
+     * The default rules, under which no relation is enough and only residents may perform grave actions inside a
+     * town.
+     */
+    public static final TownyRelationRules DEFAULT = new TownyRelationRules(defaultMasks());
+
+    private final int[] masks;
+
+    private TownyRelationRules(int[] masks) {
+        this.masks = masks;
+    }
+
+    /**
+     * Loads the rules from the {@code towny} section of the config. Unknown relation names are ignored.
+     *
+     * @param section the {@code towny} section of the config, may be {@code null}
+     * @return the rules
+     */
+    public static TownyRelationRules load(ConfigurationSection section) {
+        ConfigurationSection allowSection = section != null ? section.getConfigurationSection("allow") : null;
+
+        if (allowSection == null) {
+            return DEFAULT;
+        }
+
+        int[] masks = defaultMasks();
+
+        for (GraveAction action : GraveAction.values()) {
+            if (allowSection.isList(action.getConfigKey())) {
+                int mask = 0;
+
+                for (String relation : allowSection.getStringList(action.getConfigKey())) {
+                    int index = RELATIONS.indexOf(relation.toLowerCase(Locale.ROOT));
+
+                    if (index >= 0) {
+                        mask |= 1 << index;
+                    }
+                }
+
+                masks[action.ordinal()] = mask;
+            }
+        }
+
+        return new TownyRelationRules(masks);
+    }
+
+    /**
+     * Checks if a player with the specified relations to a town may perform a grave action inside it.
+     *
+     * @param action the grave action
+     * @param relations the relation bits of the player, as returned by {@link TownRelationGraph#getRelations}
+     * @return {@code true} if one of the relations is enough for the action, {@code false} otherwise
+     */
+    public boolean allows(GraveAction action, int relations) {
+        return (masks[action.ordinal()] & relations) != 0;
+    }
+
+    /**
+     * Checks if any relation is enough for a grave action, so checks can skip looking up the relations of
+     * players for actions that only residents may perform.
+     *
+     * @param action the grave action
+     * @return {@code true} if at least one relation is enough for the action, {@code false} otherwise
+     */
+    public boolean allowsAny(GraveAction action) {
+        return masks[action.ordinal()] != 0;
+    }
+
+    private static int[] defaultMasks() {
+        return new int[GraveAction.values().length];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof TownyRelationRules && Arrays.equals(masks, ((TownyRelationRules) o).masks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(masks);
+    }
+}
@@ -0,0 +1,195 @@
+package dev.cwhead.GravesXAddon.integration;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.cache.ClaimChangeListener;
+import dev.cwhead.GravesXAddon.cache.GriefPreventionClaimIndex;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.ClaimPermission;
+import me.ryanhamshire.GriefPrevention.DataStore;
+import me.ryanhamshire.GriefPrevention.GriefPrevention;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code GriefPreventionImpl} class is responsible for interacting with GriefPrevention's claims
+ * to determine if specific actions can be performed on grave-related entities and locations.
+ * It handles permission checks for actions such as grave creation, teleportation,
+ * looting, and autolooting, with the same semantics as Towny: unclaimed land is allowed, inside a claim
+ * only players with access trust are allowed.
+ */
+public class GriefPreventionImpl implements ProtectionProvider {
+    private final LandProtection plugin;
+    private final DataStore dataStore;
+    private final GriefPreventionClaimIndex claimIndex;
+
+    /**
+     * Constructs a {@code GriefPreventionImpl} object.
+     *
+     * @param plugin the {@code LandProtection} plugin instance
+     */
+    public GriefPreventionImpl(LandProtection plugin) {
+        this.plugin = plugin;
+        this.dataStore = GriefPrevention.instance.dataStore;
+        this.claimIndex = new GriefPreventionClaimIndex();
+        this.claimIndex.rebuild(dataStore);
+    }
+
+    /**
+     * Gets the index of claims by the chunks they overlap.
+     *
+     * @return the {@code GriefPreventionClaimIndex} instance
+     */
+    public GriefPreventionClaimIndex getClaimIndex() {
+        return claimIndex;
+    }
+
+    /**
+     * Re-indexes the claims that changed since the last call and publishes them to the claim index.
+     *
+     * @param listener the listener to tell about the changed areas
+     */
+    public void publishClaims(ClaimChangeListener listener) {
+        claimIndex.publish(dataStore, listener);
+    }
+
+    /**
+     * Checks if the specified player has permission to perform a grave action at the location within GriefPrevention.
+     * Locations outside of claims are always allowed, inside a claim only players with access trust are allowed.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the player is allowed to perform the action at the location, {@code false} otherwise
+     */
+    public boolean canPerform(Entity entity, Location location, GraveAction action) {
+        if (!(entity instanceof Player)) {
+            return true;
+        }
+
+        Claim claim = claimIndex.getClaimAt(location);
+
+        return claim == null || isMember(claim, (Player) entity);
+    }
+
+    @Override
+    public String getName() {
+        return "griefprevention";
+    }
+
+    @Override
+    public boolean isAllowed(Player player, Location location, GraveAction action) {
+        return canPerform(player, location, action);
+    }
+
+    @Override
+    public boolean mayDeny(Location location, GraveAction action) {
+        return location.getWorld() != null && claimIndex.isClaimedChunk(location.getWorld().getName(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    @Override
+    public List<String> getRegionKeys(Location location) {
+        return getClaimKeyList(location);
+    }
+
+    /**
+     * Checks if the specified player has permission to create a grave in the claim at the specified location.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location where the grave would be created
+     * @return {@code true} if the player is allowed to create a grave at the location, {@code false} otherwise
+     */
+    public boolean canCreateGrave(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.CREATE);
+    }
+
+    /**
+     * Checks if the specified player has permission to teleport to the location within GriefPrevention.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location where teleportation is being attempted
+     * @return {@code true} if the player is allowed to teleport at the location, {@code false} otherwise
+     */
+    public boolean canTeleport(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.TELEPORT);
+    }
+
+    /**
+     * Checks if the specified player has permission to loot a grave at the location within GriefPrevention.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location of the grave
+     * @return {@code true} if the player is allowed to loot the grave at the location, {@code false} otherwise
+     */
+    public boolean canLoot(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.OPEN);
+    }
+
+    /**
+     * Checks if the specified player has permission to autoloot a grave at the location within GriefPrevention.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location of the grave
+     * @return {@code true} if the player is allowed to autoloot the grave at the location, {@code false} otherwise
+     */
+    public boolean canAutoLoot(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.AUTO_LOOT);
+    }
+
+    /**
+     * Checks if the specified player has permission to walk over a grave at the location within GriefPrevention.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location of the grave
+     * @return {@code true} if the player is allowed to walk over the grave at the location, {@code false} otherwise
+     */
+    public boolean canWalkOver(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.WALK_OVER);
+    }
+
+    /**
+     * Checks if the specified player has permission to use a projectile on a grave at the location within GriefPrevention.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location of the grave
+     * @return {@code true} if the player is allowed to projectile destroy the grave at the location, {@code false} otherwise
+     */
+    public boolean canProjectile(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.PROJECTILE);
+    }
+
+    /**
+     * Checks if the specified player has access trust in the specified claim, which owners, managers and
+     * players with build or container trust have as well.
+     *
+     * @param claim the claim
+     * @param player the player to check
+     * @return {@code true} if the player has access to the claim, {@code false} otherwise
+     */
+    public boolean isMember(Claim claim, Player player) {
+        return claim.checkPermission(player, ClaimPermission.Access, null) == null;
+    }
+
+    /**
+     * Retrieves a list of claim keys that apply to the specified location.
+     *
+     * @param location the location to check for applicable claims
+     * @return a list of claim keys in the format "griefprevention|<worldName>|<claimId>"
+     */
+    public List<String> getClaimKeyList(Location location) {
+        List<String> claimKeyList = new ArrayList<>();
+        Claim claim = claimIndex.getClaimAt(location);
+
+        if (claim != null && location.getWorld() != null) {
+            claimKeyList.add("griefprevention|" + location.getWorld().getName() + "|" + claim.getID());
+        }
+
+        return claimKeyList;
+    }
+}
@@ -0,0 +1,39 @@
+package dev.cwhead.GravesXAddon.integration;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.listener.GriefPreventionListener;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.provider.ProtectionProviderFactory;
+
+/**
+ * The {@code GriefPreventionProviderFactory} class creates the GriefPrevention provider and registers the
+ * listener that keeps its claim index up to date, and publishes the claim changes of every tick.
+ */
+public class GriefPreventionProviderFactory implements ProtectionProviderFactory {
+    /**
+     * Interval between publishing the claims that changed since the last publish.
+     */
+    private static final long INDEX_PUBLISH_TICKS = 1L;
+
+    @Override
+    public String getName() {
+        return "griefprevention";
+    }
+
+    @Override
+    public String getPluginName() {
+        return "GriefPrevention";
+    }
+
+    @Override
+    public ProtectionProvider enable(LandProtection plugin) {
+        GriefPreventionImpl griefPrevention = new GriefPreventionImpl(plugin);
+        GriefPreventionListener listener = new GriefPreventionListener(plugin);
+
+        plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+        plugin.getTaskScheduler().runGlobalTimer(() -> griefPrevention.publishClaims(listener),
+                INDEX_PUBLISH_TICKS, INDEX_PUBLISH_TICKS);
+
+        return griefPrevention;
+    }
+}
@@ -1,16 +1,23 @@
 package dev.cwhead.GravesXAddon.integration;
 
 import com.palmergames.bukkit.towny.TownyAPI;
-import com.palmergames.bukkit.towny.object.Resident;
-import com.palmergames.bukkit.towny.object.Town;
-import com.palmergames.bukkit.towny.object.TownBlock;
 import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.config.TownyRelationRules;
+import dev.cwhead.GravesXAddon.cache.TownRelationGraph;
+import dev.cwhead.GravesXAddon.cache.TownResidentIndex;
+import dev.cwhead.GravesXAddon.cache.TownyChunkIndex;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.snapshot.TownySnapshot;
+import dev.cwhead.GravesXAddon.type.GraveAction;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * The {@code TownyImpl} class is responsible for interacting with Towny's town and nation systems
@@ -18,9 +25,12 @@ import java.util.List;
  * It handles permission checks for actions such as grave creation, teleportation,
  * looting, and autolooting, as well as determining town membership for players.
  */
-public class TownyImpl {
+public class TownyImpl implements ProtectionProvider {
     private final LandProtection plugin;
     private final TownyAPI townyAPI;
+    private final TownyChunkIndex chunkIndex;
+    private final TownResidentIndex residentIndex;
+    private final TownRelationGraph relationGraph;
 
     /**
      * Constructs a {@code TownyImpl} object.
@@ -30,33 +40,119 @@ public class TownyImpl {
     public TownyImpl(LandProtection plugin) {
         this.plugin = plugin;
         this.townyAPI = TownyAPI.getInstance();
+        this.chunkIndex = new TownyChunkIndex();
+        this.chunkIndex.rebuild(townyAPI);
+        this.residentIndex = new TownResidentIndex();
+        this.residentIndex.rebuild(townyAPI);
+        this.relationGraph = new TownRelationGraph(residentIndex);
+        this.relationGraph.rebuild(townyAPI);
     }
 
     /**
-     * Checks if the specified player has permission to create a grave in the town at the specified location.
+     * Gets the index of town blocks to the towns owning them.
+     *
+     * @return the {@code TownyChunkIndex} instance
+     */
+    public TownyChunkIndex getChunkIndex() {
+        return chunkIndex;
+    }
+
+    /**
+     * Gets the index of towns to the UUIDs of their residents.
+     *
+     * @return the {@code TownResidentIndex} instance
+     */
+    public TownResidentIndex getResidentIndex() {
+        return residentIndex;
+    }
+
+    /**
+     * Gets the graph of players related to towns through trust, nations and alliances.
+     *
+     * @return the {@code TownRelationGraph} instance
+     */
+    public TownRelationGraph getRelationGraph() {
+        return relationGraph;
+    }
+
+    /**
+     * Creates an immutable snapshot of the indexed town blocks, residents and relations. Only the towns whose
+     * residents or relations changed since the previous snapshot are copied, the rest is shared with it. Every town
+     * is copied if there is no previous snapshot or an index was rebuilt since. Must be called on the main thread.
+     *
+     * @param previous the previous snapshot, or {@code null} if there is none
+     * @return the {@code TownySnapshot}
+     */
+    public TownySnapshot snapshot(TownySnapshot previous) {
+        Map<UUID, Set<UUID>> residentChanges = residentIndex.takeChanges();
+        Map<UUID, Map<UUID, Integer>> relationChanges = relationGraph.takeChanges();
+        TownyRelationRules rules = plugin.getSettings().getTownyRules();
+
+        if (previous == null || residentChanges == null || relationChanges == null) {
+            return new TownySnapshot(chunkIndex.getTownBlockSize(), chunkIndex.getPublishedCells(),
+                    residentIndex.copyResidents(), relationGraph.copyRelations(), rules);
+        }
+
+        return previous.withChanges(chunkIndex.getTownBlockSize(), chunkIndex.getPublishedCells(), residentChanges,
+                relationChanges, rules);
+    }
+
+    /**
+     * Checks if the specified player has permission to perform a grave action at the location within Towny.
+     * Locations outside of towns are always allowed, inside a town its residents are allowed, as are the trusted
+     * residents, nation members and allies the Towny rules of the action allow.
      *
      * @param entity the entity to check (must be a player)
-     * @param location the location where the grave would be created
-     * @return {@code true} if the player is allowed to create a grave at the location, {@code false} otherwise
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the player is allowed to perform the action at the location, {@code false} otherwise
      */
-    public boolean canCreateGrave(Entity entity, Location location) {
-        if (!(entity instanceof Player)) {
+    public boolean canPerform(Entity entity, Location location, GraveAction action) {
+        if (!(entity instanceof Player) || location.getWorld() == null) {
             return true;
         }
 
-        Player player = (Player) entity;
-        TownBlock townBlock = townyAPI.getTownBlock(location);
+        UUID townUUID = chunkIndex.getTownAt(location.getWorld().getName(), location.getBlockX(), location.getBlockZ());
 
-        // Allow grave creation if location is not in a town
-        if (townBlock == null || !townBlock.hasTown()) {
+        if (townUUID == null || residentIndex.isResident(townUUID, entity.getUniqueId())) {
             return true;
         }
 
-        Town town = townBlock.getTownOrNull();
-        Resident resident = townyAPI.getResident(player);
+        TownyRelationRules rules = plugin.getSettings().getTownyRules();
+
+        return rules.allowsAny(action) && rules.allows(action, relationGraph.getRelations(townUUID, entity.getUniqueId()));
+    }
+
+    @Override
+    public String getName() {
+        return "towny";
+    }
+
+    @Override
+    public boolean isAllowed(Player player, Location location, GraveAction action) {
+        return canPerform(player, location, action);
+    }
 
-        // Check if the resident is part of the town and has permissions
-        return resident != null && town.hasResident(resident);
+    @Override
+    public boolean mayDeny(Location location, GraveAction action) {
+        return location.getWorld() != null && chunkIndex.isClaimedChunk(location.getWorld().getName(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    @Override
+    public List<String> getRegionKeys(Location location) {
+        return getTownKeyList(location);
+    }
+
+    /**
+     * Checks if the specified player has permission to create a grave in the town at the specified location.
+     *
+     * @param entity the entity to check (must be a player)
+     * @param location the location where the grave would be created
+     * @return {@code true} if the player is allowed to create a grave at the location, {@code false} otherwise
+     */
+    public boolean canCreateGrave(Entity entity, Location location) {
+        return canPerform(entity, location, GraveAction.CREATE);
     }
 
     /**
@@ -67,23 +163,7 @@ public class TownyImpl {
      * @return {@code true} if the player is allowed to teleport at the location, {@code false} otherwise
      */
     public boolean canTeleport(Entity entity, Location location) {
-        if (!(entity instanceof Player)) {
-            return true;
-        }
-
-        Player player = (Player) entity;
-        TownBlock townBlock = townyAPI.getTownBlock(location);
-
-        // Allow teleportation if location is not in a town
-        if (townBlock == null || !townBlock.hasTown()) {
-            return true;
-        }
-
-        Town town = townBlock.getTownOrNull();
-        Resident resident = townyAPI.getResident(player);
-
-        // Check if the resident is allowed to teleport
-        return resident != null && town.hasResident(resident);
+        return canPerform(entity, location, GraveAction.TELEPORT);
     }
 
     /**
@@ -94,21 +174,7 @@ public class TownyImpl {
      * @return {@code true} if the player is allowed to loot the grave at the location, {@code false} otherwise
      */
     public boolean canLoot(Entity entity, Location location) {
-        if (!(entity instanceof Player)) {
-            return true;
-        }
-
-        Player player = (Player) entity;
-        TownBlock townBlock = townyAPI.getTownBlock(location);
-
-        if (townBlock == null || !townBlock.hasTown()) {
-            return true;
-        }
-
-        Town town = townBlock.getTownOrNull();
-        Resident resident = townyAPI.getResident(player);
-
-        return resident != null && town.hasResident(resident);
+        return canPerform(entity, location, GraveAction.OPEN);
     }
 
     /**
@@ -119,21 +185,7 @@ public class TownyImpl {
      * @return {@code true} if the player is allowed to autoloot the grave at the location, {@code false} otherwise
      */
     public boolean canAutoLoot(Entity entity, Location location) {
-        if (!(entity instanceof Player)) {
-            return true;
-        }
-
-        Player player = (Player) entity;
-        TownBlock townBlock = townyAPI.getTownBlock(location);
-
-        if (townBlock == null || !townBlock.hasTown()) {
-            return true;
-        }
-
-        Town town = townBlock.getTownOrNull();
-        Resident resident = townyAPI.getResident(player);
-
-        return resident != null && town.hasResident(resident);
+        return canPerform(entity, location, GraveAction.AUTO_LOOT);
     }
 
     /**
@@ -144,21 +196,7 @@ public class TownyImpl {
      * @return {@code true} if the player is allowed to projectile destroy the grave at the location, {@code false} otherwise
      */
     public boolean canProjectile(Entity entity, Location location) {
-        if (!(entity instanceof Player)) {
-            return true;
-        }
-
-        Player player = (Player) entity;
-        TownBlock townBlock = townyAPI.getTownBlock(location);
-
-        if (townBlock == null || !townBlock.hasTown()) {
-            return true;
-        }
-
-        Town town = townBlock.getTownOrNull();
-        Resident resident = townyAPI.getResident(player);
-
-        return resident != null && town.hasResident(resident);
+        return canPerform(entity, location, GraveAction.PROJECTILE);
     }
 
     /**
@@ -169,10 +207,20 @@ public class TownyImpl {
      * @return {@code true} if the player is a member of the town, {@code false} otherwise
      */
     public boolean isMember(String townName, Player player) {
-        Resident resident = townyAPI.getResident(player);
-        Town town = townyAPI.getTown(townName);
+        UUID townUUID = residentIndex.getTownUUID(townName);
 
-        return resident != null && town != null && town.hasResident(resident);
+        return townUUID != null && residentIndex.isResident(townUUID, player.getUniqueId());
+    }
+
+    /**
+     * Checks if the specified player is a member of the specified town.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the player to check
+     * @return {@code true} if the player is a member of the town, {@code false} otherwise
+     */
+    public boolean isMember(UUID townUUID, Player player) {
+        return residentIndex.isResident(townUUID, player.getUniqueId());
     }
 
     /**
@@ -185,13 +233,11 @@ public class TownyImpl {
         List<String> townKeyList = new ArrayList<>();
 
         if (location.getWorld() != null) {
-            TownBlock townBlock = townyAPI.getTownBlock(location);
+            UUID townUUID = chunkIndex.getTownAt(location.getWorld().getName(), location.getBlockX(), location.getBlockZ());
+            String townName = townUUID != null ? chunkIndex.getTownName(townUUID) : null;
 
-            if (townBlock != null && townBlock.hasTown()) {
-                Town town = townBlock.getTownOrNull();
-                if (town != null) {
-                    townKeyList.add("towny|" + location.getWorld().getName() + "|" + town.getName());
-                }
+            if (townName != null) {
+                townKeyList.add("towny|" + location.getWorld().getName() + "|" + townName);
             }
         }
 
@@ -0,0 +1,39 @@
+package dev.cwhead.GravesXAddon.integration;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.listener.TownyListener;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.provider.ProtectionProviderFactory;
+
+/**
+ * The {@code TownyProviderFactory} class creates the Towny provider and registers the listener that keeps its
+ * town block and resident indexes up to date, and publishes the town block changes of every tick.
+ */
+public class TownyProviderFactory implements ProtectionProviderFactory {
+    /**
+     * Interval between publishing the town block changes made since the last publish.
+     */
+    private static final long INDEX_PUBLISH_TICKS = 1L;
+
+    @Override
+    public String getName() {
+        return "towny";
+    }
+
+    @Override
+    public String getPluginName() {
+        return "Towny";
+    }
+
+    @Override
+    public ProtectionProvider enable(LandProtection plugin) {
+        TownyImpl towny = new TownyImpl(plugin);
+        TownyListener listener = new TownyListener(plugin);
+
+        plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+        plugin.getTaskScheduler().runGlobalTimer(() -> towny.getChunkIndex().publish(listener),
+                INDEX_PUBLISH_TICKS, INDEX_PUBLISH_TICKS);
+
+        return towny;
+    }
+}
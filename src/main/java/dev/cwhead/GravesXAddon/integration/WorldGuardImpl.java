@@ -1,7 +1,9 @@
 package dev.cwhead.GravesXAddon.integration;
 
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.LocalPlayer;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.ApplicableRegionSet;
@@ -9,24 +11,48 @@ import com.sk89q.worldguard.protection.flags.Flag;
 import com.sk89q.worldguard.protection.flags.StateFlag;
 import com.sk89q.worldguard.protection.flags.registry.FlagConflictException;
 import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.cache.RegionChunkIndex;
+import dev.cwhead.GravesXAddon.cache.RegionFlagSectionIndex;
+import dev.cwhead.GravesXAddon.cache.RegionMembershipIndex;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.snapshot.RegionSnapshot;
+import dev.cwhead.GravesXAddon.snapshot.WorldRegionSnapshot;
+import dev.cwhead.GravesXAddon.type.GraveAction;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * The {@code WorldGuardImpl} class is responsible for interacting with WorldGuard's region and flag systems
  * to determine if specific actions can be performed on grave-related entities and locations.
  * It handles creating, registering, and checking flags for actions such as grave creation, teleportation,
  * looting, and autolooting, as well as determining region memberships for players.
+ * <p>
+ * The wrapped {@code LocalPlayer} of a player and the adapted world of their last check are kept in their
+ * {@link ProtectionSession}, so checks don't wrap and adapt them again for every grave event.
  */
-public class WorldGuardImpl {
+public class WorldGuardImpl implements ProtectionProvider {
     private final LandProtection plugin;
     private final WorldGuard worldGuard;
+    private final WorldGuardRegionTracker regionTracker;
+    private final RegionMembershipIndex membershipIndex;
+    private final RegionFlagSectionIndex sectionIndex;
+    private final RegionChunkIndex chunkIndex;
+    private final StateFlag[] flags = new StateFlag[GraveAction.values().length];
+    private final ProtectionSession.Key<SessionData> sessionKey = new ProtectionSession.Key<>(SessionData::new);
 
     /**
      * Constructs a {@code WorldGuardImpl} object.
@@ -36,18 +62,50 @@ public class WorldGuardImpl {
     public WorldGuardImpl(LandProtection plugin) {
         this.plugin = plugin;
         this.worldGuard = WorldGuard.getInstance();
+        this.regionTracker = new WorldGuardRegionTracker(worldGuard);
+        this.membershipIndex = new RegionMembershipIndex(worldGuard);
+        this.regionTracker.addListener(membershipIndex::invalidate);
         registerMultipleFlags();
+        this.sectionIndex = new RegionFlagSectionIndex(flags);
+        this.regionTracker.addListener(sectionIndex::invalidate);
+        this.chunkIndex = new RegionChunkIndex(worldGuard, flags);
+        this.regionTracker.addListener(chunkIndex::invalidate);
     }
 
     /**
-     * Registers multiple flags for use with WorldGuard regions.
-     * Flags include those for controlling grave actions such as autoloot, loot, create, and teleport.
+     * Gets the tracker that detects changes to WorldGuard region data.
+     *
+     * @return the {@code WorldGuardRegionTracker} instance
      */
-    private void registerMultipleFlags() {
-        List<String> flagNames = List.of("gravesx-grave-autoloot", "gravesx-grave-loot", "gravesx-grave-create", "gravesx-grave-teleport", "gravesx-grave-walkover", "gravesx-grave-projectile");
+    public WorldGuardRegionTracker getRegionTracker() {
+        return regionTracker;
+    }
+
+    /**
+     * Gets the index of the compiled flags of every chunk section.
+     *
+     * @return the {@code RegionFlagSectionIndex} instance
+     */
+    public RegionFlagSectionIndex getSectionIndex() {
+        return sectionIndex;
+    }
+
+    /**
+     * Gets the index of the chunks covered by regions.
+     *
+     * @return the {@code RegionChunkIndex} instance
+     */
+    public RegionChunkIndex getChunkIndex() {
+        return chunkIndex;
+    }
 
-        for (String flagName : flagNames) {
-            registerNewFlag(flagName);
+    /**
+     * Registers the flags of every grave action for use with WorldGuard regions, and keeps the registered
+     * flags so they don't have to be looked up by name again.
+     */
+    private void registerMultipleFlags() {
+        for (GraveAction action : GraveAction.values()) {
+            flags[action.ordinal()] = registerNewFlag(action.getFlagName());
         }
     }
 
@@ -72,13 +130,13 @@ public class WorldGuardImpl {
     }
 
     /**
-     * Retrieves a {@code StateFlag} by its name.
+     * Gets the {@code StateFlag} controlling a grave action.
      *
-     * @param flagName the name of the flag to retrieve
-     * @return the {@code StateFlag} associated with the given name
+     * @param action the grave action
+     * @return the {@code StateFlag} of the action, or {@code null} if the flag could not be registered
      */
-    private StateFlag getFlagName(String flagName) {
-        return (StateFlag) worldGuard.getFlagRegistry().get(flagName);
+    public StateFlag getFlag(GraveAction action) {
+        return flags[action.ordinal()];
     }
 
     /**
@@ -93,12 +151,7 @@ public class WorldGuardImpl {
             return true;
         }
 
-        StateFlag createFlag = getFlagName("gravesx-grave-create");
-
-        return worldGuard.getPlatform().getRegionContainer().createQuery().testState(
-                BukkitAdapter.adapt(location),
-                WorldGuardPlugin.inst().wrapPlayer((Player) entity),
-                createFlag);
+        return testState((Player) entity, location, GraveAction.CREATE);
     }
 
     /**
@@ -113,12 +166,7 @@ public class WorldGuardImpl {
             return true;
         }
 
-        StateFlag teleportFlag = getFlagName("gravesx-grave-teleport");
-
-        return worldGuard.getPlatform().getRegionContainer().createQuery().testState(
-                BukkitAdapter.adapt(location),
-                WorldGuardPlugin.inst().wrapPlayer((Player) entity),
-                teleportFlag);
+        return testState((Player) entity, location, GraveAction.TELEPORT);
     }
 
     /**
@@ -133,12 +181,7 @@ public class WorldGuardImpl {
             return true;
         }
 
-        StateFlag lootFlag = getFlagName("gravesx-grave-loot");
-
-        return worldGuard.getPlatform().getRegionContainer().createQuery().testState(
-                BukkitAdapter.adapt(location),
-                WorldGuardPlugin.inst().wrapPlayer((Player) entity),
-                lootFlag);
+        return testState((Player) entity, location, GraveAction.OPEN);
     }
 
     /**
@@ -153,12 +196,7 @@ public class WorldGuardImpl {
             return true;
         }
 
-        StateFlag autoLootFlag = getFlagName("gravesx-grave-autoloot");
-
-        return worldGuard.getPlatform().getRegionContainer().createQuery().testState(
-                BukkitAdapter.adapt(location),
-                WorldGuardPlugin.inst().wrapPlayer((Player) entity),
-                autoLootFlag);
+        return testState((Player) entity, location, GraveAction.AUTO_LOOT);
     }
 
     /**
@@ -173,12 +211,7 @@ public class WorldGuardImpl {
             return true;
         }
 
-        StateFlag autoLootFlag = getFlagName("gravesx-grave-walkover");
-
-        return worldGuard.getPlatform().getRegionContainer().createQuery().testState(
-                BukkitAdapter.adapt(location),
-                WorldGuardPlugin.inst().wrapPlayer((Player) entity),
-                autoLootFlag);
+        return testState((Player) entity, location, GraveAction.WALK_OVER);
     }
 
     /**
@@ -193,35 +226,253 @@ public class WorldGuardImpl {
             return true;
         }
 
-        StateFlag projectileFlag = getFlagName("gravesx-grave-projectile");
+        return testState((Player) entity, location, GraveAction.PROJECTILE);
+    }
+
+    /**
+     * Tests the flag of a grave action for the specified player at the specified location.
+     *
+     * @param player the player to check
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the flag allows the action at the location, {@code false} otherwise
+     */
+    private boolean testState(Player player, Location location, GraveAction action) {
+        StateFlag flag = flags[action.ordinal()];
+
+        if (flag == null || location.getWorld() == null) {
+            return true;
+        }
+
+        SessionData data = plugin.getSessions().get(player).get(sessionKey);
 
         return worldGuard.getPlatform().getRegionContainer().createQuery().testState(
-                BukkitAdapter.adapt(location),
-                WorldGuardPlugin.inst().wrapPlayer((Player) entity),
-                projectileFlag);
+                new com.sk89q.worldedit.util.Location(data.adapt(location.getWorld()),
+                        location.getX(), location.getY(), location.getZ()),
+                data.localPlayer,
+                flag);
+    }
+
+    /**
+     * Evaluates whether the specified player may perform a grave action at the specified location.
+     * The player is allowed if the flag resolves to allow or if they are an owner or member of any region at
+     * the location. Sections that lie entirely inside the same regions are answered from the compiled section
+     * flags, elsewhere the applicable region set is queried once and used for both the flag state and the
+     * membership override.
+     *
+     * @param player the player to check
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the player is allowed to perform the action at the location, {@code false} otherwise
+     */
+    public boolean evaluate(Player player, Location location, GraveAction action) {
+        return evaluate(plugin.getSessions().get(player), location, action);
+    }
+
+    /**
+     * Evaluates whether the player of a session may perform a grave action at the specified location, the same
+     * way as {@link #evaluate(Player, Location, GraveAction)}, with the wrapped player and adapted world kept in
+     * the session.
+     *
+     * @param session the session of the player to check
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the player is allowed to perform the action at the location, {@code false} otherwise
+     */
+    public boolean evaluate(ProtectionSession session, Location location, GraveAction action) {
+        World world = location.getWorld();
+
+        if (world == null) {
+            return true;
+        }
+
+        SessionData data = session.get(sessionKey);
+        RegionManager regionManager = worldGuard.getPlatform().getRegionContainer().get(data.adapt(world));
+
+        if (regionManager == null) {
+            return true;
+        }
+
+        RegionFlagSectionIndex.Section section = sectionIndex.getSection(world.getName(), regionManager,
+                location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        byte state = section.getState(action);
+
+        if (state == RegionFlagSectionIndex.ALLOW) {
+            return true;
+        }
+
+        if (state == RegionFlagSectionIndex.MEMBERS) {
+            for (String regionId : section.getRegionIds()) {
+                if (membershipIndex.isMember(world, regionId, data.localPlayer)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        ApplicableRegionSet applicableRegions = regionManager.getApplicableRegions(BlockVector3
+                .at(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        StateFlag flag = flags[action.ordinal()];
+
+        if (flag == null || applicableRegions.testState(data.localPlayer, flag)) {
+            return true;
+        }
+
+        for (ProtectedRegion protectedRegion : applicableRegions) {
+            if (membershipIndex.isMember(world, protectedRegion.getId(), data.localPlayer)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return "worldguard";
+    }
+
+    @Override
+    public boolean isAllowed(Player player, Location location, GraveAction action) {
+        return evaluate(player, location, action);
+    }
+
+    @Override
+    public boolean isAllowed(ProtectionSession session, Location location, GraveAction action) {
+        return evaluate(session, location, action);
+    }
+
+    @Override
+    public boolean mayDeny(Location location, GraveAction action) {
+        return location.getWorld() != null && chunkIndex.mayDeny(location.getWorld(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4, action);
+    }
+
+    @Override
+    public List<String> getRegionKeys(Location location) {
+        return getRegionKeyList(location);
     }
 
     /**
-     * Checks if the specified player is a member of the given region.
+     * Checks if the specified player is a member of the given region in any loaded world.
      *
      * @param region the name of the region
      * @param player the player to check
      * @return {@code true} if the player is a member of the region, {@code false} otherwise
+     * @deprecated region ids are only unique per world, use {@link #isMember(World, String, Player)} instead
      */
+    @Deprecated
     public boolean isMember(String region, Player player) {
         for (RegionManager regionManager : worldGuard.getPlatform().getRegionContainer().getLoaded()) {
-            if (regionManager.getRegions().containsKey(region)) {
-                ProtectedRegion protectedRegion = regionManager.getRegion(region);
+            ProtectedRegion protectedRegion = regionManager.getRegion(region);
 
-                if (protectedRegion != null) {
-                    return protectedRegion.isMember(WorldGuardPlugin.inst().wrapPlayer(player));
-                }
+            if (protectedRegion != null) {
+                return protectedRegion.isMember(WorldGuardPlugin.inst().wrapPlayer(player));
             }
         }
 
         return false;
     }
 
+    /**
+     * Checks if the specified player is an owner or member of the given region in the given world,
+     * including membership inherited from parent regions.
+     *
+     * @param world the world the region belongs to
+     * @param region the id of the region
+     * @param player the player to check
+     * @return {@code true} if the player is a member of the region, {@code false} otherwise
+     */
+    public boolean isMember(World world, String region, Player player) {
+        return membershipIndex.isMember(world, region, player);
+    }
+
+    /**
+     * Creates an immutable snapshot of the regions of a world, holding the bounds, the effective state of the
+     * gravesx flags and the owners and members of every region. Must be called on the main thread.
+     *
+     * @param world the world to snapshot
+     * @return the {@code WorldRegionSnapshot}, or {@code null} if WorldGuard has no regions for the world
+     */
+    public WorldRegionSnapshot snapshot(World world) {
+        RegionManager regionManager = worldGuard.getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+
+        if (regionManager == null) {
+            return null;
+        }
+
+        RegionSnapshot globalRegion = null;
+        List<RegionSnapshot> regions = new ArrayList<>();
+
+        for (ProtectedRegion protectedRegion : regionManager.getRegions().values()) {
+            RegionSnapshot region = snapshot(protectedRegion);
+
+            if (protectedRegion instanceof GlobalProtectedRegion) {
+                globalRegion = region;
+            } else {
+                regions.add(region);
+            }
+        }
+
+        return new WorldRegionSnapshot(world.getName(), globalRegion, regions);
+    }
+
+    /**
+     * Copies a single region, resolving the gravesx flags and members it inherits from its parents. Members given
+     * by player name or permission group and flags restricted to a region group are not copied, the region is
+     * marked as requiring a live check instead.
+     *
+     * @param protectedRegion the region to copy
+     * @return the {@code RegionSnapshot}
+     */
+    private RegionSnapshot snapshot(ProtectedRegion protectedRegion) {
+        byte[] states = new byte[flags.length];
+        Set<UUID> members = new HashSet<>();
+        boolean requiresLiveCheck = false;
+
+        for (ProtectedRegion region = protectedRegion; region != null; region = region.getParent()) {
+            for (int i = 0; i < flags.length; i++) {
+                StateFlag.State state = flags[i] != null ? region.getFlag(flags[i]) : null;
+
+                if (states[i] == RegionSnapshot.UNSET && state != null) {
+                    states[i] = state == StateFlag.State.ALLOW ? RegionSnapshot.ALLOW : RegionSnapshot.DENY;
+                }
+
+                requiresLiveCheck |= flags[i] != null && region.getFlag(flags[i].getRegionGroupFlag()) != null;
+            }
+
+            members.addAll(region.getOwners().getUniqueIds());
+            members.addAll(region.getMembers().getUniqueIds());
+            requiresLiveCheck |= !region.getOwners().getPlayers().isEmpty() || !region.getOwners().getGroups().isEmpty()
+                    || !region.getMembers().getPlayers().isEmpty() || !region.getMembers().getGroups().isEmpty();
+        }
+
+        int[] pointsX = null;
+        int[] pointsZ = null;
+
+        if (protectedRegion instanceof ProtectedPolygonalRegion) {
+            List<BlockVector2> points = protectedRegion.getPoints();
+
+            pointsX = new int[points.size()];
+            pointsZ = new int[points.size()];
+
+            for (int i = 0; i < points.size(); i++) {
+                pointsX[i] = points.get(i).getBlockX();
+                pointsZ[i] = points.get(i).getBlockZ();
+            }
+        }
+
+        BlockVector3 min = protectedRegion.getMinimumPoint();
+        BlockVector3 max = protectedRegion.getMaximumPoint();
+        ProtectedRegion parent = protectedRegion.getParent();
+
+        return new RegionSnapshot(protectedRegion.getId(), parent != null ? parent.getId() : null,
+                protectedRegion.getPriority(), min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX(), max.getBlockY(), max.getBlockZ(), pointsX, pointsZ, states, members,
+                requiresLiveCheck);
+    }
+
     /**
      * Retrieves a list of region keys that apply to the specified location.
      *
@@ -247,4 +498,45 @@ public class WorldGuardImpl {
 
         return regionNameList;
     }
-}
\ No newline at end of file
+
+    /**
+     * What WorldGuard resolved for the player of a session: the wrapped player, and the world of their last check
+     * adapted to WorldEdit.
+     */
+    private static final class SessionData {
+        private final LocalPlayer localPlayer;
+        private volatile AdaptedWorld world;
+
+        private SessionData(Player player) {
+            this.localPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+        }
+
+        /**
+         * Adapts a world, reusing the adapted world of the last check while the player stays in the same world.
+         */
+        private com.sk89q.worldedit.world.World adapt(World world) {
+            AdaptedWorld adapted = this.world;
+
+            if (adapted == null || adapted.world.get() != world) {
+                adapted = new AdaptedWorld(world);
+                this.world = adapted;
+            }
+
+            return adapted.adapted;
+        }
+    }
+
+    /**
+     * A world and its WorldEdit adapter. The world is only weakly referenced, so a session doesn't keep an
+     * unloaded world alive.
+     */
+    private static final class AdaptedWorld {
+        private final WeakReference<World> world;
+        private final com.sk89q.worldedit.world.World adapted;
+
+        private AdaptedWorld(World world) {
+            this.world = new WeakReference<>(world);
+            this.adapted = BukkitAdapter.adapt(world);
+        }
+    }
+}
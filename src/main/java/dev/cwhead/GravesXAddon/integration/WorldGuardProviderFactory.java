@@ -0,0 +1,50 @@
+package dev.cwhead.GravesXAddon.integration;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.listener.WorldGuardRegionListener;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.provider.ProtectionProviderFactory;
+
+/**
+ * The {@code WorldGuardProviderFactory} class creates the WorldGuard provider. The grave flags are registered
+ * while loading, as WorldGuard rejects new flags once it is enabled.
+ */
+public class WorldGuardProviderFactory implements ProtectionProviderFactory {
+    /**
+     * Interval between the steps of the sweeps for WorldGuard region changes made outside of region commands.
+     */
+    private static final long REGION_SWEEP_STEP_TICKS = 1L;
+
+    private WorldGuardImpl worldGuard;
+
+    @Override
+    public String getName() {
+        return "worldguard";
+    }
+
+    @Override
+    public String getPluginName() {
+        return "WorldGuard";
+    }
+
+    @Override
+    public void load(LandProtection plugin) {
+        worldGuard = new WorldGuardImpl(plugin);
+        plugin.getLogger().info("Registered WorldGuard Flags Successfully.");
+    }
+
+    @Override
+    public ProtectionProvider enable(LandProtection plugin) {
+        if (worldGuard == null) {
+            throw new IllegalStateException("WorldGuard flags were not registered while loading.");
+        }
+
+        plugin.getServer().getPluginManager().registerEvents(new WorldGuardRegionListener(plugin), plugin);
+        worldGuard.getRegionTracker().addListener(plugin.getDecisionCache()::invalidateWorld);
+        worldGuard.getRegionTracker().addListener(plugin.getSnapshotManager()::markWorldDirty);
+        plugin.getTaskScheduler().runGlobalTimer(() -> worldGuard.getRegionTracker().sweepStep(),
+                REGION_SWEEP_STEP_TICKS, REGION_SWEEP_STEP_TICKS);
+
+        return worldGuard;
+    }
+}
@@ -0,0 +1,192 @@
+package dev.cwhead.GravesXAddon.integration;
+
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.domains.DefaultDomain;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The {@code WorldGuardRegionTracker} class detects changes to WorldGuard region data.
+ * WorldGuard does not fire events when regions are defined, removed or have their owners, members,
+ * parents or flags changed, so the tracker keeps a fingerprint of every loaded region manager and compares
+ * it once it fingerprinted the whole world again. Region commands mark the world they changed right away
+ * through {@link #markChanged(String)}.
+ * <p>
+ * Sweeps are spread over many ticks: every {@link #sweepStep()} fingerprints at most {@link #REGIONS_PER_STEP}
+ * regions and continues where the previous step stopped, so servers with many regions never fingerprint all of
+ * them in a single tick. Steps must all run on the same thread. Regions defined or removed through the API or by
+ * other plugins change the region count of their world, which every step compares, so those are reported on
+ * the next tick instead of after a full sweep.
+ * <p>
+ * Listeners are notified with the name of the world whose regions changed.
+ */
+public class WorldGuardRegionTracker {
+    /**
+     * The maximum number of regions fingerprinted by a single sweep step.
+     */
+    public static final int REGIONS_PER_STEP = 512;
+
+    private final WorldGuard worldGuard;
+    private final Map<String, Integer> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private Iterator<RegionManager> sweepManagers;
+    private String sweepWorld;
+    private List<ProtectedRegion> sweepRegions;
+    private int sweepPosition;
+    private int sweepFingerprint;
+
+    /**
+     * Constructs a {@code WorldGuardRegionTracker} object.
+     *
+     * @param worldGuard the {@code WorldGuard} instance to track
+     */
+    public WorldGuardRegionTracker(WorldGuard worldGuard) {
+        this.worldGuard = worldGuard;
+    }
+
+    /**
+     * Registers a listener that is called with the world name whenever regions of that world change.
+     *
+     * @param listener the listener to register
+     */
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Fingerprints the next regions of the current sweep. Once every region of a world is fingerprinted, the
+     * fingerprint is compared against the previous sweep of the world and listeners are notified if it changed.
+     * A new sweep over every loaded region manager starts after the last world of the previous one. Worlds whose
+     * region count changed since the previous step are reported right away.
+     */
+    public void sweepStep() {
+        int budget = REGIONS_PER_STEP;
+
+        checkCounts();
+
+        while (budget > 0) {
+            if (sweepRegions == null) {
+                if (sweepManagers == null) {
+                    sweepManagers = new ArrayList<>(worldGuard.getPlatform().getRegionContainer().getLoaded()).iterator();
+                }
+
+                if (!sweepManagers.hasNext()) {
+                    sweepManagers = null;
+                    return;
+                }
+
+                RegionManager regionManager = sweepManagers.next();
+
+                sweepWorld = regionManager.getName();
+                sweepRegions = new ArrayList<>(regionManager.getRegions().values());
+                sweepPosition = 0;
+                sweepFingerprint = 0;
+                budget--;
+            }
+
+            int end = Math.min(sweepRegions.size(), sweepPosition + budget);
+
+            for (int i = sweepPosition; i < end; i++) {
+                sweepFingerprint += fingerprint(sweepRegions.get(i));
+            }
+
+            budget -= end - sweepPosition;
+            sweepPosition = end;
+
+            if (sweepPosition == sweepRegions.size()) {
+                Integer previous = fingerprints.put(sweepWorld, sweepFingerprint);
+
+                if (previous != null && previous != sweepFingerprint) {
+                    notifyListeners(sweepWorld);
+                }
+
+                sweepRegions = null;
+            }
+        }
+    }
+
+    /**
+     * Notifies listeners that the regions of the specified world changed. The fingerprint of the world is
+     * dropped, so the next sweep records the changed regions without notifying listeners a second time.
+     *
+     * @param worldName the name of the world
+     */
+    public void markChanged(String worldName) {
+        fingerprints.remove(worldName);
+        notifyListeners(worldName);
+    }
+
+    /**
+     * Notifies listeners that the regions of every loaded world changed.
+     */
+    public void markAllChanged() {
+        for (RegionManager regionManager : worldGuard.getPlatform().getRegionContainer().getLoaded()) {
+            markChanged(regionManager.getName());
+        }
+    }
+
+    /**
+     * Reports every loaded world whose number of regions differs from the previous step. A sweep still
+     * fingerprinting such a world moves on, since its fingerprint is recorded again from scratch.
+     */
+    private void checkCounts() {
+        for (RegionManager regionManager : worldGuard.getPlatform().getRegionContainer().getLoaded()) {
+            String worldName = regionManager.getName();
+            int count = regionManager.size();
+            Integer previous = counts.put(worldName, count);
+
+            if (previous != null && previous != count) {
+                if (worldName.equals(sweepWorld)) {
+                    sweepRegions = null;
+                }
+
+                markChanged(worldName);
+            }
+        }
+    }
+
+    private void notifyListeners(String worldName) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(worldName);
+        }
+    }
+
+    /**
+     * Computes a fingerprint over the id, priority, parent, flags, bounds, owners and members of a region.
+     *
+     * @param protectedRegion the region to fingerprint
+     * @return the fingerprint of the region
+     */
+    private static int fingerprint(ProtectedRegion protectedRegion) {
+        ProtectedRegion parent = protectedRegion.getParent();
+
+        return Objects.hash(protectedRegion.getId(),
+                protectedRegion.getPriority(),
+                parent != null ? parent.getId() : null,
+                protectedRegion.getFlags(),
+                protectedRegion.getMinimumPoint(),
+                protectedRegion.getMaximumPoint(),
+                domainHash(protectedRegion.getOwners()),
+                domainHash(protectedRegion.getMembers()));
+    }
+
+    /**
+     * Computes a hash over the UUIDs, player names and groups of a domain.
+     *
+     * @param domain the domain to hash
+     * @return the hash of the domain
+     */
+    private static int domainHash(DefaultDomain domain) {
+        return Objects.hash(domain.getUniqueIds(), domain.getPlayers(), domain.getGroups());
+    }
+}
@@ -0,0 +1,129 @@
+package dev.cwhead.GravesXAddon.listener;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.cache.ClaimChangeListener;
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.events.ClaimChangeEvent;
+import me.ryanhamshire.GriefPrevention.events.ClaimCreatedEvent;
+import me.ryanhamshire.GriefPrevention.events.ClaimDeletedEvent;
+import me.ryanhamshire.GriefPrevention.events.TrustChangedEvent;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Listener for GriefPrevention claim and trust changes.
+ *
+ * This listener keeps the claim index and the cached land protection decisions in sync with GriefPrevention.
+ * Claim events fire before GriefPrevention applies the change, so changed claims are only marked here and
+ * re-indexed when the claim index publishes the changes of the tick, after which the decisions made inside them
+ * are dropped. New claims only get their id once they are stored, so the claim itself is kept and its id read then.
+ * Toggling {@code /ignoreclaims} fires no event, so the command itself drops the decisions of the player who ran it.
+ */
+public class GriefPreventionListener implements Listener, ClaimChangeListener {
+
+    private static final Set<String> IGNORE_CLAIMS_COMMANDS = Set.of("ignoreclaims", "ic");
+
+    private final LandProtection plugin;
+
+    /**
+     * Constructor for the listener. Initializes the plugin instance.
+     *
+     * @param plugin The LandProtection plugin instance.
+     */
+    public GriefPreventionListener(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Handles a claim or subdivision being created.
+     *
+     * @param event The ClaimCreatedEvent that contains the new claim.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClaimCreated(ClaimCreatedEvent event) {
+        markChanged(event.getClaim());
+    }
+
+    /**
+     * Handles a claim being resized or otherwise changed, including {@code ClaimResizeEvent}.
+     *
+     * @param event The ClaimChangeEvent that contains the claim before and after the change.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClaimChange(ClaimChangeEvent event) {
+        markChanged(event.getFrom());
+    }
+
+    /**
+     * Handles a claim or subdivision being deleted.
+     *
+     * @param event The ClaimDeletedEvent that contains the deleted claim.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClaimDeleted(ClaimDeletedEvent event) {
+        markChanged(event.getClaim());
+    }
+
+    /**
+     * Handles players being trusted or untrusted in claims.
+     *
+     * @param event The TrustChangedEvent that contains the changed claims.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTrustChanged(TrustChangedEvent event) {
+        for (Claim claim : event.getClaims()) {
+            markChanged(claim);
+        }
+    }
+
+    /**
+     * Handles players toggling {@code /ignoreclaims}. The command runs right after this event, so the decisions of
+     * the player are dropped on the next tick of the player.
+     *
+     * @param event The PlayerCommandPreprocessEvent that contains the command line.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        String label = event.getMessage().substring(1).trim().split("\\s+")[0].toLowerCase(Locale.ROOT);
+
+        if (label.startsWith("griefprevention:")) {
+            label = label.substring("griefprevention:".length());
+        }
+
+        if (IGNORE_CLAIMS_COMMANDS.contains(label)) {
+            Player player = event.getPlayer();
+
+            plugin.getTaskScheduler().runForEntity(player,
+                    () -> plugin.getDecisionCache().invalidatePlayer(player.getUniqueId()));
+        }
+    }
+
+    /**
+     * Drops the cached decisions made inside the chunks of a claim that changed, once the change is published.
+     *
+     * @param worldName The name of the world.
+     * @param minX The minimum block x coordinate, inclusive.
+     * @param minZ The minimum block z coordinate, inclusive.
+     * @param maxX The maximum block x coordinate, inclusive.
+     * @param maxZ The maximum block z coordinate, inclusive.
+     */
+    @Override
+    public void claimsChanged(String worldName, int minX, int minZ, int maxX, int maxZ) {
+        plugin.getDecisionCache().invalidateArea(worldName, minX, minZ, maxX, maxZ);
+    }
+
+    /**
+     * Marks a claim as changed in the claim index.
+     *
+     * @param claim The claim that changed.
+     */
+    private void markChanged(Claim claim) {
+        plugin.getGriefPrevention().getClaimIndex().markChanged(claim);
+    }
+}
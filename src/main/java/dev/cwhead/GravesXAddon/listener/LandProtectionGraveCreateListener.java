@@ -1,27 +1,36 @@
 package dev.cwhead.GravesXAddon.listener;
 
 import com.ranull.graves.event.*;
+import com.ranull.graves.type.Grave;
 import dev.cwhead.GravesXAddon.LandProtection;
-import org.bukkit.ChatColor;
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.cache.GraveDecisionStore;
+import dev.cwhead.GravesXAddon.metrics.ActionMetrics;
+import dev.cwhead.GravesXAddon.metrics.ProtectionMetrics;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.type.GraveAction;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 
-import java.util.List;
+import java.util.UUID;
 
 /**
  * Listener for handling events related to grave interactions with region checks.
  *
- * This listener intercepts events related to grave creation, teleportation, opening, and auto-looting
- * and ensures that the player is a member of the respective WorldGuard region or has the necessary permissions.
- * It integrates with the LandProtection plugin to enforce these rules.
+ * This listener intercepts events related to grave creation, teleportation, opening, auto-looting,
+ * walking over and projectile hits, and ensures that the player is a member of the respective WorldGuard
+ * region or Towny town. Every event is mapped to a {@link GraveAction} and evaluated by the same code path,
+ * at the location of the grave the event is about.
  */
 public class LandProtectionGraveCreateListener implements Listener {
 
     private final LandProtection plugin;
 
+    private final ActionMetrics[] totalMetrics;
+
     /**
      * Constructor for the listener. Initializes the plugin instance.
      *
@@ -29,6 +38,7 @@ public class LandProtectionGraveCreateListener implements Listener {
      */
     public LandProtectionGraveCreateListener(LandProtection plugin) {
         this.plugin = plugin;
+        this.totalMetrics = plugin.getMetrics().provider(ProtectionMetrics.TOTAL);
     }
 
     /**
@@ -39,40 +49,59 @@ public class LandProtectionGraveCreateListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onGraveCreate(GraveCreateEvent event) {
-        Player player = (Player) event.getEntity();
-        Location deathLocation = player != null ? player.getLocation() : null;
+        if (event.getEntity() instanceof Player && isDenied((Player) event.getEntity(), event.getGrave(), GraveAction.CREATE)) {
+            event.setAddon(true);
+            event.setCancelled(true);
+        }
+    }
 
-        if (player == null) {
+    /**
+     * Handles the block of a grave being placed, which only happens once nothing cancelled the creation of the
+     * grave. The grave is tracked at the block it was placed at, which differs from the death location when the
+     * grave was moved out of the void or lava, and the decisions of its owner for every grave action are evaluated
+     * there right away, so later events for the grave are a single lookup.
+     *
+     * @param event The GraveBlockPlaceEvent that contains the grave and the location of its block.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onGraveBlockPlace(GraveBlockPlaceEvent event) {
+        Grave grave = event.getGrave();
+        Location location = event.getLocation();
+
+        if (grave == null || location == null) {
             return;
         }
 
-        boolean isWorldGuardEnabled = plugin.isWorldGuardEnabled();
-        boolean isTownyEnabled = plugin.isTownyEnabled();
-
-        boolean isWorldGuardMember = true;
-        if (isWorldGuardEnabled) {
-            isWorldGuardMember = plugin.getWorldGuard().canCreateGrave(player, deathLocation);
-            List<String> regionKeys = plugin.getWorldGuard().getRegionKeyList(deathLocation);
-            for (String regionKey : regionKeys) {
-                String regionId = regionKey.split("\\|")[2];
-                if (plugin.getWorldGuard().isMember(regionId, player)) {
-                    isWorldGuardMember = true;
-                    break;
-                }
-            }
+        plugin.getGraveDecisionStore().track(grave.getUUID(), location);
+
+        ProtectionSession owner = grave.getOwnerUUID() != null ? plugin.getSessions().find(grave.getOwnerUUID()) : null;
+
+        if (owner != null) {
+            precompute(owner, grave.getUUID(), location);
         }
+    }
 
-        boolean isTownyMember = true;
-        if (isTownyEnabled) {
-            isTownyMember = plugin.getTowny().canCreateGrave(player, deathLocation);
+    /**
+     * Handles a grave being broken, after which its decisions are forgotten.
+     *
+     * @param event The GraveBreakEvent that contains the grave.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onGraveBreak(GraveBreakEvent event) {
+        if (event.getGrave() != null) {
+            forget(event.getGrave().getUUID());
         }
+    }
 
-        if (!isWorldGuardMember || !isTownyMember) {
-            player.sendMessage(ChatColor.GRAY + "☠ " + ChatColor.RED + "You must be a member of the region or have permission to create a grave here.");
-            event.setAddon(true);
-            event.setCancelled(true);
-        } else {
-            plugin.getGravesXAPI().getGravesX().debugMessage(player.getDisplayName() + " can create a grave at: " + deathLocation, 2);
+    /**
+     * Handles a grave timing out, after which its decisions are forgotten.
+     *
+     * @param event The GraveTimeoutEvent that contains the grave.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onGraveTimeout(GraveTimeoutEvent event) {
+        if (event.getGrave() != null) {
+            forget(event.getGrave().getUUID());
         }
     }
 
@@ -84,40 +113,9 @@ public class LandProtectionGraveCreateListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onGraveTeleport(GraveTeleportEvent event) {
-        Player player = event.getPlayer();
-        Location deathLocation = player != null ? player.getLocation() : null;
-
-        if (player == null) {
-            return;
-        }
-
-        boolean isWorldGuardEnabled = plugin.isWorldGuardEnabled();
-        boolean isTownyEnabled = plugin.isTownyEnabled();
-
-        boolean isWorldGuardMember = true;
-        if (isWorldGuardEnabled) {
-            isWorldGuardMember = plugin.getWorldGuard().canTeleport(player, deathLocation);
-            List<String> regionKeys = plugin.getWorldGuard().getRegionKeyList(deathLocation);
-            for (String regionKey : regionKeys) {
-                String regionId = regionKey.split("\\|")[2];
-                if (plugin.getWorldGuard().isMember(regionId, player)) {
-                    isWorldGuardMember = true;
-                    break;
-                }
-            }
-        }
-
-        boolean isTownyMember = true;
-        if (isTownyEnabled) {
-            isTownyMember = plugin.getTowny().canTeleport(player, deathLocation);
-        }
-
-        if (!isWorldGuardMember || !isTownyMember) {
-            player.sendMessage(ChatColor.GRAY + "☠ " + ChatColor.RED + "You must be a member of the region or have permission to teleport to your grave in this region.");
+        if (isDenied(event.getPlayer(), event.getGrave(), GraveAction.TELEPORT)) {
             event.setAddon(true);
             event.setCancelled(true);
-        } else {
-            plugin.getGravesXAPI().getGravesX().debugMessage(player.getDisplayName() + " can teleport to grave at: " + deathLocation, 2);
         }
     }
 
@@ -129,40 +127,9 @@ public class LandProtectionGraveCreateListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onGraveOpen(GraveOpenEvent event) {
-        Player player = event.getPlayer();
-        Location deathLocation = player != null ? player.getLocation() : null;
-
-        if (player == null) {
-            return;
-        }
-
-        boolean isWorldGuardEnabled = plugin.isWorldGuardEnabled();
-        boolean isTownyEnabled = plugin.isTownyEnabled();
-
-        boolean isWorldGuardMember = true;
-        if (isWorldGuardEnabled) {
-            isWorldGuardMember = plugin.getWorldGuard().canLoot(player, deathLocation);
-            List<String> regionKeys = plugin.getWorldGuard().getRegionKeyList(deathLocation);
-            for (String regionKey : regionKeys) {
-                String regionId = regionKey.split("\\|")[2];
-                if (plugin.getWorldGuard().isMember(regionId, player)) {
-                    isWorldGuardMember = true;
-                    break;
-                }
-            }
-        }
-
-        boolean isTownyMember = true;
-        if (isTownyEnabled) {
-            isTownyMember = plugin.getTowny().canLoot(player, deathLocation);
-        }
-
-        if (!isWorldGuardMember || !isTownyMember) {
-            player.sendMessage(ChatColor.GRAY + "☠ " + ChatColor.RED + "You must be a member of the region or have permission to open a grave in this region.");
+        if (isDenied(event.getPlayer(), event.getGrave(), GraveAction.OPEN)) {
             event.setAddon(true);
             event.setCancelled(true);
-        } else {
-            plugin.getGravesXAPI().getGravesX().debugMessage(player.getDisplayName() + " can open grave at: " + deathLocation, 2);
         }
     }
 
@@ -174,118 +141,177 @@ public class LandProtectionGraveCreateListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onGraveAutoLooted(GraveAutoLootEvent event) {
-        Player player = event.getPlayer();
-        Location deathLocation = player != null ? player.getLocation() : null;
-
-        if (player == null) {
-            return;
-        }
-
-        boolean isWorldGuardEnabled = plugin.isWorldGuardEnabled();
-        boolean isTownyEnabled = plugin.isTownyEnabled();
-
-        boolean isWorldGuardMember = true;
-        if (isWorldGuardEnabled) {
-            isWorldGuardMember = plugin.getWorldGuard().canAutoLoot(player, deathLocation);
-            List<String> regionKeys = plugin.getWorldGuard().getRegionKeyList(deathLocation);
-            for (String regionKey : regionKeys) {
-                String regionId = regionKey.split("\\|")[2];
-                if (plugin.getWorldGuard().isMember(regionId, player)) {
-                    isWorldGuardMember = true;
-                    break;
-                }
-            }
+        if (isDenied(event.getPlayer(), event.getGrave(), GraveAction.AUTO_LOOT)) {
+            event.setAddon(true);
+            event.setCancelled(true);
         }
+    }
 
-        boolean isTownyMember = true;
-        if (isTownyEnabled) {
-            isTownyMember = plugin.getTowny().canAutoLoot(player, deathLocation);
+    /**
+     * Handles the event of walking over a grave. This event fires continuously while a player moves over a
+     * grave, so the decision remembered for the grave is reused until the regions or claims covering it change.
+     *
+     * @param event The GraveWalkOverEvent that contains information about the player and the grave location.
+     */
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onGraveWalkedOver(GraveWalkOverEvent event) {
+        if (isDenied(event.getPlayer(), event.getGrave(), GraveAction.WALK_OVER)) {
+            event.setAddon(true);
+            event.setCancelled(true);
         }
+    }
 
-        if (!isWorldGuardMember || !isTownyMember) {
-            player.sendMessage(ChatColor.GRAY + "☠ " + ChatColor.RED + "You must be a member of the region or have permission to auto loot a grave in this region.");
+    /**
+     * Handles the event of a projectile hitting a grave. Checks if the player is allowed to use a projectile
+     * to destroy a grave within the WorldGuard region where the grave is located.
+     *
+     * @param event The GraveProjectileHitEvent that contains information about the player and the grave location.
+     */
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onGraveProjectile(GraveProjectileHitEvent event) {
+        if (isDenied(event.getPlayer(), event.getGrave(), GraveAction.PROJECTILE)) {
             event.setAddon(true);
             event.setCancelled(true);
-        } else {
-            plugin.getGravesXAPI().getGravesX().debugMessage(player.getDisplayName() + " can auto loot grave at: " + deathLocation, 2);
         }
     }
 
-    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
-    public void onGraveWalkedOver(GraveWalkOverEvent event) {
-        Player player = event.getPlayer();
-        Location deathLocation = player != null ? player.getLocation() : null;
+    /**
+     * Evaluates a grave action for a player at the block of the grave, at the death location of a grave whose
+     * block was not placed yet, or at their own location if the grave is unknown, and sends the rate limited deny
+     * message of the action if it is denied.
+     *
+     * @param player The player performing the action, may be {@code null}.
+     * @param grave The grave the action is performed on, may be {@code null}.
+     * @param action The grave action.
+     * @return {@code true} if the action is denied and the event should be cancelled, {@code false} otherwise.
+     */
+    private boolean isDenied(Player player, Grave grave, GraveAction action) {
+        if (grave == null) {
+            return isDenied(player, null, null, action);
+        }
+
+        Location placed = plugin.getGraveDecisionStore().getLocation(grave.getUUID());
 
+        return placed != null ? isDenied(player, grave.getUUID(), placed, action)
+                : isDenied(player, null, grave.getLocationDeath(), action);
+    }
+
+    /**
+     * Evaluates a grave action for a player at the location of a grave, or at their own location if the grave is
+     * unknown. Decisions are only remembered for the grave if it is tracked, graves that are not, such as a grave
+     * that is still being created, are evaluated at their location through the decision cache alone. Players with
+     * the bypass permission of the action are allowed without consulting any cache or provider.
+     *
+     * @param player The player performing the action, may be {@code null}.
+     * @param grave The UUID of a tracked grave the action is performed on, or {@code null}.
+     * @param graveLocation The location of the grave, may be {@code null}.
+     * @param action The grave action.
+     * @return {@code true} if the action is denied and the event should be cancelled, {@code false} otherwise.
+     */
+    private boolean isDenied(Player player, UUID grave, Location graveLocation, GraveAction action) {
         if (player == null) {
-            return;
+            return false;
         }
 
-        boolean isWorldGuardEnabled = plugin.isWorldGuardEnabled();
-        boolean isTownyEnabled = plugin.isTownyEnabled();
-
-        boolean isWorldGuardMember = true;
-        if (isWorldGuardEnabled) {
-            isWorldGuardMember = plugin.getWorldGuard().canWalkOver(player, deathLocation);
-            List<String> regionKeys = plugin.getWorldGuard().getRegionKeyList(deathLocation);
-            for (String regionKey : regionKeys) {
-                String regionId = regionKey.split("\\|")[2];
-                if (plugin.getWorldGuard().isMember(regionId, player)) {
-                    isWorldGuardMember = true;
-                    break;
-                }
-            }
+        long start = System.nanoTime();
+        ProtectionSession session = plugin.getSessions().get(player);
+        Location location = graveLocation != null ? graveLocation : player.getLocation();
+        boolean allowed;
+
+        if (session.isBypassing(action)) {
+            allowed = true;
+            plugin.getProtectionEngine().traceBypass(player, location, action);
+        } else if (grave != null && graveLocation != null) {
+            allowed = isAllowed(session, grave, graveLocation, action);
+        } else {
+            allowed = isAllowed(session, location, action);
         }
 
-        boolean isTownyMember = true;
-        if (isTownyEnabled) {
-            isTownyMember = plugin.getTowny().canAutoLoot(player, deathLocation);
+        totalMetrics[action.ordinal()].record(System.nanoTime() - start, allowed);
+
+        if (!allowed) {
+            plugin.getDenyMessages().send(player, action);
+            return true;
         }
 
-        if (!isWorldGuardMember || !isTownyMember) {
-            player.sendMessage(ChatColor.GRAY + "☠ " + ChatColor.RED + "You must be a member of the region or have permission to auto loot a grave in this region.");
-            event.setAddon(true);
-            event.setCancelled(true);
-        } else {
-            plugin.getGravesXAPI().getGravesX().debugMessage(player.getDisplayName() + " can auto loot grave at: " + deathLocation, 2);
+        return false;
+    }
+
+    /**
+     * Evaluates the decisions of the owner of a new grave for every grave action at the grave block.
+     *
+     * @param owner The session of the owner of the grave.
+     * @param grave The UUID of the tracked grave.
+     * @param graveLocation The location of the grave block.
+     */
+    private void precompute(ProtectionSession owner, UUID grave, Location graveLocation) {
+        for (GraveAction action : GraveAction.values()) {
+            isAllowed(owner, grave, graveLocation, action);
         }
     }
 
-    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
-    public void onGraveProjectile(GraveProjectileHitEvent event) {
-        Player player = event.getPlayer();
-        Location deathLocation = player != null ? player.getLocation() : null;
+    /**
+     * Forgets the decisions of a grave that no longer exists.
+     *
+     * @param grave The UUID of the grave.
+     */
+    private void forget(UUID grave) {
+        plugin.getGraveDecisionStore().remove(grave);
+    }
 
-        if (player == null) {
-            return;
-        }
+    /**
+     * Checks if the player is allowed to perform a grave action on a tracked grave. The decision is evaluated at
+     * the grave block once and remembered for the grave until the regions or claims covering it change.
+     *
+     * @param session The session of the player performing the action.
+     * @param grave The UUID of the tracked grave the action is performed on.
+     * @param location The location of the grave block.
+     * @param action The grave action.
+     * @return {@code true} if the action is allowed, {@code false} otherwise.
+     */
+    private boolean isAllowed(ProtectionSession session, UUID grave, Location location, GraveAction action) {
+        GraveDecisionStore graveDecisionStore = plugin.getGraveDecisionStore();
+        Boolean stored = graveDecisionStore.get(grave, session.getUniqueId(), action);
 
-        boolean isWorldGuardEnabled = plugin.isWorldGuardEnabled();
-        boolean isTownyEnabled = plugin.isTownyEnabled();
-
-        boolean isWorldGuardMember = true;
-        if (isWorldGuardEnabled) {
-            isWorldGuardMember = plugin.getWorldGuard().canProjectile(player, deathLocation);
-            List<String> regionKeys = plugin.getWorldGuard().getRegionKeyList(deathLocation);
-            for (String regionKey : regionKeys) {
-                String regionId = regionKey.split("\\|")[2];
-                if (plugin.getWorldGuard().isMember(regionId, player)) {
-                    isWorldGuardMember = true;
-                    break;
-                }
-            }
+        if (stored != null) {
+            return stored;
         }
 
-        boolean isTownyMember = true;
-        if (isTownyEnabled) {
-            isTownyMember = plugin.getTowny().canProjectile(player, deathLocation);
-        }
+        long generation = plugin.getDecisionCache().getGeneration(session.getUniqueId());
+        boolean allowed = isAllowed(session, location, action);
 
-        if (!isWorldGuardMember || !isTownyMember) {
-            player.sendMessage(ChatColor.GRAY + "☠ " + ChatColor.RED + "You must be a member of the region or have permission to use a projectile to destroy a grave in this region.");
-            event.setAddon(true);
-            event.setCancelled(true);
-        } else {
-            plugin.getGravesXAPI().getGravesX().debugMessage(player.getDisplayName() + " can projectile destroy a grave at: " + deathLocation, 2);
+        graveDecisionStore.put(grave, session.getUniqueId(), action, allowed, generation);
+
+        return allowed;
+    }
+
+    /**
+     * Checks if the player is allowed to perform a grave action at the location. Cached decisions are
+     * returned as is, otherwise the protection engine checks the providers until one denies and the result
+     * is cached.
+     *
+     * @param session The session of the player performing the action.
+     * @param location The location of the action.
+     * @param action The grave action.
+     * @return {@code true} if the action is allowed, {@code false} otherwise.
+     */
+    private boolean isAllowed(ProtectionSession session, Location location, GraveAction action) {
+        DecisionCache decisionCache = plugin.getDecisionCache();
+        String worldName = location.getWorld() != null ? location.getWorld().getName() : "";
+        Boolean cached = decisionCache.get(session.getUniqueId(), worldName,
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(), action);
+
+        if (cached != null) {
+            plugin.getProtectionEngine().traceCached(session.getPlayer(), location, action, cached);
+            return cached;
         }
+
+        long generation = decisionCache.getGeneration(session.getUniqueId());
+        boolean allowed = plugin.getProtectionEngine().evaluate(session, location, action);
+
+        decisionCache.put(session.getUniqueId(), worldName,
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(), action, allowed, generation);
+
+        return allowed;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package dev.cwhead.GravesXAddon.listener;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+
+/**
+ * Listener for LuckPerms permission changes.
+ *
+ * LuckPerms recalculates the permissions of a user whenever a permission, group or context of the user changes,
+ * so this listener resolves the bypass permissions of the player again right after, instead of waiting for the
+ * periodic refresh. LuckPerms fires its events on its own threads, so the refresh is scheduled for the player.
+ * This class is only loaded when LuckPerms is installed.
+ */
+public class LuckPermsListener {
+
+    private final LandProtection plugin;
+
+    /**
+     * Constructor for the listener. Initializes the plugin instance.
+     *
+     * @param plugin The LandProtection plugin instance.
+     */
+    public LuckPermsListener(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Subscribes to the LuckPerms event bus, if the LuckPerms API is available.
+     *
+     * @return {@code true} if the listener was subscribed, {@code false} if LuckPerms has not registered its API.
+     */
+    public boolean register() {
+        LuckPerms luckPerms = plugin.getServer().getServicesManager().load(LuckPerms.class);
+
+        if (luckPerms == null) {
+            return false;
+        }
+
+        luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class, this::onUserDataRecalculate);
+        return true;
+    }
+
+    /**
+     * Handles the permissions of a user being recalculated. Users that are not online, such as users loaded by a
+     * command or whose permissions are recalculated while they log in, have no open session and are skipped, their
+     * session resolves the bypass permissions when it is opened.
+     *
+     * @param event The UserDataRecalculateEvent that contains the user.
+     */
+    private void onUserDataRecalculate(UserDataRecalculateEvent event) {
+        ProtectionSession session = plugin.getSessions().find(event.getUser().getUniqueId());
+
+        if (session != null) {
+            plugin.getTaskScheduler().runForEntity(session.getPlayer(), session::refreshBypass);
+        }
+    }
+}
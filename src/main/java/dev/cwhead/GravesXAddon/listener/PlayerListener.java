@@ -0,0 +1,62 @@
+package dev.cwhead.GravesXAddon.listener;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Listener for player connections.
+ *
+ * This listener opens the protection session of a player when they join and releases the land protection
+ * state kept for them once they leave the server.
+ */
+public class PlayerListener implements Listener {
+
+    private final LandProtection plugin;
+
+    /**
+     * Constructor for the listener. Initializes the plugin instance.
+     *
+     * @param plugin The LandProtection plugin instance.
+     */
+    public PlayerListener(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Handles a player joining the server. The session is opened before any other plugin handles the join.
+     *
+     * @param event The PlayerJoinEvent that contains the player.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getSessions().open(event.getPlayer());
+    }
+
+    /**
+     * Handles a player changing worlds. Permissions may be set per world, so the bypass permissions of the
+     * player are resolved again.
+     *
+     * @param event The PlayerChangedWorldEvent that contains the player.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        plugin.getSessions().get(event.getPlayer()).refreshBypass();
+    }
+
+    /**
+     * Handles a player leaving the server.
+     *
+     * @param event The PlayerQuitEvent that contains the player.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getDecisionCache().removePlayer(event.getPlayer().getUniqueId());
+        plugin.getSessions().close(event.getPlayer().getUniqueId());
+        plugin.getDenyMessages().remove(event.getPlayer().getUniqueId());
+    }
+}
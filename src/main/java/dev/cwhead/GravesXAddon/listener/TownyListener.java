@@ -0,0 +1,365 @@
+package dev.cwhead.GravesXAddon.listener;
+
+import com.palmergames.bukkit.towny.TownyAPI;
+import com.palmergames.bukkit.towny.event.DeleteNationEvent;
+import com.palmergames.bukkit.towny.event.DeleteTownEvent;
+import com.palmergames.bukkit.towny.event.NationAcceptAllyRequestEvent;
+import com.palmergames.bukkit.towny.event.NationAddAllyEvent;
+import com.palmergames.bukkit.towny.event.NationAddTownEvent;
+import com.palmergames.bukkit.towny.event.NationRemoveAllyEvent;
+import com.palmergames.bukkit.towny.event.NationRemoveTownEvent;
+import com.palmergames.bukkit.towny.event.NewDayEvent;
+import com.palmergames.bukkit.towny.event.NewTownEvent;
+import com.palmergames.bukkit.towny.event.RenameTownEvent;
+import com.palmergames.bukkit.towny.event.TownAddResidentEvent;
+import com.palmergames.bukkit.towny.event.TownClaimEvent;
+import com.palmergames.bukkit.towny.event.TownRemoveResidentEvent;
+import com.palmergames.bukkit.towny.event.TownUnclaimEvent;
+import com.palmergames.bukkit.towny.event.TownyLoadedDatabaseEvent;
+import com.palmergames.bukkit.towny.event.town.TownMergeEvent;
+import com.palmergames.bukkit.towny.event.town.TownTrustAddEvent;
+import com.palmergames.bukkit.towny.event.town.TownTrustRemoveEvent;
+import com.palmergames.bukkit.towny.object.Nation;
+import com.palmergames.bukkit.towny.object.Town;
+import com.palmergames.bukkit.towny.object.TownBlock;
+import com.palmergames.bukkit.towny.object.WorldCoord;
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.cache.ClaimChangeListener;
+import dev.cwhead.GravesXAddon.cache.TownRelationGraph;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Listener for Towny town, resident, claim, nation, alliance and trust changes.
+ *
+ * This listener keeps the town block and resident indexes, the town relation graph and the cached land protection
+ * decisions in sync with Towny by recording new, claimed, unclaimed, deleted, merged and renamed towns, residents
+ * joining or leaving them, towns joining or leaving nations, alliances and trusted residents, by dropping the
+ * decisions those changes affect and by marking the Towny snapshot as changed. Town block changes are published by the
+ * town block index once per tick, so the decisions inside changed town blocks are dropped once they are published.
+ */
+public class TownyListener implements Listener, ClaimChangeListener {
+
+    private final LandProtection plugin;
+
+    /**
+     * Constructor for the listener. Initializes the plugin instance.
+     *
+     * @param plugin The LandProtection plugin instance.
+     */
+    public TownyListener(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Handles a resident joining a town.
+     *
+     * @param event The TownAddResidentEvent that contains the resident and the town.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTownAddResident(TownAddResidentEvent event) {
+        plugin.getTowny().getResidentIndex().addResident(event.getTown().getUUID(), event.getResident().getUUID());
+        plugin.getTowny().getRelationGraph().residentsChanged(event.getTown().getUUID());
+        plugin.getDecisionCache().invalidatePlayer(event.getResident().getUUID());
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a resident leaving or being kicked from a town.
+     *
+     * @param event The TownRemoveResidentEvent that contains the resident and the town.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTownRemoveResident(TownRemoveResidentEvent event) {
+        plugin.getTowny().getResidentIndex().removeResident(event.getTown().getUUID(), event.getResident().getUUID());
+        plugin.getTowny().getRelationGraph().residentsChanged(event.getTown().getUUID());
+        plugin.getDecisionCache().invalidatePlayer(event.getResident().getUUID());
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a new town being founded with its mayor as the first resident. Towny claims the home block of the
+     * town without a {@code TownClaimEvent}, so the town blocks of the new town are indexed here.
+     *
+     * @param event The NewTownEvent that contains the new town.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onNewTown(NewTownEvent event) {
+        Town town = event.getTown();
+
+        plugin.getTowny().getResidentIndex().addTown(town);
+
+        for (TownBlock townBlock : town.getTownBlocks()) {
+            plugin.getTowny().getChunkIndex().claim(townBlock.getWorldCoord().getWorldName(),
+                    townBlock.getX(), townBlock.getZ(), town.getUUID(), town.getName());
+        }
+
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a town claiming a town block.
+     *
+     * @param event The TownClaimEvent that contains the claimed town block.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTownClaim(TownClaimEvent event) {
+        TownBlock townBlock = event.getTownBlock();
+        Town town = townBlock.getTownOrNull();
+
+        if (town != null) {
+            plugin.getTowny().getChunkIndex().claim(townBlock.getWorldCoord().getWorldName(),
+                    townBlock.getX(), townBlock.getZ(), town.getUUID(), town.getName());
+        }
+    }
+
+    /**
+     * Handles a town unclaiming a town block.
+     *
+     * @param event The TownUnclaimEvent that contains the unclaimed town block.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTownUnclaim(TownUnclaimEvent event) {
+        WorldCoord worldCoord = event.getWorldCoord();
+
+        plugin.getTowny().getChunkIndex().unclaim(worldCoord.getWorldName(), worldCoord.getX(), worldCoord.getZ());
+    }
+
+    /**
+     * Handles a town being deleted, which unclaims all of its town blocks at once. Only the town blocks still indexed
+     * for the deleted town are removed, so town blocks a merge moved to another town stay claimed.
+     *
+     * @param event The DeleteTownEvent that contains the deleted town.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDeleteTown(DeleteTownEvent event) {
+        plugin.getTowny().getChunkIndex().removeTown(event.getTownUUID());
+        plugin.getTowny().getResidentIndex().removeTown(event.getTownUUID());
+        plugin.getTowny().getRelationGraph().removeTown(event.getTownUUID());
+        plugin.getDecisionCache().invalidateAll();
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a town being merged into another town. Towny moves the town blocks and residents of the merged town to
+     * the remaining town without a {@code TownClaimEvent} or {@code TownAddResidentEvent}, and deletes the merged town
+     * with a {@code DeleteTownEvent}, so the town blocks and residents of the remaining town are indexed again here.
+     * The changes of both events are published together on the next tick, in whichever order Towny fires them.
+     *
+     * @param event The TownMergeEvent that contains the remaining town.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTownMerge(TownMergeEvent event) {
+        Town town = event.getRemainingTown();
+
+        for (TownBlock townBlock : town.getTownBlocks()) {
+            plugin.getTowny().getChunkIndex().claim(townBlock.getWorldCoord().getWorldName(),
+                    townBlock.getX(), townBlock.getZ(), town.getUUID(), town.getName());
+        }
+
+        plugin.getTowny().getResidentIndex().addTown(town);
+        plugin.getTowny().getRelationGraph().residentsChanged(town.getUUID());
+        plugin.getDecisionCache().invalidateAll();
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a town being renamed.
+     *
+     * @param event The RenameTownEvent that contains the renamed town.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRenameTown(RenameTownEvent event) {
+        plugin.getTowny().getChunkIndex().renameTown(event.getTown().getUUID(), event.getTown().getName());
+        plugin.getTowny().getResidentIndex().renameTown(event.getOldName(), event.getTown());
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles Towny (re)loading its database, after which every town block is indexed again.
+     *
+     * @param event The TownyLoadedDatabaseEvent.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTownyLoadedDatabase(TownyLoadedDatabaseEvent event) {
+        plugin.getTowny().getChunkIndex().rebuild(TownyAPI.getInstance());
+        plugin.getTowny().getResidentIndex().rebuild(TownyAPI.getInstance());
+        plugin.getTowny().getRelationGraph().rebuild(TownyAPI.getInstance());
+        plugin.getDecisionCache().invalidateAll();
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a town joining a nation, after which its residents and the residents of its new nation and allies
+     * are related.
+     *
+     * @param event The NationAddTownEvent that contains the town and the nation.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onNationAddTown(NationAddTownEvent event) {
+        plugin.getTowny().getRelationGraph().setNation(event.getTown().getUUID(), event.getNation().getUUID());
+        invalidateRelations();
+    }
+
+    /**
+     * Handles a town leaving or being kicked from a nation.
+     *
+     * @param event The NationRemoveTownEvent that contains the town and the nation.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onNationRemoveTown(NationRemoveTownEvent event) {
+        plugin.getTowny().getRelationGraph().setNation(event.getTown().getUUID(), null);
+        invalidateRelations();
+    }
+
+    /**
+     * Handles a nation adding another nation as its ally.
+     *
+     * @param event The NationAddAllyEvent that contains the nation and its new ally.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNationAddAlly(NationAddAllyEvent event) {
+        plugin.getTowny().getRelationGraph().setAllied(event.getNation().getUUID(), event.getNewAlly().getUUID(), true);
+        syncAllies(event.getNation(), event.getNewAlly());
+    }
+
+    /**
+     * Handles a nation accepting the ally request of another nation, after which both nations list each other as
+     * allies.
+     *
+     * @param event The NationAcceptAllyRequestEvent that contains both nations.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNationAcceptAllyRequest(NationAcceptAllyRequestEvent event) {
+        plugin.getTowny().getRelationGraph().setAllied(event.getSenderNation().getUUID(),
+                event.getReceiverNation().getUUID(), true);
+        plugin.getTowny().getRelationGraph().setAllied(event.getReceiverNation().getUUID(),
+                event.getSenderNation().getUUID(), true);
+        syncAllies(event.getSenderNation(), event.getReceiverNation());
+    }
+
+    /**
+     * Handles a nation removing another nation from its allies.
+     *
+     * @param event The NationRemoveAllyEvent that contains the nation and the removed ally.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNationRemoveAlly(NationRemoveAllyEvent event) {
+        plugin.getTowny().getRelationGraph().setAllied(event.getNation().getUUID(),
+                event.getRemovedNation().getUUID(), false);
+        syncAllies(event.getNation(), event.getRemovedNation());
+    }
+
+    /**
+     * Handles a nation being deleted, after which the relations of every town are computed again.
+     *
+     * @param event The DeleteNationEvent.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDeleteNation(DeleteNationEvent event) {
+        plugin.getTowny().getRelationGraph().rebuild(TownyAPI.getInstance());
+        invalidateRelations();
+    }
+
+    /**
+     * Handles a town starting to trust a resident.
+     *
+     * @param event The TownTrustAddEvent that contains the town and the trusted resident.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTownTrustAdd(TownTrustAddEvent event) {
+        plugin.getTowny().getRelationGraph().setTrusted(event.getTown().getUUID(), event.getTrustedResident().getUUID(), true);
+        plugin.getDecisionCache().invalidatePlayer(event.getTrustedResident().getUUID());
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a town no longer trusting a resident.
+     *
+     * @param event The TownTrustRemoveEvent that contains the town and the resident.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTownTrustRemove(TownTrustRemoveEvent event) {
+        plugin.getTowny().getRelationGraph().setTrusted(event.getTown().getUUID(), event.getTrustedResident().getUUID(), false);
+        plugin.getDecisionCache().invalidatePlayer(event.getTrustedResident().getUUID());
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Handles a new Towny day, during which towns and nations may have fallen or been deleted for upkeep. The
+     * relations of every town are computed again.
+     *
+     * @param event The NewDayEvent.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onNewDay(NewDayEvent event) {
+        plugin.getTowny().getRelationGraph().rebuild(TownyAPI.getInstance());
+        invalidateRelations();
+    }
+
+    /**
+     * Drops the decisions the alliance change of two nations affects and, on the next tick, copies the allies
+     * Towny lists for both nations into the relation graph. Towny fires some ally events before changing the
+     * allies, and may change the allies of the other nation without an event of its own, so the graph follows
+     * {@code Nation.getAllies()} once the change is applied.
+     *
+     * @param nation The nation whose allies changed.
+     * @param other The nation that was added to or removed from its allies.
+     */
+    private void syncAllies(Nation nation, Nation other) {
+        invalidateRelations();
+        plugin.getTaskScheduler().runGlobal(() -> {
+            TownRelationGraph relationGraph = plugin.getTowny().getRelationGraph();
+
+            relationGraph.setAllies(nation.getUUID(), allyUUIDs(nation));
+            relationGraph.setAllies(other.getUUID(), allyUUIDs(other));
+            invalidateRelations();
+        });
+    }
+
+    /**
+     * Collects the UUIDs of the allies of a nation.
+     *
+     * @param nation The nation.
+     * @return The UUIDs of the nations the nation lists as allies.
+     */
+    private static Set<UUID> allyUUIDs(Nation nation) {
+        Set<UUID> allies = new HashSet<>();
+
+        for (Nation ally : nation.getAllies()) {
+            allies.add(ally.getUUID());
+        }
+
+        return allies;
+    }
+
+    /**
+     * Drops every cached decision after the nations or alliances of towns changed, which can relate every resident
+     * of a nation to many towns at once, and marks the Towny snapshot as changed.
+     */
+    private void invalidateRelations() {
+        plugin.getDecisionCache().invalidateAll();
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+
+    /**
+     * Drops the cached decisions made inside town blocks whose owner changed once the change is published, and
+     * marks the Towny snapshot as changed.
+     *
+     * @param worldName The name of the world.
+     * @param minX The minimum block x coordinate, inclusive.
+     * @param minZ The minimum block z coordinate, inclusive.
+     * @param maxX The maximum block x coordinate, inclusive.
+     * @param maxZ The maximum block z coordinate, inclusive.
+     */
+    @Override
+    public void claimsChanged(String worldName, int minX, int minZ, int maxX, int maxZ) {
+        plugin.getDecisionCache().invalidateArea(worldName, minX, minZ, maxX, maxZ);
+        plugin.getSnapshotManager().markTownyDirty();
+    }
+}
@@ -0,0 +1,132 @@
+package dev.cwhead.GravesXAddon.listener;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Listener for WorldGuard region commands.
+ *
+ * WorldGuard does not fire events when regions change, so this listener watches for region commands that change
+ * regions and marks the region data of the world they changed as changed shortly after they run. Read-only
+ * commands such as {@code /rg info} and {@code /rg list} are ignored. Changes made through the WorldGuard API by
+ * other plugins are picked up by the sweep of the region tracker instead.
+ */
+public class WorldGuardRegionListener implements Listener {
+
+    /**
+     * Ticks to wait before re-reading regions, as some region commands complete asynchronously.
+     */
+    private static final long CHANGE_DELAY_TICKS = 20L;
+
+    private static final Set<String> REGION_COMMANDS = Set.of("rg", "region", "regions");
+
+    private static final Set<String> WORLDGUARD_COMMANDS = Set.of("worldguard", "wg");
+
+    /**
+     * The region subcommands and their aliases that change the regions of a single world.
+     */
+    private static final Set<String> WORLD_SUBCOMMANDS = Set.of(
+            "define", "def", "d", "create",
+            "redefine", "update", "move",
+            "claim",
+            "flag", "f",
+            "setpriority", "priority", "pri",
+            "setparent", "parent", "par",
+            "remove", "rem", "delete", "del",
+            "addmember", "addmem", "am",
+            "addowner", "ao",
+            "removemember", "remmember", "removemem", "remmem", "rm",
+            "removeowner", "ro");
+
+    /**
+     * The region subcommands that may change the regions of every world.
+     */
+    private static final Set<String> ALL_WORLD_SUBCOMMANDS = Set.of(
+            "load", "reload", "migratedb", "migrateuuid", "migrateheights");
+
+    private final LandProtection plugin;
+
+    /**
+     * Constructor for the listener. Initializes the plugin instance.
+     *
+     * @param plugin The LandProtection plugin instance.
+     */
+    public WorldGuardRegionListener(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Handles region commands run by players. Region commands apply to the world of the player unless another
+     * world is given with {@code -w}.
+     *
+     * @param event The PlayerCommandPreprocessEvent that contains the command line.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        handleCommand(event.getMessage().substring(1), event.getPlayer().getWorld().getName());
+    }
+
+    /**
+     * Handles region commands run by the console or command blocks, which have to give the world with
+     * {@code -w}.
+     *
+     * @param event The ServerCommandEvent that contains the command line.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(ServerCommandEvent event) {
+        handleCommand(event.getCommand(), null);
+    }
+
+    /**
+     * Schedules a region change if the command line is a WorldGuard command that changes regions.
+     *
+     * @param commandLine The command line without a leading slash.
+     * @param senderWorld The name of the world of the sender, or {@code null} if the sender has no world.
+     */
+    private void handleCommand(String commandLine, String senderWorld) {
+        String[] args = commandLine.trim().split("\\s+");
+        String label = args[0].toLowerCase(Locale.ROOT);
+        String subcommand = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "";
+
+        if (label.startsWith("worldguard:")) {
+            label = label.substring("worldguard:".length());
+        }
+
+        if (WORLDGUARD_COMMANDS.contains(label) && subcommand.equals("reload")
+                || REGION_COMMANDS.contains(label) && ALL_WORLD_SUBCOMMANDS.contains(subcommand)) {
+            plugin.getTaskScheduler().runGlobalLater(
+                    () -> plugin.getWorldGuard().getRegionTracker().markAllChanged(), CHANGE_DELAY_TICKS);
+        } else if (REGION_COMMANDS.contains(label) && WORLD_SUBCOMMANDS.contains(subcommand)) {
+            String worldName = getWorldFlag(args, senderWorld);
+
+            if (worldName != null) {
+                plugin.getTaskScheduler().runGlobalLater(
+                        () -> plugin.getWorldGuard().getRegionTracker().markChanged(worldName), CHANGE_DELAY_TICKS);
+            }
+        }
+    }
+
+    /**
+     * Gets the world given with the {@code -w} flag of a region command.
+     *
+     * @param args The arguments of the command line, including the label.
+     * @param senderWorld The world of the sender, used if no world is given.
+     * @return The name of the world, or {@code null} if neither a world is given nor the sender has one.
+     */
+    private static String getWorldFlag(String[] args, String senderWorld) {
+        for (int i = 2; i < args.length - 1; i++) {
+            if (args[i].equals("-w")) {
+                return args[i + 1];
+            }
+        }
+
+        return senderWorld;
+    }
+}
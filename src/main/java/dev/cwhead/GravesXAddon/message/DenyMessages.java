@@ -0,0 +1,189 @@
+package dev.cwhead.GravesXAddon.message;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code DenyMessages} class sends the message of a denied grave action to the player. The message templates
+ * are read from the {@code messages} section of the config and colored once when loaded, so sending a message
+ * never builds a string. Reloaded templates replace the previous ones in a single write.
+ * <p>
+ * Messages are rate limited per player and action by a configurable cooldown, and a message identical to the
+ * last one sent to the player is dropped within the dedupe window, so continuously firing events such as walking
+ * over a grave don't flood the client. Sent and suppressed messages are counted per action. The rate limits of
+ * a player are checked and updated under the lock of the player, so events of the same player on several region
+ * threads on Folia never send a message twice.
+ */
+public class DenyMessages {
+    private static final int ACTIONS = GraveAction.values().length;
+
+    private final LongAdder[] sent = new LongAdder[ACTIONS];
+    private final LongAdder[] suppressed = new LongAdder[ACTIONS];
+    private final Map<UUID, State> states = new ConcurrentHashMap<>();
+    private volatile Templates templates = Templates.DEFAULT;
+
+    /**
+     * Constructs a {@code DenyMessages} object with the default message of every action and no rate limits.
+     */
+    public DenyMessages() {
+        for (GraveAction action : GraveAction.values()) {
+            sent[action.ordinal()] = new LongAdder();
+            suppressed[action.ordinal()] = new LongAdder();
+        }
+    }
+
+    /**
+     * Replaces the message templates, cooldowns and dedupe window. The rate limits of players are kept.
+     *
+     * @param templates the precompiled templates
+     */
+    public void apply(Templates templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Sends the deny message of an action to a player, unless the action is still on cooldown for the player
+     * or the same message was sent to them within the dedupe window.
+     *
+     * @param player the player to send the message to
+     * @param action the denied grave action
+     * @return {@code true} if the message was sent, {@code false} if it was suppressed or is disabled
+     */
+    public boolean send(Player player, GraveAction action) {
+        return send(player, action, System.currentTimeMillis());
+    }
+
+    /**
+     * Sends the deny message of an action to a player at the specified time, the same way as
+     * {@link #send(Player, GraveAction)}.
+     *
+     * @param player the player to send the message to
+     * @param action the denied grave action
+     * @param now the current time in milliseconds
+     * @return {@code true} if the message was sent, {@code false} if it was suppressed or is disabled
+     */
+    boolean send(Player player, GraveAction action, long now) {
+        Templates current = templates;
+        String message = current.messages[action.ordinal()];
+
+        if (message == null) {
+            return false;
+        }
+
+        State state = states.computeIfAbsent(player.getUniqueId(), uuid -> new State());
+
+        synchronized (state) {
+            if (now - state.lastSent[action.ordinal()] < current.cooldowns[action.ordinal()]
+                    || (message.equals(state.lastMessage) && now - state.lastMessageTime < current.dedupeWindowMillis)) {
+                suppressed[action.ordinal()].increment();
+                return false;
+            }
+
+            state.lastSent[action.ordinal()] = now;
+            state.lastMessage = message;
+            state.lastMessageTime = now;
+        }
+
+        sent[action.ordinal()].increment();
+        player.sendMessage(message);
+        return true;
+    }
+
+    /**
+     * Gets the number of deny messages of an action that were sent.
+     *
+     * @param action the grave action
+     * @return the number of sent messages
+     */
+    public long getSent(GraveAction action) {
+        return sent[action.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of deny messages of an action that were suppressed by the cooldown or dedupe window.
+     *
+     * @param action the grave action
+     * @return the number of suppressed messages
+     */
+    public long getSuppressed(GraveAction action) {
+        return suppressed[action.ordinal()].sum();
+    }
+
+    /**
+     * Forgets the rate limits of a player.
+     *
+     * @param player the UUID of the player
+     */
+    public void remove(UUID player) {
+        states.remove(player);
+    }
+
+    /**
+     * The precompiled message templates, cooldowns and dedupe window loaded from the config. Templates never
+     * change once loaded, so a message is always sent with the cooldown it was configured with.
+     */
+    public static final class Templates {
+        /**
+         * The default message of every action, without rate limits.
+         */
+        public static final Templates DEFAULT = new Templates();
+
+        private final String[] messages = new String[ACTIONS];
+        private final long[] cooldowns = new long[ACTIONS];
+        private long dedupeWindowMillis;
+
+        private Templates() {
+            for (GraveAction action : GraveAction.values()) {
+                messages[action.ordinal()] = action.getDenyMessage();
+            }
+        }
+
+        /**
+         * Loads and precompiles the message templates, cooldowns and dedupe window. Actions without a configured
+         * template keep their default message, an empty template disables the message of the action.
+         *
+         * @param section the {@code messages} section of the config, may be {@code null}
+         * @return the templates
+         */
+        public static Templates load(ConfigurationSection section) {
+            Templates templates = new Templates();
+
+            if (section == null) {
+                return templates;
+            }
+
+            String prefix = section.getString("prefix", "");
+
+            for (GraveAction action : GraveAction.values()) {
+                String template = section.getString("deny." + action.getConfigKey());
+
+                if (template != null) {
+                    templates.messages[action.ordinal()] = template.isEmpty() ? null
+                            : ChatColor.translateAlternateColorCodes('&', prefix + template);
+                }
+
+                templates.cooldowns[action.ordinal()] = Math.max(0L, section.getLong("cooldown." + action.getConfigKey(), 0L));
+            }
+
+            templates.dedupeWindowMillis = Math.max(0L, section.getLong("dedupe-window", 0L));
+
+            return templates;
+        }
+    }
+
+    /**
+     * The time and text of the last messages sent to a single player, guarded by the state itself.
+     */
+    private static final class State {
+        private final long[] lastSent = new long[ACTIONS];
+        private String lastMessage;
+        private long lastMessageTime;
+    }
+}
@@ -0,0 +1,70 @@
+package dev.cwhead.GravesXAddon.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latency and outcome counters of a single grave action evaluated by a single provider.
+ */
+public class ActionMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Records an evaluation.
+     *
+     * @param nanos the time the evaluation took in nanoseconds
+     * @param allow {@code true} if the action was allowed, {@code false} if it was denied
+     */
+    public void record(long nanos, boolean allow) {
+        latency.record(nanos);
+        (allow ? allowed : denied).increment();
+    }
+
+    /**
+     * Records an evaluation that failed with an exception.
+     *
+     * @param nanos the time until the evaluation failed in nanoseconds
+     */
+    public void recordError(long nanos) {
+        latency.record(nanos);
+        errors.increment();
+    }
+
+    /**
+     * Gets the latency histogram of the evaluations.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the number of allowed evaluations.
+     *
+     * @return the allow count
+     */
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    /**
+     * Gets the number of denied evaluations.
+     *
+     * @return the deny count
+     */
+    public long getDenied() {
+        return denied.sum();
+    }
+
+    /**
+     * Gets the number of failed evaluations.
+     *
+     * @return the error count
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+}
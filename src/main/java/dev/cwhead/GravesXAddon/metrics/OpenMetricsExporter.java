@@ -0,0 +1,139 @@
+package dev.cwhead.GravesXAddon.metrics;
+
+import dev.cwhead.GravesXAddon.cache.DecisionCache;
+import dev.cwhead.GravesXAddon.message.DenyMessages;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code OpenMetricsExporter} class renders {@link ProtectionMetrics}, the decision cache counters and the
+ * deny message counters in the OpenMetrics text format and writes them to a file, which can be collected by a
+ * node exporter textfile collector or any other OpenMetrics scraper.
+ */
+public class OpenMetricsExporter {
+    private static final double[] QUANTILES = {0.5D, 0.99D};
+
+    private final ProtectionMetrics metrics;
+    private final DecisionCache decisionCache;
+    private final DenyMessages denyMessages;
+
+    /**
+     * Constructs an {@code OpenMetricsExporter} object.
+     *
+     * @param metrics the metrics to export
+     * @param decisionCache the decision cache to export the counters of
+     * @param denyMessages the deny messages to export the counters of
+     */
+    public OpenMetricsExporter(ProtectionMetrics metrics, DecisionCache decisionCache, DenyMessages denyMessages) {
+        this.metrics = metrics;
+        this.decisionCache = decisionCache;
+        this.denyMessages = denyMessages;
+    }
+
+    /**
+     * Writes the metrics to a file. The file is replaced atomically, so scrapers never read a partial file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void export(Path file) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        Files.createDirectories(file.getParent());
+        Files.write(temporaryFile, render().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Renders the metrics in the OpenMetrics text format.
+     *
+     * @return the rendered metrics
+     */
+    public String render() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("# TYPE gravesx_landprotection_checks counter\n");
+        builder.append("# HELP gravesx_landprotection_checks Grave action checks by provider, action and result.\n");
+
+        for (Map.Entry<String, ActionMetrics[]> provider : metrics.getProviders().entrySet()) {
+            for (GraveAction action : GraveAction.values()) {
+                ActionMetrics actionMetrics = provider.getValue()[action.ordinal()];
+
+                appendCheck(builder, provider.getKey(), action, "allow", actionMetrics.getAllowed());
+                appendCheck(builder, provider.getKey(), action, "deny", actionMetrics.getDenied());
+                appendCheck(builder, provider.getKey(), action, "error", actionMetrics.getErrors());
+            }
+        }
+
+        builder.append("# TYPE gravesx_landprotection_check_latency_seconds summary\n");
+        builder.append("# HELP gravesx_landprotection_check_latency_seconds Grave action check latency by provider and action.\n");
+
+        for (Map.Entry<String, ActionMetrics[]> provider : metrics.getProviders().entrySet()) {
+            for (GraveAction action : GraveAction.values()) {
+                LatencyHistogram latency = provider.getValue()[action.ordinal()].getLatency();
+                String labels = labels(provider.getKey(), action);
+
+                for (double quantile : QUANTILES) {
+                    builder.append("gravesx_landprotection_check_latency_seconds{").append(labels)
+                            .append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(seconds(latency.getPercentile(quantile))).append('\n');
+                }
+
+                builder.append("gravesx_landprotection_check_latency_seconds_sum{").append(labels).append("} ")
+                        .append(seconds(latency.getSum())).append('\n');
+                builder.append("gravesx_landprotection_check_latency_seconds_count{").append(labels).append("} ")
+                        .append(latency.getCount()).append('\n');
+            }
+        }
+
+        builder.append("# TYPE gravesx_landprotection_check_latency_max_seconds gauge\n");
+        builder.append("# HELP gravesx_landprotection_check_latency_max_seconds Highest grave action check latency by provider and action.\n");
+
+        for (Map.Entry<String, ActionMetrics[]> provider : metrics.getProviders().entrySet()) {
+            for (GraveAction action : GraveAction.values()) {
+                builder.append("gravesx_landprotection_check_latency_max_seconds{").append(labels(provider.getKey(), action))
+                        .append("} ").append(seconds(provider.getValue()[action.ordinal()].getLatency().getMax())).append('\n');
+            }
+        }
+
+        builder.append("# TYPE gravesx_landprotection_decision_cache_lookups counter\n");
+        builder.append("# HELP gravesx_landprotection_decision_cache_lookups Decision cache lookups by result.\n");
+        builder.append("gravesx_landprotection_decision_cache_lookups_total{result=\"hit\"} ").append(decisionCache.getHits()).append('\n');
+        builder.append("gravesx_landprotection_decision_cache_lookups_total{result=\"miss\"} ").append(decisionCache.getMisses()).append('\n');
+        builder.append("# TYPE gravesx_landprotection_deny_messages counter\n");
+        builder.append("# HELP gravesx_landprotection_deny_messages Deny messages by action and whether they were sent or suppressed.\n");
+
+        for (GraveAction action : GraveAction.values()) {
+            String labels = "action=\"" + action.name().toLowerCase(Locale.ROOT) + "\"";
+
+            builder.append("gravesx_landprotection_deny_messages_total{").append(labels).append(",result=\"sent\"} ")
+                    .append(denyMessages.getSent(action)).append('\n');
+            builder.append("gravesx_landprotection_deny_messages_total{").append(labels).append(",result=\"suppressed\"} ")
+                    .append(denyMessages.getSuppressed(action)).append('\n');
+        }
+
+        builder.append("# EOF\n");
+
+        return builder.toString();
+    }
+
+    private static void appendCheck(StringBuilder builder, String provider, GraveAction action, String result, long value) {
+        builder.append("gravesx_landprotection_checks_total{").append(labels(provider, action))
+                .append(",result=\"").append(result).append("\"} ").append(value).append('\n');
+    }
+
+    private static String labels(String provider, GraveAction action) {
+        return "provider=\"" + provider + "\",action=\"" + action.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000D);
+    }
+}
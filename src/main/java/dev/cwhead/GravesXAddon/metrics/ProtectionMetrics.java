@@ -0,0 +1,49 @@
+package dev.cwhead.GravesXAddon.metrics;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code ProtectionMetrics} class holds the {@link ActionMetrics} of every grave action for every
+ * provider. The combined result of all providers, including cached decisions, is recorded under
+ * {@link #TOTAL}. Callers should keep the array returned by {@link #provider(String)} so recording an
+ * evaluation is a plain array access.
+ */
+public class ProtectionMetrics {
+    /**
+     * The provider name the combined decision of all providers is recorded under.
+     */
+    public static final String TOTAL = "total";
+
+    private final Map<String, ActionMetrics[]> providers = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the metrics of every grave action for a provider, indexed by {@link GraveAction#ordinal()}.
+     *
+     * @param provider the name of the provider
+     * @return the metrics of the provider
+     */
+    public ActionMetrics[] provider(String provider) {
+        return providers.computeIfAbsent(provider, name -> {
+            ActionMetrics[] metrics = new ActionMetrics[GraveAction.values().length];
+
+            for (int i = 0; i < metrics.length; i++) {
+                metrics[i] = new ActionMetrics();
+            }
+
+            return metrics;
+        });
+    }
+
+    /**
+     * Gets the metrics of every provider.
+     *
+     * @return an unmodifiable view of the provider names to their metrics
+     */
+    public Map<String, ActionMetrics[]> getProviders() {
+        return Collections.unmodifiableMap(providers);
+    }
+}
@@ -0,0 +1,351 @@
+package dev.cwhead.GravesXAddon.provider;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.metrics.ActionMetrics;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.trace.DecisionRecord;
+import dev.cwhead.GravesXAddon.trace.DecisionTracer;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code ProtectionEngine} class evaluates grave actions against every registered {@link ProtectionProvider}
+ * and stops at the first provider that denies, so the remaining providers are never queried.
+ * <p>
+ * The order of the providers is kept per world and action. It is either taken from the config, or adaptive, in
+ * which case the providers are ordered by their measured cost divided by their deny rate, so a cheap provider
+ * that denies most checks, such as Towny in town-heavy worlds, runs first. On average every
+ * {@link #REORDER_INTERVAL}th evaluation of an adaptive order queries all providers to keep the measurements of
+ * the later ones current. Measurements may lose an update when region threads on Folia evaluate at once, which
+ * only makes the averages a little less smooth.
+ * Providers that are not active in a world, as configured under {@code providers.active}, are left out of the
+ * order of that world.
+ * <p>
+ * Before any provider is queried, every active provider is asked whether it may deny the action in the chunk of
+ * the location at all. In the wilderness none of them may, and the action is allowed right away.
+ */
+public class ProtectionEngine {
+    /**
+     * The average number of evaluations between two reorders of an adaptive order. Evaluations are sampled
+     * at random instead of counted, so region threads on Folia share no counter.
+     */
+    public static final int REORDER_INTERVAL = 64;
+
+    private static final double SMOOTHING = 0.05D;
+
+    private static final double MIN_DENY_RATE = 0.001D;
+
+    private final LandProtection plugin;
+    private final List<ProtectionProvider> providers = new ArrayList<>();
+    private final List<ActionMetrics[]> providerMetrics = new ArrayList<>();
+    private final LongAdder wildernessHits = new LongAdder();
+    private volatile Layout layout = new Layout(ProviderOrder.ADAPTIVE, ProviderActivation.ALL);
+
+    /**
+     * Constructs a {@code ProtectionEngine} object without providers and with adaptive ordering.
+     *
+     * @param plugin the {@code LandProtection} plugin instance
+     */
+    public ProtectionEngine(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Registers a provider. Providers are evaluated in registration order until an adaptive order is measured.
+     *
+     * @param provider the provider to register
+     */
+    public void register(ProtectionProvider provider) {
+        providers.add(provider);
+        providerMetrics.add(plugin.getMetrics().provider(provider.getName()));
+        layout = new Layout(layout.order, layout.activation);
+    }
+
+    /**
+     * Replaces the order and activation of the providers. Both are published together in a single write, so an
+     * evaluation in progress keeps using the previous ones and the next evaluation sees both new ones. The
+     * measurements of adaptive orders start over.
+     *
+     * @param order the order of the providers
+     * @param activation the worlds each provider is active in
+     */
+    public void configure(ProviderOrder order, ProviderActivation activation) {
+        layout = new Layout(order, activation);
+    }
+
+    /**
+     * Gets the registered providers in registration order.
+     *
+     * @return an unmodifiable list of providers
+     */
+    public List<ProtectionProvider> getProviders() {
+        return Collections.unmodifiableList(providers);
+    }
+
+    /**
+     * Evaluates whether a player may perform a grave action at a location. Actions in chunks no active provider
+     * protects are allowed right away, elsewhere the providers are queried in the order of the world and action
+     * until one denies.
+     *
+     * @param player the player performing the action
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if every provider allows the action, {@code false} otherwise
+     */
+    public boolean evaluate(Player player, Location location, GraveAction action) {
+        return evaluate(plugin.getSessions().get(player), location, action);
+    }
+
+    /**
+     * Evaluates whether the player of a session may perform a grave action at a location, the same way as
+     * {@link #evaluate(Player, Location, GraveAction)}. Providers read what they resolved for the player from the
+     * session instead of resolving it again.
+     *
+     * @param session the session of the player performing the action
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if every provider allows the action, {@code false} otherwise
+     */
+    public boolean evaluate(ProtectionSession session, Location location, GraveAction action) {
+        if (providers.isEmpty()) {
+            return true;
+        }
+
+        Player player = session.getPlayer();
+
+        ActionState state = getWorld(layout, location.getWorld() != null ? location.getWorld().getName() : "")[action.ordinal()];
+
+        if (isWilderness(state.order, location, action)) {
+            wildernessHits.increment();
+            trace(player, location, action, "wilderness", null, true, 0L);
+            return true;
+        }
+
+        boolean measureAll = state.adaptive && ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0;
+        boolean allowed = true;
+
+        for (int index : state.order) {
+            ProtectionProvider provider = providers.get(index);
+            ActionMetrics metrics = providerMetrics.get(index)[action.ordinal()];
+            long start = System.nanoTime();
+            boolean result;
+
+            try {
+                result = provider.isAllowed(session, location, action);
+            } catch (RuntimeException exception) {
+                metrics.recordError(System.nanoTime() - start);
+                throw exception;
+            }
+
+            long nanos = System.nanoTime() - start;
+
+            metrics.record(nanos, result);
+            state.measure(index, nanos, result);
+            trace(player, location, action, provider.getName(), provider, result, nanos);
+            allowed &= result;
+
+            if (!allowed && !measureAll) {
+                break;
+            }
+        }
+
+        if (measureAll) {
+            state.reorder();
+        }
+
+        return allowed;
+    }
+
+    /**
+     * Gets the number of evaluations that were allowed without querying a provider, because no active provider
+     * protects the chunk.
+     *
+     * @return the number of wilderness evaluations
+     */
+    public long getWildernessHits() {
+        return wildernessHits.sum();
+    }
+
+    /**
+     * Records a decision that was answered from a cache instead of the providers with the tracer.
+     *
+     * @param player the player performing the action
+     * @param location the location of the action
+     * @param action the grave action
+     * @param allowed the cached decision
+     */
+    public void traceCached(Player player, Location location, GraveAction action, boolean allowed) {
+        trace(player, location, action, "cache", null, allowed, 0L);
+    }
+
+    /**
+     * Records a decision that was allowed by a bypass permission of the player, without querying a provider,
+     * with the tracer.
+     *
+     * @param player the player performing the action
+     * @param location the location of the action
+     * @param action the grave action
+     */
+    public void traceBypass(Player player, Location location, GraveAction action) {
+        trace(player, location, action, "bypass", null, true, 0L);
+    }
+
+    /**
+     * Gets the current order of the providers in a world for an action.
+     *
+     * @param worldName the name of the world
+     * @param action the grave action
+     * @return the provider names in evaluation order
+     */
+    public List<String> getOrder(String worldName, GraveAction action) {
+        List<String> names = new ArrayList<>();
+
+        for (int index : getWorld(layout, worldName)[action.ordinal()].order) {
+            names.add(providers.get(index).getName());
+        }
+
+        return names;
+    }
+
+    private boolean isWilderness(int[] order, Location location, GraveAction action) {
+        for (int index : order) {
+            if (providers.get(index).mayDeny(location, action)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private ActionState[] getWorld(Layout current, String worldName) {
+        ActionState[] states = current.worlds.get(worldName);
+
+        return states != null ? states : current.worlds.computeIfAbsent(worldName, name -> createWorld(current, name));
+    }
+
+    private ActionState[] createWorld(Layout current, String worldName) {
+        List<String> configuredOrder = current.order.get(worldName);
+        int[] order = resolve(current.activation, worldName,
+                configuredOrder != null ? configuredOrder : Collections.emptyList());
+        ActionState[] states = new ActionState[GraveAction.values().length];
+
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new ActionState(providers.size(), order.clone(), configuredOrder == null);
+        }
+
+        return states;
+    }
+
+    /**
+     * Resolves a configured order of provider names to the indexes of the providers active in a world. Unknown
+     * names are ignored and active providers that are not listed are appended in registration order.
+     */
+    private int[] resolve(ProviderActivation activation, String worldName, List<String> names) {
+        List<Integer> indexes = new ArrayList<>();
+
+        for (String name : names) {
+            for (int index = 0; index < providers.size(); index++) {
+                if (providers.get(index).getName().equals(name.toLowerCase(Locale.ROOT)) && !indexes.contains(index)) {
+                    indexes.add(index);
+                }
+            }
+        }
+
+        for (int index = 0; index < providers.size(); index++) {
+            if (!indexes.contains(index)) {
+                indexes.add(index);
+            }
+        }
+
+        indexes.removeIf(index -> !activation.isActive(providers.get(index).getName(), worldName));
+
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Records a decision with the tracer. The record, including the regions consulted, is only built if the
+     * tracer asks for it.
+     */
+    private void trace(Player player, Location location, GraveAction action, String providerName,
+                       ProtectionProvider provider, boolean allowed, long nanos) {
+        DecisionTracer tracer = plugin.getTracer();
+
+        if (!tracer.isTraced(allowed)) {
+            return;
+        }
+
+        DecisionRecord record = new DecisionRecord(System.currentTimeMillis(), player.getUniqueId(), player.getName(),
+                action, providerName, location.getWorld() != null ? location.getWorld().getName() : "",
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                provider != null ? provider.getRegionKeys(location) : Collections.emptyList(), allowed, nanos);
+
+        tracer.record(record);
+
+        if (tracer.isDebugLogged()) {
+            plugin.getGravesXAPI().getGravesX().debugMessage(record.toString(), 2);
+        }
+    }
+
+    /**
+     * The configured order and activation of the providers, and the measured orders of every world they
+     * apply to. A layout is replaced as a whole whenever any of them changes.
+     */
+    private static final class Layout {
+        private final ProviderOrder order;
+        private final ProviderActivation activation;
+        private final Map<String, ActionState[]> worlds = new ConcurrentHashMap<>();
+
+        private Layout(ProviderOrder order, ProviderActivation activation) {
+            this.order = order;
+            this.activation = activation;
+        }
+    }
+
+    /**
+     * The provider order and measurements of a single world and action.
+     */
+    private static final class ActionState {
+        private final boolean adaptive;
+        private final double[] costs;
+        private final double[] denyRates;
+        private volatile int[] order;
+
+        private ActionState(int providers, int[] order, boolean adaptive) {
+            this.adaptive = adaptive;
+            this.costs = new double[providers];
+            this.denyRates = new double[providers];
+            this.order = order;
+        }
+
+        private void measure(int index, long nanos, boolean allowed) {
+            costs[index] += (nanos - costs[index]) * SMOOTHING;
+            denyRates[index] += ((allowed ? 0D : 1D) - denyRates[index]) * SMOOTHING;
+        }
+
+        /**
+         * Orders the providers by ascending expected cost per deny, which minimizes the expected cost of
+         * evaluating until the first deny.
+         */
+        private void reorder() {
+            Integer[] indexes = Arrays.stream(order).boxed().toArray(Integer[]::new);
+
+            Arrays.sort(indexes, (a, b) -> Double.compare(score(a), score(b)));
+            order = Arrays.stream(indexes).mapToInt(Integer::intValue).toArray();
+        }
+
+        private double score(int index) {
+            return costs[index] / Math.max(denyRates[index], MIN_DENY_RATE);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dev.cwhead.GravesXAddon.provider;
+
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+/**
+ * A land protection plugin that decides whether a player may perform a grave action at a location.
+ * Providers are evaluated by the {@link ProtectionEngine}, which stops at the first provider that denies.
+ */
+public interface ProtectionProvider {
+    /**
+     * Gets the name of the provider, used in the config, metrics and traces.
+     *
+     * @return the lowercase provider name, such as {@code worldguard}
+     */
+    String getName();
+
+    /**
+     * Checks if the player may perform a grave action at the location.
+     *
+     * @param player the player performing the action
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the provider allows the action, {@code false} otherwise
+     */
+    boolean isAllowed(Player player, Location location, GraveAction action);
+
+    /**
+     * Checks if the player of a session may perform a grave action at the location. The engine always calls this
+     * method, providers that resolve objects for a player, such as a wrapped player of their plugin, should
+     * override it and keep those objects in the session. The default checks the player of the session.
+     *
+     * @param session the session of the player performing the action
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the provider allows the action, {@code false} otherwise
+     */
+    default boolean isAllowed(ProtectionSession session, Location location, GraveAction action) {
+        return isAllowed(session.getPlayer(), location, action);
+    }
+
+    /**
+     * Checks if the provider may deny a grave action anywhere in the chunk of a location. The engine allows
+     * actions in chunks that no active provider may deny without asking the providers, so providers that can
+     * tell cheaply which chunks they protect should override this. The default assumes every chunk is protected.
+     *
+     * @param location the location of the action
+     * @param action the grave action
+     * @return {@code true} if the provider may deny the action in the chunk, {@code false} if it allows it everywhere in the chunk
+     */
+    default boolean mayDeny(Location location, GraveAction action) {
+        return true;
+    }
+
+    /**
+     * Gets the keys of the regions, claims or towns of the provider at a location, used when tracing decisions.
+     *
+     * @param location the location
+     * @return the keys in the format "provider|worldName|id"
+     */
+    List<String> getRegionKeys(Location location);
+}
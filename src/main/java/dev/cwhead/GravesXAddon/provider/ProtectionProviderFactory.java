@@ -0,0 +1,48 @@
+package dev.cwhead.GravesXAddon.provider;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+
+/**
+ * Creates the {@link ProtectionProvider} of a single land protection plugin. Factories are discovered with a
+ * {@link java.util.ServiceLoader} from {@code META-INF/services}, so further providers can be added without
+ * touching the plugin class.
+ * <p>
+ * A factory must not reference any class of its land protection plugin outside of {@link #load} and
+ * {@link #enable}. Those are only called when the plugin is installed and the provider is active in at least
+ * one world, so the classes of a missing or inactive plugin are never loaded.
+ */
+public interface ProtectionProviderFactory {
+    /**
+     * Gets the name of the provider this factory creates, used in the config, metrics and traces.
+     *
+     * @return the lowercase provider name, such as {@code worldguard}
+     */
+    String getName();
+
+    /**
+     * Gets the name of the land protection plugin the provider hooks into.
+     *
+     * @return the plugin name, such as {@code WorldGuard}
+     */
+    String getPluginName();
+
+    /**
+     * Called while the addon is loading, before any plugin is enabled. Providers that have to register anything
+     * with their plugin before it is enabled, such as WorldGuard flags, do so here.
+     *
+     * @param plugin the {@code LandProtection} plugin instance
+     * @throws Exception if the provider could not be loaded, in which case it is not enabled
+     */
+    default void load(LandProtection plugin) throws Exception {
+    }
+
+    /**
+     * Called while the addon is enabling. Creates the provider and registers the listeners and tasks that keep
+     * it up to date.
+     *
+     * @param plugin the {@code LandProtection} plugin instance
+     * @return the provider
+     * @throws Exception if the provider could not be enabled
+     */
+    ProtectionProvider enable(LandProtection plugin) throws Exception;
+}
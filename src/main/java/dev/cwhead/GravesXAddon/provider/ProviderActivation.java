@@ -0,0 +1,96 @@
+package dev.cwhead.GravesXAddon.provider;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The {@code ProviderActivation} class holds the worlds each provider is checked in, as configured under
+ * {@code providers.active}. A provider that is not listed is active in every world, a provider listed with an
+ * empty list of worlds is not active anywhere and is never initialized.
+ */
+public final class ProviderActivation {
+    /**
+     * The activation that has every provider active in every world.
+     */
+    public static final ProviderActivation ALL = new ProviderActivation(Collections.emptyMap());
+
+    private final Map<String, Set<String>> worlds;
+
+    private ProviderActivation(Map<String, Set<String>> worlds) {
+        this.worlds = worlds;
+    }
+
+    /**
+     * Loads the activation from the {@code providers} section of the config.
+     *
+     * @param section the {@code providers} section of the config, may be {@code null}
+     * @return the activation
+     */
+    public static ProviderActivation load(ConfigurationSection section) {
+        ConfigurationSection activeSection = section != null ? section.getConfigurationSection("active") : null;
+
+        if (activeSection == null) {
+            return ALL;
+        }
+
+        Map<String, Set<String>> worlds = new HashMap<>();
+
+        for (String provider : activeSection.getKeys(false)) {
+            if (activeSection.isList(provider)) {
+                worlds.put(provider.toLowerCase(Locale.ROOT), Set.copyOf(activeSection.getStringList(provider)));
+            }
+        }
+
+        return new ProviderActivation(Collections.unmodifiableMap(worlds));
+    }
+
+    /**
+     * Checks if a provider is active in at least one world.
+     *
+     * @param provider the name of the provider
+     * @return {@code true} if the provider should be initialized, {@code false} otherwise
+     */
+    public boolean isActive(String provider) {
+        Set<String> providerWorlds = worlds.get(provider);
+
+        return providerWorlds == null || !providerWorlds.isEmpty();
+    }
+
+    /**
+     * Checks if a provider is active in a world.
+     *
+     * @param provider the name of the provider
+     * @param worldName the name of the world
+     * @return {@code true} if the provider is checked in the world, {@code false} otherwise
+     */
+    public boolean isActive(String provider, String worldName) {
+        Set<String> providerWorlds = worlds.get(provider);
+
+        return providerWorlds == null || providerWorlds.contains(worldName);
+    }
+
+    /**
+     * Gets the names of every provider listed under {@code providers.active}, used to validate the config.
+     *
+     * @return the listed provider names
+     */
+    public Set<String> getNames() {
+        return worlds.keySet();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof ProviderActivation && worlds.equals(((ProviderActivation) object).worlds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(worlds);
+    }
+}
@@ -0,0 +1,86 @@
+package dev.cwhead.GravesXAddon.provider;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ProviderOrder} class holds the order the providers are evaluated in, as configured under
+ * {@code providers.order} and {@code providers.worlds}. A world without a fixed order uses the adaptive order
+ * measured by the {@link ProtectionEngine}.
+ */
+public final class ProviderOrder {
+    /**
+     * The order that measures the order of every world.
+     */
+    public static final ProviderOrder ADAPTIVE = new ProviderOrder(null, Collections.emptyMap());
+
+    private final List<String> defaultOrder;
+    private final Map<String, List<String>> worldOrders;
+
+    private ProviderOrder(List<String> defaultOrder, Map<String, List<String>> worldOrders) {
+        this.defaultOrder = defaultOrder;
+        this.worldOrders = worldOrders;
+    }
+
+    /**
+     * Loads the order from the {@code providers} section of the config. An {@code order} of {@code adaptive} or
+     * no order at all measures the order, a list of provider names fixes it. Worlds listed under {@code worlds}
+     * use their own fixed order.
+     *
+     * @param section the {@code providers} section of the config, may be {@code null}
+     * @return the order
+     */
+    public static ProviderOrder load(ConfigurationSection section) {
+        if (section == null) {
+            return ADAPTIVE;
+        }
+
+        List<String> defaultOrder = section.isList("order") ? List.copyOf(section.getStringList("order")) : null;
+        Map<String, List<String>> worldOrders = new HashMap<>();
+        ConfigurationSection worldsSection = section.getConfigurationSection("worlds");
+
+        if (worldsSection != null) {
+            for (String worldName : worldsSection.getKeys(false)) {
+                if (worldsSection.isList(worldName)) {
+                    worldOrders.put(worldName, List.copyOf(worldsSection.getStringList(worldName)));
+                }
+            }
+        }
+
+        return new ProviderOrder(defaultOrder, Collections.unmodifiableMap(worldOrders));
+    }
+
+    /**
+     * Gets the fixed order of a world.
+     *
+     * @param worldName the name of the world
+     * @return the provider names in evaluation order, or {@code null} if the order of the world is adaptive
+     */
+    public List<String> get(String worldName) {
+        return worldOrders.getOrDefault(worldName, defaultOrder);
+    }
+
+    /**
+     * Gets every provider name listed in any order, used to validate the config.
+     *
+     * @return the listed provider names
+     */
+    public List<String> getNames() {
+        List<String> names = new ArrayList<>();
+
+        if (defaultOrder != null) {
+            names.addAll(defaultOrder);
+        }
+
+        for (List<String> worldOrder : worldOrders.values()) {
+            names.addAll(worldOrder);
+        }
+
+        return names;
+    }
+}
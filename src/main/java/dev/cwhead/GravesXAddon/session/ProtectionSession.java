@@ -0,0 +1,139 @@
+package dev.cwhead.GravesXAddon.session;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The {@code ProtectionSession} class holds what the addon resolved for an online player, so checks read it
+ * instead of resolving it again for every grave event. Providers attach their own per-player objects, such as the
+ * WorldGuard {@code LocalPlayer}, through a {@link Key}, which creates the object on first use and keeps it for the
+ * rest of the session. The session also remembers which grave actions the player bypasses through the
+ * {@code gravesx.landprotection.bypass} permission nodes, resolved once when the session is created and again only
+ * when {@link #refreshBypass()} is called.
+ * <p>
+ * Sessions are opened when a player joins and closed when they quit, see {@link SessionManager}. A session is
+ * normally only used from the thread of the region the player is in, attachments that race on Folia are created
+ * twice and one of them is kept.
+ */
+public class ProtectionSession {
+    private static final AtomicInteger KEYS = new AtomicInteger();
+
+    private static final Object[] NO_ATTACHMENTS = new Object[0];
+
+    private final Player player;
+    private final UUID uuid;
+    private volatile Object[] attachments = NO_ATTACHMENTS;
+    private volatile int bypass;
+
+    /**
+     * Constructs a {@code ProtectionSession} object.
+     *
+     * @param player the player the session belongs to
+     */
+    public ProtectionSession(Player player) {
+        this.player = player;
+        this.uuid = player.getUniqueId();
+        refreshBypass();
+    }
+
+    /**
+     * Gets the player the session belongs to.
+     *
+     * @return the player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the UUID of the player the session belongs to.
+     *
+     * @return the UUID of the player
+     */
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * Checks if the player bypasses the land protection checks of a grave action. This is a single bit test
+     * against the permissions resolved by the last {@link #refreshBypass()}.
+     *
+     * @param action the grave action
+     * @return {@code true} if the player has the bypass permission of the action, {@code false} otherwise
+     */
+    public boolean isBypassing(GraveAction action) {
+        return (bypass & 1 << action.ordinal()) != 0;
+    }
+
+    /**
+     * Resolves the bypass permission of every grave action of the player again. Bukkit has no event for changed
+     * permissions, so this is called on join, on world changes and when LuckPerms recalculates the permissions of
+     * the player, or periodically if LuckPerms is not installed. It reads the permissions of the player, so on
+     * Folia it must run on the thread of the region the player is in.
+     */
+    public void refreshBypass() {
+        int bits = 0;
+
+        for (GraveAction action : GraveAction.values()) {
+            if (player.hasPermission(action.getBypassPermission())) {
+                bits |= 1 << action.ordinal();
+            }
+        }
+
+        bypass = bits;
+    }
+
+    /**
+     * Gets an object attached to the session, creating it for the player of the session on first use.
+     *
+     * @param key the key of the attachment
+     * @param <T> the type of the attachment
+     * @return the attachment
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key) {
+        Object[] current = attachments;
+
+        if (key.index < current.length && current[key.index] != null) {
+            return (T) current[key.index];
+        }
+
+        T value = key.factory.apply(player);
+
+        attach(key.index, value);
+        return value;
+    }
+
+    private synchronized void attach(int index, Object value) {
+        Object[] next = Arrays.copyOf(attachments, Math.max(attachments.length, index + 1));
+
+        next[index] = value;
+        attachments = next;
+    }
+
+    /**
+     * The key of an object that is attached to every session on first use. Keys are meant to be kept in a field
+     * of their owner, every key takes a slot in the sessions it is used with.
+     *
+     * @param <T> the type of the attachment
+     */
+    public static final class Key<T> {
+        private final int index;
+        private final Function<Player, T> factory;
+
+        /**
+         * Constructs a {@code Key} object.
+         *
+         * @param factory creates the attachment for the player of a session, must not return {@code null}
+         */
+        public Key(Function<Player, T> factory) {
+            this.index = KEYS.getAndIncrement();
+            this.factory = factory;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dev.cwhead.GravesXAddon.session;
+
+import dev.cwhead.GravesXAddon.util.TaskScheduler;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code SessionManager} class keeps the {@link ProtectionSession} of every online player. Sessions are opened
+ * when a player joins, or when the addon is enabled for players that are already online, and closed when they quit.
+ * <p>
+ * Players without an open session, such as NPCs of other plugins, get a new session for every lookup that is not
+ * kept, so they are checked the same way at the cost of resolving everything again.
+ */
+public class SessionManager {
+    private final Map<UUID, ProtectionSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Opens a new session for a player, replacing any session left from before.
+     *
+     * @param player the player
+     * @return the new session
+     */
+    public ProtectionSession open(Player player) {
+        ProtectionSession session = new ProtectionSession(player);
+
+        sessions.put(player.getUniqueId(), session);
+        return session;
+    }
+
+    /**
+     * Closes the session of a player.
+     *
+     * @param player the UUID of the player
+     */
+    public void close(UUID player) {
+        sessions.remove(player);
+    }
+
+    /**
+     * Gets the session of a player. Sessions that belong to a previous player object with the same UUID are not
+     * reused.
+     *
+     * @param player the player
+     * @return the open session of the player, or a new session that is not kept if there is none
+     */
+    public ProtectionSession get(Player player) {
+        ProtectionSession session = sessions.get(player.getUniqueId());
+
+        return session != null && session.getPlayer() == player ? session : new ProtectionSession(player);
+    }
+
+    /**
+     * Gets the open session of a player, without opening one.
+     *
+     * @param player the UUID of the player
+     * @return the open session of the player, or {@code null} if there is none
+     */
+    public ProtectionSession find(UUID player) {
+        return sessions.get(player);
+    }
+
+    /**
+     * Resolves the bypass permissions of every open session again, picking up permissions that changed since.
+     * Permissions are read from the player, so every session is refreshed by a task of its own that runs for the
+     * player, on the thread of the region they are in on Folia.
+     *
+     * @param taskScheduler the scheduler to run the refreshes with
+     */
+    public void refreshBypass(TaskScheduler taskScheduler) {
+        for (ProtectionSession session : sessions.values()) {
+            taskScheduler.runForEntity(session.getPlayer(), session::refreshBypass);
+        }
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+}
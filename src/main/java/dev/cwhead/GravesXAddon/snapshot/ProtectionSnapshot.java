@@ -0,0 +1,108 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An immutable snapshot of all land protection data the addon needs to evaluate grave actions: the
+ * WorldGuard regions of every world and the Towny town blocks and residents. Snapshots are replaced as a whole
+ * when the data changes, so any thread can evaluate decisions against a consistent view without locks and
+ * without touching Bukkit, WorldGuard or Towny.
+ */
+public final class ProtectionSnapshot {
+    /**
+     * A snapshot without any protection data, which allows every action.
+     */
+    public static final ProtectionSnapshot EMPTY = new ProtectionSnapshot(Map.of(), null);
+
+    private final Map<String, WorldRegionSnapshot> regionWorlds;
+    private final TownySnapshot towny;
+
+    private ProtectionSnapshot(Map<String, WorldRegionSnapshot> regionWorlds, TownySnapshot towny) {
+        this.regionWorlds = regionWorlds;
+        this.towny = towny;
+    }
+
+    /**
+     * Gets the WorldGuard regions of a world.
+     *
+     * @param worldName the name of the world
+     * @return the regions of the world, or {@code null} if WorldGuard has no regions for it
+     */
+    public WorldRegionSnapshot getRegions(String worldName) {
+        return regionWorlds.get(worldName);
+    }
+
+    /**
+     * Gets the WorldGuard regions of every world.
+     *
+     * @return an unmodifiable map of world names to their regions
+     */
+    public Map<String, WorldRegionSnapshot> getRegionWorlds() {
+        return regionWorlds;
+    }
+
+    /**
+     * Gets the Towny data.
+     *
+     * @return the Towny data, or {@code null} if Towny is not hooked
+     */
+    public TownySnapshot getTowny() {
+        return towny;
+    }
+
+    /**
+     * Evaluates whether a player may perform a grave action at a block position. The action is allowed if
+     * both the WorldGuard regions and Towny allow it. Other providers and WorldGuard regions that require a live
+     * check are not consulted, {@link SnapshotManager#evaluate} falls back to the providers for those.
+     *
+     * @param worldName the name of the world
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param player the UUID of the player
+     * @param action the grave action
+     * @return {@code true} if the action is allowed, {@code false} otherwise
+     */
+    public boolean evaluate(String worldName, int x, int y, int z, UUID player, GraveAction action) {
+        WorldRegionSnapshot regions = regionWorlds.get(worldName);
+
+        if (regions != null && !regions.evaluate(x, y, z, player, action)) {
+            return false;
+        }
+
+        return towny == null || towny.evaluate(worldName, x, z, player, action);
+    }
+
+    /**
+     * Creates a copy of this snapshot with the regions of one world replaced.
+     *
+     * @param worldName the name of the world
+     * @param regions the new regions of the world, or {@code null} to remove the world
+     * @return the new snapshot
+     */
+    public ProtectionSnapshot withRegions(String worldName, WorldRegionSnapshot regions) {
+        Map<String, WorldRegionSnapshot> worlds = new HashMap<>(regionWorlds);
+
+        if (regions != null) {
+            worlds.put(worldName, regions);
+        } else {
+            worlds.remove(worldName);
+        }
+
+        return new ProtectionSnapshot(Map.copyOf(worlds), towny);
+    }
+
+    /**
+     * Creates a copy of this snapshot with the Towny data replaced.
+     *
+     * @param towny the new Towny data, or {@code null} if Towny is not hooked
+     * @return the new snapshot
+     */
+    public ProtectionSnapshot withTowny(TownySnapshot towny) {
+        return new ProtectionSnapshot(regionWorlds, towny);
+    }
+}
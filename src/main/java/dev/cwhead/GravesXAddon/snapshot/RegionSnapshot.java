@@ -0,0 +1,265 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An immutable copy of a single WorldGuard region, holding everything needed to evaluate grave actions
+ * without touching WorldGuard: the region bounds (and polygon points), its priority and parent, the effective
+ * state of the gravesx flags including values inherited from parent regions, and the owners and members of
+ * the region and its parents. Regions whose decisions can't be copied, because they have members given by player
+ * name or permission group, or gravesx flags restricted to a region group, are marked as requiring a live check.
+ */
+public final class RegionSnapshot {
+    /**
+     * The flag is not set on the region or any of its parents.
+     */
+    public static final byte UNSET = 0;
+
+    /**
+     * The flag resolves to allow.
+     */
+    public static final byte ALLOW = 1;
+
+    /**
+     * The flag resolves to deny.
+     */
+    public static final byte DENY = 2;
+
+    private final String id;
+    private final String parentId;
+    private final int priority;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    private final int[] pointsX;
+    private final int[] pointsZ;
+    private final byte[] flags;
+    private final Set<UUID> members;
+    private final boolean requiresLiveCheck;
+
+    /**
+     * Constructs a {@code RegionSnapshot} object.
+     *
+     * @param id the id of the region
+     * @param parentId the id of the parent region, or {@code null} if it has none
+     * @param priority the priority of the region
+     * @param minX the minimum x coordinate of the region bounds
+     * @param minY the minimum y coordinate of the region bounds
+     * @param minZ the minimum z coordinate of the region bounds
+     * @param maxX the maximum x coordinate of the region bounds
+     * @param maxY the maximum y coordinate of the region bounds
+     * @param maxZ the maximum z coordinate of the region bounds
+     * @param pointsX the x coordinates of the polygon points, or {@code null} for cuboid and global regions
+     * @param pointsZ the z coordinates of the polygon points, or {@code null} for cuboid and global regions
+     * @param flags the effective flag states indexed by {@link GraveAction#ordinal()}
+     * @param members the UUIDs of the owners and members of the region and its parents
+     * @param requiresLiveCheck whether the region or its parents have members by name or group, or gravesx flags
+     *                          restricted to a region group
+     */
+    public RegionSnapshot(String id, String parentId, int priority, int minX, int minY, int minZ, int maxX, int maxY,
+                          int maxZ, int[] pointsX, int[] pointsZ, byte[] flags, Set<UUID> members,
+                          boolean requiresLiveCheck) {
+        this.id = id;
+        this.parentId = parentId;
+        this.priority = priority;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.pointsX = pointsX != null ? pointsX.clone() : null;
+        this.pointsZ = pointsZ != null ? pointsZ.clone() : null;
+        this.flags = flags.clone();
+        this.members = Set.copyOf(members);
+        this.requiresLiveCheck = requiresLiveCheck;
+    }
+
+    /**
+     * Gets the id of the region.
+     *
+     * @return the region id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the id of the parent region.
+     *
+     * @return the parent region id, or {@code null} if the region has no parent
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Gets the priority of the region.
+     *
+     * @return the priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Gets the minimum x coordinate of the region bounds.
+     *
+     * @return the minimum x coordinate
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Gets the minimum y coordinate of the region bounds.
+     *
+     * @return the minimum y coordinate
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Gets the minimum z coordinate of the region bounds.
+     *
+     * @return the minimum z coordinate
+     */
+    public int getMinZ() {
+        return minZ;
+    }
+
+    /**
+     * Gets the maximum x coordinate of the region bounds.
+     *
+     * @return the maximum x coordinate
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Gets the maximum y coordinate of the region bounds.
+     *
+     * @return the maximum y coordinate
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Gets the maximum z coordinate of the region bounds.
+     *
+     * @return the maximum z coordinate
+     */
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    /**
+     * Checks if the region is a cuboid, in which case its bounds are its exact shape.
+     *
+     * @return {@code true} if the region is a cuboid, {@code false} if it is a polygon
+     */
+    public boolean isCuboid() {
+        return pointsX == null;
+    }
+
+    /**
+     * Gets the effective state of the flag of a grave action.
+     *
+     * @param action the grave action
+     * @return {@link #UNSET}, {@link #ALLOW} or {@link #DENY}
+     */
+    public byte getFlag(GraveAction action) {
+        return flags[action.ordinal()];
+    }
+
+    /**
+     * Checks if a player is an owner or member of the region or one of its parents.
+     *
+     * @param player the UUID of the player
+     * @return {@code true} if the player is a member, {@code false} otherwise
+     */
+    public boolean isMember(UUID player) {
+        return members.contains(player);
+    }
+
+    /**
+     * Gets the UUIDs of the owners and members of the region and its parents.
+     *
+     * @return an unmodifiable set of member UUIDs
+     */
+    public Set<UUID> getMembers() {
+        return members;
+    }
+
+    /**
+     * Checks if decisions inside the region depend on data the snapshot does not hold, members given by player
+     * name or permission group or gravesx flags restricted to a region group, and have to be made by WorldGuard.
+     *
+     * @return {@code true} if the region requires a live check, {@code false} otherwise
+     */
+    public boolean requiresLiveCheck() {
+        return requiresLiveCheck;
+    }
+
+    /**
+     * Checks if the region contains a block position, using the same point-in-polygon test as WorldGuard.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the region contains the position, {@code false} otherwise
+     */
+    public boolean contains(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return false;
+        }
+
+        if (pointsX == null) {
+            return true;
+        }
+
+        boolean inside = false;
+        int xOld = pointsX[pointsX.length - 1];
+        int zOld = pointsZ[pointsZ.length - 1];
+
+        for (int i = 0; i < pointsX.length; i++) {
+            int xNew = pointsX[i];
+            int zNew = pointsZ[i];
+
+            if (xNew == x && zNew == z) {
+                return true;
+            }
+
+            int x1 = xNew > xOld ? xOld : xNew;
+            int x2 = xNew > xOld ? xNew : xOld;
+            int z1 = xNew > xOld ? zOld : zNew;
+            int z2 = xNew > xOld ? zNew : zOld;
+
+            if (x1 <= x && x <= x2) {
+                long crossProduct = ((long) z - z1) * (x2 - x1) - ((long) z2 - z1) * (x - x1);
+
+                if (crossProduct == 0) {
+                    if ((z1 <= z) == (z <= z2)) {
+                        return true;
+                    }
+                } else if (crossProduct < 0 && x1 != x) {
+                    inside = !inside;
+                }
+            }
+
+            xOld = xNew;
+            zOld = zNew;
+        }
+
+        return inside;
+    }
+}
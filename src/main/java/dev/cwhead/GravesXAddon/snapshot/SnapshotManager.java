@@ -0,0 +1,282 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.provider.ProtectionProvider;
+import dev.cwhead.GravesXAddon.provider.ProviderActivation;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code SnapshotManager} class publishes the current {@link ProtectionSnapshot} through an atomic reference,
+ * so any thread can evaluate grave actions without locks and without touching Bukkit, WorldGuard or Towny, except
+ * for the locations the snapshot can't decide, see {@link #evaluate(Player, GraveAction, Collection)}.
+ * <p>
+ * Region and town changes only mark the affected worlds or Towny as dirty. A repeating task on the main thread,
+ * or the global region thread on Folia, then copies the changed data and publishes a new snapshot, reusing the
+ * unchanged worlds of the previous one. Towny data is copied per changed town, see
+ * {@link dev.cwhead.GravesXAddon.integration.TownyImpl#snapshot(TownySnapshot)}.
+ * Worlds WorldGuard or Towny are not active in are left out of their part of the snapshot.
+ */
+public class SnapshotManager {
+    /**
+     * The names of the providers whose data the snapshot holds.
+     */
+    private static final Set<String> SNAPSHOTTED_PROVIDERS = Set.of("worldguard", "towny");
+
+    private final LandProtection plugin;
+    private final AtomicReference<ProtectionSnapshot> snapshot = new AtomicReference<>(ProtectionSnapshot.EMPTY);
+    private final Set<String> dirtyWorlds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean townyDirty = new AtomicBoolean();
+
+    /**
+     * Constructs a {@code SnapshotManager} object.
+     *
+     * @param plugin the {@code LandProtection} plugin instance
+     */
+    public SnapshotManager(LandProtection plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the current snapshot. The returned snapshot never changes, callers that need several lookups to be
+     * consistent should keep it for the duration of the work.
+     *
+     * @return the current {@code ProtectionSnapshot}
+     */
+    public ProtectionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Evaluates whether a player may perform a grave action at many locations at once, for example to show
+     * which graves of a grave list can be teleported to or looted. The locations are grouped by world and chunk,
+     * so the regions of a chunk and the town of a town block are resolved once per group instead of once per
+     * location. Players with the bypass permission of the action are allowed everywhere.
+     * <p>
+     * The snapshot holds WorldGuard and Towny only. Locations in chunks another active provider, such as
+     * GriefPrevention, may deny in, and locations in WorldGuard regions that require a live check, are evaluated
+     * live through the {@link dev.cwhead.GravesXAddon.provider.ProtectionEngine} instead. Everything else is
+     * evaluated against the current snapshot and can be called from any thread, but the live evaluations have the
+     * same threading rules as the providers, so callers that may hit them should call this on the main thread, or
+     * on Folia on the thread owning the locations.
+     * <p>
+     * The bypass permissions are read from the open session of the player. Players without an open session, such
+     * as NPCs of other plugins, would need their permissions read from Bukkit, so all of their locations are
+     * evaluated live.
+     *
+     * @param player the player performing the action
+     * @param action the grave action
+     * @param locations the locations to evaluate
+     * @return a bitset where the bit of each location, in iteration order, is set if the action is allowed there
+     */
+    public BitSet evaluate(Player player, GraveAction action, Collection<Location> locations) {
+        ProtectionSession session = plugin.getSessions().find(player.getUniqueId());
+
+        if (session == null || session.getPlayer() != player) {
+            return evaluateLive(player, action, locations);
+        }
+
+        if (session.isBypassing(action)) {
+            BitSet allowed = new BitSet(locations.size());
+
+            allowed.set(0, locations.size());
+            return allowed;
+        }
+
+        ProtectionSnapshot current = snapshot.get();
+        ProviderActivation activation = plugin.getProviderActivation();
+        List<ProtectionProvider> unsnapshotted = new ArrayList<>();
+        TownySnapshot towny = current.getTowny();
+        UUID uuid = player.getUniqueId();
+        int size = locations.size();
+        BitSet allowed = new BitSet(size);
+        Location[] sources = new Location[size];
+        String[] worldNames = new String[size];
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        int[] zs = new int[size];
+        long[] chunkKeys = new long[size];
+        List<Integer> order = new ArrayList<>(size);
+        int index = 0;
+
+        for (ProtectionProvider provider : plugin.getProtectionEngine().getProviders()) {
+            if (!SNAPSHOTTED_PROVIDERS.contains(provider.getName())) {
+                unsnapshotted.add(provider);
+            }
+        }
+
+        for (Location location : locations) {
+            if (location.getWorld() == null) {
+                allowed.set(index++);
+                continue;
+            }
+
+            sources[index] = location;
+            worldNames[index] = location.getWorld().getName();
+            xs[index] = location.getBlockX();
+            ys[index] = location.getBlockY();
+            zs[index] = location.getBlockZ();
+            chunkKeys[index] = ChunkKey.pack(xs[index] >> 4, zs[index] >> 4);
+            order.add(index++);
+        }
+
+        order.sort(Comparator.comparing((Integer i) -> worldNames[i]).thenComparingLong(i -> chunkKeys[i]));
+
+        String worldName = null;
+        WorldRegionSnapshot regions = null;
+        RegionSnapshot[] chunkRegions = null;
+        long chunkKey = 0;
+        boolean chunkKnown = false;
+        boolean chunkLive = false;
+        long townCell = 0;
+        boolean townKnown = false;
+        boolean townAllowed = true;
+        boolean townyActive = false;
+
+        for (int i : order) {
+            if (!worldNames[i].equals(worldName)) {
+                worldName = worldNames[i];
+                regions = current.getRegions(worldName);
+                townyActive = towny != null && activation.isActive("towny", worldName);
+                chunkKnown = false;
+                townKnown = false;
+            }
+
+            if (!chunkKnown || chunkKeys[i] != chunkKey) {
+                chunkKey = chunkKeys[i];
+                chunkRegions = regions != null ? regions.getChunkRegions(xs[i] >> 4, zs[i] >> 4) : null;
+                chunkLive = mayDeny(unsnapshotted, activation, sources[i], action);
+                chunkKnown = true;
+            }
+
+            if (chunkLive || regions != null && regions.requiresLiveCheck(chunkRegions, xs[i], ys[i], zs[i])) {
+                allowed.set(i, plugin.getProtectionEngine().evaluate(session, sources[i], action));
+                continue;
+            }
+
+            boolean result = regions == null || regions.evaluate(chunkRegions, xs[i], ys[i], zs[i], uuid, action);
+
+            if (result && townyActive) {
+                long cell = ChunkKey.pack(Math.floorDiv(xs[i], towny.getTownBlockSize()),
+                        Math.floorDiv(zs[i], towny.getTownBlockSize()));
+
+                if (!townKnown || cell != townCell) {
+                    townCell = cell;
+                    townAllowed = towny.evaluate(worldName, xs[i], zs[i], uuid, action);
+                    townKnown = true;
+                }
+
+                result = townAllowed;
+            }
+
+            allowed.set(i, result);
+        }
+
+        return allowed;
+    }
+
+    /**
+     * Evaluates every location live through the {@link dev.cwhead.GravesXAddon.provider.ProtectionEngine}, for
+     * players without an open session.
+     */
+    private BitSet evaluateLive(Player player, GraveAction action, Collection<Location> locations) {
+        ProtectionSession session = plugin.getSessions().get(player);
+        BitSet allowed = new BitSet(locations.size());
+        int index = 0;
+
+        for (Location location : locations) {
+            allowed.set(index++, session.isBypassing(action) || location.getWorld() == null
+                    || plugin.getProtectionEngine().evaluate(session, location, action));
+        }
+
+        return allowed;
+    }
+
+    /**
+     * Checks if any active provider the snapshot does not hold may deny a grave action in the chunk of a location.
+     */
+    private static boolean mayDeny(List<ProtectionProvider> providers, ProviderActivation activation, Location location,
+                                   GraveAction action) {
+        for (ProtectionProvider provider : providers) {
+            if (activation.isActive(provider.getName(), location.getWorld().getName())
+                    && provider.mayDeny(location, action)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Marks the regions of a world as changed, so they are copied again on the next flush.
+     *
+     * @param worldName the name of the world
+     */
+    public void markWorldDirty(String worldName) {
+        dirtyWorlds.add(worldName);
+    }
+
+    /**
+     * Marks the Towny data as changed, so it is copied again on the next flush.
+     */
+    public void markTownyDirty() {
+        townyDirty.set(true);
+    }
+
+    /**
+     * Marks every loaded world and Towny as changed.
+     */
+    public void markAllDirty() {
+        for (World world : plugin.getServer().getWorlds()) {
+            dirtyWorlds.add(world.getName());
+        }
+
+        townyDirty.set(true);
+    }
+
+    /**
+     * Copies the data marked as changed and publishes a new snapshot. Must be called on the main thread, or the global
+     * region thread on Folia.
+     */
+    public void flush() {
+        if (dirtyWorlds.isEmpty() && !townyDirty.get()) {
+            return;
+        }
+
+        ProtectionSnapshot next = snapshot.get();
+
+        if (plugin.isWorldGuardEnabled()) {
+            for (String worldName : dirtyWorlds) {
+                dirtyWorlds.remove(worldName);
+
+                World world = plugin.getServer().getWorld(worldName);
+
+                next = next.withRegions(worldName, world != null && plugin.getProviderActivation().isActive("worldguard", worldName)
+                        ? plugin.getWorldGuard().snapshot(world) : null);
+            }
+        } else {
+            dirtyWorlds.clear();
+        }
+
+        if (townyDirty.getAndSet(false)) {
+            next = next.withTowny(plugin.isTownyEnabled() ? plugin.getTowny().snapshot(next.getTowny()) : null);
+        }
+
+        snapshot.set(next);
+    }
+}
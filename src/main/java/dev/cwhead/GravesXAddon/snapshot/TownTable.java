@@ -0,0 +1,96 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An immutable map of town UUIDs to immutable values, split into a fixed number of shards by the hash of the town
+ * UUID. Replacing the values of a few towns copies only the shards those towns are in and shares every other shard
+ * with the previous table, so a snapshot taken after a change only copies the towns near the change.
+ *
+ * @param <V> the type of the values, which must be immutable themselves
+ */
+final class TownTable<V> {
+    private static final int SHARDS = 64;
+
+    private final Map<UUID, V>[] shards;
+
+    private TownTable(Map<UUID, V>[] shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Creates a table holding the specified values.
+     *
+     * @param values the values of every town
+     * @param <V> the type of the values
+     * @return the table
+     */
+    static <V> TownTable<V> of(Map<UUID, V> values) {
+        Map<UUID, V>[] shards = newShards();
+
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new HashMap<>();
+        }
+
+        values.forEach((town, value) -> shards[shard(town)].put(town, value));
+
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = Map.copyOf(shards[i]);
+        }
+
+        return new TownTable<>(shards);
+    }
+
+    /**
+     * Gets the value of a town.
+     *
+     * @param town the UUID of the town
+     * @return the value, or {@code null} if the town has none
+     */
+    V get(UUID town) {
+        return shards[shard(town)].get(town);
+    }
+
+    /**
+     * Creates a copy of this table with the values of some towns replaced. Only the shards of the changed towns are
+     * copied.
+     *
+     * @param changes the new values of the changed towns, a {@code null} value removes the town
+     * @return the new table, or this table if nothing changed
+     */
+    TownTable<V> with(Map<UUID, V> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+
+        Map<UUID, V>[] updated = shards.clone();
+        Map<Integer, Map<UUID, V>> copies = new HashMap<>();
+
+        changes.forEach((town, value) -> {
+            int shard = shard(town);
+            Map<UUID, V> copy = copies.computeIfAbsent(shard, i -> new HashMap<>(shards[i]));
+
+            if (value != null) {
+                copy.put(town, value);
+            } else {
+                copy.remove(town);
+            }
+        });
+
+        copies.forEach((shard, copy) -> updated[shard] = Map.copyOf(copy));
+        return new TownTable<>(updated);
+    }
+
+    private static int shard(UUID town) {
+        int hash = town.hashCode();
+
+        return (hash ^ hash >>> 16) & SHARDS - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Map<UUID, V>[] newShards() {
+        return new Map[SHARDS];
+    }
+}
@@ -0,0 +1,141 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.config.TownyRelationRules;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An immutable copy of Towny town block ownership, town residents and the relations of other players to towns,
+ * together with the relation rules it was taken with. Town blocks are kept per world in primitive maps from packed
+ * cell coordinates to the owning town UUID.
+ * <p>
+ * Instances are never modified after construction and can be read from any thread. A snapshot taken after a change
+ * shares the town block maps of the worlds that did not change and the residents and relations of the towns that did
+ * not change with the previous snapshot, see {@link #withChanges}.
+ */
+public final class TownySnapshot {
+    private final int townBlockSize;
+    private final Map<String, LongObjectHashMap<UUID>> cells;
+    private final TownTable<Set<UUID>> residents;
+    private final TownTable<Map<UUID, Integer>> relations;
+    private final TownyRelationRules rules;
+
+    /**
+     * Constructs a {@code TownySnapshot} object. The town block maps, resident sets and relation maps are taken over
+     * as is and must not be modified afterwards.
+     *
+     * @param townBlockSize the size in blocks of a Towny cell
+     * @param cells the town block owners of every world
+     * @param residents the resident UUIDs of every town
+     * @param relations the relation bits of the players related to every town
+     * @param rules the relations that allow each grave action
+     */
+    public TownySnapshot(int townBlockSize, Map<String, LongObjectHashMap<UUID>> cells, Map<UUID, Set<UUID>> residents,
+                         Map<UUID, Map<UUID, Integer>> relations, TownyRelationRules rules) {
+        this(townBlockSize, cells, TownTable.of(residents), TownTable.of(relations), rules);
+    }
+
+    private TownySnapshot(int townBlockSize, Map<String, LongObjectHashMap<UUID>> cells, TownTable<Set<UUID>> residents,
+                          TownTable<Map<UUID, Integer>> relations, TownyRelationRules rules) {
+        this.townBlockSize = townBlockSize;
+        this.cells = Map.copyOf(cells);
+        this.residents = residents;
+        this.relations = relations;
+        this.rules = rules;
+    }
+
+    /**
+     * Creates a copy of this snapshot with the residents and relations of the changed towns replaced. Only the
+     * towns that changed are copied, everything else is shared with this snapshot.
+     *
+     * @param townBlockSize the size in blocks of a Towny cell
+     * @param cells the town block owners of every world, which must not be modified afterwards
+     * @param residentChanges the new residents of the towns whose residents changed, {@code null} for deleted towns
+     * @param relationChanges the new relations of the towns whose relations changed, {@code null} for towns without
+     *                        relations
+     * @param rules the relations that allow each grave action
+     * @return the new snapshot
+     */
+    public TownySnapshot withChanges(int townBlockSize, Map<String, LongObjectHashMap<UUID>> cells,
+                                     Map<UUID, Set<UUID>> residentChanges,
+                                     Map<UUID, Map<UUID, Integer>> relationChanges, TownyRelationRules rules) {
+        return new TownySnapshot(townBlockSize, cells, residents.with(residentChanges), relations.with(relationChanges),
+                rules);
+    }
+
+    /**
+     * Gets the size in blocks of a Towny cell.
+     *
+     * @return the town block size
+     */
+    public int getTownBlockSize() {
+        return townBlockSize;
+    }
+
+    /**
+     * Gets the town block owners of a world.
+     *
+     * @param worldName the name of the world
+     * @return the map of packed cell coordinates to town UUIDs, or {@code null} if the world has no town blocks
+     */
+    public LongObjectHashMap<UUID> getCells(String worldName) {
+        return cells.get(worldName);
+    }
+
+    /**
+     * Gets the UUID of the town owning a block position.
+     *
+     * @param worldName the name of the world
+     * @param x the block x coordinate
+     * @param z the block z coordinate
+     * @return the UUID of the town, or {@code null} if the position is in the wilderness
+     */
+    public UUID getTownAt(String worldName, int x, int z) {
+        LongObjectHashMap<UUID> worldCells = cells.get(worldName);
+
+        return worldCells != null ? worldCells.get(ChunkKey.pack(Math.floorDiv(x, townBlockSize), Math.floorDiv(z, townBlockSize))) : null;
+    }
+
+    /**
+     * Checks if a player is a resident of a town.
+     *
+     * @param townUUID the UUID of the town
+     * @param player the UUID of the player
+     * @return {@code true} if the player is a resident, {@code false} otherwise
+     */
+    public boolean isResident(UUID townUUID, UUID player) {
+        Set<UUID> townResidents = residents.get(townUUID);
+
+        return townResidents != null && townResidents.contains(player);
+    }
+
+    /**
+     * Evaluates whether a player may perform a grave action at a block position, mirroring the Towny
+     * evaluation of the addon: wilderness is allowed, inside a town residents and the related players the rules
+     * of the action allow are allowed.
+     *
+     * @param worldName the name of the world
+     * @param x the block x coordinate
+     * @param z the block z coordinate
+     * @param player the UUID of the player
+     * @param action the grave action
+     * @return {@code true} if the action is allowed, {@code false} otherwise
+     */
+    public boolean evaluate(String worldName, int x, int z, UUID player, GraveAction action) {
+        UUID townUUID = getTownAt(worldName, x, z);
+
+        if (townUUID == null || isResident(townUUID, player)) {
+            return true;
+        }
+
+        Map<UUID, Integer> townRelations = relations.get(townUUID);
+        Integer bits = townRelations != null ? townRelations.get(player) : null;
+
+        return bits != null && rules.allows(action, bits);
+    }
+}
@@ -0,0 +1,249 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An immutable copy of the WorldGuard regions of a single world. Regions are bucketed by the chunks their
+ * bounds overlap, so a lookup only tests the regions of one chunk; regions spanning more than
+ * {@link #MAX_BUCKETED_CHUNKS} chunks are kept in a separate list that every lookup tests instead.
+ * <p>
+ * Instances are never modified after construction and can be read from any thread.
+ */
+public final class WorldRegionSnapshot {
+    /**
+     * The largest number of chunks a region may span to be bucketed by chunk.
+     */
+    public static final int MAX_BUCKETED_CHUNKS = 4096;
+
+    private static final RegionSnapshot[] NO_REGIONS = new RegionSnapshot[0];
+
+    private final String worldName;
+    private final RegionSnapshot globalRegion;
+    private final List<RegionSnapshot> regions;
+    private final LongObjectHashMap<RegionSnapshot[]> chunks;
+    private final RegionSnapshot[] largeRegions;
+
+    /**
+     * Constructs a {@code WorldRegionSnapshot} object.
+     *
+     * @param worldName the name of the world
+     * @param globalRegion the {@code __global__} region of the world, or {@code null} if it has none
+     * @param regions every other region of the world
+     */
+    public WorldRegionSnapshot(String worldName, RegionSnapshot globalRegion, Collection<RegionSnapshot> regions) {
+        LongObjectHashMap<List<RegionSnapshot>> buckets = new LongObjectHashMap<>();
+        List<RegionSnapshot> large = new ArrayList<>();
+
+        for (RegionSnapshot region : regions) {
+            int minChunkX = region.getMinX() >> 4;
+            int minChunkZ = region.getMinZ() >> 4;
+            int maxChunkX = region.getMaxX() >> 4;
+            int maxChunkZ = region.getMaxZ() >> 4;
+
+            if ((long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1) > MAX_BUCKETED_CHUNKS) {
+                large.add(region);
+                continue;
+            }
+
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    long key = ChunkKey.pack(chunkX, chunkZ);
+                    List<RegionSnapshot> bucket = buckets.get(key);
+
+                    if (bucket == null) {
+                        bucket = new ArrayList<>(2);
+                        buckets.put(key, bucket);
+                    }
+
+                    bucket.add(region);
+                }
+            }
+        }
+
+        LongObjectHashMap<RegionSnapshot[]> chunks = new LongObjectHashMap<>(buckets.size());
+
+        buckets.forEachKey(key -> chunks.put(key, buckets.get(key).toArray(NO_REGIONS)));
+
+        this.worldName = worldName;
+        this.globalRegion = globalRegion;
+        this.regions = Collections.unmodifiableList(new ArrayList<>(regions));
+        this.chunks = chunks;
+        this.largeRegions = large.toArray(NO_REGIONS);
+    }
+
+    /**
+     * Gets the name of the world.
+     *
+     * @return the world name
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Gets the {@code __global__} region of the world.
+     *
+     * @return the global region, or {@code null} if the world has none
+     */
+    public RegionSnapshot getGlobalRegion() {
+        return globalRegion;
+    }
+
+    /**
+     * Gets every region of the world, except the global region.
+     *
+     * @return an unmodifiable list of regions
+     */
+    public List<RegionSnapshot> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Gets the regions whose bounds overlap a chunk. The regions still have to be tested with
+     * {@link RegionSnapshot#contains(int, int, int)}.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the bucketed regions of the chunk, never {@code null}
+     */
+    public RegionSnapshot[] getChunkRegions(int chunkX, int chunkZ) {
+        RegionSnapshot[] bucket = chunks.get(ChunkKey.pack(chunkX, chunkZ));
+
+        return bucket != null ? bucket : NO_REGIONS;
+    }
+
+    /**
+     * Gets the regions that span too many chunks to be bucketed, which have to be tested for every lookup.
+     *
+     * @return the large regions
+     */
+    public RegionSnapshot[] getLargeRegions() {
+        return largeRegions;
+    }
+
+    /**
+     * Evaluates whether a player may perform a grave action at a block position, mirroring the WorldGuard
+     * evaluation of the addon: the action is allowed if the player is an owner or member of any region at the
+     * position, or if the flag of the action does not resolve to deny. Flags are resolved by priority, where
+     * deny wins between regions of the same priority, parent regions of applicable child regions are ignored,
+     * and the global region only applies when no other region sets the flag.
+     * <p>
+     * Domains made of player names or permission groups and flags restricted to region groups can't be copied, so
+     * they are not honored here. Use {@link #requiresLiveCheck(RegionSnapshot[], int, int, int)} to find the
+     * positions where they apply.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param player the UUID of the player
+     * @param action the grave action
+     * @return {@code true} if the action is allowed, {@code false} otherwise
+     */
+    public boolean evaluate(int x, int y, int z, UUID player, GraveAction action) {
+        return evaluate(getChunkRegions(x >> 4, z >> 4), x, y, z, player, action);
+    }
+
+    /**
+     * Evaluates a grave action against an already looked up chunk bucket, see
+     * {@link #evaluate(int, int, int, UUID, GraveAction)}.
+     *
+     * @param chunkRegions the regions returned by {@link #getChunkRegions(int, int)} for the chunk of the position
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param player the UUID of the player
+     * @param action the grave action
+     * @return {@code true} if the action is allowed, {@code false} otherwise
+     */
+    public boolean evaluate(RegionSnapshot[] chunkRegions, int x, int y, int z, UUID player, GraveAction action) {
+        int bestPriority = Integer.MIN_VALUE;
+        byte state = RegionSnapshot.UNSET;
+
+        for (int pass = 0; pass < 2; pass++) {
+            RegionSnapshot[] candidates = pass == 0 ? chunkRegions : largeRegions;
+
+            for (RegionSnapshot region : candidates) {
+                if (!region.contains(x, y, z)) {
+                    continue;
+                }
+
+                if (region.isMember(player)) {
+                    return true;
+                }
+
+                byte flag = region.getFlag(action);
+
+                if (flag == RegionSnapshot.UNSET || isParentOfApplicable(region, chunkRegions, x, y, z)) {
+                    continue;
+                }
+
+                if (region.getPriority() > bestPriority) {
+                    bestPriority = region.getPriority();
+                    state = flag;
+                } else if (region.getPriority() == bestPriority && flag == RegionSnapshot.DENY) {
+                    state = RegionSnapshot.DENY;
+                }
+            }
+        }
+
+        if (state == RegionSnapshot.UNSET && globalRegion != null) {
+            state = globalRegion.getFlag(action);
+        }
+
+        return state != RegionSnapshot.DENY;
+    }
+
+    /**
+     * Checks if a region at a block position, or the global region, requires a live check, in which case the
+     * snapshot can't decide grave actions at the position and WorldGuard has to be asked instead.
+     *
+     * @param chunkRegions the regions returned by {@link #getChunkRegions(int, int)} for the chunk of the position
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the position requires a live check, {@code false} otherwise
+     */
+    public boolean requiresLiveCheck(RegionSnapshot[] chunkRegions, int x, int y, int z) {
+        if (globalRegion != null && globalRegion.requiresLiveCheck()) {
+            return true;
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            RegionSnapshot[] candidates = pass == 0 ? chunkRegions : largeRegions;
+
+            for (RegionSnapshot region : candidates) {
+                if (region.requiresLiveCheck() && region.contains(x, y, z)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if a region is the parent of another region that applies at the same position, in which case
+     * WorldGuard lets the child region override it.
+     */
+    private boolean isParentOfApplicable(RegionSnapshot region, RegionSnapshot[] chunkRegions, int x, int y, int z) {
+        for (int pass = 0; pass < 2; pass++) {
+            RegionSnapshot[] candidates = pass == 0 ? chunkRegions : largeRegions;
+
+            for (RegionSnapshot candidate : candidates) {
+                if (region.getId().equals(candidate.getParentId()) && candidate.contains(x, y, z)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+package dev.cwhead.GravesXAddon.trace;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * A single traced land protection decision: which provider decided a grave action for which player and
+ * position, the regions or towns it consulted, the result and how long it took.
+ */
+public final class DecisionRecord {
+    private final long timeMillis;
+    private final UUID player;
+    private final String playerName;
+    private final GraveAction action;
+    private final String provider;
+    private final String worldName;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final List<String> regions;
+    private final boolean allowed;
+    private final long nanos;
+
+    /**
+     * Constructs a {@code DecisionRecord} object.
+     *
+     * @param timeMillis the time of the decision in milliseconds since the epoch
+     * @param player the UUID of the player
+     * @param playerName the name of the player
+     * @param action the grave action
+     * @param provider the provider that made the decision, such as {@code worldguard}, {@code towny} or {@code cache}
+     * @param worldName the name of the world
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @param regions the keys of the regions or towns consulted
+     * @param allowed the result of the decision
+     * @param nanos the time the decision took in nanoseconds
+     */
+    public DecisionRecord(long timeMillis, UUID player, String playerName, GraveAction action, String provider,
+                          String worldName, int x, int y, int z, List<String> regions, boolean allowed, long nanos) {
+        this.timeMillis = timeMillis;
+        this.player = player;
+        this.playerName = playerName;
+        this.action = action;
+        this.provider = provider;
+        this.worldName = worldName;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.regions = List.copyOf(regions);
+        this.allowed = allowed;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Gets the time of the decision.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Gets the UUID of the player.
+     *
+     * @return the player UUID
+     */
+    public UUID getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the name of the player.
+     *
+     * @return the player name
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Gets the grave action.
+     *
+     * @return the grave action
+     */
+    public GraveAction getAction() {
+        return action;
+    }
+
+    /**
+     * Gets the provider that made the decision.
+     *
+     * @return the provider name
+     */
+    public String getProvider() {
+        return provider;
+    }
+
+    /**
+     * Gets the name of the world.
+     *
+     * @return the world name
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Gets the block x coordinate.
+     *
+     * @return the x coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Gets the block y coordinate.
+     *
+     * @return the y coordinate
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Gets the block z coordinate.
+     *
+     * @return the z coordinate
+     */
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * Gets the keys of the regions or towns the provider consulted.
+     *
+     * @return an unmodifiable list of region keys
+     */
+    public List<String> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Checks if the action was allowed.
+     *
+     * @return {@code true} if the action was allowed, {@code false} if it was denied
+     */
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    /**
+     * Gets the time the decision took.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s %s %s %s %s at %s %d %d %d regions %s in %dns", Instant.ofEpochMilli(timeMillis),
+                playerName, allowed ? "allow" : "deny", action.name().toLowerCase(Locale.ROOT), provider, worldName, x, y, z,
+                regions, nanos);
+    }
+}
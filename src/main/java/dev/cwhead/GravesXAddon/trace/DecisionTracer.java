@@ -0,0 +1,144 @@
+package dev.cwhead.GravesXAddon.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@code DecisionTracer} class keeps the most recent land protection decisions in a fixed-size ring buffer,
+ * so they can be dumped on demand. Nothing is built unless the trace level asks for the decision, so tracing
+ * denied actions is cheap enough to leave on in production.
+ * <p>
+ * Callers check {@link #isTraced(boolean)} before building a {@link DecisionRecord}.
+ */
+public class DecisionTracer {
+    /**
+     * Nothing is traced.
+     */
+    public static final int LEVEL_OFF = 0;
+
+    /**
+     * Denied actions are traced.
+     */
+    public static final int LEVEL_DENY = 1;
+
+    /**
+     * Every decision is traced.
+     */
+    public static final int LEVEL_ALL = 2;
+
+    private final int level;
+    private final int gravesXDebugLevel;
+    private final AtomicReferenceArray<DecisionRecord> records;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Constructs a {@code DecisionTracer} object.
+     *
+     * @param level the trace level, {@link #LEVEL_OFF}, {@link #LEVEL_DENY} or {@link #LEVEL_ALL}
+     * @param bufferSize the number of decisions to keep, rounded up to a power of two
+     * @param gravesXDebugLevel the debug level of GravesX, traced decisions are also logged at level 2
+     */
+    public DecisionTracer(int level, int bufferSize, int gravesXDebugLevel) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+
+        this.level = level;
+        this.gravesXDebugLevel = gravesXDebugLevel;
+        this.records = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Checks if a decision with the specified result is traced at the current level, or has to be logged to
+     * the GravesX debug log.
+     *
+     * @param allowed the result of the decision
+     * @return {@code true} if a record should be built and passed to {@link #record(DecisionRecord)}
+     */
+    public boolean isTraced(boolean allowed) {
+        return level >= LEVEL_ALL || (level >= LEVEL_DENY && !allowed) || isDebugLogged();
+    }
+
+    /**
+     * Checks if traced decisions are also written to the GravesX debug log.
+     *
+     * @return {@code true} if GravesX logs debug messages of level 2
+     */
+    public boolean isDebugLogged() {
+        return gravesXDebugLevel >= 2;
+    }
+
+    /**
+     * Adds a decision to the ring buffer, replacing the oldest decision once the buffer is full.
+     *
+     * @param record the decision
+     */
+    public void record(DecisionRecord record) {
+        if (level >= LEVEL_ALL || (level >= LEVEL_DENY && !record.isAllowed())) {
+            records.set((int) (next.getAndIncrement() & mask), record);
+        }
+    }
+
+    /**
+     * Copies the most recent decisions of another tracer into this one, so a tracer replaced on reload keeps
+     * its history.
+     *
+     * @param other the tracer to copy from
+     */
+    public void copyFrom(DecisionTracer other) {
+        for (DecisionRecord record : other.getRecent(records.length())) {
+            records.set((int) (next.getAndIncrement() & mask), record);
+        }
+    }
+
+    /**
+     * Gets the most recent decisions, oldest first.
+     *
+     * @param limit the maximum number of decisions to return
+     * @return the decisions
+     */
+    public List<DecisionRecord> getRecent(int limit) {
+        long end = next.get();
+        long start = Math.max(0L, end - Math.min(limit, records.length()));
+        List<DecisionRecord> recent = new ArrayList<>((int) (end - start));
+
+        for (long sequence = start; sequence < end; sequence++) {
+            DecisionRecord record = records.get((int) (sequence & mask));
+
+            if (record != null) {
+                recent.add(record);
+            }
+        }
+
+        return recent;
+    }
+
+    /**
+     * Gets the trace level.
+     *
+     * @return the trace level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the number of decisions the ring buffer keeps.
+     *
+     * @return the buffer size
+     */
+    public int getBufferSize() {
+        return records.length();
+    }
+
+    /**
+     * Gets the number of decisions recorded since the tracer was created, including those already overwritten.
+     *
+     * @return the number of recorded decisions
+     */
+    public long getRecorded() {
+        return next.get();
+    }
+}
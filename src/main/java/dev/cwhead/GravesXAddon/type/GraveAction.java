@@ -0,0 +1,73 @@
+package dev.cwhead.GravesXAddon.type;
+
+import org.bukkit.ChatColor;
+
+import java.util.Locale;
+
+/**
+ * The grave actions that are checked against land protection. Each action carries everything the listener
+ * needs to evaluate it, so adding a new action only takes a new entry in this table.
+ */
+public enum GraveAction {
+    CREATE("gravesx-grave-create", "create a grave here."),
+    TELEPORT("gravesx-grave-teleport", "teleport to your grave in this region."),
+    OPEN("gravesx-grave-loot", "open a grave in this region."),
+    AUTO_LOOT("gravesx-grave-autoloot", "auto loot a grave in this region."),
+    WALK_OVER("gravesx-grave-walkover", "auto loot a grave in this region."),
+    PROJECTILE("gravesx-grave-projectile", "use a projectile to destroy a grave in this region.");
+
+    /**
+     * The permission node that bypasses the land protection checks of every grave action.
+     */
+    public static final String BYPASS_PERMISSION = "gravesx.landprotection.bypass";
+
+    private final String flagName;
+    private final String configKey;
+    private final String bypassPermission;
+    private final String denyMessage;
+
+    GraveAction(String flagName, String denyMessage) {
+        this.flagName = flagName;
+        this.configKey = name().toLowerCase(Locale.ROOT).replace('_', '-');
+        this.bypassPermission = BYPASS_PERMISSION + "." + flagName.substring(flagName.lastIndexOf('-') + 1);
+        this.denyMessage = ChatColor.GRAY + "☠ " + ChatColor.RED
+                + "You must be a member of the region or have permission to " + denyMessage;
+    }
+
+    /**
+     * Gets the name of the WorldGuard flag controlling this action.
+     *
+     * @return the flag name
+     */
+    public String getFlagName() {
+        return flagName;
+    }
+
+    /**
+     * Gets the key of this action in the config, such as {@code auto-loot}.
+     *
+     * @return the config key
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    /**
+     * Gets the permission node that bypasses the land protection checks of this action, such as
+     * {@code gravesx.landprotection.bypass.autoloot}. It is a child of {@link #BYPASS_PERMISSION}.
+     *
+     * @return the permission node
+     */
+    public String getBypassPermission() {
+        return bypassPermission;
+    }
+
+    /**
+     * Gets the default message sent to a player when this action is denied, used when the config has none.
+     *
+     * @return the colored deny message
+     */
+    public String getDenyMessage() {
+        return denyMessage;
+    }
+}
@@ -0,0 +1,41 @@
+package dev.cwhead.GravesXAddon.util;
+
+/**
+ * Utility methods for packing a pair of chunk or cell coordinates into a single {@code long} key.
+ */
+public final class ChunkKey {
+
+    private ChunkKey() {
+    }
+
+    /**
+     * Packs a pair of coordinates into a key.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the packed key
+     */
+    public static long pack(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Gets the x coordinate of a packed key.
+     *
+     * @param key the packed key
+     * @return the x coordinate
+     */
+    public static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Gets the z coordinate of a packed key.
+     *
+     * @param key the packed key
+     * @return the z coordinate
+     */
+    public static int z(long key) {
+        return (int) key;
+    }
+}
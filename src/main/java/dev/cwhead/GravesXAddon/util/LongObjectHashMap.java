@@ -0,0 +1,231 @@
+package dev.cwhead.GravesXAddon.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A hash map from primitive {@code long} keys to objects using open addressing with linear probing.
+ * Unlike a {@code HashMap<Long, V>} it does not box keys, so lookups don't allocate.
+ * <p>
+ * This map is not thread safe.
+ *
+ * @param <V> the type of the values
+ */
+public class LongObjectHashMap<V> {
+    private static final float LOAD_FACTOR = 0.5F;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructs an empty {@code LongObjectHashMap}.
+     */
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty {@code LongObjectHashMap} sized for the expected number of entries.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key is not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        for (int slot = slot(key); values[slot] != null; slot = slot + 1 & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if a key is mapped.
+     *
+     * @param key the key
+     * @return {@code true} if the key is mapped, {@code false} otherwise
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value.
+     *
+     * @param key the key
+     * @param value the value, must not be {@code null}
+     * @return the value previously mapped to the key, or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int slot = slot(key);
+
+        for (; values[slot] != null; slot = slot + 1 & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (++size > values.length * LOAD_FACTOR) {
+            resize(values.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the mapping of a key.
+     *
+     * @param key the key
+     * @return the value that was mapped to the key, or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        for (int slot = slot(key); values[slot] != null; slot = slot + 1 & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+
+                values[slot] = null;
+                size--;
+                shiftBack(slot);
+                return previous;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Calls the consumer with every value in the map.
+     *
+     * @param consumer the consumer to call
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer with every key in the map.
+     *
+     * @param consumer the consumer to call
+     */
+    public void forEachKey(LongConsumer consumer) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                consumer.accept(keys[slot]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of mappings in the map.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the map has no mappings.
+     *
+     * @return {@code true} if the map is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Creates a copy of the map with the same mappings. The values themselves are not copied.
+     *
+     * @return the copy
+     */
+    public LongObjectHashMap<V> copy() {
+        LongObjectHashMap<V> copy = new LongObjectHashMap<>(0);
+
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        copy.mask = mask;
+        return copy;
+    }
+
+    /**
+     * Removes every mapping from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    /**
+     * Moves the entries following a removed slot back so probing sequences stay unbroken.
+     *
+     * @param removed the slot that was emptied
+     */
+    private void shiftBack(int removed) {
+        int gap = removed;
+
+        for (int slot = gap + 1 & mask; values[slot] != null; slot = slot + 1 & mask) {
+            int home = slot(keys[slot]);
+
+            if ((slot - home & mask) >= (slot - gap & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                values[slot] = null;
+                gap = slot;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != null) {
+                put(oldKeys[slot], (V) oldValues[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package dev.cwhead.GravesXAddon.util;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The {@code TaskScheduler} class schedules the tasks of the addon on the Bukkit scheduler, or on Folia's global
+ * region, entity and async schedulers when running on Folia, which has no main thread. The Folia schedulers are
+ * reached through reflection, so the addon keeps compiling against the Spigot API.
+ * <p>
+ * Global tasks run on the main thread on Bukkit and on the global region thread on Folia. Neither may touch
+ * chunks or entities, tasks that read an entity, such as the permissions of a player, are run for that entity
+ * instead, which on Folia runs them on the thread of the region the entity is in.
+ */
+public final class TaskScheduler {
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final Plugin plugin;
+    private final boolean folia;
+    private Object globalScheduler;
+    private Object asyncScheduler;
+    private Method globalRun;
+    private Method globalRunDelayed;
+    private Method globalRunAtFixedRate;
+    private Method entityGetScheduler;
+    private Method entityRun;
+    private Method asyncRunNow;
+    private Method asyncRunAtFixedRate;
+
+    /**
+     * Constructs a {@code TaskScheduler} object, detecting whether the server runs Folia.
+     *
+     * @param plugin the plugin owning the tasks
+     */
+    public TaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+        this.folia = isFolia();
+
+        if (folia) {
+            try {
+                Class<?> globalType = Class.forName("io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler");
+                Class<?> entityType = Class.forName("io.papermc.paper.threadedregions.scheduler.EntityScheduler");
+                Class<?> asyncType = Class.forName("io.papermc.paper.threadedregions.scheduler.AsyncScheduler");
+
+                globalScheduler = Server.class.getMethod("getGlobalRegionScheduler").invoke(plugin.getServer());
+                asyncScheduler = Server.class.getMethod("getAsyncScheduler").invoke(plugin.getServer());
+                globalRun = globalType.getMethod("run", Plugin.class, Consumer.class);
+                globalRunDelayed = globalType.getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
+                globalRunAtFixedRate = globalType.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+                entityGetScheduler = Entity.class.getMethod("getScheduler");
+                entityRun = entityType.getMethod("run", Plugin.class, Consumer.class, Runnable.class);
+                asyncRunNow = asyncType.getMethod("runNow", Plugin.class, Consumer.class);
+                asyncRunAtFixedRate = asyncType.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Folia was detected but its schedulers could not be found.", e);
+            }
+        }
+    }
+
+    /**
+     * Checks if the server runs Folia.
+     *
+     * @return {@code true} if the server runs Folia, {@code false} otherwise
+     */
+    public static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if this scheduler schedules on Folia.
+     *
+     * @return {@code true} if tasks are scheduled on Folia's schedulers, {@code false} otherwise
+     */
+    public boolean isFoliaScheduler() {
+        return folia;
+    }
+
+    /**
+     * Runs a task on the next tick of the main thread, or the global region thread on Folia.
+     *
+     * @param task the task to run
+     */
+    public void runGlobal(Runnable task) {
+        if (folia) {
+            invoke(globalRun, globalScheduler, plugin, consumer(task));
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Runs a task on the main thread, or the global region thread on Folia, after a delay.
+     *
+     * @param task the task to run
+     * @param delayTicks the delay in ticks
+     */
+    public void runGlobalLater(Runnable task, long delayTicks) {
+        if (folia) {
+            invoke(globalRunDelayed, globalScheduler, plugin, consumer(task), Math.max(1L, delayTicks));
+        } else {
+            plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks);
+        }
+    }
+
+    /**
+     * Runs a task repeatedly on the main thread, or the global region thread on Folia.
+     *
+     * @param task the task to run
+     * @param delayTicks the delay before the first run in ticks
+     * @param periodTicks the period between runs in ticks
+     */
+    public void runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (folia) {
+            invoke(globalRunAtFixedRate, globalScheduler, plugin, consumer(task), Math.max(1L, delayTicks), periodTicks);
+        } else {
+            plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        }
+    }
+
+    /**
+     * Runs a task on the next tick of the main thread, or of the region the entity is in on Folia. On Folia the
+     * task follows the entity across regions and is dropped if the entity is removed first, such as a player
+     * leaving the server.
+     *
+     * @param entity the entity the task reads or changes
+     * @param task the task to run
+     */
+    public void runForEntity(Entity entity, Runnable task) {
+        if (folia) {
+            try {
+                invoke(entityRun, entityGetScheduler.invoke(entity), plugin, consumer(task), null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not get the scheduler of an entity on Folia.", e);
+            }
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Runs a task off the main thread.
+     *
+     * @param task the task to run
+     */
+    public void runAsync(Runnable task) {
+        if (folia) {
+            invoke(asyncRunNow, asyncScheduler, plugin, consumer(task));
+        } else {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+        }
+    }
+
+    /**
+     * Runs a task repeatedly off the main thread.
+     *
+     * @param task the task to run
+     * @param delayTicks the delay before the first run in ticks
+     * @param periodTicks the period between runs in ticks
+     */
+    public void runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (folia) {
+            invoke(asyncRunAtFixedRate, asyncScheduler, plugin, consumer(task), Math.max(1L, delayTicks) * MILLIS_PER_TICK,
+                    periodTicks * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+        } else {
+            plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks);
+        }
+    }
+
+    private static Consumer<Object> consumer(Runnable task) {
+        return scheduledTask -> task.run();
+    }
+
+    private static void invoke(Method method, Object target, Object... args) {
+        try {
+            method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not schedule task on Folia.", e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the {@link DecisionCache} and the {@link GraveDecisionStore} listening to it.
+ */
+class DecisionCacheTest {
+    private static final UUID PLAYER = UUID.randomUUID();
+    private static final UUID GRAVE = UUID.randomUUID();
+
+    @Test
+    void cachesDecisionOfCurrentGeneration() {
+        DecisionCache cache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        long generation = cache.getGeneration(PLAYER);
+
+        cache.put(PLAYER, "world", 1, 64, 1, GraveAction.OPEN, false, generation);
+
+        assertEquals(Boolean.FALSE, cache.get(PLAYER, "world", 1, 64, 1, GraveAction.OPEN));
+    }
+
+    @Test
+    void dropsDecisionEvaluatedBeforeInvalidation() {
+        DecisionCache cache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        GraveDecisionStore store = new GraveDecisionStore(cache, GraveDecisionStore.DEFAULT_MAX_GRAVES);
+
+        World world = mock(World.class);
+
+        when(world.getName()).thenReturn("world");
+        cache.addListener(store);
+        store.track(GRAVE, new Location(world, 1, 64, 1));
+
+        long generation = cache.getGeneration(PLAYER);
+
+        cache.invalidateArea("world", 0, 0, 15, 15);
+        cache.put(PLAYER, "world", 1, 64, 1, GraveAction.OPEN, false, generation);
+        store.put(GRAVE, PLAYER, GraveAction.OPEN, false, generation);
+
+        assertNull(cache.get(PLAYER, "world", 1, 64, 1, GraveAction.OPEN));
+        assertNull(store.get(GRAVE, PLAYER, GraveAction.OPEN));
+    }
+
+    @Test
+    void invalidatesOnlyTheGenerationOfThePlayer() {
+        DecisionCache cache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        UUID other = UUID.randomUUID();
+        long generation = cache.getGeneration(PLAYER);
+        long otherGeneration = cache.getGeneration(other);
+
+        cache.invalidatePlayer(PLAYER);
+
+        assertNotEquals(generation, cache.getGeneration(PLAYER));
+        assertEquals(otherGeneration, cache.getGeneration(other));
+
+        long invalidated = cache.getGeneration(PLAYER);
+
+        cache.invalidateWorld("world");
+
+        assertNotEquals(invalidated, cache.getGeneration(PLAYER));
+        assertNotEquals(otherGeneration, cache.getGeneration(other));
+    }
+
+    @Test
+    void remembersDecisionsOnlyForPlacedGraves() {
+        DecisionCache cache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        GraveDecisionStore store = new GraveDecisionStore(cache, GraveDecisionStore.DEFAULT_MAX_GRAVES);
+        long generation = cache.getGeneration(PLAYER);
+
+        store.put(GRAVE, PLAYER, GraveAction.OPEN, false, generation);
+
+        assertNull(store.get(GRAVE, PLAYER, GraveAction.OPEN));
+        assertNull(store.getLocation(GRAVE));
+
+        store.track(GRAVE, new Location(mock(World.class), 1.5D, 64.2D, -2.5D));
+        store.put(GRAVE, PLAYER, GraveAction.OPEN, false, generation);
+
+        Location placed = store.getLocation(GRAVE);
+
+        assertEquals(Boolean.FALSE, store.get(GRAVE, PLAYER, GraveAction.OPEN));
+        assertEquals(1, placed.getBlockX());
+        assertEquals(64, placed.getBlockY());
+        assertEquals(-3, placed.getBlockZ());
+    }
+
+    @Test
+    void removingPlayerDropsDecisionsStillBeingEvaluated() {
+        DecisionCache cache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        long generation = cache.getGeneration(PLAYER);
+
+        cache.put(PLAYER, "world", 1, 64, 1, GraveAction.OPEN, true, generation);
+        cache.removePlayer(PLAYER);
+        cache.put(PLAYER, "world", 2, 64, 2, GraveAction.OPEN, true, generation);
+
+        assertNull(cache.get(PLAYER, "world", 1, 64, 1, GraveAction.OPEN));
+        assertNull(cache.get(PLAYER, "world", 2, 64, 2, GraveAction.OPEN));
+        assertNotEquals(generation, cache.getGeneration(PLAYER));
+    }
+
+    @Test
+    void invalidatesEveryoneOncePlayerGenerationsAreFull() {
+        DecisionCache cache = new DecisionCache(DecisionCache.DEFAULT_ENTRIES_PER_PLAYER);
+        long generation = cache.getGeneration(PLAYER);
+
+        for (int i = 0; i < DecisionCache.MAX_PLAYER_GENERATIONS; i++) {
+            cache.invalidatePlayer(UUID.randomUUID());
+        }
+
+        assertEquals(generation, cache.getGeneration(PLAYER));
+
+        cache.invalidatePlayer(UUID.randomUUID());
+
+        assertNotEquals(generation, cache.getGeneration(PLAYER));
+    }
+}
@@ -0,0 +1,208 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.DataStore;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the {@link GriefPreventionClaimIndex} against an in-memory claim store.
+ */
+class GriefPreventionClaimIndexTest {
+    private World world;
+    private DataStore dataStore;
+    private ArrayList<Claim> stored;
+    private List<int[]> changedAreas;
+    private ClaimChangeListener listener;
+
+    @BeforeEach
+    void setUp() {
+        world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+
+        stored = new ArrayList<>();
+        changedAreas = new ArrayList<>();
+        listener = (worldName, minX, minZ, maxX, maxZ) -> changedAreas.add(new int[] {minX, minZ, maxX, maxZ});
+        dataStore = mock(DataStore.class);
+        when(dataStore.getClaims()).thenReturn(stored);
+        when(dataStore.getClaim(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+
+            for (Claim claim : stored) {
+                if (id.equals(claim.getID())) {
+                    return claim;
+                }
+            }
+
+            return null;
+        });
+    }
+
+    @Test
+    void resolvesSubdivisionInsideTopLevelClaim() {
+        Claim parent = claim(1L, 0, 0, 99, 99);
+        Claim child = claim(2L, 10, 10, 20, 20);
+
+        child.parent = parent;
+        parent.children.add(child);
+        stored.add(parent);
+
+        GriefPreventionClaimIndex index = new GriefPreventionClaimIndex();
+
+        index.rebuild(dataStore);
+
+        assertSame(child, index.getClaimAt(location(15, 15)));
+        assertSame(parent, index.getClaimAt(location(50, 50)));
+        assertNull(index.getClaimAt(location(150, 150)));
+    }
+
+    @Test
+    void indexesNewClaimOnceItHasAnId() {
+        GriefPreventionClaimIndex index = new GriefPreventionClaimIndex();
+
+        index.rebuild(dataStore);
+
+        Claim claim = claim(null, 100, 100, 131, 131);
+
+        index.markChanged(claim);
+        index.publish(dataStore, listener);
+        assertNull(index.getClaimAt(location(110, 110)));
+        assertTrue(changedAreas.isEmpty());
+
+        when(claim.getID()).thenReturn(7L);
+        claim.inDataStore = true;
+        stored.add(claim);
+        index.markChanged(claim);
+        assertNull(index.getClaimAt(location(110, 110)));
+
+        index.publish(dataStore, listener);
+
+        assertSame(claim, index.getClaimAt(location(110, 110)));
+        assertEquals(1, changedAreas.size());
+        assertTrue(index.isClaimedChunk("world", 100 >> 4, 100 >> 4));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void dropsDeletedClaim() {
+        Claim claim = claim(3L, -40, -40, -10, -10);
+
+        stored.add(claim);
+
+        GriefPreventionClaimIndex index = new GriefPreventionClaimIndex();
+
+        index.rebuild(dataStore);
+        assertSame(claim, index.getClaimAt(location(-20, -20)));
+
+        stored.remove(claim);
+        claim.inDataStore = false;
+        index.markChanged(claim);
+        index.publish(dataStore, listener);
+
+        assertNull(index.getClaimAt(location(-20, -20)));
+        assertFalse(index.isClaimedChunk("world", -20 >> 4, -20 >> 4));
+        assertEquals(1, changedAreas.size());
+    }
+
+    @Test
+    void publishesClaimsOfOneTickTogether() {
+        GriefPreventionClaimIndex index = new GriefPreventionClaimIndex();
+
+        index.rebuild(dataStore);
+
+        for (long id = 1; id <= 3; id++) {
+            Claim claim = claim(id, (int) id * 100, 0, (int) id * 100 + 31, 31);
+
+            stored.add(claim);
+            index.markChanged(claim);
+        }
+
+        index.publish(dataStore, listener);
+
+        assertEquals(3, index.size());
+        assertEquals(3, changedAreas.size());
+        assertSame(stored.get(1), index.getClaimAt(location(210, 10)));
+    }
+
+    @Test
+    void respectsClaimHeight() {
+        Claim parent = claim(4L, 0, 0, 99, 99, 40, 319);
+        Claim child = claim(5L, 10, 10, 20, 20, 60, 70);
+
+        child.parent = parent;
+        parent.children.add(child);
+        stored.add(parent);
+
+        GriefPreventionClaimIndex index = new GriefPreventionClaimIndex();
+
+        index.rebuild(dataStore);
+
+        assertSame(child, index.getClaimAt(new Location(world, 15, 64, 15)));
+        assertSame(parent, index.getClaimAt(new Location(world, 15, 80, 15)));
+        assertNull(index.getClaimAt(new Location(world, 15, 20, 15)));
+    }
+
+    private Claim claim(Long id, int minX, int minZ, int maxX, int maxZ) {
+        return claim(id, minX, minZ, maxX, maxZ, -64, 319);
+    }
+
+    /**
+     * Creates a stand-in claim that contains locations the way GriefPrevention does, between its lower and upper
+     * height unless height is ignored, and excluding the locations of its subdivisions when asked to.
+     */
+    private Claim claim(Long id, int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
+        Claim claim = mock(Claim.class);
+
+        claim.children = new ArrayList<>();
+        claim.inDataStore = id != null;
+        when(claim.getID()).thenReturn(id);
+        when(claim.getLesserBoundaryCorner()).thenReturn(location(minX, minZ));
+        when(claim.getGreaterBoundaryCorner()).thenReturn(location(maxX, maxZ));
+        when(claim.contains(any(Location.class), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            Location location = invocation.getArgument(0);
+            boolean ignoreHeight = invocation.getArgument(1);
+            boolean excludeSubdivisions = invocation.getArgument(2);
+
+            if (location.getBlockX() < minX || location.getBlockX() > maxX
+                    || location.getBlockZ() < minZ || location.getBlockZ() > maxZ) {
+                return false;
+            }
+
+            if (!ignoreHeight && (location.getBlockY() < minY || location.getBlockY() > maxY)) {
+                return false;
+            }
+
+            if (excludeSubdivisions) {
+                for (Claim child : claim.children) {
+                    if (child.contains(location, true, false)) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        });
+
+        return claim;
+    }
+
+    private Location location(int x, int z) {
+        return new Location(world, x, 64, z);
+    }
+}
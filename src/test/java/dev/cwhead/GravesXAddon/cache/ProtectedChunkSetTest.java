@@ -0,0 +1,126 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link ProtectedChunkSet} across the borders of its pages and at negative chunk coordinates.
+ */
+class ProtectedChunkSetTest {
+    @Test
+    void addsRangeAcrossPageBorders() {
+        ProtectedChunkSet chunks = new ProtectedChunkSet();
+
+        chunks.addRange(-65, -1, 64, 0);
+
+        assertEquals(130 * 2, chunks.size());
+        assertTrue(chunks.contains(-65, -1));
+        assertTrue(chunks.contains(-64, 0));
+        assertTrue(chunks.contains(-1, -1));
+        assertTrue(chunks.contains(0, 0));
+        assertTrue(chunks.contains(63, -1));
+        assertTrue(chunks.contains(64, 0));
+        assertFalse(chunks.contains(-66, 0));
+        assertFalse(chunks.contains(65, 0));
+        assertFalse(chunks.contains(0, -2));
+        assertFalse(chunks.contains(0, 1));
+    }
+
+    @Test
+    void addsWholePage() {
+        ProtectedChunkSet chunks = new ProtectedChunkSet();
+
+        chunks.addRange(-64, -64, -1, -1);
+
+        assertEquals(64 * 64, chunks.size());
+        assertTrue(chunks.contains(-64, -64));
+        assertTrue(chunks.contains(-1, -1));
+        assertFalse(chunks.contains(0, -1));
+        assertFalse(chunks.contains(-1, 0));
+        assertFalse(chunks.contains(-65, -64));
+    }
+
+    @Test
+    void removesChunksAtNegativeCoordinates() {
+        ProtectedChunkSet chunks = new ProtectedChunkSet();
+
+        chunks.add(-1, -1);
+        chunks.add(-64, -1);
+        chunks.add(-65, -1);
+        chunks.remove(-1, -1);
+
+        assertFalse(chunks.contains(-1, -1));
+        assertTrue(chunks.contains(-64, -1));
+        assertTrue(chunks.contains(-65, -1));
+
+        chunks.remove(-64, -1);
+        chunks.remove(-65, -1);
+        chunks.remove(-200, -200);
+
+        assertEquals(0, chunks.size());
+        assertFalse(chunks.contains(-64, -1));
+        assertFalse(chunks.contains(-65, -1));
+    }
+
+    @Test
+    void keepsCopyIndependent() {
+        ProtectedChunkSet chunks = new ProtectedChunkSet();
+
+        chunks.addRange(-2, -2, 1, 1);
+
+        ProtectedChunkSet copy = chunks.copy();
+
+        copy.remove(-1, -1);
+        copy.add(5, 5);
+
+        assertTrue(chunks.contains(-1, -1));
+        assertFalse(chunks.contains(5, 5));
+        assertFalse(copy.contains(-1, -1));
+        assertTrue(copy.contains(5, 5));
+    }
+
+    @Test
+    void matchesPlainSetOfChunks() {
+        Random random = new Random(42L);
+        ProtectedChunkSet chunks = new ProtectedChunkSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200; i++) {
+            int minX = random.nextInt(400) - 200;
+            int minZ = random.nextInt(400) - 200;
+            int maxX = minX + random.nextInt(100);
+            int maxZ = minZ + random.nextInt(100);
+
+            if (random.nextInt(4) == 0) {
+                for (int x = minX; x <= maxX; x++) {
+                    chunks.remove(x, minZ);
+                    expected.remove(ChunkKey.pack(x, minZ));
+                }
+            } else {
+                chunks.addRange(minX, minZ, maxX, maxZ);
+
+                for (int x = minX; x <= maxX; x++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        expected.add(ChunkKey.pack(x, z));
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected.size(), chunks.size());
+
+        for (int x = -210; x <= 310; x++) {
+            for (int z = -210; z <= 310; z++) {
+                assertEquals(expected.contains(ChunkKey.pack(x, z)), chunks.contains(x, z));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.flags.RegionGroup;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.flags.registry.SimpleFlagRegistry;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.index.PriorityRTreeIndex;
+import com.sk89q.worldguard.protection.managers.storage.MemoryRegionDatabase;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests how the {@link RegionFlagSectionIndex} compiles the flags of the regions covering a section against an
+ * in-memory region manager.
+ */
+class RegionFlagSectionIndexTest {
+    private static final StateFlag[] FLAGS = Arrays.stream(GraveAction.values())
+            .map(action -> new StateFlag(action.getFlagName(), true))
+            .toArray(StateFlag[]::new);
+
+    private RegionManager regionManager;
+    private RegionFlagSectionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        regionManager = new RegionManager(new MemoryRegionDatabase(), new PriorityRTreeIndex.Factory(),
+                new SimpleFlagRegistry());
+        index = new RegionFlagSectionIndex(FLAGS);
+    }
+
+    @Test
+    void higherPriorityRegionWins() {
+        ProtectedRegion outer = region("outer", 0, 63);
+        ProtectedRegion inner = region("inner", 16, 47);
+
+        outer.setFlag(flag(GraveAction.OPEN), StateFlag.State.DENY);
+        inner.setFlag(flag(GraveAction.OPEN), StateFlag.State.ALLOW);
+        inner.setPriority(1);
+        regionManager.addRegion(outer);
+        regionManager.addRegion(inner);
+
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(20, 20, GraveAction.OPEN));
+        assertEquals(RegionFlagSectionIndex.MEMBERS, state(56, 56, GraveAction.OPEN));
+        assertArrayEquals(new String[] {"outer"}, section(56, 56).getRegionIds());
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(56, 56, GraveAction.CREATE));
+    }
+
+    @Test
+    void denyWinsAmongOverlappingRegionsOfEqualPriority() {
+        ProtectedRegion denying = region("denying", 0, 31);
+        ProtectedRegion allowing = region("allowing", 0, 31);
+
+        denying.setFlag(flag(GraveAction.OPEN), StateFlag.State.DENY);
+        allowing.setFlag(flag(GraveAction.OPEN), StateFlag.State.ALLOW);
+        allowing.setFlag(flag(GraveAction.CREATE), StateFlag.State.ALLOW);
+        regionManager.addRegion(denying);
+        regionManager.addRegion(allowing);
+
+        assertEquals(RegionFlagSectionIndex.MEMBERS, state(8, 8, GraveAction.OPEN));
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(8, 8, GraveAction.CREATE));
+        assertEquals(Set.of("denying", "allowing"), Set.of(section(8, 8).getRegionIds()));
+    }
+
+    @Test
+    void queriesSectionsOnRegionBorders() {
+        ProtectedRegion region = region("plot", 0, 20);
+
+        region.setFlag(flag(GraveAction.OPEN), StateFlag.State.DENY);
+        regionManager.addRegion(region);
+
+        for (GraveAction action : GraveAction.values()) {
+            assertEquals(RegionFlagSectionIndex.QUERY, state(24, 24, action));
+        }
+
+        assertEquals(RegionFlagSectionIndex.MEMBERS, state(8, 8, GraveAction.OPEN));
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(40, 40, GraveAction.OPEN));
+    }
+
+    @Test
+    void globalRegionAppliesOutsideOtherRegions() {
+        ProtectedRegion global = new GlobalProtectedRegion(GlobalProtectedRegion.GLOBAL_REGION);
+        ProtectedRegion region = region("spawn", 0, 31);
+
+        global.setFlag(flag(GraveAction.OPEN), StateFlag.State.DENY);
+        region.setFlag(flag(GraveAction.OPEN), StateFlag.State.ALLOW);
+        regionManager.addRegion(global);
+        regionManager.addRegion(region);
+
+        assertEquals(RegionFlagSectionIndex.MEMBERS, state(100, 100, GraveAction.OPEN));
+        assertEquals(0, section(100, 100).getRegionIds().length);
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(100, 100, GraveAction.CREATE));
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(8, 8, GraveAction.OPEN));
+    }
+
+    @Test
+    void queriesFlagsRestrictedToRegionGroup() throws ProtectedRegion.CircularInheritanceException {
+        ProtectedRegion parent = region("town", -64, 127);
+        ProtectedRegion child = region("plot", 0, 31);
+        ProtectedRegion other = region("market", 64, 95);
+
+        parent.setFlag(flag(GraveAction.CREATE).getRegionGroupFlag(), RegionGroup.NON_MEMBERS);
+        child.setParent(parent);
+        child.setFlag(flag(GraveAction.OPEN), StateFlag.State.DENY);
+        child.setFlag(flag(GraveAction.OPEN).getRegionGroupFlag(), RegionGroup.NON_OWNERS);
+        child.setPriority(1);
+        other.setPriority(1);
+        regionManager.addRegion(parent);
+        regionManager.addRegion(child);
+        regionManager.addRegion(other);
+
+        assertEquals(RegionFlagSectionIndex.QUERY, state(8, 8, GraveAction.OPEN));
+        assertEquals(RegionFlagSectionIndex.QUERY, state(8, 8, GraveAction.CREATE));
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(8, 8, GraveAction.AUTO_LOOT));
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(72, 72, GraveAction.OPEN));
+    }
+
+    @Test
+    void queriesGroupFlagsOfGlobalRegion() {
+        ProtectedRegion global = new GlobalProtectedRegion(GlobalProtectedRegion.GLOBAL_REGION);
+
+        global.setFlag(flag(GraveAction.OPEN).getRegionGroupFlag(), RegionGroup.NON_MEMBERS);
+        regionManager.addRegion(global);
+        regionManager.addRegion(region("spawn", 0, 31));
+
+        assertEquals(RegionFlagSectionIndex.QUERY, state(100, 100, GraveAction.OPEN));
+        assertEquals(RegionFlagSectionIndex.QUERY, state(8, 8, GraveAction.OPEN));
+        assertEquals(RegionFlagSectionIndex.ALLOW, state(8, 8, GraveAction.CREATE));
+    }
+
+    private RegionFlagSectionIndex.Section section(int x, int z) {
+        return index.getSection("world", regionManager, x, 64, z);
+    }
+
+    private byte state(int x, int z, GraveAction action) {
+        return section(x, z).getState(action);
+    }
+
+    private static StateFlag flag(GraveAction action) {
+        return FLAGS[action.ordinal()];
+    }
+
+    /**
+     * Creates a square region from the bottom to the top of the world.
+     */
+    private static ProtectedRegion region(String id, int min, int max) {
+        return new ProtectedCuboidRegion(id, BlockVector3.at(min, -64, min), BlockVector3.at(max, 319, max));
+    }
+}
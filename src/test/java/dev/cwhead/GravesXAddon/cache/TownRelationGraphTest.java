@@ -0,0 +1,114 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the {@link TownRelationGraph} kept up to date through nation, alliance and trust changes.
+ */
+class TownRelationGraphTest {
+    private static final UUID NATION = UUID.randomUUID();
+    private static final UUID ALLY = UUID.randomUUID();
+    private static final UUID TOWN = UUID.randomUUID();
+    private static final UUID NATION_TOWN = UUID.randomUUID();
+    private static final UUID ALLY_TOWN = UUID.randomUUID();
+    private static final UUID RESIDENT = UUID.randomUUID();
+    private static final UUID NATION_RESIDENT = UUID.randomUUID();
+    private static final UUID ALLY_RESIDENT = UUID.randomUUID();
+
+    private TownRelationGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        TownResidentIndex residentIndex = new TownResidentIndex();
+
+        residentIndex.addResident(TOWN, RESIDENT);
+        residentIndex.addResident(NATION_TOWN, NATION_RESIDENT);
+        residentIndex.addResident(ALLY_TOWN, ALLY_RESIDENT);
+        graph = new TownRelationGraph(residentIndex);
+        graph.setNation(TOWN, NATION);
+        graph.setNation(NATION_TOWN, NATION);
+        graph.setNation(ALLY_TOWN, ALLY);
+    }
+
+    @Test
+    void relatesResidentsOfOtherTownsOfTheNation() {
+        assertEquals(TownRelationGraph.NATION, graph.getRelations(TOWN, NATION_RESIDENT));
+        assertEquals(TownRelationGraph.NATION, graph.getRelations(NATION_TOWN, RESIDENT));
+        assertEquals(0, graph.getRelations(TOWN, RESIDENT));
+        assertEquals(0, graph.getRelations(TOWN, ALLY_RESIDENT));
+    }
+
+    @Test
+    void relatesAlliesOnlyInTheDirectionOfTheAlliance() {
+        graph.setAllied(NATION, ALLY, true);
+
+        assertEquals(TownRelationGraph.ALLY, graph.getRelations(TOWN, ALLY_RESIDENT));
+        assertEquals(TownRelationGraph.ALLY, graph.getRelations(NATION_TOWN, ALLY_RESIDENT));
+        assertEquals(0, graph.getRelations(ALLY_TOWN, RESIDENT));
+
+        graph.setAllied(ALLY, NATION, true);
+
+        assertEquals(TownRelationGraph.ALLY, graph.getRelations(ALLY_TOWN, RESIDENT));
+
+        graph.setAllied(NATION, ALLY, false);
+
+        assertEquals(0, graph.getRelations(TOWN, ALLY_RESIDENT));
+        assertEquals(TownRelationGraph.ALLY, graph.getRelations(ALLY_TOWN, RESIDENT));
+    }
+
+    @Test
+    void replacesAlliesWithTheAlliesTownyLists() {
+        graph.setAllied(NATION, ALLY, true);
+        graph.setAllies(NATION, Set.of());
+        graph.setAllies(ALLY, Set.of(NATION));
+
+        assertEquals(0, graph.getRelations(TOWN, ALLY_RESIDENT));
+        assertEquals(TownRelationGraph.ALLY, graph.getRelations(ALLY_TOWN, NATION_RESIDENT));
+    }
+
+    @Test
+    void relatesNewResidentsOfAlliedTowns() {
+        UUID newResident = UUID.randomUUID();
+        TownResidentIndex residentIndex = new TownResidentIndex();
+        TownRelationGraph relations = new TownRelationGraph(residentIndex);
+
+        relations.setNation(TOWN, NATION);
+        relations.setNation(ALLY_TOWN, ALLY);
+        relations.setAllied(NATION, ALLY, true);
+        residentIndex.addResident(ALLY_TOWN, newResident);
+        relations.residentsChanged(ALLY_TOWN);
+
+        assertEquals(TownRelationGraph.ALLY, relations.getRelations(TOWN, newResident));
+    }
+
+    @Test
+    void combinesTrustWithOtherRelations() {
+        graph.setTrusted(TOWN, NATION_RESIDENT, true);
+
+        assertEquals(TownRelationGraph.TRUSTED | TownRelationGraph.NATION, graph.getRelations(TOWN, NATION_RESIDENT));
+
+        graph.setTrusted(TOWN, NATION_RESIDENT, false);
+
+        assertEquals(TownRelationGraph.NATION, graph.getRelations(TOWN, NATION_RESIDENT));
+    }
+
+    @Test
+    void dropsRelationsOfTownLeavingItsNation() {
+        graph.setAllied(NATION, ALLY, true);
+        graph.setNation(NATION_TOWN, null);
+
+        assertEquals(0, graph.getRelations(TOWN, NATION_RESIDENT));
+        assertEquals(0, graph.getRelations(NATION_TOWN, ALLY_RESIDENT));
+        assertEquals(TownRelationGraph.ALLY, graph.getRelations(TOWN, ALLY_RESIDENT));
+
+        graph.removeTown(TOWN);
+
+        assertEquals(0, graph.getRelations(TOWN, ALLY_RESIDENT));
+    }
+}
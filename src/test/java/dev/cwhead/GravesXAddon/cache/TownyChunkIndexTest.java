@@ -0,0 +1,98 @@
+package dev.cwhead.GravesXAddon.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link TownyChunkIndex} with the default town block size of 16.
+ */
+class TownyChunkIndexTest {
+    private static final UUID TOWN = UUID.randomUUID();
+
+    private TownyChunkIndex index;
+    private List<int[]> changedAreas;
+    private ClaimChangeListener listener;
+
+    @BeforeEach
+    void setUp() {
+        index = new TownyChunkIndex();
+        changedAreas = new ArrayList<>();
+        listener = (worldName, minX, minZ, maxX, maxZ) -> changedAreas.add(new int[] {minX, minZ, maxX, maxZ});
+    }
+
+    @Test
+    void publishesAreaClaimOnce() {
+        for (int cellX = 0; cellX < 4; cellX++) {
+            for (int cellZ = 0; cellZ < 4; cellZ++) {
+                index.claim("world", cellX, cellZ, TOWN, "Town");
+            }
+        }
+
+        assertNull(index.getTownAt("world", 8, 8));
+        assertFalse(index.isClaimedChunk("world", 0, 0));
+
+        index.publish(listener);
+
+        assertEquals(TOWN, index.getTownAt("world", 8, 8));
+        assertEquals(TOWN, index.getTownAt("world", 63, 63));
+        assertTrue(index.isClaimedChunk("world", 3, 3));
+        assertEquals(1, changedAreas.size());
+        assertArrayEquals(new int[] {0, 0, 63, 63}, changedAreas.get(0));
+    }
+
+    @Test
+    void removesTownBlocksOfDeletedTown() {
+        UUID other = UUID.randomUUID();
+
+        index.claim("world", 0, 0, TOWN, "Town");
+        index.claim("world", 1, 0, other, "Other");
+        index.publish(listener);
+        index.removeTown(TOWN);
+
+        assertEquals(TOWN, index.getTownAt("world", 8, 8));
+
+        index.publish(listener);
+
+        assertNull(index.getTownAt("world", 8, 8));
+        assertFalse(index.isClaimedChunk("world", 0, 0));
+        assertEquals(other, index.getTownAt("world", 24, 8));
+        assertNull(index.getTownName(TOWN));
+    }
+
+    @Test
+    void keepsTownBlocksMergedIntoRemainingTown() {
+        UUID merged = UUID.randomUUID();
+
+        index.claim("world", 0, 0, merged, "Merged");
+        index.claim("world", 1, 0, merged, "Merged");
+        index.publish(listener);
+        index.claim("world", 0, 0, TOWN, "Town");
+        index.removeTown(merged);
+        index.claim("world", 1, 0, TOWN, "Town");
+        index.publish(listener);
+
+        assertEquals(TOWN, index.getTownAt("world", 8, 8));
+        assertEquals(TOWN, index.getTownAt("world", 24, 8));
+        assertTrue(index.isClaimedChunk("world", 1, 0));
+        assertNull(index.getTownName(merged));
+    }
+
+    @Test
+    void skipsPublishWithoutChanges() {
+        index.publish(listener);
+        index.unclaim("world", 0, 0);
+        index.publish(listener);
+
+        assertTrue(changedAreas.isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package dev.cwhead.GravesXAddon.config;
+
+import dev.cwhead.GravesXAddon.cache.TownRelationGraph;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the relation masks of the {@link TownyRelationRules}.
+ */
+class TownyRelationRulesTest {
+    private static final int ALL = TownRelationGraph.TRUSTED | TownRelationGraph.NATION | TownRelationGraph.ALLY;
+
+    @Test
+    void defaultOnlyAllowsResidents() {
+        for (GraveAction action : GraveAction.values()) {
+            assertFalse(TownyRelationRules.DEFAULT.allowsAny(action));
+            assertFalse(TownyRelationRules.DEFAULT.allows(action, ALL));
+        }
+    }
+
+    @Test
+    void bundledConfigOnlyAllowsResidents() {
+        InputStream config = getClass().getClassLoader().getResourceAsStream("config.yml");
+
+        assertNotNull(config);
+
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(new InputStreamReader(config, StandardCharsets.UTF_8));
+
+        assertEquals(TownyRelationRules.DEFAULT, TownyRelationRules.load(yaml.getConfigurationSection("towny")));
+    }
+
+    @Test
+    void missingSectionUsesDefault() {
+        assertSame(TownyRelationRules.DEFAULT, TownyRelationRules.load(null));
+        assertSame(TownyRelationRules.DEFAULT, TownyRelationRules.load(new YamlConfiguration()));
+    }
+
+    @Test
+    void allowsOnlyListedRelationsPerAction() throws InvalidConfigurationException {
+        TownyRelationRules rules = load("allow:\n  open: [trusted, NATION]\n  create: [ally, unknown]\n");
+
+        assertTrue(rules.allows(GraveAction.OPEN, TownRelationGraph.TRUSTED));
+        assertTrue(rules.allows(GraveAction.OPEN, TownRelationGraph.NATION | TownRelationGraph.ALLY));
+        assertFalse(rules.allows(GraveAction.OPEN, TownRelationGraph.ALLY));
+        assertTrue(rules.allows(GraveAction.CREATE, TownRelationGraph.ALLY));
+        assertFalse(rules.allows(GraveAction.CREATE, TownRelationGraph.TRUSTED | TownRelationGraph.NATION));
+        assertFalse(rules.allowsAny(GraveAction.AUTO_LOOT));
+        assertFalse(rules.allows(GraveAction.AUTO_LOOT, ALL));
+        assertFalse(rules.allows(GraveAction.OPEN, 0));
+    }
+
+    @Test
+    void emptyListOnlyAllowsResidents() throws InvalidConfigurationException {
+        TownyRelationRules rules = load("allow:\n  open: []\n");
+
+        assertFalse(rules.allowsAny(GraveAction.OPEN));
+        assertEquals(TownyRelationRules.DEFAULT, rules);
+    }
+
+    private static TownyRelationRules load(String towny) throws InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+
+        yaml.loadFromString(towny);
+        return TownyRelationRules.load(yaml);
+    }
+}
@@ -0,0 +1,142 @@
+package dev.cwhead.GravesXAddon.message;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the cooldown and dedupe window of the {@link DenyMessages}.
+ */
+class DenyMessagesTest {
+    private static final long NOW = 1_000_000L;
+
+    private DenyMessages messages;
+
+    @BeforeEach
+    void setUp() {
+        YamlConfiguration config = new YamlConfiguration();
+
+        config.set("dedupe-window", 1000L);
+        config.set("cooldown.open", 1000L);
+        config.set("deny.auto-loot", "&cYou may not loot this grave.");
+        config.set("deny.walk-over", "&cYou may not loot this grave.");
+        config.set("deny.projectile", "");
+
+        messages = new DenyMessages();
+        messages.apply(DenyMessages.Templates.load(config));
+    }
+
+    @Test
+    void suppressesActionOnCooldown() {
+        Player player = player();
+
+        assertTrue(messages.send(player, GraveAction.OPEN, NOW));
+        assertFalse(messages.send(player, GraveAction.OPEN, NOW + 999L));
+        assertTrue(messages.send(player, GraveAction.OPEN, NOW + 1000L));
+        assertTrue(messages.send(player, GraveAction.CREATE, NOW + 1001L));
+
+        assertEquals(2, messages.getSent(GraveAction.OPEN));
+        assertEquals(1, messages.getSuppressed(GraveAction.OPEN));
+        verify(player, times(3)).sendMessage(anyString());
+    }
+
+    @Test
+    void dropsIdenticalMessageWithinDedupeWindow() {
+        Player player = player();
+
+        assertTrue(messages.send(player, GraveAction.AUTO_LOOT, NOW));
+        assertFalse(messages.send(player, GraveAction.WALK_OVER, NOW + 500L));
+        assertTrue(messages.send(player, GraveAction.CREATE, NOW + 600L));
+        assertTrue(messages.send(player, GraveAction.WALK_OVER, NOW + 700L));
+        assertFalse(messages.send(player, GraveAction.AUTO_LOOT, NOW + 1699L));
+        assertTrue(messages.send(player, GraveAction.AUTO_LOOT, NOW + 1700L));
+
+        assertEquals(1, messages.getSuppressed(GraveAction.WALK_OVER));
+        assertEquals(1, messages.getSuppressed(GraveAction.AUTO_LOOT));
+    }
+
+    @Test
+    void keepsRateLimitsPerPlayer() {
+        Player player = player();
+        Player other = player();
+
+        assertTrue(messages.send(player, GraveAction.OPEN, NOW));
+        assertTrue(messages.send(other, GraveAction.OPEN, NOW));
+
+        messages.remove(player.getUniqueId());
+
+        assertTrue(messages.send(player, GraveAction.OPEN, NOW + 1L));
+        assertFalse(messages.send(other, GraveAction.OPEN, NOW + 1L));
+    }
+
+    @Test
+    void neverSendsDisabledMessage() {
+        Player player = player();
+
+        assertFalse(messages.send(player, GraveAction.PROJECTILE, NOW));
+        assertEquals(0, messages.getSent(GraveAction.PROJECTILE));
+        assertEquals(0, messages.getSuppressed(GraveAction.PROJECTILE));
+    }
+
+    @Test
+    void sendsOnceWhenThreadsRace() throws InterruptedException {
+        Player player = player();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sent = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int j = 0; j < 1000; j++) {
+                    if (messages.send(player, GraveAction.OPEN, NOW)) {
+                        sent.incrementAndGet();
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, sent.get());
+        assertEquals(8 * 1000 - 1, messages.getSuppressed(GraveAction.OPEN));
+    }
+
+    private static Player player() {
+        Player player = mock(Player.class);
+
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+
+        return player;
+    }
+}
@@ -0,0 +1,218 @@
+package dev.cwhead.GravesXAddon.provider;
+
+import dev.cwhead.GravesXAddon.LandProtection;
+import dev.cwhead.GravesXAddon.metrics.ProtectionMetrics;
+import dev.cwhead.GravesXAddon.session.ProtectionSession;
+import dev.cwhead.GravesXAddon.trace.DecisionTracer;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the {@link ProtectionEngine} against stand-in providers.
+ */
+class ProtectionEngineTest {
+    private ProtectionEngine engine;
+    private ProtectionSession session;
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        LandProtection plugin = mock(LandProtection.class);
+        Player player = mock(Player.class);
+
+        when(plugin.getMetrics()).thenReturn(new ProtectionMetrics());
+        when(plugin.getTracer()).thenReturn(new DecisionTracer(DecisionTracer.LEVEL_OFF, 16, 0));
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+
+        world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+
+        engine = new ProtectionEngine(plugin);
+        session = new ProtectionSession(player);
+    }
+
+    @Test
+    void stopsAtFirstDeny() {
+        StubProvider first = new StubProvider("first", false);
+        StubProvider second = new StubProvider("second", false);
+
+        engine.register(first);
+        engine.register(second);
+        engine.configure(fixedOrder("first", "second"), ProviderActivation.ALL);
+
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(engine.evaluate(session, location(8, 8), GraveAction.OPEN));
+        }
+
+        assertEquals(1000, first.calls);
+        assertEquals(0, second.calls);
+    }
+
+    @Test
+    void queriesEveryProviderUntilOneDenies() {
+        StubProvider allowing = new StubProvider("allowing", true);
+        StubProvider denying = new StubProvider("denying", false);
+
+        engine.register(allowing);
+        engine.register(denying);
+        engine.configure(fixedOrder("allowing", "denying"), ProviderActivation.ALL);
+
+        assertFalse(engine.evaluate(session, location(8, 8), GraveAction.OPEN));
+        assertEquals(1, allowing.calls);
+        assertEquals(1, denying.calls);
+
+        denying.allowed = true;
+
+        assertTrue(engine.evaluate(session, location(8, 8), GraveAction.OPEN));
+        assertEquals(2, allowing.calls);
+        assertEquals(2, denying.calls);
+    }
+
+    @Test
+    void movesCheapDenyingProviderFirst() {
+        StubProvider slow = new StubProvider("slow", true);
+        StubProvider denying = new StubProvider("denying", false);
+
+        slow.spinNanos = 20_000L;
+        engine.register(slow);
+        engine.register(denying);
+        assertEquals(List.of("slow", "denying"), engine.getOrder("world", GraveAction.OPEN));
+
+        for (int i = 0; i < 100 * ProtectionEngine.REORDER_INTERVAL; i++) {
+            assertFalse(engine.evaluate(session, location(8, 8), GraveAction.OPEN));
+        }
+
+        assertEquals(List.of("denying", "slow"), engine.getOrder("world", GraveAction.OPEN));
+        assertEquals(List.of("slow", "denying"), engine.getOrder("world", GraveAction.CREATE));
+    }
+
+    @Test
+    void keepsMeasuringProvidersAfterTheFirstDeny() {
+        StubProvider denying = new StubProvider("denying", false);
+        StubProvider later = new StubProvider("later", true);
+        int evaluations = 200 * ProtectionEngine.REORDER_INTERVAL;
+
+        engine.register(denying);
+        engine.register(later);
+
+        for (int i = 0; i < evaluations; i++) {
+            assertFalse(engine.evaluate(session, location(8, 8), GraveAction.OPEN));
+        }
+
+        // Roughly one in REORDER_INTERVAL evaluations queries every provider, the others stop at the first deny.
+        assertEquals(evaluations, denying.calls);
+        assertTrue(later.calls > 0);
+        assertTrue(later.calls < evaluations / 8);
+        assertEquals(List.of("denying", "later"), engine.getOrder("world", GraveAction.OPEN));
+    }
+
+    @Test
+    void allowsWildernessWithoutQueryingProviders() {
+        StubProvider denying = new StubProvider("denying", false);
+
+        denying.protectedChunk = true;
+        engine.register(denying);
+
+        assertTrue(engine.evaluate(session, location(100, 100), GraveAction.OPEN));
+        assertEquals(0, denying.calls);
+        assertEquals(1, engine.getWildernessHits());
+    }
+
+    @Test
+    void neverAllowsWildernessWhereAProviderWouldDeny() {
+        StubProvider wilderness = new StubProvider("wilderness", true);
+        StubProvider denying = new StubProvider("denying", false);
+        StubProvider everywhere = new StubProvider("everywhere", true);
+
+        wilderness.protectedChunk = true;
+        denying.protectedChunk = true;
+        engine.register(wilderness);
+        engine.register(denying);
+
+        for (int x = -64; x < 64; x += 4) {
+            for (int z = -64; z < 64; z += 4) {
+                boolean claimed = x >> 4 == 0 && z >> 4 == 0;
+
+                assertEquals(!claimed, engine.evaluate(session, location(x, z), GraveAction.CREATE));
+            }
+        }
+
+        long wildernessHits = engine.getWildernessHits();
+
+        engine.register(everywhere);
+
+        assertFalse(engine.evaluate(session, location(100, 100), GraveAction.CREATE));
+        assertEquals(wildernessHits, engine.getWildernessHits());
+    }
+
+    private Location location(int x, int z) {
+        return new Location(world, x, 64, z);
+    }
+
+    private static ProviderOrder fixedOrder(String... names) {
+        YamlConfiguration config = new YamlConfiguration();
+
+        config.set("order", List.of(names));
+
+        return ProviderOrder.load(config);
+    }
+
+    /**
+     * A stand-in provider that answers every check the same way, optionally only protecting chunk 0, 0.
+     */
+    private static final class StubProvider implements ProtectionProvider {
+        private final String name;
+        private boolean allowed;
+        private boolean protectedChunk;
+        private long spinNanos;
+        private int calls;
+
+        private StubProvider(String name, boolean allowed) {
+            this.name = name;
+            this.allowed = allowed;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isAllowed(Player player, Location location, GraveAction action) {
+            long end = System.nanoTime() + spinNanos;
+
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+
+            calls++;
+
+            return allowed;
+        }
+
+        @Override
+        public boolean mayDeny(Location location, GraveAction action) {
+            return !protectedChunk || location.getBlockX() >> 4 == 0 && location.getBlockZ() >> 4 == 0;
+        }
+
+        @Override
+        public List<String> getRegionKeys(Location location) {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.config.TownyRelationRules;
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import dev.cwhead.GravesXAddon.util.ChunkKey;
+import dev.cwhead.GravesXAddon.util.LongObjectHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the {@link TownySnapshot} and the towns it shares with the snapshot taken before it.
+ */
+class TownySnapshotTest {
+    private static final UUID TOWN = UUID.randomUUID();
+    private static final UUID OTHER_TOWN = UUID.randomUUID();
+    private static final UUID RESIDENT = UUID.randomUUID();
+    private static final UUID OTHER_RESIDENT = UUID.randomUUID();
+    private static final UUID NEWCOMER = UUID.randomUUID();
+
+    @Test
+    void replacesOnlyChangedTowns() {
+        LongObjectHashMap<UUID> cells = new LongObjectHashMap<>();
+
+        cells.put(ChunkKey.pack(0, 0), TOWN);
+        cells.put(ChunkKey.pack(1, 0), OTHER_TOWN);
+
+        Map<String, LongObjectHashMap<UUID>> worlds = Map.of("world", cells);
+        TownySnapshot previous = new TownySnapshot(16, worlds,
+                Map.of(TOWN, Set.of(RESIDENT), OTHER_TOWN, Set.of(OTHER_RESIDENT)), Map.of(), TownyRelationRules.DEFAULT);
+        TownySnapshot next = previous.withChanges(16, worlds, Map.of(TOWN, Set.of(RESIDENT, NEWCOMER)), Map.of(),
+                TownyRelationRules.DEFAULT);
+
+        assertFalse(previous.evaluate("world", 8, 8, NEWCOMER, GraveAction.OPEN));
+        assertTrue(next.evaluate("world", 8, 8, NEWCOMER, GraveAction.OPEN));
+        assertTrue(next.evaluate("world", 8, 8, RESIDENT, GraveAction.OPEN));
+        assertTrue(next.evaluate("world", 24, 8, OTHER_RESIDENT, GraveAction.OPEN));
+        assertFalse(next.evaluate("world", 24, 8, NEWCOMER, GraveAction.OPEN));
+    }
+
+    @Test
+    void removesDeletedTowns() {
+        Map<UUID, Set<UUID>> deleted = new HashMap<>();
+
+        deleted.put(TOWN, null);
+
+        LongObjectHashMap<UUID> cells = new LongObjectHashMap<>();
+
+        cells.put(ChunkKey.pack(0, 0), TOWN);
+
+        TownySnapshot previous = new TownySnapshot(16, Map.of("world", cells), Map.of(TOWN, Set.of(RESIDENT)),
+                Map.of(), TownyRelationRules.DEFAULT);
+        TownySnapshot next = previous.withChanges(16, Map.of("world", cells), deleted, Map.of(),
+                TownyRelationRules.DEFAULT);
+
+        assertTrue(previous.isResident(TOWN, RESIDENT));
+        assertFalse(next.isResident(TOWN, RESIDENT));
+    }
+}
@@ -0,0 +1,43 @@
+package dev.cwhead.GravesXAddon.snapshot;
+
+import dev.cwhead.GravesXAddon.type.GraveAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the live check marking of the {@link WorldRegionSnapshot}.
+ */
+class WorldRegionSnapshotTest {
+    @Test
+    void requiresLiveCheckInsideMarkedRegion() {
+        WorldRegionSnapshot world = new WorldRegionSnapshot("world", null,
+                List.of(region("groups", 0, 31, true), region("uuids", 64, 95, false)));
+
+        assertTrue(world.requiresLiveCheck(world.getChunkRegions(0, 0), 10, 64, 10));
+        assertFalse(world.requiresLiveCheck(world.getChunkRegions(4, 4), 70, 64, 70));
+        assertFalse(world.requiresLiveCheck(world.getChunkRegions(10, 10), 170, 64, 170));
+    }
+
+    @Test
+    void requiresLiveCheckEverywhereForMarkedGlobalRegion() {
+        WorldRegionSnapshot world = new WorldRegionSnapshot("world",
+                region("__global__", Integer.MIN_VALUE, Integer.MAX_VALUE, true), List.of());
+
+        assertTrue(world.requiresLiveCheck(world.getChunkRegions(10, 10), 170, 64, 170));
+    }
+
+    private static RegionSnapshot region(String id, int min, int max, boolean requiresLiveCheck) {
+        byte[] flags = new byte[GraveAction.values().length];
+
+        flags[GraveAction.OPEN.ordinal()] = RegionSnapshot.DENY;
+
+        return new RegionSnapshot(id, null, 0, min, -64, min, max, 319, max, null, null, flags,
+                Set.of(UUID.randomUUID()), requiresLiveCheck);
+    }
+}